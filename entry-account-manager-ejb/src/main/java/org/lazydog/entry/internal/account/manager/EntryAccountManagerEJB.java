@@ -1,30 +1,364 @@
 package org.lazydog.entry.internal.account.manager;
 
 import java.util.Properties;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.annotation.Resource;
+import javax.ejb.EJB;
 import javax.ejb.Local;
+import javax.ejb.Lock;
+import javax.ejb.LockType;
+import javax.ejb.Schedule;
 import javax.ejb.Singleton;
+import javax.ejb.Startup;
+import javax.ejb.Timeout;
+import javax.ejb.TimerConfig;
+import javax.ejb.TimerService;
 import javax.interceptor.Interceptors;
 import org.lazydog.ejbmonitor.interceptor.EJBMonitor;
 import org.lazydog.entry.spi.account.manager.EntryAccountManager;
+import org.lazydog.entry.spi.account.manager.EntryAccountManagerFactory;
+import org.lazydog.entry.spi.account.manager.EntryAccountManagerWarmUp;
 
 
 /**
  * Entry account manager Enterprise Java Bean.
  *
+ * <p>The bean delegates to the Entry account manager created by the Entry
+ * account manager factory, so the implementation is the one packaged with
+ * the application: the directory implementation by default, or the
+ * implementation selected by the account-manager-memory or
+ * account-manager-jdbc build profile.</p>
+ *
+ * <p>The lookups of a login take the read lock, so concurrent logins do
+ * not wait for each other behind the write lock the changes and the
+ * administrative operations take.  The Entry account manager must then
+ * support concurrent lookups; the directory implementation gives every
+ * lookup its own directory context from the connection pool.</p>
+ *
+ * <p>If the Entry account manager supports it, the group memberships are
+ * warmed up by a timer after the bean is initialized, so the warm up never
+ * delays or fails the deployment.  The warm up and its partitions run on
+ * the threads of the container through the asynchronous warm up bean,
+ * outside the lock of this bean.</p>
+ *
  * @author  Ron Rickard
  */
 @Singleton(name="ejb/EntryAccountManager")
+@Startup
 @Local(EntryAccountManager.class)
 @Interceptors(EJBMonitor.class)
-public class EntryAccountManagerEJB extends EntryAccountManagerImpl implements EntryAccountManager {
+public class EntryAccountManagerEJB implements EntryAccountManager {
+
+    private static final Logger LOGGER = Logger.getLogger(EntryAccountManagerEJB.class.getName());
+    private static final long WARM_UP_TIMEOUT_DEFAULT = 30000;
+
+    private EntryAccountManager entryAccountManager;
 
     @Resource(name="EntryAccountManagerEnvironment")
     private Properties environment;
 
+    @Resource
+    private TimerService timerService;
+
+    @EJB
+    private EntryAccountManagerWarmUpEJB warmUpBean;
+
+    /**
+     * Check if the account exists.  The check takes the read lock, so
+     * concurrent identical checks share one directory lookup.
+     *
+     * @param  accountName  the account name.
+     *
+     * @return  true if the account exists, otherwise false.
+     */
+    @Lock(LockType.READ)
+    @Override
+    public boolean accountExists(String accountName) {
+        return entryAccountManager.accountExists(accountName);
+    }
+
+    /**
+     * Add members (accounts) to the group.
+     *
+     * @param  groupName     the group name.
+     * @param  accountNames  the account names.
+     */
+    @Override
+    public void addMembers(String groupName, Set<String> accountNames) {
+        entryAccountManager.addMembers(groupName, accountNames);
+    }
+
+    /**
+     * Add nested groups to the group.
+     *
+     * @param  groupName         the group name.
+     * @param  nestedGroupNames  the nested group names.
+     */
+    @Override
+    public void addNestedGroups(String groupName, Set<String> nestedGroupNames) {
+        entryAccountManager.addNestedGroups(groupName, nestedGroupNames);
+    }
+
+    /**
+     * Change the password for the account.
+     *
+     * @param  accountName  the account name.
+     * @param  password     the password.
+     */
+    @Override
+    public void changePassword(String accountName, String password) {
+        entryAccountManager.changePassword(accountName, password);
+    }
+
+    /**
+     * Close the Entry account manager.
+     */
+    @Override
+    public void close() {
+        entryAccountManager.close();
+    }
+
+    /**
+     * Create the account.
+     *
+     * @param  accountName  the account name.
+     * @param  password     the password.
+     */
+    @Override
+    public void createAccount(String accountName, String password) {
+        entryAccountManager.createAccount(accountName, password);
+    }
+
+    /**
+     * Create the group.
+     *
+     * @param  groupName  the group name.
+     */
+    @Override
+    public void createGroup(String groupName) {
+        entryAccountManager.createGroup(groupName);
+    }
+
+    /**
+     * Close the Entry account manager when the bean is destroyed.
+     */
+    @PreDestroy
+    protected void destroy() {
+        this.close();
+    }
+
+    /**
+     * Get the groups of the account.  The lookup takes the read lock, so
+     * concurrent identical lookups share one directory lookup.
+     *
+     * @param  accountName  the account name.
+     *
+     * @return  the groups.
+     */
+    @Lock(LockType.READ)
+    @Override
+    public Set<String> getGroups(String accountName) {
+        return entryAccountManager.getGroups(accountName);
+    }
+
+    /**
+     * Get the members (accounts) of the group.
+     *
+     * @param  groupName  the group name.
+     *
+     * @return  the members.
+     */
+    @Override
+    public Set<String> getMembers(String groupName) {
+        return entryAccountManager.getMembers(groupName);
+    }
+
+    /**
+     * Get the nested groups of the group.
+     *
+     * @param  groupName  the group name.
+     *
+     * @return  the nested groups.
+     */
+    @Override
+    public Set<String> getNestedGroups(String groupName) {
+        return entryAccountManager.getNestedGroups(groupName);
+    }
+
+    /**
+     * Check if the group exists.
+     *
+     * @param  groupName  the group name.
+     *
+     * @return  true if the group exists, otherwise false.
+     */
+    @Override
+    public boolean groupExists(String groupName) {
+        return entryAccountManager.groupExists(groupName);
+    }
+
+    /**
+     * Create the Entry account manager with the Entry account manager
+     * factory and, if configured, schedule the warm up of the group
+     * memberships.
+     */
     @PostConstruct
     protected void initialize() {
-        this.setEnvironment(this.environment);
+
+        this.entryAccountManager = EntryAccountManagerFactory.instance().createEntryAccountManager(this.environment);
+
+        // Check if the warm up is configured.
+        if (this.environment.getProperty(EntryAccountManagerWarmUp.WARM_UP_THREADS) != null) {
+            timerService.createSingleActionTimer(0, new TimerConfig(null, false));
+        }
+    }
+
+    /**
+     * Check if the account is locked.  The check takes the read lock.
+     *
+     * @param  accountName  the account name.
+     *
+     * @return  true if the account is locked, otherwise false.
+     */
+    @Lock(LockType.READ)
+    @Override
+    public boolean isAccountLocked(String accountName) {
+        return entryAccountManager.isAccountLocked(accountName);
+    }
+
+    /**
+     * Check if the account is a member of the group.  The check takes the
+     * read lock.
+     *
+     * @param  accountName  the account name.
+     * @param  groupName    the group name.
+     *
+     * @return  true if the account is a member, otherwise false.
+     */
+    @Lock(LockType.READ)
+    @Override
+    public boolean isMember(String accountName, String groupName) {
+        return entryAccountManager.isMember(accountName, groupName);
+    }
+
+    /**
+     * Check if the password is the password for the account.  The check
+     * takes the read lock; both the lookup of the account and the bind as
+     * the account use their own directory contexts.
+     *
+     * @param  accountName  the account name.
+     * @param  password     the password to verify.
+     *
+     * @return  true if the password is the password for the account, otherwise false.
+     */
+    @Lock(LockType.READ)
+    @Override
+    public boolean isPassword(String accountName, String password) {
+        return entryAccountManager.isPassword(accountName, password);
+    }
+
+    /**
+     * Lock the account.
+     *
+     * @param  accountName  the account name.
+     */
+    @Override
+    public void lockAccount(String accountName) {
+        entryAccountManager.lockAccount(accountName);
+    }
+
+    /**
+     * Log the statistics of the Entry account manager every hour.
+     */
+    @Schedule(hour="*", persistent=false)
+    protected void logStatistics() {
+        LOGGER.log(Level.INFO, "{0}", entryAccountManager);
+    }
+
+    /**
+     * Remove the account.
+     *
+     * @param  accountName  the account name.
+     */
+    @Override
+    public void removeAccount(String accountName) {
+        entryAccountManager.removeAccount(accountName);
+    }
+
+    /**
+     * Remove the group.
+     *
+     * @param  groupName  the group name.
+     */
+    @Override
+    public void removeGroup(String groupName) {
+        entryAccountManager.removeGroup(groupName);
+    }
+
+    /**
+     * Remove the members (accounts) from the group.
+     *
+     * @param  groupName     the group name.
+     * @param  accountNames  the account names.
+     */
+    @Override
+    public void removeMembers(String groupName, Set<String> accountNames) {
+        entryAccountManager.removeMembers(groupName, accountNames);
+    }
+
+    /**
+     * Remove the nested groups from the group.
+     *
+     * @param  groupName         the group name.
+     * @param  nestedGroupNames  the nested group names.
+     */
+    @Override
+    public void removeNestedGroups(String groupName, Set<String> nestedGroupNames) {
+        entryAccountManager.removeNestedGroups(groupName, nestedGroupNames);
+    }
+
+    /**
+     * Unlock the account.
+     *
+     * @param  accountName  the account name.
+     */
+    @Override
+    public void unlockAccount(String accountName) {
+        entryAccountManager.unlockAccount(accountName);
+    }
+
+    /**
+     * Warm up the group memberships.  The warm up is handed to the
+     * asynchronous warm up bean, which loads the groups in partitions, one
+     * per warm up thread, until the warm up timeout, so the timer returns at
+     * once and the lock is not held while the groups are loaded.  Until the
+     * warm up finishes, the group memberships are populated on demand.
+     */
+    @Timeout
+    @Lock(LockType.READ)
+    protected void warmUp() {
+
+        try {
+
+            // Declare.
+            int threadCount;
+            long timeout;
+
+            // Get the number of threads and the timeout.
+            threadCount = Integer.parseInt(this.environment.getProperty(EntryAccountManagerWarmUp.WARM_UP_THREADS, "0"));
+            timeout = Long.parseLong(this.environment.getProperty(EntryAccountManagerWarmUp.WARM_UP_TIMEOUT, Long.toString(WARM_UP_TIMEOUT_DEFAULT)));
+
+            // Check if the warm up is enabled and supported.
+            if (threadCount > 0 && entryAccountManager instanceof EntryAccountManagerWarmUp) {
+                warmUpBean.warmUp((EntryAccountManagerWarmUp)entryAccountManager, threadCount, timeout);
+            }
+        }
+        catch(RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Unable to warm up the groups.", e);
+        }
     }
 }
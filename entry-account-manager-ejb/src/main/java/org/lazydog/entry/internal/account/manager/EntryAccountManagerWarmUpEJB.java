@@ -0,0 +1,135 @@
+package org.lazydog.entry.internal.account.manager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.Resource;
+import javax.ejb.AsyncResult;
+import javax.ejb.Asynchronous;
+import javax.ejb.LocalBean;
+import javax.ejb.SessionContext;
+import javax.ejb.Stateless;
+import org.lazydog.entry.spi.account.manager.EntryAccountManagerWarmUp;
+
+
+/**
+ * Entry account manager warm up Enterprise Java Bean.
+ *
+ * <p>The warm up runs asynchronously on the threads of the container, so
+ * the Entry account manager warms up in parallel without starting threads
+ * of its own, and the Entry account manager bean neither holds its lock nor
+ * waits while the groups are loaded.  The progress is logged as every
+ * partition is loaded.</p>
+ *
+ * @author  Ron Rickard
+ */
+@Stateless(name="ejb/EntryAccountManagerWarmUp")
+@LocalBean
+public class EntryAccountManagerWarmUpEJB {
+
+    private static final Logger LOGGER = Logger.getLogger(EntryAccountManagerWarmUpEJB.class.getName());
+
+    @Resource
+    private SessionContext sessionContext;
+
+    /**
+     * Warm up the Entry account manager asynchronously.  The groups are
+     * loaded in partitions, one per warm up thread, until the warm up
+     * timeout; the warm up is then finished with the groups loaded.  A
+     * failure is only logged; the group memberships are then populated on
+     * demand.
+     *
+     * @param  entryAccountManager  the Entry account manager.
+     * @param  threadCount          the number of warm up threads.
+     * @param  timeout              the warm up timeout in milliseconds.
+     */
+    @Asynchronous
+    public void warmUp(EntryAccountManagerWarmUp entryAccountManager, int threadCount, long timeout) {
+
+        try {
+
+            // Declare.
+            long deadline;
+            List<Future<Integer>> futures;
+            List<String> groupNames;
+
+            // Initialize.
+            deadline = System.currentTimeMillis() + timeout;
+            futures = new ArrayList<Future<Integer>>();
+            groupNames = entryAccountManager.startWarmUp();
+
+            LOGGER.log(Level.INFO, "Warming up {0} groups using {1} threads.",
+                    new Object[]{groupNames.size(), threadCount});
+
+            try {
+
+                // Loop through the partitions of the group names.
+                for (int x = 0; x < threadCount; x++) {
+
+                    // Declare.
+                    List<String> partition;
+
+                    // Get the partition.
+                    partition = new ArrayList<String>();
+                    for (int y = x; y < groupNames.size(); y += threadCount) {
+                        partition.add(groupNames.get(y));
+                    }
+
+                    // Load the groups of the partition asynchronously.
+                    futures.add(sessionContext.getBusinessObject(EntryAccountManagerWarmUpEJB.class)
+                            .warmUpPartition(entryAccountManager, partition, x + 1, threadCount));
+                }
+
+                // Loop through the futures.
+                for (Future<Integer> future : futures) {
+
+                    // Wait for the groups of the partition to be loaded.
+                    future.get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+                }
+            }
+            finally {
+                entryAccountManager.finishWarmUp();
+            }
+        }
+        catch(ExecutionException e) {
+            LOGGER.log(Level.WARNING, "Unable to warm up the groups.", e.getCause());
+        }
+        catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        catch(TimeoutException e) {
+            LOGGER.log(Level.WARNING, "The warm up timed out after {0} milliseconds.", timeout);
+        }
+        catch(RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Unable to warm up the groups.", e);
+        }
+    }
+
+    /**
+     * Warm up the Entry account manager with the groups of the partition
+     * asynchronously.
+     *
+     * @param  entryAccountManager  the Entry account manager.
+     * @param  groupNames           the group names of the partition.
+     * @param  partition            the number of the partition.
+     * @param  partitionCount       the number of partitions.
+     *
+     * @return  the future number of groups loaded, failed if unable to load
+     *          the groups.
+     */
+    @Asynchronous
+    public Future<Integer> warmUpPartition(EntryAccountManagerWarmUp entryAccountManager, List<String> groupNames, int partition, int partitionCount) {
+
+        entryAccountManager.warmUp(groupNames);
+
+        LOGGER.log(Level.INFO, "Warmed up partition {0} of {1} with {2} groups.",
+                new Object[]{partition, partitionCount, groupNames.size()});
+
+        return new AsyncResult<Integer>(groupNames.size());
+    }
+}
@@ -0,0 +1,34 @@
+package org.lazydog.entry.internal.account.manager.jdbc;
+
+import java.util.Properties;
+import org.lazydog.entry.spi.account.manager.EntryAccountManager;
+import org.lazydog.entry.spi.account.manager.EntryAccountManagerFactory;
+
+
+/**
+ * JDBC Entry account manager factory implementation.
+ *
+ * @author  Ron Rickard
+ */
+public class JdbcEntryAccountManagerFactoryImpl extends EntryAccountManagerFactory {
+
+    /**
+     * Create the Entry account manager.
+     *
+     * @param  environment  the environment.
+     *
+     * @return  the Entry account manager.
+     */
+    @Override
+    public EntryAccountManager createEntryAccountManager(Properties environment) {
+
+        // Declare.
+        JdbcEntryAccountManagerImpl entryAccountManager;
+
+        // Create the Entry account manager.
+        entryAccountManager = new JdbcEntryAccountManagerImpl();
+        entryAccountManager.setEnvironment(environment);
+
+        return entryAccountManager;
+    }
+}
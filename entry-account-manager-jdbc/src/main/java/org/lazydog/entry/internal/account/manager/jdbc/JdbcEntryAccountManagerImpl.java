@@ -0,0 +1,1760 @@
+package org.lazydog.entry.internal.account.manager.jdbc;
+
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.HashSet;
+import java.util.Properties;
+import java.util.Set;
+import javax.naming.InitialContext;
+import javax.naming.NamingException;
+import javax.sql.DataSource;
+import org.lazydog.entry.spi.account.manager.EntryAccountManager;
+import org.lazydog.entry.spi.account.manager.EntryAccountManagerException;
+import org.lazydog.entry.spi.account.manager.EntryAlreadyExistsException;
+import org.lazydog.entry.spi.account.manager.NoSuchEntryException;
+
+
+/**
+ * JDBC account manager implementation.
+ *
+ * <p>Accounts, password hashes, lock state, group memberships and nested
+ * groups are stored in the entry.account, entry.account_group,
+ * entry.account_group_member and entry.account_group_nesting tables.  The
+ * tables are reached through the data source named by the data source
+ * property, which defaults to the jdbc/EntryPool data source used by the
+ * Entry repository.  If the connection takes part in a container-managed
+ * transaction, the account manager leaves committing to the container, so
+ * a registration commits the user profile and the account together.</p>
+ *
+ * @author  Ron Rickard
+ */
+public class JdbcEntryAccountManagerImpl implements EntryAccountManager {
+
+    public static final String DATA_SOURCE = "entry.account.manager.data.source";
+    private static final String CHARSET = "UTF-8";
+    private static final String DATA_SOURCE_DEFAULT = "jdbc/EntryPool";
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+    private static final int SALT_LENGTH = 8;
+    private static final String DELETE_ACCOUNT =
+            "delete from entry.account where id = ?";
+    private static final String DELETE_ACCOUNT_GROUP =
+            "delete from entry.account_group where id = ?";
+    private static final String DELETE_ACCOUNT_GROUP_MEMBER =
+            "delete from entry.account_group_member "
+            + "where account_group_id = ? "
+            + "and account_id = (select id from entry.account where account_name = ?)";
+    private static final String DELETE_ACCOUNT_GROUP_MEMBERS_BY_ACCOUNT =
+            "delete from entry.account_group_member where account_id = ?";
+    private static final String DELETE_ACCOUNT_GROUP_MEMBERS_BY_GROUP =
+            "delete from entry.account_group_member where account_group_id = ?";
+    private static final String DELETE_ACCOUNT_GROUP_NESTING =
+            "delete from entry.account_group_nesting "
+            + "where account_group_id = ? "
+            + "and nested_account_group_id = (select id from entry.account_group where group_name = ?)";
+    private static final String DELETE_ACCOUNT_GROUP_NESTINGS_BY_GROUP =
+            "delete from entry.account_group_nesting "
+            + "where account_group_id = ? or nested_account_group_id = ?";
+    private static final String INSERT_ACCOUNT =
+            "insert into entry.account "
+            + "(account_name, password_hash, password_salt, locked, create_time) "
+            + "values (?, ?, ?, 0, ?)";
+    private static final String INSERT_ACCOUNT_GROUP =
+            "insert into entry.account_group (group_name, create_time) values (?, ?)";
+    private static final String INSERT_ACCOUNT_GROUP_MEMBER =
+            "insert into entry.account_group_member (account_group_id, account_id) "
+            + "select g.id, a.id from entry.account_group g, entry.account a "
+            + "where g.id = ? and a.account_name = ? "
+            + "and not exists (select 1 from entry.account_group_member m "
+            + "where m.account_group_id = g.id and m.account_id = a.id)";
+    private static final String INSERT_ACCOUNT_GROUP_NESTING =
+            "insert into entry.account_group_nesting (account_group_id, nested_account_group_id) "
+            + "select p.id, g.id from entry.account_group p, entry.account_group g "
+            + "where p.id = ? and g.group_name = ? "
+            + "and not exists (select 1 from entry.account_group_nesting n "
+            + "where n.account_group_id = p.id and n.nested_account_group_id = g.id)";
+    private static final String SELECT_ACCOUNT =
+            "select id, password_hash, password_salt, locked from entry.account where account_name = ?";
+    private static final String SELECT_ACCOUNT_GROUP =
+            "select id from entry.account_group where group_name = ?";
+    private static final String SELECT_ACCOUNT_GROUPS =
+            "select g.id, g.group_name from entry.account_group g "
+            + "join entry.account_group_member m on m.account_group_id = g.id "
+            + "where m.account_id = ?";
+    private static final String SELECT_ACCOUNT_NAMES =
+            "select account_name from entry.account where account_name in ";
+    private static final String SELECT_GROUP_NAMES =
+            "select group_name from entry.account_group where group_name in ";
+    private static final String SELECT_MEMBERS =
+            "select a.account_name from entry.account a "
+            + "join entry.account_group_member m on m.account_id = a.id "
+            + "where m.account_group_id = ?";
+    private static final String SELECT_NESTED_GROUPS =
+            "select g.group_name from entry.account_group g "
+            + "join entry.account_group_nesting n on n.nested_account_group_id = g.id "
+            + "where n.account_group_id = ?";
+    private static final String SELECT_PARENT_GROUPS =
+            "select distinct g.id, g.group_name from entry.account_group g "
+            + "join entry.account_group_nesting n on n.account_group_id = g.id "
+            + "where n.nested_account_group_id in ";
+    private static final String UPDATE_LOCKED =
+            "update entry.account set locked = ?, modify_time = ? where account_name = ?";
+    private static final String UPDATE_PASSWORD =
+            "update entry.account set password_hash = ?, password_salt = ?, modify_time = ? where account_name = ?";
+    private DataSource dataSource;
+    private final SecureRandom random = new SecureRandom();
+
+    /**
+     * Check if the account exists.
+     *
+     * @param  accountName  the account name.
+     *
+     * @return  true if the account exists, otherwise false.
+     *
+     * @throws  AccountManagerException   if unable to check if the account exists.
+     * @throws  IllegalArgumentException  if the account name is invalid.
+     */
+    @Override
+    public boolean accountExists(String accountName) {
+
+        // Declare.
+        Connection connection;
+
+        checkEmpty(accountName, "The account name is invalid.");
+
+        // Initialize.
+        connection = null;
+
+        try {
+
+            // Get the connection.
+            connection = getConnection();
+
+            return (getAccountId(connection, accountName) != null);
+        }
+        catch(SQLException e) {
+            throw new EntryAccountManagerException(
+                    "Unable to check if the account " + accountName + " exists.", e);
+        }
+        finally {
+            close(connection);
+        }
+    }
+
+    /**
+     * Add members (accounts) to the group.
+     *
+     * @param  groupName     the group name.
+     * @param  accountNames  the account names.
+     *
+     * @throws  AccountManagerException   if unable to add members to the group.
+     * @throws  IllegalArgumentException  if the group name and/or the account names is invalid.
+     * @throws  NoSuchEntryException      if the group and/or one or more of the accounts do not exist.
+     */
+    @Override
+    public void addMembers(String groupName, Set<String> accountNames) {
+
+        // Declare.
+        Connection connection;
+        boolean localTransaction;
+
+        checkEmpty(groupName, "The group name is invalid.");
+        checkEmpty(accountNames, "The account names is invalid.");
+
+        // Initialize.
+        connection = null;
+        localTransaction = false;
+
+        try {
+
+            // Declare.
+            Integer groupId;
+
+            // Get the connection.
+            connection = getConnection();
+            localTransaction = begin(connection);
+
+            // Get the group ID.
+            groupId = getGroupId(connection, groupName);
+            checkNoSuchEntry(groupId, groupName, "The group " + groupName + " does not exist.");
+            checkNoSuchEntries(connection, SELECT_ACCOUNT_NAMES, accountNames,
+                    "One or more of the accounts " + accountNames + " do not exist.");
+
+            // Add the accounts to the group in one batch.
+            executeBatch(connection, INSERT_ACCOUNT_GROUP_MEMBER, groupId, accountNames);
+
+            commit(connection, localTransaction);
+        }
+        catch(SQLException e) {
+            rollback(connection, localTransaction);
+            throw new EntryAccountManagerException(
+                    "Unable to add members " + accountNames + " to the group " + groupName + ".", e);
+        }
+        catch(RuntimeException e) {
+            rollback(connection, localTransaction);
+            throw e;
+        }
+        finally {
+            close(connection);
+        }
+    }
+
+    /**
+     * Add nested groups to the group.
+     *
+     * @param  groupName         the group name.
+     * @param  nestedGroupNames  the nested group names.
+     *
+     * @throws  AccountManagerException   if unable to add nested groups to the group.
+     * @throws  IllegalArgumentException  if the group name and/or the nested group names is invalid.
+     * @throws  NoSuchEntryException      if the group and/or one or more of the nested groups do not exist.
+     */
+    @Override
+    public void addNestedGroups(String groupName, Set<String> nestedGroupNames) {
+
+        // Declare.
+        Connection connection;
+        boolean localTransaction;
+
+        checkEmpty(groupName, "The group name is invalid.");
+        checkEmpty(nestedGroupNames, "The nested group names is invalid.");
+
+        // Check if the group is one of the nested groups.
+        if (nestedGroupNames.contains(groupName)) {
+            throw new IllegalArgumentException("The group " + groupName + " cannot be nested in itself.");
+        }
+
+        // Initialize.
+        connection = null;
+        localTransaction = false;
+
+        try {
+
+            // Declare.
+            Integer groupId;
+
+            // Get the connection.
+            connection = getConnection();
+            localTransaction = begin(connection);
+
+            // Get the group ID.
+            groupId = getGroupId(connection, groupName);
+            checkNoSuchEntry(groupId, groupName, "The group " + groupName + " does not exist.");
+            checkNoSuchEntries(connection, SELECT_GROUP_NAMES, nestedGroupNames,
+                    "One or more of the groups " + nestedGroupNames + " do not exist.");
+
+            // Nest the groups in one batch.
+            executeBatch(connection, INSERT_ACCOUNT_GROUP_NESTING, groupId, nestedGroupNames);
+
+            commit(connection, localTransaction);
+        }
+        catch(SQLException e) {
+            rollback(connection, localTransaction);
+            throw new EntryAccountManagerException(
+                    "Unable to add nested groups " + nestedGroupNames + " to the group " + groupName + ".", e);
+        }
+        catch(RuntimeException e) {
+            rollback(connection, localTransaction);
+            throw e;
+        }
+        finally {
+            close(connection);
+        }
+    }
+
+    /**
+     * Begin a local transaction on the connection, unless the connection
+     * already takes part in a transaction.
+     *
+     * @param  connection  the connection.
+     *
+     * @return  true if a local transaction was begun, otherwise false.
+     *
+     * @throws  SQLException  if unable to begin the transaction.
+     */
+    private static boolean begin(Connection connection) throws SQLException {
+
+        // Declare.
+        boolean localTransaction;
+
+        // Check if the connection is in auto-commit mode.
+        localTransaction = connection.getAutoCommit();
+        if (localTransaction) {
+            connection.setAutoCommit(false);
+        }
+
+        return localTransaction;
+    }
+
+    /**
+     * Change the password for the account.
+     *
+     * @param  accountName  the account name.
+     * @param  password     the password.
+     *
+     * @throws  AccountManagerException   if unable to change the password for the account.
+     * @throws  IllegalArgumentException  if the account name and/or password is invalid.
+     * @throws  NoSuchEntryException      if the account does not exist.
+     */
+    @Override
+    public void changePassword(String accountName, String password) {
+
+        // Declare.
+        Connection connection;
+        PreparedStatement statement;
+
+        checkEmpty(accountName, "The account name is invalid.");
+        checkEmpty(password, "The password is invalid.");
+
+        // Initialize.
+        connection = null;
+        statement = null;
+
+        try {
+
+            // Declare.
+            byte[] salt;
+
+            // Hash the password with a new salt.
+            salt = randomSalt();
+
+            // Change the password for the account.
+            connection = getConnection();
+            statement = connection.prepareStatement(UPDATE_PASSWORD);
+            statement.setString(1, hash(password, salt));
+            statement.setString(2, toHex(salt));
+            statement.setTimestamp(3, now());
+            statement.setString(4, accountName);
+
+            // Check if the account does not exist.
+            if (statement.executeUpdate() == 0) {
+                throw new NoSuchEntryException(accountName, "The account " + accountName + " does not exist.");
+            }
+        }
+        catch(SQLException e) {
+            throw new EntryAccountManagerException(
+                    "Unable to change the password for the account " + accountName + ".", e);
+        }
+        finally {
+            close(statement);
+            close(connection);
+        }
+    }
+
+    /**
+     * Check if the value is empty.
+     *
+     * @param  value    the value.
+     * @param  message  the message to throw if the value is empty.
+     *
+     * @throws  IllegalArgumentException  if the value is empty.
+     */
+    private static void checkEmpty(String value, String message) {
+
+        // Check if the value is empty.
+        if (value == null || "".equals(value)) {
+            throw new IllegalArgumentException(message);
+        }
+    }
+
+    /**
+     * Check if one or more of the values are empty.
+     *
+     * @param  values   the values.
+     * @param  message  the message to throw if the values are empty.
+     *
+     * @throws  IllegalArgumentException  if one or more of the values are empty.
+     */
+    private static void checkEmpty(Set<String> values, String message) {
+
+        // Check if the values are empty.
+        if (values == null || values.isEmpty()) {
+            throw new IllegalArgumentException(message);
+        }
+        else {
+
+            // Loop through the values.
+            for (String value : values) {
+
+                // Check if the value is empty.
+                checkEmpty(value, message);
+            }
+        }
+    }
+
+    /**
+     * Check if one or more of the entries do not exist, using one query for
+     * all the names.
+     *
+     * @param  connection  the connection.
+     * @param  query       the query selecting the existing names, without the in-list.
+     * @param  names       the names.
+     * @param  message     the message to throw if one or more of the entries do not exist.
+     *
+     * @throws  NoSuchEntryException  if one or more of the entries do not exist.
+     * @throws  SQLException          if unable to check if the entries exist.
+     */
+    private static void checkNoSuchEntries(Connection connection, String query, Set<String> names, String message)
+            throws SQLException {
+
+        // Declare.
+        Set<String> existingNames;
+        ResultSet resultSet;
+        PreparedStatement statement;
+
+        // Initialize.
+        existingNames = new HashSet<String>();
+        resultSet = null;
+        statement = null;
+
+        try {
+
+            // Declare.
+            int index;
+
+            // Select the existing names.
+            statement = connection.prepareStatement(query + inList(names.size()));
+            index = 1;
+            for (String name : names) {
+                statement.setString(index++, name);
+            }
+            resultSet = statement.executeQuery();
+
+            // Loop through the result set.
+            while (resultSet.next()) {
+                existingNames.add(resultSet.getString(1));
+            }
+        }
+        finally {
+            close(resultSet);
+            close(statement);
+        }
+
+        // Loop through the names.
+        for (String name : names) {
+
+            // Check if the entry does not exist.
+            if (!existingNames.contains(name)) {
+                throw new NoSuchEntryException(name, message);
+            }
+        }
+    }
+
+    /**
+     * Check if the entry does not exist.
+     *
+     * @param  entryId    the entry ID, or null if the entry does not exist.
+     * @param  entryName  the entry name.
+     * @param  message    the message to throw if the entry does not exist.
+     *
+     * @throws  NoSuchEntryException  if the entry does not exist.
+     */
+    private static void checkNoSuchEntry(Integer entryId, String entryName, String message) {
+
+        // Check if the entry does not exist.
+        if (entryId == null) {
+            throw new NoSuchEntryException(entryName, message);
+        }
+    }
+
+    /**
+     * Close the account manager.  The connections are returned to the data
+     * source after each operation, so there is nothing to close.
+     */
+    @Override
+    public void close() {
+        // Do nothing.
+    }
+
+    /**
+     * Close the connection quietly.
+     *
+     * @param  connection  the connection.
+     */
+    private static void close(Connection connection) {
+
+        try {
+            if (connection != null) {
+                connection.close();
+            }
+        }
+        catch(SQLException e) {
+            // Ignore.
+        }
+    }
+
+    /**
+     * Close the result set quietly.
+     *
+     * @param  resultSet  the result set.
+     */
+    private static void close(ResultSet resultSet) {
+
+        try {
+            if (resultSet != null) {
+                resultSet.close();
+            }
+        }
+        catch(SQLException e) {
+            // Ignore.
+        }
+    }
+
+    /**
+     * Close the statement quietly.
+     *
+     * @param  statement  the statement.
+     */
+    private static void close(Statement statement) {
+
+        try {
+            if (statement != null) {
+                statement.close();
+            }
+        }
+        catch(SQLException e) {
+            // Ignore.
+        }
+    }
+
+    /**
+     * Commit the local transaction on the connection.
+     *
+     * @param  connection        the connection.
+     * @param  localTransaction  true if a local transaction was begun.
+     *
+     * @throws  SQLException  if unable to commit the transaction.
+     */
+    private static void commit(Connection connection, boolean localTransaction) throws SQLException {
+
+        // Check if a local transaction was begun.
+        if (localTransaction) {
+            connection.commit();
+            connection.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * Create the account.
+     *
+     * @param  accountName  the account name.
+     * @param  password     the password.
+     *
+     * @throws  AccountManagerException      if unable to create the account.
+     * @throws  EntryAlreadyExistsException  if the account already exists.
+     * @throws  IllegalArgumentException     if the account name and/or password is invalid.
+     */
+    @Override
+    public void createAccount(String accountName, String password) {
+
+        // Declare.
+        Connection connection;
+        PreparedStatement statement;
+
+        checkEmpty(accountName, "The account name is invalid.");
+        checkEmpty(password, "The password is invalid.");
+
+        // Initialize.
+        connection = null;
+        statement = null;
+
+        try {
+
+            // Declare.
+            byte[] salt;
+
+            // Get the connection.
+            connection = getConnection();
+
+            // Check if the account already exists.
+            if (getAccountId(connection, accountName) != null) {
+                throw new EntryAlreadyExistsException(
+                        accountName, "Account " + accountName + " already exists.");
+            }
+
+            // Create the account.
+            salt = randomSalt();
+            statement = connection.prepareStatement(INSERT_ACCOUNT);
+            statement.setString(1, accountName);
+            statement.setString(2, hash(password, salt));
+            statement.setString(3, toHex(salt));
+            statement.setTimestamp(4, now());
+            statement.executeUpdate();
+        }
+        catch(SQLException e) {
+
+            // Check if a concurrent creation of the account inserted it first.
+            if (isDuplicateKey(e)) {
+                throw new EntryAlreadyExistsException(
+                        accountName, "Account " + accountName + " already exists.", e);
+            }
+
+            throw new EntryAccountManagerException(
+                    "Unable to create the account " + accountName + ".", e);
+        }
+        finally {
+            close(statement);
+            close(connection);
+        }
+    }
+
+    /**
+     * Create the group.
+     *
+     * @param  groupName  the group name.
+     *
+     * @throws  AccountManagerException      if unable to create the group.
+     * @throws  EntryAlreadyExistsException  if the group already exists.
+     * @throws  IllegalArgumentException     if the group name is invalid.
+     */
+    @Override
+    public void createGroup(String groupName) {
+
+        // Declare.
+        Connection connection;
+        PreparedStatement statement;
+
+        checkEmpty(groupName, "The group name is invalid.");
+
+        // Initialize.
+        connection = null;
+        statement = null;
+
+        try {
+
+            // Get the connection.
+            connection = getConnection();
+
+            // Check if the group already exists.
+            if (getGroupId(connection, groupName) != null) {
+                throw new EntryAlreadyExistsException(
+                        groupName, "Group " + groupName + " already exists.");
+            }
+
+            // Create the group.
+            statement = connection.prepareStatement(INSERT_ACCOUNT_GROUP);
+            statement.setString(1, groupName);
+            statement.setTimestamp(2, now());
+            statement.executeUpdate();
+        }
+        catch(SQLException e) {
+
+            // Check if a concurrent creation of the group inserted it first.
+            if (isDuplicateKey(e)) {
+                throw new EntryAlreadyExistsException(
+                        groupName, "Group " + groupName + " already exists.", e);
+            }
+
+            throw new EntryAccountManagerException(
+                    "Unable to create the group " + groupName + ".", e);
+        }
+        finally {
+            close(statement);
+            close(connection);
+        }
+    }
+
+    /**
+     * Execute the statement as one batch, once for each name.
+     *
+     * @param  connection  the connection.
+     * @param  sql         the SQL statement taking the group ID and the name.
+     * @param  groupId     the group ID.
+     * @param  names       the names.
+     *
+     * @throws  SQLException  if unable to execute the batch.
+     */
+    private static void executeBatch(Connection connection, String sql, Integer groupId, Set<String> names)
+            throws SQLException {
+
+        // Declare.
+        PreparedStatement statement;
+
+        // Initialize.
+        statement = null;
+
+        try {
+
+            // Add a batch entry for each name.
+            statement = connection.prepareStatement(sql);
+            for (String name : names) {
+                statement.setInt(1, groupId);
+                statement.setString(2, name);
+                statement.addBatch();
+            }
+
+            // Execute the batch.
+            statement.executeBatch();
+        }
+        finally {
+            close(statement);
+        }
+    }
+
+    /**
+     * Execute the update on the entry ID.
+     *
+     * @param  connection  the connection.
+     * @param  sql         the SQL statement taking the entry ID for each parameter.
+     * @param  entryId     the entry ID.
+     * @param  count       the number of parameters.
+     *
+     * @throws  SQLException  if unable to execute the update.
+     */
+    private static void executeUpdate(Connection connection, String sql, Integer entryId, int count)
+            throws SQLException {
+
+        // Declare.
+        PreparedStatement statement;
+
+        // Initialize.
+        statement = null;
+
+        try {
+
+            // Execute the update.
+            statement = connection.prepareStatement(sql);
+            for (int index = 1; index <= count; index++) {
+                statement.setInt(index, entryId);
+            }
+            statement.executeUpdate();
+        }
+        finally {
+            close(statement);
+        }
+    }
+
+    /**
+     * Convert the hexadecimal to bytes.
+     *
+     * @param  hex  the hexadecimal.
+     *
+     * @return  the bytes.
+     */
+    private static byte[] fromHex(String hex) {
+
+        // Declare.
+        byte[] bytes;
+
+        // Initialize.
+        bytes = new byte[hex.length() / 2];
+
+        // Loop through the bytes.
+        for (int index = 0; index < bytes.length; index++) {
+            bytes[index] = (byte)Integer.parseInt(hex.substring(index * 2, index * 2 + 2), 16);
+        }
+
+        return bytes;
+    }
+
+    /**
+     * Get the account ID.
+     *
+     * @param  connection   the connection.
+     * @param  accountName  the account name.
+     *
+     * @return  the account ID, or null if the account does not exist.
+     *
+     * @throws  SQLException  if unable to get the account ID.
+     */
+    private static Integer getAccountId(Connection connection, String accountName) throws SQLException {
+        return getId(connection, SELECT_ACCOUNT, accountName);
+    }
+
+    /**
+     * Get a connection from the data source.
+     *
+     * @return  the connection.
+     *
+     * @throws  SQLException  if unable to get a connection.
+     */
+    private Connection getConnection() throws SQLException {
+
+        // Check if the data source is not set.
+        if (dataSource == null) {
+            throw new EntryAccountManagerException("The data source is not set.");
+        }
+
+        return dataSource.getConnection();
+    }
+
+    /**
+     * Get the group ID.
+     *
+     * @param  connection  the connection.
+     * @param  groupName   the group name.
+     *
+     * @return  the group ID, or null if the group does not exist.
+     *
+     * @throws  SQLException  if unable to get the group ID.
+     */
+    private static Integer getGroupId(Connection connection, String groupName) throws SQLException {
+        return getId(connection, SELECT_ACCOUNT_GROUP, groupName);
+    }
+
+    /**
+     * Get the groups of the account, including the groups inherited through
+     * nested groups.  The nested groups are resolved one nesting level per
+     * query.
+     *
+     * @param  accountName  the account name.
+     *
+     * @return  the groups.
+     *
+     * @throws  AccountManagerException   if unable to get the groups of the account.
+     * @throws  IllegalArgumentException  if the account name is invalid.
+     * @throws  NoSuchEntryException      if the account does not exist.
+     */
+    @Override
+    public Set<String> getGroups(String accountName) {
+
+        // Declare.
+        Connection connection;
+
+        checkEmpty(accountName, "The account name is invalid.");
+
+        // Initialize.
+        connection = null;
+
+        try {
+
+            // Get the connection.
+            connection = getConnection();
+
+            return getGroups(connection, accountName);
+        }
+        catch(SQLException e) {
+            throw new EntryAccountManagerException(
+                    "Unable to get the groups for the account " + accountName + ".", e);
+        }
+        finally {
+            close(connection);
+        }
+    }
+
+    /**
+     * Get the groups of the account, including the groups inherited through
+     * nested groups.
+     *
+     * @param  connection   the connection.
+     * @param  accountName  the account name.
+     *
+     * @return  the groups.
+     *
+     * @throws  NoSuchEntryException  if the account does not exist.
+     * @throws  SQLException          if unable to get the groups of the account.
+     */
+    private static Set<String> getGroups(Connection connection, String accountName) throws SQLException {
+
+        // Declare.
+        Integer accountId;
+        Set<Integer> groupIds;
+        Set<String> groupNames;
+        Set<Integer> pendingGroupIds;
+        ResultSet resultSet;
+        PreparedStatement statement;
+
+        // Get the account ID.
+        accountId = getAccountId(connection, accountName);
+        checkNoSuchEntry(accountId, accountName, "The account " + accountName + " does not exist.");
+
+        // Initialize.
+        groupIds = new HashSet<Integer>();
+        groupNames = new HashSet<String>();
+        pendingGroupIds = new HashSet<Integer>();
+        resultSet = null;
+        statement = null;
+
+        try {
+
+            // Select the direct groups of the account.
+            statement = connection.prepareStatement(SELECT_ACCOUNT_GROUPS);
+            statement.setInt(1, accountId);
+            resultSet = statement.executeQuery();
+            readGroups(resultSet, groupIds, groupNames, pendingGroupIds);
+        }
+        finally {
+            close(resultSet);
+            close(statement);
+        }
+
+        // Loop until no new parent groups are found.
+        while (!pendingGroupIds.isEmpty()) {
+
+            // Declare.
+            Set<Integer> parentGroupIds;
+
+            // Initialize.
+            parentGroupIds = new HashSet<Integer>();
+            resultSet = null;
+            statement = null;
+
+            try {
+
+                // Declare.
+                int index;
+
+                // Select the parent groups of the pending groups.
+                statement = connection.prepareStatement(SELECT_PARENT_GROUPS + inList(pendingGroupIds.size()));
+                index = 1;
+                for (Integer pendingGroupId : pendingGroupIds) {
+                    statement.setInt(index++, pendingGroupId);
+                }
+                resultSet = statement.executeQuery();
+                readGroups(resultSet, groupIds, groupNames, parentGroupIds);
+            }
+            finally {
+                close(resultSet);
+                close(statement);
+            }
+
+            pendingGroupIds = parentGroupIds;
+        }
+
+        return groupNames;
+    }
+
+    /**
+     * Get the ID of the entry selected by the query.
+     *
+     * @param  connection  the connection.
+     * @param  query       the query selecting the ID in the first column.
+     * @param  name        the entry name.
+     *
+     * @return  the ID, or null if the entry does not exist.
+     *
+     * @throws  SQLException  if unable to get the ID.
+     */
+    private static Integer getId(Connection connection, String query, String name) throws SQLException {
+
+        // Declare.
+        ResultSet resultSet;
+        PreparedStatement statement;
+
+        // Initialize.
+        resultSet = null;
+        statement = null;
+
+        try {
+
+            // Select the entry.
+            statement = connection.prepareStatement(query);
+            statement.setString(1, name);
+            resultSet = statement.executeQuery();
+
+            return (resultSet.next()) ? Integer.valueOf(resultSet.getInt(1)) : null;
+        }
+        finally {
+            close(resultSet);
+            close(statement);
+        }
+    }
+
+    /**
+     * Get the members (accounts) of the group.
+     *
+     * @param  groupName  the group name.
+     *
+     * @return  the members.
+     *
+     * @throws  AccountManagerException   if unable to get the members of the group.
+     * @throws  IllegalArgumentException  if the group name is invalid.
+     * @throws  NoSuchEntryException      if the group does not exist.
+     */
+    @Override
+    public Set<String> getMembers(String groupName) {
+
+        checkEmpty(groupName, "The group name is invalid.");
+
+        return getNames(SELECT_MEMBERS, groupName, "Unable to get the members for the group " + groupName + ".");
+    }
+
+    /**
+     * Get the names selected by the query for the group.
+     *
+     * @param  query         the query taking the group ID.
+     * @param  groupName     the group name.
+     * @param  errorMessage  the message to throw if unable to get the names.
+     *
+     * @return  the names.
+     *
+     * @throws  AccountManagerException  if unable to get the names.
+     * @throws  NoSuchEntryException     if the group does not exist.
+     */
+    private Set<String> getNames(String query, String groupName, String errorMessage) {
+
+        // Declare.
+        Connection connection;
+        Set<String> names;
+        ResultSet resultSet;
+        PreparedStatement statement;
+
+        // Initialize.
+        connection = null;
+        names = new HashSet<String>();
+        resultSet = null;
+        statement = null;
+
+        try {
+
+            // Declare.
+            Integer groupId;
+
+            // Get the group ID.
+            connection = getConnection();
+            groupId = getGroupId(connection, groupName);
+            checkNoSuchEntry(groupId, groupName, "The group " + groupName + " does not exist.");
+
+            // Select the names.
+            statement = connection.prepareStatement(query);
+            statement.setInt(1, groupId);
+            resultSet = statement.executeQuery();
+
+            // Loop through the result set.
+            while (resultSet.next()) {
+                names.add(resultSet.getString(1));
+            }
+        }
+        catch(SQLException e) {
+            throw new EntryAccountManagerException(errorMessage, e);
+        }
+        finally {
+            close(resultSet);
+            close(statement);
+            close(connection);
+        }
+
+        return names;
+    }
+
+    /**
+     * Get the nested groups of the group.
+     *
+     * @param  groupName  the group name.
+     *
+     * @return  the nested groups.
+     *
+     * @throws  AccountManagerException   if unable to get the nested groups of the group.
+     * @throws  IllegalArgumentException  if the group name is invalid.
+     * @throws  NoSuchEntryException      if the group does not exist.
+     */
+    @Override
+    public Set<String> getNestedGroups(String groupName) {
+
+        checkEmpty(groupName, "The group name is invalid.");
+
+        return getNames(SELECT_NESTED_GROUPS, groupName, "Unable to get the nested groups for the group " + groupName + ".");
+    }
+
+    /**
+     * Check if the group exists.
+     *
+     * @param  groupName  the group name.
+     *
+     * @return  true if the group exists, otherwise false.
+     *
+     * @throws  AccountManagerException   if unable to check if the group exists.
+     * @throws  IllegalArgumentException  if the group name is invalid.
+     */
+    @Override
+    public boolean groupExists(String groupName) {
+
+        // Declare.
+        Connection connection;
+
+        checkEmpty(groupName, "The group name is invalid.");
+
+        // Initialize.
+        connection = null;
+
+        try {
+
+            // Get the connection.
+            connection = getConnection();
+
+            return (getGroupId(connection, groupName) != null);
+        }
+        catch(SQLException e) {
+            throw new EntryAccountManagerException(
+                    "Unable to check if the group " + groupName + " exists.", e);
+        }
+        finally {
+            close(connection);
+        }
+    }
+
+    /**
+     * Hash the password with the salt.
+     *
+     * @param  password  the password.
+     * @param  salt      the salt.
+     *
+     * @return  the password hash as hexadecimal.
+     */
+    private static String hash(String password, byte[] salt) {
+
+        try {
+
+            // Declare.
+            MessageDigest digest;
+
+            // Hash the password and salt.
+            digest = MessageDigest.getInstance(DIGEST_ALGORITHM);
+            digest.update(password.getBytes(CHARSET));
+            digest.update(salt);
+
+            return toHex(digest.digest());
+        }
+        catch(NoSuchAlgorithmException e) {
+            throw new EntryAccountManagerException("Unable to hash the password.", e);
+        }
+        catch(UnsupportedEncodingException e) {
+            throw new EntryAccountManagerException("Unable to hash the password.", e);
+        }
+    }
+
+    /**
+     * Get an in-list with the number of parameters.
+     *
+     * @param  count  the number of parameters.
+     *
+     * @return  the in-list.
+     */
+    private static String inList(int count) {
+
+        // Declare.
+        StringBuilder inList;
+
+        // Initialize.
+        inList = new StringBuilder("(");
+
+        // Add a parameter for each value.
+        for (int index = 0; index < count; index++) {
+            inList.append((index == 0) ? "?" : ", ?");
+        }
+
+        return inList.append(")").toString();
+    }
+
+    /**
+     * Check if the account is locked.
+     *
+     * @param  accountName  the account name.
+     *
+     * @return  true if the account is locked, otherwise false.
+     *
+     * @throws  AccountManagerException   if unable to check if the account is locked.
+     * @throws  IllegalArgumentException  if the account name is invalid.
+     * @throws  NoSuchEntryException      if the account does not exist.
+     */
+    @Override
+    public boolean isAccountLocked(String accountName) {
+
+        // Declare.
+        Connection connection;
+        ResultSet resultSet;
+        PreparedStatement statement;
+
+        checkEmpty(accountName, "The account name is invalid.");
+
+        // Initialize.
+        connection = null;
+        resultSet = null;
+        statement = null;
+
+        try {
+
+            // Select the account.
+            connection = getConnection();
+            statement = connection.prepareStatement(SELECT_ACCOUNT);
+            statement.setString(1, accountName);
+            resultSet = statement.executeQuery();
+
+            // Check if the account does not exist.
+            if (!resultSet.next()) {
+                throw new NoSuchEntryException(accountName, "The account " + accountName + " does not exist.");
+            }
+
+            return (resultSet.getInt(4) != 0);
+        }
+        catch(SQLException e) {
+            throw new EntryAccountManagerException(
+                    "Unable to check if the account " + accountName + " is locked.", e);
+        }
+        finally {
+            close(resultSet);
+            close(statement);
+            close(connection);
+        }
+    }
+
+    /**
+     * Check if the SQL exception is a unique or primary key violation, the
+     * integrity constraint violation class of SQL states.
+     *
+     * @param  exception  the SQL exception.
+     *
+     * @return  true if the SQL exception is a duplicate key, otherwise false.
+     */
+    static boolean isDuplicateKey(SQLException exception) {
+        return exception instanceof SQLIntegrityConstraintViolationException
+                || (exception.getSQLState() != null && exception.getSQLState().startsWith("23"));
+    }
+
+    /**
+     * Check if the account is a member of the group, either directly or
+     * through nested groups.
+     *
+     * @param  accountName  the account name.
+     * @param  groupName    the group name.
+     *
+     * @return  true if the account is a member, otherwise false.
+     *
+     * @throws  AccountManagerException   if unable to check if the account is a member of the group.
+     * @throws  IllegalArgumentException  if the account and/or group name is invalid.
+     * @throws  NoSuchEntryException      if the account and/or group does not exist.
+     */
+    @Override
+    public boolean isMember(String accountName, String groupName) {
+
+        // Declare.
+        Connection connection;
+
+        checkEmpty(accountName, "The account name is invalid.");
+        checkEmpty(groupName, "The group name is invalid.");
+
+        // Initialize.
+        connection = null;
+
+        try {
+
+            // Declare.
+            Set<String> groupNames;
+
+            // Get the groups of the account.
+            connection = getConnection();
+            groupNames = getGroups(connection, accountName);
+
+            // Check if the group does not exist.
+            if (!groupNames.contains(groupName)) {
+                checkNoSuchEntry(getGroupId(connection, groupName), groupName, "The group " + groupName + " does not exist.");
+            }
+
+            return groupNames.contains(groupName);
+        }
+        catch(SQLException e) {
+            throw new EntryAccountManagerException(
+                    "Unable to check if the account " + accountName + " is a member of the group " + groupName + ".", e);
+        }
+        finally {
+            close(connection);
+        }
+    }
+
+    /**
+     * Check if the password is the password for the account.
+     *
+     * @param  accountName  the account name.
+     * @param  password     the password to verify.
+     *
+     * @return  true if the password is the password for the account, otherwise false.
+     *
+     * @throws  AccountManagerException   if unable to check if the password is the password for the account.
+     * @throws  IllegalArgumentException  if the account name and/or password is invalid.
+     * @throws  NoSuchEntryException      if the account does not exist.
+     */
+    @Override
+    public boolean isPassword(String accountName, String password) {
+
+        // Declare.
+        Connection connection;
+        ResultSet resultSet;
+        PreparedStatement statement;
+
+        checkEmpty(accountName, "The account name is invalid.");
+        checkEmpty(password, "The password is invalid.");
+
+        // Initialize.
+        connection = null;
+        resultSet = null;
+        statement = null;
+
+        try {
+
+            // Declare.
+            byte[] passwordHash;
+            byte[] salt;
+
+            // Select the account.
+            connection = getConnection();
+            statement = connection.prepareStatement(SELECT_ACCOUNT);
+            statement.setString(1, accountName);
+            resultSet = statement.executeQuery();
+
+            // Check if the account does not exist.
+            if (!resultSet.next()) {
+                throw new NoSuchEntryException(accountName, "The account " + accountName + " does not exist.");
+            }
+
+            // Get the password hash and salt.
+            passwordHash = resultSet.getString(2).getBytes(CHARSET);
+            salt = fromHex(resultSet.getString(3));
+
+            return MessageDigest.isEqual(passwordHash, hash(password, salt).getBytes(CHARSET));
+        }
+        catch(SQLException e) {
+            throw new EntryAccountManagerException(
+                    "Unable to check if the password is the password for the account " + accountName + ".", e);
+        }
+        catch(UnsupportedEncodingException e) {
+            throw new EntryAccountManagerException(
+                    "Unable to check if the password is the password for the account " + accountName + ".", e);
+        }
+        finally {
+            close(resultSet);
+            close(statement);
+            close(connection);
+        }
+    }
+
+    /**
+     * Lock the account.
+     *
+     * @param  accountName  the account name.
+     *
+     * @throws  AccountManagerException   if unable to lock the account.
+     * @throws  IllegalArgumentException  if the account name is invalid.
+     * @throws  NoSuchEntryException      if the account does not exist.
+     */
+    @Override
+    public void lockAccount(String accountName) {
+        setAccountLocked(accountName, true);
+    }
+
+    /**
+     * Get the current time.
+     *
+     * @return  the current time.
+     */
+    private static Timestamp now() {
+        return new Timestamp(System.currentTimeMillis());
+    }
+
+    /**
+     * Generate a random salt.
+     *
+     * @return  a random salt.
+     */
+    private byte[] randomSalt() {
+
+        // Declare.
+        byte[] salt;
+
+        // Generate random bytes for salt.
+        salt = new byte[SALT_LENGTH];
+        random.nextBytes(salt);
+
+        return salt;
+    }
+
+    /**
+     * Read the groups from the result set, adding the groups not seen before
+     * to the new group IDs.
+     *
+     * @param  resultSet    the result set with the group ID and group name.
+     * @param  groupIds     the group IDs seen so far.
+     * @param  groupNames   the group names seen so far.
+     * @param  newGroupIds  the new group IDs.
+     *
+     * @throws  SQLException  if unable to read the groups.
+     */
+    private static void readGroups(ResultSet resultSet, Set<Integer> groupIds, Set<String> groupNames, Set<Integer> newGroupIds)
+            throws SQLException {
+
+        // Loop through the result set.
+        while (resultSet.next()) {
+
+            // Declare.
+            Integer groupId;
+
+            // Get the group ID.
+            groupId = Integer.valueOf(resultSet.getInt(1));
+
+            // Check if the group has not been seen before.
+            if (groupIds.add(groupId)) {
+                groupNames.add(resultSet.getString(2));
+                newGroupIds.add(groupId);
+            }
+        }
+    }
+
+    /**
+     * Remove the account.
+     *
+     * @param  accountName  the account name.
+     *
+     * @throws  AccountManagerException   if unable to remove the account.
+     * @throws  IllegalArgumentException  if the account name is invalid.
+     * @throws  NoSuchEntryException      if the account does not exist.
+     */
+    @Override
+    public void removeAccount(String accountName) {
+
+        // Declare.
+        Connection connection;
+        boolean localTransaction;
+
+        checkEmpty(accountName, "The account name is invalid.");
+
+        // Initialize.
+        connection = null;
+        localTransaction = false;
+
+        try {
+
+            // Declare.
+            Integer accountId;
+
+            // Get the account ID.
+            connection = getConnection();
+            localTransaction = begin(connection);
+            accountId = getAccountId(connection, accountName);
+            checkNoSuchEntry(accountId, accountName, "The account " + accountName + " does not exist.");
+
+            // Remove the account from its groups and remove the account.
+            executeUpdate(connection, DELETE_ACCOUNT_GROUP_MEMBERS_BY_ACCOUNT, accountId, 1);
+            executeUpdate(connection, DELETE_ACCOUNT, accountId, 1);
+
+            commit(connection, localTransaction);
+        }
+        catch(SQLException e) {
+            rollback(connection, localTransaction);
+            throw new EntryAccountManagerException(
+                    "Unable to remove the account " + accountName + ".", e);
+        }
+        catch(RuntimeException e) {
+            rollback(connection, localTransaction);
+            throw e;
+        }
+        finally {
+            close(connection);
+        }
+    }
+
+    /**
+     * Remove the group.
+     *
+     * @param  groupName  the group name.
+     *
+     * @throws  AccountManagerException   if unable to remove the group.
+     * @throws  IllegalArgumentException  if the group name is invalid.
+     * @throws  NoSuchEntryException      if the group does not exist.
+     */
+    @Override
+    public void removeGroup(String groupName) {
+
+        // Declare.
+        Connection connection;
+        boolean localTransaction;
+
+        checkEmpty(groupName, "The group name is invalid.");
+
+        // Initialize.
+        connection = null;
+        localTransaction = false;
+
+        try {
+
+            // Declare.
+            Integer groupId;
+
+            // Get the group ID.
+            connection = getConnection();
+            localTransaction = begin(connection);
+            groupId = getGroupId(connection, groupName);
+            checkNoSuchEntry(groupId, groupName, "The group " + groupName + " does not exist.");
+
+            // Remove the members and nestings of the group and remove the group.
+            executeUpdate(connection, DELETE_ACCOUNT_GROUP_MEMBERS_BY_GROUP, groupId, 1);
+            executeUpdate(connection, DELETE_ACCOUNT_GROUP_NESTINGS_BY_GROUP, groupId, 2);
+            executeUpdate(connection, DELETE_ACCOUNT_GROUP, groupId, 1);
+
+            commit(connection, localTransaction);
+        }
+        catch(SQLException e) {
+            rollback(connection, localTransaction);
+            throw new EntryAccountManagerException(
+                    "Unable to remove the group " + groupName + ".", e);
+        }
+        catch(RuntimeException e) {
+            rollback(connection, localTransaction);
+            throw e;
+        }
+        finally {
+            close(connection);
+        }
+    }
+
+    /**
+     * Remove the members (accounts) from the group.
+     *
+     * @param  groupName     the group name.
+     * @param  accountNames  the account names.
+     *
+     * @throws  AccountManagerException   if unable to remove members from the group.
+     * @throws  IllegalArgumentException  if the group name and/or one or more of the account names is invalid.
+     * @throws  NoSuchEntryException      if the group and/or one or more of the accounts do not exist.
+     */
+    @Override
+    public void removeMembers(String groupName, Set<String> accountNames) {
+
+        // Declare.
+        Connection connection;
+        boolean localTransaction;
+
+        checkEmpty(groupName, "The group name is invalid.");
+        checkEmpty(accountNames, "The account names is invalid.");
+
+        // Initialize.
+        connection = null;
+        localTransaction = false;
+
+        try {
+
+            // Declare.
+            Integer groupId;
+
+            // Get the connection.
+            connection = getConnection();
+            localTransaction = begin(connection);
+
+            // Get the group ID.
+            groupId = getGroupId(connection, groupName);
+            checkNoSuchEntry(groupId, groupName, "The group " + groupName + " does not exist.");
+            checkNoSuchEntries(connection, SELECT_ACCOUNT_NAMES, accountNames,
+                    "One or more of the accounts " + accountNames + " do not exist.");
+
+            // Remove the accounts from the group in one batch.
+            executeBatch(connection, DELETE_ACCOUNT_GROUP_MEMBER, groupId, accountNames);
+
+            commit(connection, localTransaction);
+        }
+        catch(SQLException e) {
+            rollback(connection, localTransaction);
+            throw new EntryAccountManagerException(
+                    "Unable to remove members " + accountNames + " from the group " + groupName + ".", e);
+        }
+        catch(RuntimeException e) {
+            rollback(connection, localTransaction);
+            throw e;
+        }
+        finally {
+            close(connection);
+        }
+    }
+
+    /**
+     * Remove the nested groups from the group.
+     *
+     * @param  groupName         the group name.
+     * @param  nestedGroupNames  the nested group names.
+     *
+     * @throws  AccountManagerException   if unable to remove nested groups from the group.
+     * @throws  IllegalArgumentException  if the group name and/or one or more of the nested group names is invalid.
+     * @throws  NoSuchEntryException      if the group does not exist.
+     */
+    @Override
+    public void removeNestedGroups(String groupName, Set<String> nestedGroupNames) {
+
+        // Declare.
+        Connection connection;
+        boolean localTransaction;
+
+        checkEmpty(groupName, "The group name is invalid.");
+        checkEmpty(nestedGroupNames, "The nested group names is invalid.");
+
+        // Initialize.
+        connection = null;
+        localTransaction = false;
+
+        try {
+
+            // Declare.
+            Integer groupId;
+
+            // Get the connection.
+            connection = getConnection();
+            localTransaction = begin(connection);
+
+            // Get the group ID.
+            groupId = getGroupId(connection, groupName);
+            checkNoSuchEntry(groupId, groupName, "The group " + groupName + " does not exist.");
+
+            // Remove the nested groups from the group in one batch.
+            executeBatch(connection, DELETE_ACCOUNT_GROUP_NESTING, groupId, nestedGroupNames);
+
+            commit(connection, localTransaction);
+        }
+        catch(SQLException e) {
+            rollback(connection, localTransaction);
+            throw new EntryAccountManagerException(
+                    "Unable to remove nested groups " + nestedGroupNames + " from the group " + groupName + ".", e);
+        }
+        catch(RuntimeException e) {
+            rollback(connection, localTransaction);
+            throw e;
+        }
+        finally {
+            close(connection);
+        }
+    }
+
+    /**
+     * Roll back the local transaction on the connection quietly.
+     *
+     * @param  connection        the connection.
+     * @param  localTransaction  true if a local transaction was begun.
+     */
+    private static void rollback(Connection connection, boolean localTransaction) {
+
+        try {
+
+            // Check if a local transaction was begun.
+            if (connection != null && localTransaction) {
+                connection.rollback();
+                connection.setAutoCommit(true);
+            }
+        }
+        catch(SQLException e) {
+            // Ignore.
+        }
+    }
+
+    /**
+     * Set the account locked state.
+     *
+     * @param  accountName  the account name.
+     * @param  locked       true to lock the account, false to unlock it.
+     *
+     * @throws  AccountManagerException   if unable to set the account locked state.
+     * @throws  IllegalArgumentException  if the account name is invalid.
+     * @throws  NoSuchEntryException      if the account does not exist.
+     */
+    private void setAccountLocked(String accountName, boolean locked) {
+
+        // Declare.
+        Connection connection;
+        PreparedStatement statement;
+
+        checkEmpty(accountName, "The account name is invalid.");
+
+        // Initialize.
+        connection = null;
+        statement = null;
+
+        try {
+
+            // Set the account locked state.
+            connection = getConnection();
+            statement = connection.prepareStatement(UPDATE_LOCKED);
+            statement.setInt(1, (locked) ? 1 : 0);
+            statement.setTimestamp(2, now());
+            statement.setString(3, accountName);
+
+            // Check if the account does not exist.
+            if (statement.executeUpdate() == 0) {
+                throw new NoSuchEntryException(accountName, "The account " + accountName + " does not exist.");
+            }
+        }
+        catch(SQLException e) {
+            throw new EntryAccountManagerException(
+                    "Unable to " + ((locked) ? "lock" : "unlock") + " the account " + accountName + ".", e);
+        }
+        finally {
+            close(statement);
+            close(connection);
+        }
+    }
+
+    /**
+     * Set the data source.
+     *
+     * @param  dataSource  the data source.
+     */
+    protected void setDataSource(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * Set the environment.  The data source is looked up by the name in the
+     * data source property, or jdbc/EntryPool if the property is not set.
+     *
+     * @param  environment  the environment.
+     *
+     * @throws  AccountManagerException  if unable to look up the data source.
+     */
+    protected void setEnvironment(Properties environment) {
+
+        // Declare.
+        String dataSourceName;
+
+        // Get the data source name.
+        dataSourceName = (environment != null) ? environment.getProperty(DATA_SOURCE, DATA_SOURCE_DEFAULT) : DATA_SOURCE_DEFAULT;
+
+        try {
+
+            // Look up the data source.
+            setDataSource((DataSource)new InitialContext().lookup(dataSourceName));
+        }
+        catch(NamingException e) {
+            throw new EntryAccountManagerException(
+                    "Unable to look up the data source " + dataSourceName + ".", e);
+        }
+    }
+
+    /**
+     * Convert the bytes to hexadecimal.
+     *
+     * @param  bytes  the bytes.
+     *
+     * @return  the hexadecimal.
+     */
+    private static String toHex(byte[] bytes) {
+
+        // Declare.
+        StringBuilder hex;
+
+        // Initialize.
+        hex = new StringBuilder(bytes.length * 2);
+
+        // Loop through the bytes.
+        for (byte value : bytes) {
+            hex.append(HEX_DIGITS[(value >> 4) & 0x0f]).append(HEX_DIGITS[value & 0x0f]);
+        }
+
+        return hex.toString();
+    }
+
+    /**
+     * Unlock the account.
+     *
+     * @param  accountName  the account name.
+     *
+     * @throws  AccountManagerException   if unable to unlock the account.
+     * @throws  IllegalArgumentException  if the account name is invalid.
+     * @throws  NoSuchEntryException      if the account does not exist.
+     */
+    @Override
+    public void unlockAccount(String accountName) {
+        setAccountLocked(accountName, false);
+    }
+}
@@ -0,0 +1,239 @@
+package org.lazydog.entry.internal.account.manager.jdbc;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashSet;
+import java.util.Set;
+import javax.sql.DataSource;
+import static org.junit.Assert.*;
+import org.apache.derby.jdbc.EmbeddedDataSource;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.lazydog.entry.spi.account.manager.EntryAlreadyExistsException;
+import org.lazydog.entry.spi.account.manager.NoSuchEntryException;
+
+
+/**
+ * Unit tests for JdbcEntryAccountManagerImpl class.
+ *
+ * @author  Ron Rickard
+ */
+public class JdbcEntryAccountManagerImplTest {
+
+    private static EmbeddedDataSource dataSource;
+    private JdbcEntryAccountManagerImpl accountManager;
+
+    @BeforeClass
+    public static void initialize() throws SQLException {
+
+        // Create the tables in an embedded database.
+        dataSource = new EmbeddedDataSource();
+        dataSource.setDatabaseName("./target/entry-account");
+        dataSource.setCreateDatabase("create");
+        execute(
+                "create table entry.account (id int generated always as identity primary key, "
+                + "account_name varchar(255) not null unique, password_hash char(64) not null, "
+                + "password_salt char(16) not null, locked smallint not null, "
+                + "create_time timestamp not null, modify_time timestamp)",
+                "create table entry.account_group (id int generated always as identity primary key, "
+                + "group_name varchar(255) not null unique, "
+                + "create_time timestamp not null, modify_time timestamp)",
+                "create table entry.account_group_member (account_group_id int not null, "
+                + "account_id int not null, primary key (account_group_id, account_id))",
+                "create table entry.account_group_nesting (account_group_id int not null, "
+                + "nested_account_group_id int not null, primary key (account_group_id, nested_account_group_id))");
+    }
+
+    private static void execute(String... sqls) throws SQLException {
+        Connection connection = dataSource.getConnection();
+        try {
+            Statement statement = connection.createStatement();
+            for (String sql : sqls) {
+                try {
+                    statement.execute(sql);
+                }
+                catch(SQLException e) {
+                    // The table already exists.
+                }
+            }
+            statement.close();
+        }
+        finally {
+            connection.close();
+        }
+    }
+
+    private static Object forward(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        }
+        catch(InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static Set<String> names(String... names) {
+        Set<String> set = new HashSet<String>();
+        for (String name : names) {
+            set.add(name);
+        }
+        return set;
+    }
+
+    private static DataSource racingDataSource(final String racedSql, final String racingSql) {
+        return (DataSource)Proxy.newProxyInstance(DataSource.class.getClassLoader(), new Class<?>[]{DataSource.class}, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                final Object result = forward(dataSource, method, args);
+                if (!(result instanceof Connection)) {
+                    return result;
+                }
+                return Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class}, new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                        if ("prepareStatement".equals(method.getName()) && ((String)args[0]).startsWith(racedSql)) {
+                            execute(racingSql);
+                        }
+                        return forward(result, method, args);
+                    }
+                });
+            }
+        });
+    }
+
+    @Before
+    public void beforeTest() throws SQLException {
+        execute(
+                "delete from entry.account_group_nesting",
+                "delete from entry.account_group_member",
+                "delete from entry.account_group",
+                "delete from entry.account");
+        accountManager = new JdbcEntryAccountManagerImpl();
+        accountManager.setDataSource(dataSource);
+    }
+
+    @Test
+    public void accountExists() {
+        accountManager.createAccount("testaccount1", "test123");
+        assertTrue(accountManager.accountExists("testaccount1"));
+        assertFalse(accountManager.accountExists("testaccount2"));
+    }
+
+    @Test
+    public void addMembers() {
+        accountManager.createAccount("testaccount1", "test123");
+        accountManager.createAccount("testaccount2", "test123");
+        accountManager.createGroup("testgroup1");
+        accountManager.addMembers("testgroup1", names("testaccount1", "testaccount2"));
+        accountManager.addMembers("testgroup1", names("testaccount1"));
+        assertEquals(names("testaccount1", "testaccount2"), accountManager.getMembers("testgroup1"));
+    }
+
+    @Test(expected=NoSuchEntryException.class)
+    public void addMembersNoSuchAccount() {
+        accountManager.createAccount("testaccount1", "test123");
+        accountManager.createGroup("testgroup1");
+        accountManager.addMembers("testgroup1", names("testaccount1", "testaccount2"));
+    }
+
+    @Test
+    public void changePassword() {
+        accountManager.createAccount("testaccount1", "test123");
+        assertTrue(accountManager.isPassword("testaccount1", "test123"));
+        accountManager.changePassword("testaccount1", "test456");
+        assertFalse(accountManager.isPassword("testaccount1", "test123"));
+        assertTrue(accountManager.isPassword("testaccount1", "test456"));
+    }
+
+    @Test(expected=EntryAlreadyExistsException.class)
+    public void createAccountAlreadyExists() {
+        accountManager.createAccount("testaccount1", "test123");
+        accountManager.createAccount("testaccount1", "test123");
+    }
+
+    @Test(expected=EntryAlreadyExistsException.class)
+    public void createAccountConcurrent() {
+        accountManager.setDataSource(racingDataSource("insert into entry.account ",
+                "insert into entry.account (account_name, password_hash, password_salt, locked, create_time) "
+                + "values ('testaccount1', '" + String.format("%064d", 0) + "', '" + String.format("%016d", 0) + "', 0, current_timestamp)"));
+        accountManager.createAccount("testaccount1", "test123");
+    }
+
+    @Test(expected=EntryAlreadyExistsException.class)
+    public void createGroupConcurrent() {
+        accountManager.setDataSource(racingDataSource("insert into entry.account_group ",
+                "insert into entry.account_group (group_name, create_time) values ('testgroup1', current_timestamp)"));
+        accountManager.createGroup("testgroup1");
+    }
+
+    @Test
+    public void getGroupsNested() {
+        accountManager.createAccount("testaccount1", "test123");
+        accountManager.createGroup("testgroup1");
+        accountManager.createGroup("testgroup2");
+        accountManager.createGroup("testgroup3");
+        accountManager.addMembers("testgroup1", names("testaccount1"));
+        accountManager.addNestedGroups("testgroup2", names("testgroup1"));
+        accountManager.addNestedGroups("testgroup3", names("testgroup2"));
+        accountManager.addNestedGroups("testgroup1", names("testgroup3"));
+        assertEquals(names("testgroup1", "testgroup2", "testgroup3"), accountManager.getGroups("testaccount1"));
+        assertTrue(accountManager.isMember("testaccount1", "testgroup3"));
+
+        accountManager.removeNestedGroups("testgroup3", names("testgroup2"));
+        assertFalse(accountManager.isMember("testaccount1", "testgroup3"));
+    }
+
+    @Test
+    public void lockAccount() {
+        accountManager.createAccount("testaccount1", "test123");
+        assertFalse(accountManager.isAccountLocked("testaccount1"));
+        accountManager.lockAccount("testaccount1");
+        assertTrue(accountManager.isAccountLocked("testaccount1"));
+        accountManager.unlockAccount("testaccount1");
+        assertFalse(accountManager.isAccountLocked("testaccount1"));
+    }
+
+    @Test(expected=NoSuchEntryException.class)
+    public void lockAccountNoSuchAccount() {
+        accountManager.lockAccount("testaccount1");
+    }
+
+    @Test
+    public void removeAccount() {
+        accountManager.createAccount("testaccount1", "test123");
+        accountManager.createGroup("testgroup1");
+        accountManager.addMembers("testgroup1", names("testaccount1"));
+        accountManager.removeAccount("testaccount1");
+        assertFalse(accountManager.accountExists("testaccount1"));
+        assertTrue(accountManager.getMembers("testgroup1").isEmpty());
+    }
+
+    @Test
+    public void removeGroup() {
+        accountManager.createAccount("testaccount1", "test123");
+        accountManager.createGroup("testgroup1");
+        accountManager.createGroup("testgroup2");
+        accountManager.addMembers("testgroup1", names("testaccount1"));
+        accountManager.addNestedGroups("testgroup2", names("testgroup1"));
+        accountManager.removeGroup("testgroup1");
+        assertFalse(accountManager.groupExists("testgroup1"));
+        assertTrue(accountManager.getGroups("testaccount1").isEmpty());
+        assertTrue(accountManager.getNestedGroups("testgroup2").isEmpty());
+    }
+
+    @Test
+    public void removeMembers() {
+        accountManager.createAccount("testaccount1", "test123");
+        accountManager.createAccount("testaccount2", "test123");
+        accountManager.createGroup("testgroup1");
+        accountManager.addMembers("testgroup1", names("testaccount1", "testaccount2"));
+        accountManager.removeMembers("testgroup1", names("testaccount1"));
+        assertEquals(names("testaccount2"), accountManager.getMembers("testgroup1"));
+    }
+}
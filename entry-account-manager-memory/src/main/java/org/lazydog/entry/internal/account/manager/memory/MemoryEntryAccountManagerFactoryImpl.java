@@ -0,0 +1,34 @@
+package org.lazydog.entry.internal.account.manager.memory;
+
+import java.util.Properties;
+import org.lazydog.entry.spi.account.manager.EntryAccountManager;
+import org.lazydog.entry.spi.account.manager.EntryAccountManagerFactory;
+
+
+/**
+ * In-memory Entry account manager factory implementation.
+ *
+ * @author  Ron Rickard
+ */
+public class MemoryEntryAccountManagerFactoryImpl extends EntryAccountManagerFactory {
+
+    /**
+     * Create the Entry account manager.
+     *
+     * @param  environment  the environment.
+     *
+     * @return  the Entry account manager.
+     */
+    @Override
+    public EntryAccountManager createEntryAccountManager(Properties environment) {
+
+        // Declare.
+        MemoryEntryAccountManagerImpl entryAccountManager;
+
+        // Create the Entry account manager.
+        entryAccountManager = new MemoryEntryAccountManagerImpl();
+        entryAccountManager.setEnvironment(environment);
+
+        return entryAccountManager;
+    }
+}
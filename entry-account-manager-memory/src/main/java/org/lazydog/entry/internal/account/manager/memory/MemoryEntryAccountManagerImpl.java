@@ -0,0 +1,968 @@
+package org.lazydog.entry.internal.account.manager.memory;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import org.lazydog.entry.spi.account.manager.EntryAccountManager;
+import org.lazydog.entry.spi.account.manager.EntryAccountManagerException;
+import org.lazydog.entry.spi.account.manager.EntryAlreadyExistsException;
+import org.lazydog.entry.spi.account.manager.NoSuchEntryException;
+
+
+/**
+ * In-memory account manager implementation.
+ *
+ * <p>Accounts and groups are kept in concurrent maps guarded by a
+ * read/write lock, so lookups run concurrently and run at memory speed.
+ * If the snapshot file property is set, the accounts and groups are loaded
+ * from the file when the environment is set and saved to it when the
+ * account manager is closed or a snapshot is requested.</p>
+ *
+ * @author  Ron Rickard
+ */
+public class MemoryEntryAccountManagerImpl implements EntryAccountManager {
+
+    public static final String SNAPSHOT_FILE = "entry.account.manager.snapshot.file";
+    private static final String CHARSET = "UTF-8";
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+    private static final int SALT_LENGTH = 8;
+    private final ConcurrentMap<String, Account> accounts = new ConcurrentHashMap<String, Account>();
+    private final ConcurrentMap<String, Group> groups = new ConcurrentHashMap<String, Group>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final SecureRandom random = new SecureRandom();
+    private File snapshotFile;
+
+    /**
+     * Account.
+     */
+    private static class Account implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+        private final Set<String> groupNames = new HashSet<String>();
+        private boolean locked;
+        private byte[] passwordHash;
+        private byte[] salt;
+    }
+
+    /**
+     * Group.
+     */
+    private static class Group implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+        private final Set<String> accountNames = new HashSet<String>();
+        private final Set<String> nestedGroupNames = new HashSet<String>();
+        private final Set<String> parentGroupNames = new HashSet<String>();
+    }
+
+    /**
+     * Check if the account exists.
+     *
+     * @param  accountName  the account name.
+     *
+     * @return  true if the account exists, otherwise false.
+     *
+     * @throws  IllegalArgumentException  if the account name is invalid.
+     */
+    @Override
+    public boolean accountExists(String accountName) {
+
+        checkEmpty(accountName, "The account name is invalid.");
+
+        return accounts.containsKey(accountName);
+    }
+
+    /**
+     * Add members (accounts) to the group.
+     *
+     * @param  groupName     the group name.
+     * @param  accountNames  the account names.
+     *
+     * @throws  IllegalArgumentException  if the group name and/or the account names is invalid.
+     * @throws  NoSuchEntryException      if the group and/or one or more of the accounts do not exist.
+     */
+    @Override
+    public void addMembers(String groupName, Set<String> accountNames) {
+
+        checkEmpty(groupName, "The group name is invalid.");
+        checkEmpty(accountNames, "The account names is invalid.");
+
+        lock.writeLock().lock();
+        try {
+
+            // Declare.
+            Group group;
+
+            // Get the group.
+            group = getGroup(groupName, "The group " + groupName + " does not exist.");
+            checkNoSuchAccount(accountNames, "One or more of the accounts " + accountNames + " do not exist.");
+
+            // Loop through the account names.
+            for (String accountName : accountNames) {
+
+                // Add the account to the group.
+                group.accountNames.add(accountName);
+                accounts.get(accountName).groupNames.add(groupName);
+            }
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Add nested groups to the group.
+     *
+     * @param  groupName         the group name.
+     * @param  nestedGroupNames  the nested group names.
+     *
+     * @throws  IllegalArgumentException  if the group name and/or the nested group names is invalid.
+     * @throws  NoSuchEntryException      if the group and/or one or more of the nested groups do not exist.
+     */
+    @Override
+    public void addNestedGroups(String groupName, Set<String> nestedGroupNames) {
+
+        checkEmpty(groupName, "The group name is invalid.");
+        checkEmpty(nestedGroupNames, "The nested group names is invalid.");
+
+        // Check if the group is one of the nested groups.
+        if (nestedGroupNames.contains(groupName)) {
+            throw new IllegalArgumentException("The group " + groupName + " cannot be nested in itself.");
+        }
+
+        lock.writeLock().lock();
+        try {
+
+            // Declare.
+            Group group;
+
+            // Get the group.
+            group = getGroup(groupName, "The group " + groupName + " does not exist.");
+
+            // Loop through the nested group names.
+            for (String nestedGroupName : nestedGroupNames) {
+
+                // Check if the nested group does not exist.
+                getGroup(nestedGroupName, "One or more of the groups " + nestedGroupNames + " do not exist.");
+            }
+
+            // Loop through the nested group names.
+            for (String nestedGroupName : nestedGroupNames) {
+
+                // Nest the group.
+                group.nestedGroupNames.add(nestedGroupName);
+                groups.get(nestedGroupName).parentGroupNames.add(groupName);
+            }
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Change the password for the account.
+     *
+     * @param  accountName  the account name.
+     * @param  password     the password.
+     *
+     * @throws  IllegalArgumentException  if the account name and/or password is invalid.
+     * @throws  NoSuchEntryException      if the account does not exist.
+     */
+    @Override
+    public void changePassword(String accountName, String password) {
+
+        checkEmpty(accountName, "The account name is invalid.");
+        checkEmpty(password, "The password is invalid.");
+
+        lock.writeLock().lock();
+        try {
+
+            // Declare.
+            Account account;
+
+            // Get the account.
+            account = getAccount(accountName);
+
+            // Change the password for the account.
+            account.salt = randomSalt();
+            account.passwordHash = hash(password, account.salt);
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Check if the value is empty.
+     *
+     * @param  value    the value.
+     * @param  message  the message to throw if the value is empty.
+     *
+     * @throws  IllegalArgumentException  if the value is empty.
+     */
+    private static void checkEmpty(String value, String message) {
+
+        // Check if the value is empty.
+        if (value == null || "".equals(value)) {
+            throw new IllegalArgumentException(message);
+        }
+    }
+
+    /**
+     * Check if one or more of the values are empty.
+     *
+     * @param  values   the values.
+     * @param  message  the message to throw if the values are empty.
+     *
+     * @throws  IllegalArgumentException  if one or more of the values are empty.
+     */
+    private static void checkEmpty(Set<String> values, String message) {
+
+        // Check if the values are empty.
+        if (values == null || values.isEmpty()) {
+            throw new IllegalArgumentException(message);
+        }
+        else {
+
+            // Loop through the values.
+            for (String value : values) {
+
+                // Check if the value is empty.
+                checkEmpty(value, message);
+            }
+        }
+    }
+
+    /**
+     * Check if one or more of the accounts do not exist.
+     *
+     * @param  accountNames  the account names.
+     * @param  message       the message to throw if one or more of the accounts do not exist.
+     *
+     * @throws  NoSuchEntryException  if one or more of the accounts do not exist.
+     */
+    private void checkNoSuchAccount(Set<String> accountNames, String message) {
+
+        // Loop through the account names.
+        for (String accountName : accountNames) {
+
+            // Check if the account does not exist.
+            if (!accounts.containsKey(accountName)) {
+                throw new NoSuchEntryException(accountName, message);
+            }
+        }
+    }
+
+    /**
+     * Close the account manager, saving the snapshot if configured.
+     *
+     * @throws  AccountManagerException  if unable to save the snapshot.
+     */
+    @Override
+    public void close() {
+
+        // Check if the snapshot file exists.
+        if (snapshotFile != null) {
+            snapshot();
+        }
+    }
+
+    /**
+     * Create the account.
+     *
+     * @param  accountName  the account name.
+     * @param  password     the password.
+     *
+     * @throws  EntryAlreadyExistsException  if the account already exists.
+     * @throws  IllegalArgumentException     if the account name and/or password is invalid.
+     */
+    @Override
+    public void createAccount(String accountName, String password) {
+
+        checkEmpty(accountName, "The account name is invalid.");
+        checkEmpty(password, "The password is invalid.");
+
+        lock.writeLock().lock();
+        try {
+
+            // Declare.
+            Account account;
+
+            // Set the account.
+            account = new Account();
+            account.salt = randomSalt();
+            account.passwordHash = hash(password, account.salt);
+
+            // Create the account.
+            if (accounts.putIfAbsent(accountName, account) != null) {
+                throw new EntryAlreadyExistsException(
+                        accountName, "Account " + accountName + " already exists.");
+            }
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Create the group.
+     *
+     * @param  groupName  the group name.
+     *
+     * @throws  EntryAlreadyExistsException  if the group already exists.
+     * @throws  IllegalArgumentException     if the group name is invalid.
+     */
+    @Override
+    public void createGroup(String groupName) {
+
+        checkEmpty(groupName, "The group name is invalid.");
+
+        lock.writeLock().lock();
+        try {
+
+            // Create the group.
+            if (groups.putIfAbsent(groupName, new Group()) != null) {
+                throw new EntryAlreadyExistsException(
+                        groupName, "Group " + groupName + " already exists.");
+            }
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Get the account.
+     *
+     * @param  accountName  the account name.
+     *
+     * @return  the account.
+     *
+     * @throws  NoSuchEntryException  if the account does not exist.
+     */
+    private Account getAccount(String accountName) {
+
+        // Declare.
+        Account account;
+
+        // Get the account.
+        account = accounts.get(accountName);
+
+        // Check if the account does not exist.
+        if (account == null) {
+            throw new NoSuchEntryException(accountName, "The account " + accountName + " does not exist.");
+        }
+
+        return account;
+    }
+
+    /**
+     * Get the group.
+     *
+     * @param  groupName  the group name.
+     * @param  message    the message to throw if the group does not exist.
+     *
+     * @return  the group.
+     *
+     * @throws  NoSuchEntryException  if the group does not exist.
+     */
+    private Group getGroup(String groupName, String message) {
+
+        // Declare.
+        Group group;
+
+        // Get the group.
+        group = groups.get(groupName);
+
+        // Check if the group does not exist.
+        if (group == null) {
+            throw new NoSuchEntryException(groupName, message);
+        }
+
+        return group;
+    }
+
+    /**
+     * Get the groups of the account, including the groups inherited through
+     * nested groups.
+     *
+     * @param  accountName  the account name.
+     *
+     * @return  the groups.
+     *
+     * @throws  IllegalArgumentException  if the account name is invalid.
+     * @throws  NoSuchEntryException      if the account does not exist.
+     */
+    @Override
+    public Set<String> getGroups(String accountName) {
+
+        // Declare.
+        Set<String> groupNames;
+
+        checkEmpty(accountName, "The account name is invalid.");
+
+        lock.readLock().lock();
+        try {
+
+            // Declare.
+            List<String> pendingGroupNames;
+
+            // Initialize.
+            groupNames = new HashSet<String>();
+            pendingGroupNames = new ArrayList<String>(getAccount(accountName).groupNames);
+
+            // Loop through the pending group names.
+            while (!pendingGroupNames.isEmpty()) {
+
+                // Declare.
+                String groupName;
+
+                // Get the next group name.
+                groupName = pendingGroupNames.remove(pendingGroupNames.size() - 1);
+
+                // Check if the group has not been visited.
+                if (groupNames.add(groupName)) {
+                    pendingGroupNames.addAll(groups.get(groupName).parentGroupNames);
+                }
+            }
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+
+        return groupNames;
+    }
+
+    /**
+     * Get the members (accounts) of the group.
+     *
+     * @param  groupName  the group name.
+     *
+     * @return  the members.
+     *
+     * @throws  IllegalArgumentException  if the group name is invalid.
+     * @throws  NoSuchEntryException      if the group does not exist.
+     */
+    @Override
+    public Set<String> getMembers(String groupName) {
+
+        checkEmpty(groupName, "The group name is invalid.");
+
+        lock.readLock().lock();
+        try {
+            return new HashSet<String>(getGroup(groupName, "The group " + groupName + " does not exist.").accountNames);
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Get the nested groups of the group.
+     *
+     * @param  groupName  the group name.
+     *
+     * @return  the nested groups.
+     *
+     * @throws  IllegalArgumentException  if the group name is invalid.
+     * @throws  NoSuchEntryException      if the group does not exist.
+     */
+    @Override
+    public Set<String> getNestedGroups(String groupName) {
+
+        checkEmpty(groupName, "The group name is invalid.");
+
+        lock.readLock().lock();
+        try {
+            return new HashSet<String>(getGroup(groupName, "The group " + groupName + " does not exist.").nestedGroupNames);
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Check if the group exists.
+     *
+     * @param  groupName  the group name.
+     *
+     * @return  true if the group exists, otherwise false.
+     *
+     * @throws  IllegalArgumentException  if the group name is invalid.
+     */
+    @Override
+    public boolean groupExists(String groupName) {
+
+        checkEmpty(groupName, "The group name is invalid.");
+
+        return groups.containsKey(groupName);
+    }
+
+    /**
+     * Hash the password with the salt.
+     *
+     * @param  password  the password.
+     * @param  salt      the salt.
+     *
+     * @return  the password hash.
+     */
+    private static byte[] hash(String password, byte[] salt) {
+
+        try {
+
+            // Declare.
+            MessageDigest digest;
+
+            // Hash the password and salt.
+            digest = MessageDigest.getInstance(DIGEST_ALGORITHM);
+            digest.update(password.getBytes(CHARSET));
+            digest.update(salt);
+
+            return digest.digest();
+        }
+        catch(NoSuchAlgorithmException e) {
+            throw new EntryAccountManagerException("Unable to hash the password.", e);
+        }
+        catch(UnsupportedEncodingException e) {
+            throw new EntryAccountManagerException("Unable to hash the password.", e);
+        }
+    }
+
+    /**
+     * Check if the account is locked.
+     *
+     * @param  accountName  the account name.
+     *
+     * @return  true if the account is locked, otherwise false.
+     *
+     * @throws  IllegalArgumentException  if the account name is invalid.
+     * @throws  NoSuchEntryException      if the account does not exist.
+     */
+    @Override
+    public boolean isAccountLocked(String accountName) {
+
+        checkEmpty(accountName, "The account name is invalid.");
+
+        lock.readLock().lock();
+        try {
+            return getAccount(accountName).locked;
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Check if the account is a member of the group, either directly or
+     * through nested groups.
+     *
+     * @param  accountName  the account name.
+     * @param  groupName    the group name.
+     *
+     * @return  true if the account is a member, otherwise false.
+     *
+     * @throws  IllegalArgumentException  if the account and/or group name is invalid.
+     * @throws  NoSuchEntryException      if the account and/or group does not exist.
+     */
+    @Override
+    public boolean isMember(String accountName, String groupName) {
+
+        checkEmpty(accountName, "The account name is invalid.");
+        checkEmpty(groupName, "The group name is invalid.");
+
+        lock.readLock().lock();
+        try {
+
+            // Declare.
+            Set<String> groupNames;
+
+            // Get the groups of the account.
+            groupNames = getGroups(accountName);
+
+            // Check if the group does not exist.
+            getGroup(groupName, "The group " + groupName + " does not exist.");
+
+            return groupNames.contains(groupName);
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Check if the password is the password for the account.
+     *
+     * @param  accountName  the account name.
+     * @param  password     the password to verify.
+     *
+     * @return  true if the password is the password for the account, otherwise false.
+     *
+     * @throws  IllegalArgumentException  if the account name and/or password is invalid.
+     * @throws  NoSuchEntryException      if the account does not exist.
+     */
+    @Override
+    public boolean isPassword(String accountName, String password) {
+
+        checkEmpty(accountName, "The account name is invalid.");
+        checkEmpty(password, "The password is invalid.");
+
+        lock.readLock().lock();
+        try {
+
+            // Declare.
+            Account account;
+
+            // Get the account.
+            account = getAccount(accountName);
+
+            return MessageDigest.isEqual(account.passwordHash, hash(password, account.salt));
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Load the snapshot.
+     *
+     * @throws  AccountManagerException  if unable to load the snapshot.
+     */
+    @SuppressWarnings("unchecked")
+    private void loadSnapshot() {
+
+        lock.writeLock().lock();
+        try {
+
+            // Declare.
+            ObjectInputStream input;
+
+            // Read the accounts and groups.
+            input = new ObjectInputStream(new FileInputStream(snapshotFile));
+            try {
+                accounts.clear();
+                accounts.putAll((Map<String, Account>)input.readObject());
+                groups.clear();
+                groups.putAll((Map<String, Group>)input.readObject());
+            }
+            finally {
+                input.close();
+            }
+        }
+        catch(ClassNotFoundException e) {
+            throw new EntryAccountManagerException(
+                    "Unable to load the snapshot " + snapshotFile + ".", e);
+        }
+        catch(IOException e) {
+            throw new EntryAccountManagerException(
+                    "Unable to load the snapshot " + snapshotFile + ".", e);
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Lock the account.
+     *
+     * @param  accountName  the account name.
+     *
+     * @throws  IllegalArgumentException  if the account name is invalid.
+     * @throws  NoSuchEntryException      if the account does not exist.
+     */
+    @Override
+    public void lockAccount(String accountName) {
+        setAccountLocked(accountName, true);
+    }
+
+    /**
+     * Generate a random salt.
+     *
+     * @return  a random salt.
+     */
+    private byte[] randomSalt() {
+
+        // Declare.
+        byte[] salt;
+
+        // Generate random bytes for salt.
+        salt = new byte[SALT_LENGTH];
+        random.nextBytes(salt);
+
+        return salt;
+    }
+
+    /**
+     * Remove the account.
+     *
+     * @param  accountName  the account name.
+     *
+     * @throws  IllegalArgumentException  if the account name is invalid.
+     * @throws  NoSuchEntryException      if the account does not exist.
+     */
+    @Override
+    public void removeAccount(String accountName) {
+
+        checkEmpty(accountName, "The account name is invalid.");
+
+        lock.writeLock().lock();
+        try {
+
+            // Loop through the direct group names of the account.
+            for (String groupName : getAccount(accountName).groupNames) {
+
+                // Remove this account (member) from the group.
+                groups.get(groupName).accountNames.remove(accountName);
+            }
+
+            // Remove the account.
+            accounts.remove(accountName);
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove the group.
+     *
+     * @param  groupName  the group name.
+     *
+     * @throws  IllegalArgumentException  if the group name is invalid.
+     * @throws  NoSuchEntryException      if the group does not exist.
+     */
+    @Override
+    public void removeGroup(String groupName) {
+
+        checkEmpty(groupName, "The group name is invalid.");
+
+        lock.writeLock().lock();
+        try {
+
+            // Declare.
+            Group group;
+
+            // Get the group.
+            group = getGroup(groupName, "The group " + groupName + " does not exist.");
+
+            // Loop through the accounts of the group.
+            for (String accountName : group.accountNames) {
+                accounts.get(accountName).groupNames.remove(groupName);
+            }
+
+            // Loop through the nested groups of the group.
+            for (String nestedGroupName : group.nestedGroupNames) {
+                groups.get(nestedGroupName).parentGroupNames.remove(groupName);
+            }
+
+            // Loop through the parent groups of the group.
+            for (String parentGroupName : group.parentGroupNames) {
+                groups.get(parentGroupName).nestedGroupNames.remove(groupName);
+            }
+
+            // Remove the group.
+            groups.remove(groupName);
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove the members (accounts) from the group.
+     *
+     * @param  groupName     the group name.
+     * @param  accountNames  the account names.
+     *
+     * @throws  IllegalArgumentException  if the group name and/or one or more of the account names is invalid.
+     * @throws  NoSuchEntryException      if the group and/or one or more of the accounts do not exist.
+     */
+    @Override
+    public void removeMembers(String groupName, Set<String> accountNames) {
+
+        checkEmpty(groupName, "The group name is invalid.");
+        checkEmpty(accountNames, "The account names is invalid.");
+
+        lock.writeLock().lock();
+        try {
+
+            // Declare.
+            Group group;
+
+            // Get the group.
+            group = getGroup(groupName, "The group " + groupName + " does not exist.");
+            checkNoSuchAccount(accountNames, "One or more of the accounts " + accountNames + " do not exist.");
+
+            // Loop through the account names.
+            for (String accountName : accountNames) {
+
+                // Remove the account from the group.
+                group.accountNames.remove(accountName);
+                accounts.get(accountName).groupNames.remove(groupName);
+            }
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove the nested groups from the group.
+     *
+     * @param  groupName         the group name.
+     * @param  nestedGroupNames  the nested group names.
+     *
+     * @throws  IllegalArgumentException  if the group name and/or one or more of the nested group names is invalid.
+     * @throws  NoSuchEntryException      if the group does not exist.
+     */
+    @Override
+    public void removeNestedGroups(String groupName, Set<String> nestedGroupNames) {
+
+        checkEmpty(groupName, "The group name is invalid.");
+        checkEmpty(nestedGroupNames, "The nested group names is invalid.");
+
+        lock.writeLock().lock();
+        try {
+
+            // Declare.
+            Group group;
+
+            // Get the group.
+            group = getGroup(groupName, "The group " + groupName + " does not exist.");
+
+            // Loop through the nested group names.
+            for (String nestedGroupName : nestedGroupNames) {
+
+                // Check if the group is nested.
+                if (group.nestedGroupNames.remove(nestedGroupName)) {
+                    groups.get(nestedGroupName).parentGroupNames.remove(groupName);
+                }
+            }
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Set the account locked state.
+     *
+     * @param  accountName  the account name.
+     * @param  locked       true to lock the account, false to unlock it.
+     *
+     * @throws  IllegalArgumentException  if the account name is invalid.
+     * @throws  NoSuchEntryException      if the account does not exist.
+     */
+    private void setAccountLocked(String accountName, boolean locked) {
+
+        checkEmpty(accountName, "The account name is invalid.");
+
+        lock.writeLock().lock();
+        try {
+            getAccount(accountName).locked = locked;
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Set the environment.  The only property used is the snapshot file.
+     *
+     * @param  environment  the environment.
+     *
+     * @throws  AccountManagerException  if unable to load the snapshot.
+     */
+    protected void setEnvironment(Properties environment) {
+
+        // Check if the snapshot file is set.
+        if (environment != null && environment.containsKey(SNAPSHOT_FILE)) {
+
+            // Set the snapshot file.
+            snapshotFile = new File(environment.getProperty(SNAPSHOT_FILE));
+
+            // Check if the snapshot file exists.
+            if (snapshotFile.exists()) {
+                loadSnapshot();
+            }
+        }
+    }
+
+    /**
+     * Save the accounts and groups to the snapshot file.  The snapshot is
+     * written to a temporary file first and then renamed over the snapshot
+     * file, so a failed snapshot never corrupts the previous one.
+     *
+     * @throws  AccountManagerException  if the snapshot file is not set or
+     *                                   unable to save the snapshot.
+     */
+    public void snapshot() {
+
+        // Check if the snapshot file is not set.
+        if (snapshotFile == null) {
+            throw new EntryAccountManagerException("The snapshot file is not set.");
+        }
+
+        lock.readLock().lock();
+        try {
+
+            // Declare.
+            ObjectOutputStream output;
+            File tempFile;
+
+            // Write the accounts and groups to a temporary file.
+            tempFile = new File(snapshotFile.getPath() + ".tmp");
+            output = new ObjectOutputStream(new FileOutputStream(tempFile));
+            try {
+                output.writeObject(new HashMap<String, Account>(accounts));
+                output.writeObject(new HashMap<String, Group>(groups));
+            }
+            finally {
+                output.close();
+            }
+
+            // Replace the snapshot file with the temporary file.
+            if (!tempFile.renameTo(snapshotFile) && !(snapshotFile.delete() && tempFile.renameTo(snapshotFile))) {
+                throw new IOException("Unable to rename " + tempFile + " to " + snapshotFile + ".");
+            }
+        }
+        catch(IOException e) {
+            throw new EntryAccountManagerException(
+                    "Unable to save the snapshot " + snapshotFile + ".", e);
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Unlock the account.
+     *
+     * @param  accountName  the account name.
+     *
+     * @throws  IllegalArgumentException  if the account name is invalid.
+     * @throws  NoSuchEntryException      if the account does not exist.
+     */
+    @Override
+    public void unlockAccount(String accountName) {
+        setAccountLocked(accountName, false);
+    }
+}
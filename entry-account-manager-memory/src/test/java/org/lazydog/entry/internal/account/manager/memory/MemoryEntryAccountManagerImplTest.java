@@ -0,0 +1,187 @@
+package org.lazydog.entry.internal.account.manager.memory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Properties;
+import java.util.Set;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+import org.lazydog.entry.spi.account.manager.EntryAlreadyExistsException;
+import org.lazydog.entry.spi.account.manager.NoSuchEntryException;
+
+
+/**
+ * Unit tests for MemoryEntryAccountManagerImpl class.
+ *
+ * @author  Ron Rickard
+ */
+public class MemoryEntryAccountManagerImplTest {
+
+    private MemoryEntryAccountManagerImpl accountManager;
+
+    @Before
+    public void beforeTest() {
+        accountManager = new MemoryEntryAccountManagerImpl();
+        accountManager.setEnvironment(new Properties());
+    }
+
+    private static Set<String> names(String... names) {
+        Set<String> set = new HashSet<String>();
+        for (String name : names) {
+            set.add(name);
+        }
+        return set;
+    }
+
+    @Test
+    public void accountExists() {
+        accountManager.createAccount("testaccount1", "test123");
+        assertTrue(accountManager.accountExists("testaccount1"));
+        assertFalse(accountManager.accountExists("testaccount2"));
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void accountExistsEmptyAccountName() {
+        accountManager.accountExists("");
+    }
+
+    @Test
+    public void addMembers() {
+        accountManager.createAccount("testaccount1", "test123");
+        accountManager.createAccount("testaccount2", "test123");
+        accountManager.createGroup("testgroup1");
+        accountManager.addMembers("testgroup1", names("testaccount1", "testaccount2"));
+        assertEquals(names("testaccount1", "testaccount2"), accountManager.getMembers("testgroup1"));
+    }
+
+    @Test(expected=NoSuchEntryException.class)
+    public void addMembersNoSuchAccount() {
+        accountManager.createGroup("testgroup1");
+        accountManager.addMembers("testgroup1", names("testaccount1"));
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void addNestedGroupsSelf() {
+        accountManager.createGroup("testgroup1");
+        accountManager.addNestedGroups("testgroup1", names("testgroup1"));
+    }
+
+    @Test
+    public void changePassword() {
+        accountManager.createAccount("testaccount1", "test123");
+        accountManager.changePassword("testaccount1", "test456");
+        assertFalse(accountManager.isPassword("testaccount1", "test123"));
+        assertTrue(accountManager.isPassword("testaccount1", "test456"));
+    }
+
+    @Test(expected=EntryAlreadyExistsException.class)
+    public void createAccountAlreadyExists() {
+        accountManager.createAccount("testaccount1", "test123");
+        accountManager.createAccount("testaccount1", "test123");
+    }
+
+    @Test(expected=EntryAlreadyExistsException.class)
+    public void createGroupAlreadyExists() {
+        accountManager.createGroup("testgroup1");
+        accountManager.createGroup("testgroup1");
+    }
+
+    @Test
+    public void getGroupsNested() {
+        accountManager.createAccount("testaccount1", "test123");
+        accountManager.createGroup("testgroup1");
+        accountManager.createGroup("testgroup2");
+        accountManager.createGroup("testgroup3");
+        accountManager.addMembers("testgroup1", names("testaccount1"));
+        accountManager.addNestedGroups("testgroup2", names("testgroup1"));
+        accountManager.addNestedGroups("testgroup3", names("testgroup2"));
+        assertEquals(names("testgroup1", "testgroup2", "testgroup3"), accountManager.getGroups("testaccount1"));
+        assertTrue(accountManager.isMember("testaccount1", "testgroup3"));
+
+        accountManager.removeNestedGroups("testgroup3", names("testgroup2"));
+        assertFalse(accountManager.isMember("testaccount1", "testgroup3"));
+    }
+
+    @Test
+    public void getGroupsNestedCycle() {
+        accountManager.createAccount("testaccount1", "test123");
+        accountManager.createGroup("testgroup1");
+        accountManager.createGroup("testgroup2");
+        accountManager.addMembers("testgroup1", names("testaccount1"));
+        accountManager.addNestedGroups("testgroup2", names("testgroup1"));
+        accountManager.addNestedGroups("testgroup1", names("testgroup2"));
+        assertEquals(names("testgroup1", "testgroup2"), accountManager.getGroups("testaccount1"));
+    }
+
+    @Test(expected=NoSuchEntryException.class)
+    public void isMemberNoSuchGroup() {
+        accountManager.createAccount("testaccount1", "test123");
+        accountManager.isMember("testaccount1", "testgroup1");
+    }
+
+    @Test
+    public void lockAccount() {
+        accountManager.createAccount("testaccount1", "test123");
+        assertFalse(accountManager.isAccountLocked("testaccount1"));
+        accountManager.lockAccount("testaccount1");
+        assertTrue(accountManager.isAccountLocked("testaccount1"));
+        accountManager.unlockAccount("testaccount1");
+        assertFalse(accountManager.isAccountLocked("testaccount1"));
+    }
+
+    @Test
+    public void removeAccount() {
+        accountManager.createAccount("testaccount1", "test123");
+        accountManager.createGroup("testgroup1");
+        accountManager.addMembers("testgroup1", names("testaccount1"));
+        accountManager.removeAccount("testaccount1");
+        assertFalse(accountManager.accountExists("testaccount1"));
+        assertTrue(accountManager.getMembers("testgroup1").isEmpty());
+    }
+
+    @Test
+    public void removeGroup() {
+        accountManager.createAccount("testaccount1", "test123");
+        accountManager.createGroup("testgroup1");
+        accountManager.createGroup("testgroup2");
+        accountManager.addMembers("testgroup1", names("testaccount1"));
+        accountManager.addNestedGroups("testgroup2", names("testgroup1"));
+        accountManager.removeGroup("testgroup1");
+        assertFalse(accountManager.groupExists("testgroup1"));
+        assertTrue(accountManager.getGroups("testaccount1").isEmpty());
+        assertTrue(accountManager.getNestedGroups("testgroup2").isEmpty());
+    }
+
+    @Test(expected=NoSuchEntryException.class)
+    public void removeGroupNoSuchGroup() {
+        accountManager.removeGroup("testgroup1");
+    }
+
+    @Test
+    public void snapshot() throws IOException {
+        File snapshotFile = File.createTempFile("entry", ".snapshot");
+        snapshotFile.delete();
+        Properties environment = new Properties();
+        environment.setProperty(MemoryEntryAccountManagerImpl.SNAPSHOT_FILE, snapshotFile.getPath());
+
+        try {
+            accountManager.setEnvironment(environment);
+            accountManager.createAccount("testaccount1", "test123");
+            accountManager.createGroup("testgroup1");
+            accountManager.addMembers("testgroup1", names("testaccount1"));
+            accountManager.lockAccount("testaccount1");
+            accountManager.close();
+
+            MemoryEntryAccountManagerImpl restoredAccountManager = new MemoryEntryAccountManagerImpl();
+            restoredAccountManager.setEnvironment(environment);
+            assertTrue(restoredAccountManager.isPassword("testaccount1", "test123"));
+            assertTrue(restoredAccountManager.isAccountLocked("testaccount1"));
+            assertEquals(names("testaccount1"), restoredAccountManager.getMembers("testgroup1"));
+        }
+        finally {
+            snapshotFile.delete();
+        }
+    }
+}
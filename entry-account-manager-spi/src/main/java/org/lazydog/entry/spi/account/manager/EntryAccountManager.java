@@ -38,6 +38,19 @@ public interface EntryAccountManager {
      */
     public void addMembers(String groupName, Set<String> accountNames);
 
+    /**
+     * Add nested groups to the group.  The accounts of a nested group are
+     * effective members of the group.
+     *
+     * @param  groupName         the group name.
+     * @param  nestedGroupNames  the nested group names.
+     *
+     * @throws  AccountManagerException   if unable to add nested groups to the group.
+     * @throws  IllegalArgumentException  if the group name and/or the nested group names is invalid.
+     * @throws  NoSuchEntryException      if the group and/or one or more of the nested groups do not exist.
+     */
+    public void addNestedGroups(String groupName, Set<String> nestedGroupNames);
+
     /**
      * Change the password for the account.
      *
@@ -51,6 +64,13 @@ public interface EntryAccountManager {
      */
     public void changePassword(String accountName, String password);
 
+    /**
+     * Close the account manager, releasing its connections.
+     *
+     * @throws  AccountManagerException  if unable to close the account manager.
+     */
+    public void close();
+
     /**
      * Create the account.
      *
@@ -75,7 +95,8 @@ public interface EntryAccountManager {
     public void createGroup(String groupName);
 
     /**
-     * Get the groups of the account.
+     * Get the groups of the account, including the groups inherited through
+     * nested groups.
      *
      * @param  accountName  the account name.
      *
@@ -100,6 +121,19 @@ public interface EntryAccountManager {
      */
     public Set<String> getMembers(String groupName);
 
+    /**
+     * Get the nested groups of the group.
+     *
+     * @param  groupName  the group name.
+     *
+     * @return  the nested groups.
+     *
+     * @throws  AccountManagerException   if unable to get the nested groups of the group.
+     * @throws  IllegalArgumentException  if the group name is invalid.
+     * @throws  NoSuchEntryException      if the group does not exist.
+     */
+    public Set<String> getNestedGroups(String groupName);
+
     /**
      * Check if the group exists.
      *
@@ -126,7 +160,8 @@ public interface EntryAccountManager {
     public boolean isAccountLocked(String accountName);
 
     /**
-     * Check if the account is a member of the group.
+     * Check if the account is a member of the group, either directly or
+     * through nested groups.
      *
      * @param  accountName  the account name.
      * @param  groupName    the group name.
@@ -198,6 +233,18 @@ public interface EntryAccountManager {
      */
     public void removeMembers(String groupName, Set<String> accountNames);
 
+    /**
+     * Remove the nested groups from the group.
+     *
+     * @param  groupName         the group name.
+     * @param  nestedGroupNames  the nested group names.
+     *
+     * @throws  AccountManagerException   if unable to remove the nested groups from the group.
+     * @throws  IllegalArgumentException  if the group name and/or one or more of the nested group names is invalid.
+     * @throws  NoSuchEntryException      if the group does not exist.
+     */
+    public void removeNestedGroups(String groupName, Set<String> nestedGroupNames);
+
     /**
      * Unlock the account.
      *
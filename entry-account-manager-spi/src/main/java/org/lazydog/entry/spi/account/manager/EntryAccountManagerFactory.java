@@ -11,6 +11,8 @@ import java.util.ServiceLoader;
  */
 public abstract class EntryAccountManagerFactory {
 
+    private static volatile EntryAccountManagerFactory factory;
+
     /**
      * Protected constructor.
      */
@@ -19,7 +21,8 @@ public abstract class EntryAccountManagerFactory {
     }
 
     /**
-     * Create the entry account manager.
+     * Create the entry account manager.  Every call creates a new entry
+     * account manager, owned by the caller, who closes it when done.
      *
      * @param  environment  the environment.
      * 
@@ -28,7 +31,34 @@ public abstract class EntryAccountManagerFactory {
     public abstract EntryAccountManager createEntryAccountManager(Properties environment);
 
     /**
-     * Get an instance of the entry account manager factory.
+     * Get an instance of the entry account manager factory.  The factory is
+     * resolved once and cached.
+     *
+     * @return  the entry account manager factory.
+     *
+     * @throws  IllegalArgumentException   if not exactly one factory is found.
+     * @throws  ServiceConfigurationError  if unable to create the factory due
+     *                                     to a provider configuration error.
+     */
+    public static EntryAccountManagerFactory instance() {
+
+        // Check if the factory has not been resolved.
+        if (factory == null) {
+
+            synchronized (EntryAccountManagerFactory.class) {
+
+                // Check if the factory has not been resolved.
+                if (factory == null) {
+                    factory = load();
+                }
+            }
+        }
+
+        return factory;
+    }
+
+    /**
+     * Load the entry account manager factory.
      *
      * @return  the entry account manager factory.
      *
@@ -36,7 +66,7 @@ public abstract class EntryAccountManagerFactory {
      * @throws  ServiceConfigurationError  if unable to create the factory due
      *                                     to a provider configuration error.
      */
-    public static synchronized EntryAccountManagerFactory instance() {
+    private static EntryAccountManagerFactory load() {
 
         // Declare.
         EntryAccountManagerFactory factory;
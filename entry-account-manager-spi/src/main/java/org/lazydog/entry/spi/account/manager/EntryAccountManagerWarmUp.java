@@ -0,0 +1,45 @@
+package org.lazydog.entry.spi.account.manager;
+
+import java.util.List;
+
+
+/**
+ * Entry account manager whose group memberships can be warmed up.
+ *
+ * <p>The caller starts the warm up, loads the group names returned in one
+ * or more partitions, possibly in parallel, and finishes the warm up.  The
+ * group memberships loaded are only used if every group is loaded.</p>
+ *
+ * @author  Ron Rickard
+ */
+public interface EntryAccountManagerWarmUp {
+
+    public static final String WARM_UP_THREADS = "entry.account.manager.warm.up.threads";
+    public static final String WARM_UP_TIMEOUT = "entry.account.manager.warm.up.timeout";
+
+    /**
+     * Finish the warm up.  The partitions still loading stop.
+     *
+     * @return  true if the group memberships are warmed up, otherwise false.
+     */
+    public boolean finishWarmUp();
+
+    /**
+     * Start the warm up.  Starting a warm up stops the previous one.
+     *
+     * @return  the group names to load.
+     *
+     * @throws  AccountManagerException  if unable to list the groups.
+     */
+    public List<String> startWarmUp();
+
+    /**
+     * Warm up the group memberships with the groups of the partition.
+     *
+     * @param  groupNames  the group names of the partition.
+     *
+     * @throws  AccountManagerException  if unable to load the groups.
+     * @throws  IllegalStateException    if the warm up is not started.
+     */
+    public void warmUp(List<String> groupNames);
+}
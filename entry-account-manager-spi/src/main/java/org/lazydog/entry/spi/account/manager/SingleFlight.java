@@ -0,0 +1,192 @@
+package org.lazydog.entry.spi.account.manager;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * Single-flight lookup coalescer.
+ *
+ * <p>Concurrent lookups of the same key share one in-flight lookup.  The
+ * first caller runs the lookup on its own thread and the callers arriving
+ * while it is in flight wait for it and receive its result, or its
+ * exception.  Nothing is cached; once the lookup completes, the next caller
+ * starts a new one.  Subclasses override {@link #share(Object)} to give each
+ * waiting caller its own copy of a mutable result.  It is shared by the
+ * Entry account manager implementations and the Entry service.</p>
+ *
+ * @param  <K>  the key type.
+ * @param  <V>  the value type.
+ *
+ * @author  Ron Rickard
+ */
+public class SingleFlight<K, V> {
+
+    private final AtomicLong coalescedCount = new AtomicLong();
+    private final ConcurrentMap<K, FutureTask<V>> inFlight = new ConcurrentHashMap<K, FutureTask<V>>();
+    private final AtomicLong lookupCount = new AtomicLong();
+    private final String name;
+
+    /**
+     * Constructor.
+     *
+     * @param  name  the name used in the statistics.
+     */
+    public SingleFlight(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Get the value for the key, sharing the lookup in flight for the key if
+     * there is one.
+     *
+     * @param  key     the key.
+     * @param  lookup  the lookup run if no lookup is in flight for the key.
+     *
+     * @return  the value.
+     *
+     * @throws  RuntimeException  if the lookup throws a runtime exception.
+     */
+    public V get(K key, Callable<V> lookup) {
+
+        // Declare.
+        FutureTask<V> inFlightLookup;
+        FutureTask<V> newLookup;
+
+        // Initialize.
+        newLookup = new FutureTask<V>(lookup);
+
+        // Get the lookup in flight for the key.
+        inFlightLookup = this.inFlight.putIfAbsent(key, newLookup);
+
+        // Check if no lookup is in flight for the key.
+        if (inFlightLookup == null) {
+
+            this.lookupCount.incrementAndGet();
+
+            try {
+
+                // Run the lookup.
+                newLookup.run();
+            }
+            finally {
+                this.inFlight.remove(key, newLookup);
+            }
+
+            return result(newLookup);
+        }
+
+        this.coalescedCount.incrementAndGet();
+
+        return share(result(inFlightLookup));
+    }
+
+    /**
+     * Get the coalesced count.
+     *
+     * @return  the number of calls that shared an in-flight lookup.
+     */
+    public long getCoalescedCount() {
+        return this.coalescedCount.get();
+    }
+
+    /**
+     * Get the lookup count.
+     *
+     * @return  the number of lookups run.
+     */
+    public long getLookupCount() {
+        return this.lookupCount.get();
+    }
+
+    /**
+     * Get the result of the lookup, waiting for it uninterruptibly.
+     *
+     * @param  lookup  the lookup.
+     *
+     * @return  the result.
+     *
+     * @throws  RuntimeException  if the lookup throws a runtime exception.
+     */
+    private V result(FutureTask<V> lookup) {
+
+        // Declare.
+        boolean interrupted;
+
+        // Initialize.
+        interrupted = false;
+
+        try {
+
+            // Loop until the lookup completes.
+            while (true) {
+
+                try {
+                    return lookup.get();
+                }
+                catch(InterruptedException e) {
+                    interrupted = true;
+                }
+                catch(ExecutionException e) {
+
+                    // Check if the cause is unchecked.
+                    if (e.getCause() instanceof RuntimeException) {
+                        throw (RuntimeException)e.getCause();
+                    }
+                    if (e.getCause() instanceof Error) {
+                        throw (Error)e.getCause();
+                    }
+
+                    throw new IllegalStateException("The " + this.name + " lookup failed.", e.getCause());
+                }
+            }
+        }
+        finally {
+
+            // Restore the interrupt status.
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Share the result of an in-flight lookup with a waiting caller.  The
+     * result is returned as is by default.
+     *
+     * @param  value  the result of the lookup.
+     *
+     * @return  the value given to the waiting caller.
+     */
+    protected V share(V value) {
+        return value;
+    }
+
+    /**
+     * Get the statistics as a string.
+     *
+     * @return  the statistics as a string.
+     */
+    @Override
+    public String toString() {
+
+        // Declare.
+        StringBuilder toString;
+
+        // Initialize.
+        toString = new StringBuilder();
+
+        toString.append("SingleFlight [");
+        toString.append("name = ").append(this.name);
+        toString.append(", lookupCount = ").append(this.getLookupCount());
+        toString.append(", coalescedCount = ").append(this.getCoalescedCount());
+        toString.append(", inFlight = ").append(this.inFlight.size());
+        toString.append("]");
+
+        return toString.toString();
+    }
+}
@@ -0,0 +1,125 @@
+package org.lazydog.entry.spi.account.manager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+
+/**
+ * Unit tests for SingleFlight class.
+ *
+ * @author  Ron Rickard
+ */
+public class SingleFlightTest {
+
+    @Test
+    public void get() {
+        SingleFlight<String, String> singleFlight = new SingleFlight<String, String>("test");
+        assertEquals("value1", singleFlight.get("key1", constant("value1")));
+        assertEquals("value2", singleFlight.get("key1", constant("value2")));
+        assertEquals(2, singleFlight.getLookupCount());
+        assertEquals(0, singleFlight.getCoalescedCount());
+    }
+
+    @Test
+    public void getCoalesced() throws Exception {
+        final SingleFlight<String, StringBuilder> singleFlight = new SingleFlight<String, StringBuilder>("test") {
+            @Override
+            protected StringBuilder share(StringBuilder value) {
+                return new StringBuilder(value);
+            }
+        };
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger lookups = new AtomicInteger();
+        final Callable<StringBuilder> lookup = new Callable<StringBuilder>() {
+            @Override
+            public StringBuilder call() throws Exception {
+                lookups.incrementAndGet();
+                started.countDown();
+                release.await();
+                return new StringBuilder("value1");
+            }
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<StringBuilder>> futures = new ArrayList<Future<StringBuilder>>();
+            futures.add(executor.submit(get(singleFlight, lookup)));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            for (int count = 0; count < 3; count++) {
+                futures.add(executor.submit(get(singleFlight, lookup)));
+            }
+            while (singleFlight.getCoalescedCount() < 3) {
+                Thread.sleep(10);
+            }
+            release.countDown();
+            List<StringBuilder> values = new ArrayList<StringBuilder>();
+            for (Future<StringBuilder> future : futures) {
+                StringBuilder value = future.get(5, TimeUnit.SECONDS);
+                assertEquals("value1", value.toString());
+                for (StringBuilder other : values) {
+                    assertNotSame(other, value);
+                }
+                values.add(value);
+            }
+            assertEquals(1, lookups.get());
+            assertEquals(1, singleFlight.getLookupCount());
+            assertEquals(3, singleFlight.getCoalescedCount());
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void getException() {
+        new SingleFlight<String, String>("test").get("key1", new Callable<String>() {
+            @Override
+            public String call() {
+                throw new IllegalArgumentException();
+            }
+        });
+    }
+
+    @Test
+    public void getAfterException() {
+        SingleFlight<String, String> singleFlight = new SingleFlight<String, String>("test");
+        try {
+            singleFlight.get("key1", new Callable<String>() {
+                @Override
+                public String call() {
+                    throw new IllegalStateException();
+                }
+            });
+            fail();
+        }
+        catch(IllegalStateException e) {}
+        assertEquals("value1", singleFlight.get("key1", constant("value1")));
+    }
+
+    private static <V> Callable<V> constant(final V value) {
+        return new Callable<V>() {
+            @Override
+            public V call() {
+                return value;
+            }
+        };
+    }
+
+    private static <V> Callable<V> get(final SingleFlight<String, V> singleFlight, final Callable<V> lookup) {
+        return new Callable<V>() {
+            @Override
+            public V call() {
+                return singleFlight.get("key1", lookup);
+            }
+        };
+    }
+}
@@ -1,10 +1,17 @@
 package org.lazydog.entry.internal.account.manager;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import javax.naming.AuthenticationException;
 import javax.naming.Context;
 import javax.naming.directory.Attribute;
@@ -18,29 +25,58 @@ import javax.naming.ldap.LdapName;
 import javax.naming.Name;
 import javax.naming.NameAlreadyBoundException;
 import javax.naming.NameNotFoundException;
+import javax.naming.NamingEnumeration;
 import javax.naming.NamingException;
+import javax.naming.directory.SearchControls;
+import javax.naming.directory.SearchResult;
 import org.lazydog.entry.spi.account.manager.EntryAccountManager;
 import org.lazydog.entry.spi.account.manager.EntryAccountManagerException;
+import org.lazydog.entry.spi.account.manager.EntryAccountManagerWarmUp;
 import org.lazydog.entry.spi.account.manager.EntryAlreadyExistsException;
 import org.lazydog.entry.spi.account.manager.NoSuchEntryException;
+import org.lazydog.entry.spi.account.manager.SingleFlight;
 
 
 /**
  * Account manager implementation.
  *
+ * <p>A directory context is not thread-safe, so the shared directory
+ * context is only used by the changes, which run one at a time.  The
+ * lookups may run concurrently and each uses its own directory context,
+ * taken from the pooled connections and closed when the lookup is
+ * done.</p>
+ *
  * @author  Ron Rickard
  */
-public class EntryAccountManagerImpl implements EntryAccountManager {
+public class EntryAccountManagerImpl implements EntryAccountManager, EntryAccountManagerWarmUp {
 
+    public static final String GROUP_INDEX_MAX_ENTRIES = "entry.account.manager.group.index.max.entries";
+    public static final String GROUP_INDEX_TIME_TO_LIVE = "entry.account.manager.group.index.time.to.live";
     private static final String ACCOUNT_LOCK_TIME = "000001010000Z";    
     private static final String ACCOUNTS_CONTAINER_NAME = "Accounts";
+    private static final String CONNECT_POOL = "com.sun.jndi.ldap.connect.pool";
+    private static final int GROUP_INDEX_MAX_ENTRIES_DEFAULT = 100000;
+    private static final long GROUP_INDEX_TIME_TO_LIVE_DEFAULT = 600000;
     private static final String GROUPS_CONTAINER_NAME = "Groups";
     private static final String DUMMY_ACCOUNT_NAME = "dummy";
     private static final String DUMMY_ACCOUNT_PASSWORD = "dummy";
+    private static final Logger LOGGER = Logger.getLogger(EntryAccountManagerImpl.class.getName());
+    private final SingleFlight<String, Boolean> accountExistsLookups = new SingleFlight<String, Boolean>("account exists");
+    private String baseDN;
+    private Properties contextEnvironment;
     private DirContext dirContext;
+    private GroupMembershipIndex groupMembershipIndex = new GroupMembershipIndex();
+    private final SingleFlight<String, Set<String>> groupsLookups = new SingleFlight<String, Set<String>>("groups") {
+        @Override
+        protected Set<String> share(Set<String> groupNames) {
+            return new HashSet<String>(groupNames);
+        }
+    };
+    private volatile WarmUp warmUp;
 
     /**
-     * Check if the account exists.
+     * Check if the account exists.  Concurrent checks of the same account
+     * share one directory lookup.
      * 
      * @param  accountName  the account name.
      *
@@ -50,24 +86,31 @@ public class EntryAccountManagerImpl implements EntryAccountManager {
      * @throws  IllegalArgumentException  if the account name is invalid.
      */
     @Override
-    public boolean accountExists(String accountName) {
-
-        // Declare.
-        boolean accountExists;
+    public boolean accountExists(final String accountName) {
 
         checkEmpty(accountName, "The account name is invalid.");
 
-        try {
+        return accountExistsLookups.get(accountName, new Callable<Boolean>() {
 
-            // Check if the account exists.
-            accountExists = entryExists(getAccountRDN(accountName));
-        }
-        catch(NamingException e) {
-            throw new EntryAccountManagerException(
-                    "Unable to check if the account " + accountName + " exists.", e);
-        }
+            @Override
+            public Boolean call() {
+
+                // Declare.
+                boolean accountExists;
 
-        return accountExists;
+                try {
+
+                    // Check if the account exists.
+                    accountExists = entryExists(getAccountRDN(accountName));
+                }
+                catch(NamingException e) {
+                    throw new EntryAccountManagerException(
+                            "Unable to check if the account " + accountName + " exists.", e);
+                }
+
+                return accountExists;
+            }
+        });
     }
 
     /**
@@ -99,6 +142,9 @@ public class EntryAccountManagerImpl implements EntryAccountManager {
 
             // Add members to the group.
             dirContext.modifyAttributes(getGroupRDN(groupName), DirContext.ADD_ATTRIBUTE, attributes);
+
+            // Index the members of the group.
+            groupMembershipIndex.addMembers(groupName, accountNames);
         }
         catch(NamingException e) {
             throw new EntryAccountManagerException(
@@ -106,6 +152,47 @@ public class EntryAccountManagerImpl implements EntryAccountManager {
         }
     }
 
+    /**
+     * Add nested groups to the group.  The accounts of a nested group are
+     * effective members of the group.
+     *
+     * @param  groupName         the group name.
+     * @param  nestedGroupNames  the nested group names.
+     *
+     * @throws  AccountManagerException   if unable to add nested groups to the group.
+     * @throws  IllegalArgumentException  if the group name and/or the nested group names is invalid.
+     * @throws  NoSuchEntryException      if the group and/or one or more of the nested groups do not exist.
+     */
+    @Override
+    public void addNestedGroups(String groupName, Set<String> nestedGroupNames) {
+
+        checkEmpty(groupName, "The group name is invalid.");
+        checkEmpty(nestedGroupNames, "The nested group names is invalid.");
+        checkNested(groupName, nestedGroupNames, "The group " + groupName + " cannot be nested in itself.");
+        checkNoSuchGroup(groupName, "The group " + groupName + " does not exist.");
+        checkNoSuchGroup(nestedGroupNames, "One or more of the groups " + nestedGroupNames + " do not exist.");
+
+        try {
+
+            // Declare.
+            Attributes attributes;
+
+            // Set the attributes.
+            attributes = new BasicAttributes();
+            attributes.put(getUniqueMemberAttribute(getGroupUniqueMemberValues(nestedGroupNames)));
+
+            // Add nested groups to the group.
+            dirContext.modifyAttributes(getGroupRDN(groupName), DirContext.ADD_ATTRIBUTE, attributes);
+
+            // Index the nested groups of the group.
+            groupMembershipIndex.addNestedGroups(groupName, nestedGroupNames);
+        }
+        catch(NamingException e) {
+            throw new EntryAccountManagerException(
+                    "Unable to add the nested groups " + nestedGroupNames + " to the group " + groupName + ".", e);
+        }
+    }
+
     /**
      * Change the password for the account.
      *
@@ -184,6 +271,23 @@ public class EntryAccountManagerImpl implements EntryAccountManager {
         }
     }
 
+    /**
+     * Check if the group is one of the nested groups.
+     *
+     * @param  groupName         the group name.
+     * @param  nestedGroupNames  the nested group names.
+     * @param  message           the message to throw if the group is one of the nested groups.
+     *
+     * @throws  IllegalArgumentException  if the group is one of the nested groups.
+     */
+    private static void checkNested(String groupName, Set<String> nestedGroupNames, String message) {
+
+        // Check if the group is one of the nested groups.
+        if (nestedGroupNames.contains(groupName)) {
+            throw new IllegalArgumentException(message);
+        }
+    }
+
     /**
      * Check if the entry does not exist.
      *
@@ -244,7 +348,25 @@ public class EntryAccountManagerImpl implements EntryAccountManager {
     }
 
     /**
-     * Check if the entry exists.
+     * Check if one or more of the groups do not exist.
+     *
+     * @param  groupNames  the group names.
+     * @param  message     the message to throw if one or more of the groups do not exist.
+     *
+     * @throws  NoSuchEntryException  if one or more of the groups do not exist.
+     */
+    private void checkNoSuchGroup(Set<String> groupNames, String message) {
+
+        // Loop through the group names.
+        for (String groupName : groupNames) {
+
+            // Check if the group does not exist.
+            checkNoSuchGroup(groupName, message);
+        }
+    }
+
+    /**
+     * Check if the entry exists.  The check uses its own directory context.
      *
      * @param  rdn  the RDN.
      *
@@ -256,18 +378,23 @@ public class EntryAccountManagerImpl implements EntryAccountManager {
 
         // Declare.
         boolean entryExists;
+        DirContext lookupDirContext;
 
         // Initialize.
         entryExists = true;
+        lookupDirContext = newDirContext();
 
         try {
 
             // Get the attributes.
-            dirContext.getAttributes(rdn);
+            lookupDirContext.getAttributes(rdn);
         }
         catch(NameNotFoundException e) {
             entryExists = false;
         }
+        finally {
+            lookupDirContext.close();
+        }
 
         return entryExists;
     }
@@ -285,6 +412,33 @@ public class EntryAccountManagerImpl implements EntryAccountManager {
         return entryExists(getContainerRDN(containerName));
     }
 
+    /**
+     * Close the account manager, releasing its connections.
+     *
+     * @throws  AccountManagerException  if unable to close the account manager.
+     */
+    @Override
+    public void close() {
+
+        try {
+
+            // Check if the directory context exists.
+            if (dirContext != null) {
+
+                // Close the directory context.
+                dirContext.close();
+                dirContext = null;
+            }
+
+            // Clear the group membership index.
+            groupMembershipIndex.clear();
+        }
+        catch(NamingException e) {
+            throw new EntryAccountManagerException(
+                    "Unable to close the account manager.", e);
+        }
+    }
+
     /**
      * Create the account.
      *
@@ -406,6 +560,46 @@ public class EntryAccountManagerImpl implements EntryAccountManager {
         }
     }
 
+    /**
+     * Finish the warm up.  The group membership index is only replaced if
+     * every group is loaded, otherwise it is left to be populated on
+     * demand.  The partitions still loading stop.
+     *
+     * @return  true if the group membership index is warmed up, otherwise false.
+     */
+    @Override
+    public boolean finishWarmUp() {
+
+        // Declare.
+        WarmUp warmUp;
+        boolean warmedUp;
+
+        // Initialize.
+        warmUp = this.warmUp;
+        this.warmUp = null;
+        warmedUp = false;
+
+        // Check if the warm up is started.
+        if (warmUp != null) {
+
+            // Check if every group is loaded.
+            if (warmUp.groupAccounts.size() == warmUp.groupCount) {
+
+                // Load the group membership index.
+                loadGroupMembershipIndex(warmUp.groupAccounts, warmUp.groupNestedGroups);
+                warmedUp = true;
+
+                LOGGER.log(Level.INFO, "Warmed up {0} groups.", warmUp.groupCount);
+            }
+            else {
+                LOGGER.log(Level.WARNING, "Warm up stopped after {0} of {1} groups.",
+                        new Object[]{warmUp.groupAccounts.size(), warmUp.groupCount});
+            }
+        }
+
+        return warmedUp;
+    }
+
     /**
      * Get the account DN.
      *
@@ -497,7 +691,7 @@ public class EntryAccountManagerImpl implements EntryAccountManager {
      * @throws  NamingException  if unable to get the base DN.
      */
     private Name getBaseDN() throws NamingException {
-        return new LdapName(dirContext.getNameInNamespace());
+        return new LdapName(baseDN);
     }
 
     /**
@@ -534,6 +728,58 @@ public class EntryAccountManagerImpl implements EntryAccountManager {
         return getAccountDN(DUMMY_ACCOUNT_NAME);
     }
 
+    /**
+     * Get the direct groups of the account.  The direct groups are read from
+     * the directory once and then served from the group membership index.
+     *
+     * @param  lookupDirContext  the directory context to read the direct
+     *                           groups with.
+     * @param  accountName       the account name.
+     *
+     * @return  the direct groups.
+     *
+     * @throws  NamingException  if unable to get the direct groups of the account.
+     */
+    private Set<String> getDirectGroups(DirContext lookupDirContext, String accountName) throws NamingException {
+
+        // Declare.
+        Set<String> groupNames;
+
+        // Get the indexed direct groups of the account.
+        groupNames = groupMembershipIndex.getGroups(accountName);
+
+        // Check if the direct groups of the account are not indexed.
+        if (groupNames == null) {
+
+            // Declare.
+            Attributes attributes;
+
+            // Get the member of attribute for the account.
+            attributes = lookupDirContext.getAttributes(getAccountRDN(accountName), new String[]{"memberOf"});
+
+            // Get the group names.
+            groupNames = getGroupNames(attributes.get("memberOf"));
+
+            // Index the direct groups of the account.
+            groupMembershipIndex.putGroups(accountName, groupNames);
+        }
+
+        return groupNames;
+    }
+
+    /**
+     * Get the group DN.
+     *
+     * @param  groupName  the group name.
+     *
+     * @return  the group DN.
+     *
+     * @throws  NamingException  if unable to get the group DN.
+     */
+    private Name getGroupDN(String groupName) throws NamingException {
+        return getGroupRDN(groupName).addAll(0, getBaseDN());
+    }
+
     /**
      * Get the group names.
      *
@@ -605,7 +851,11 @@ public class EntryAccountManagerImpl implements EntryAccountManager {
     }
 
     /**
-     * Get the groups of the account.
+     * Get the groups of the account.  Concurrent lookups of the groups of the
+     * same account that are not memoized share one directory lookup.  The
+     * directory searches resolving the nested groups use one directory
+     * context of their own, so lookups of different accounts may run
+     * concurrently.
      *
      * @param  accountName  the account name.
      *
@@ -616,31 +866,95 @@ public class EntryAccountManagerImpl implements EntryAccountManager {
      * @throws  NoSuchEntryException      if the account does not exist.
      */
     @Override
-    public Set<String> getGroups(String accountName) {
+    public Set<String> getGroups(final String accountName) {
 
         // Declare.
         Set<String> groupNames;
 
         checkEmpty(accountName, "The account name is invalid.");
-        checkNoSuchAccount(accountName, "The account " + accountName + " does not exist.");
 
-        try {
+        // Get the memoized effective groups of the account.
+        groupNames = groupMembershipIndex.getEffectiveGroups(accountName);
 
-            // Declare.
-            Attributes attributes;
+        // Check if the effective groups of the account are memoized.
+        if (groupNames != null) {
+            return new HashSet<String>(groupNames);
+        }
 
-            // Get the member of attribute for the account.
-            attributes = dirContext.getAttributes(getAccountRDN(accountName), new String[]{"memberOf"});
+        return groupsLookups.get(accountName, new Callable<Set<String>>() {
 
-            // Get the group names.
-            groupNames = getGroupNames(attributes.get("memberOf"));
-        }
-        catch(NamingException e) {
-            throw new EntryAccountManagerException(
-                    "Unable to get the groups of the account " + accountName + ".", e);
+            @Override
+            public Set<String> call() {
+
+                checkNoSuchAccount(accountName, "The account " + accountName + " does not exist.");
+
+                try {
+
+                    // Declare.
+                    DirContext lookupDirContext;
+                    Set<String> unindexedGroupNames;
+
+                    // Create a directory context for the lookup.
+                    lookupDirContext = newDirContext();
+
+                    try {
+
+                        // Index the direct groups of the account.
+                        unindexedGroupNames = getDirectGroups(lookupDirContext, accountName);
+
+                        // Loop until the parent groups of every reachable group are indexed.
+                        while (!(unindexedGroupNames = groupMembershipIndex.getUnindexedGroups(unindexedGroupNames)).isEmpty()) {
+
+                            // Loop through the unindexed group names.
+                            for (String unindexedGroupName : unindexedGroupNames) {
+
+                                // Index the parent groups of the group.
+                                groupMembershipIndex.putParentGroups(unindexedGroupName, searchParentGroups(lookupDirContext, unindexedGroupName));
+                            }
+                        }
+                    }
+                    finally {
+                        lookupDirContext.close();
+                    }
+
+                    // Resolve the effective groups of the account.
+                    return new HashSet<String>(groupMembershipIndex.resolveEffectiveGroups(accountName));
+                }
+                catch(NamingException e) {
+                    throw new EntryAccountManagerException(
+                            "Unable to get the groups of the account " + accountName + ".", e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Get the group unique member values.
+     *
+     * @param  groupNames  the group names.
+     *
+     * @return  the group unique member values.
+     *
+     * @throws  NamingException  if unable to get the group unique member values.
+     */
+    private String[] getGroupUniqueMemberValues(Set<String> groupNames) throws NamingException {
+
+        // Declare.
+        int count;
+        String[] uniqueMemberValues;
+
+        // Initialize.
+        count = 0;
+        uniqueMemberValues = new String[groupNames.size()];
+
+        // Loop through the group names.
+        for (String groupName : groupNames) {
+
+            // Add the unique member value to the array.
+            uniqueMemberValues[count++] = getGroupDN(groupName).toString();
         }
 
-        return groupNames;
+        return uniqueMemberValues;
     }
 
     /**
@@ -685,6 +999,45 @@ public class EntryAccountManagerImpl implements EntryAccountManager {
         return accountNames;
     }
 
+    /**
+     * Get the nested groups of the group.
+     *
+     * @param  groupName  the group name.
+     *
+     * @return  the nested groups.
+     *
+     * @throws  AccountManagerException   if unable to get the nested groups of the group.
+     * @throws  IllegalArgumentException  if the group name is invalid.
+     * @throws  NoSuchEntryException      if the group does not exist.
+     */
+    @Override
+    public Set<String> getNestedGroups(String groupName) {
+
+        // Declare.
+        Set<String> nestedGroupNames;
+
+        checkEmpty(groupName, "The group name is invalid.");
+        checkNoSuchGroup(groupName, "The group " + groupName + " does not exist.");
+
+        try {
+
+            // Declare.
+            Attributes attributes;
+
+            // Get the unique member attribute for the group.
+            attributes = dirContext.getAttributes(getGroupRDN(groupName), new String[]{"uniqueMember"});
+
+            // Get the nested group names.
+            nestedGroupNames = getGroupNames(attributes.get("uniqueMember"));
+        }
+        catch(NamingException e) {
+            throw new EntryAccountManagerException(
+                    "Unable to get the nested groups of the group " + groupName + ".", e);
+        }
+
+        return nestedGroupNames;
+    }
+
     /**
      * Get the multi-value attribute.
      * 
@@ -820,9 +1173,19 @@ public class EntryAccountManagerImpl implements EntryAccountManager {
 
             // Declare.
             Attributes attributes;
+            DirContext lookupDirContext;
 
-            // Get the attributes.
-            attributes = dirContext.getAttributes(getAccountRDN(accountName), new String[] {"pwdAccountLockedTime"});
+            // Create a directory context for the lookup.
+            lookupDirContext = newDirContext();
+
+            try {
+
+                // Get the attributes.
+                attributes = lookupDirContext.getAttributes(getAccountRDN(accountName), new String[] {"pwdAccountLockedTime"});
+            }
+            finally {
+                lookupDirContext.close();
+            }
 
             // Check if the account is not locked.
             if (attributes.get("pwdAccountLockedTime") == null) {
@@ -852,13 +1215,21 @@ public class EntryAccountManagerImpl implements EntryAccountManager {
     @Override
     public boolean isMember(String accountName, String groupName) {
 
+        // Declare.
+        boolean isMember;
+
         checkEmpty(accountName, "The account name is invalid.");
         checkEmpty(groupName, "The group name is invalid.");
-        checkNoSuchAccount(accountName, "The account " + accountName + " does not exist.");
-        checkNoSuchGroup(groupName, "The group " + groupName + " does not exist.");
 
-        // Check if the account is a member of the group.
-        return getMembers(groupName).contains(accountName);
+        // Check if the account is an effective member of the group.
+        isMember = getGroups(accountName).contains(groupName);
+
+        // Check if the account is not a member of the group.
+        if (!isMember) {
+            checkNoSuchGroup(groupName, "The group " + groupName + " does not exist.");
+        }
+
+        return isMember;
     }
 
     /**
@@ -890,23 +1261,25 @@ public class EntryAccountManagerImpl implements EntryAccountManager {
 
             // Declare.
             Properties tempEnvironment;
-            Properties environment;
             DirContext tempDirContext;
 
-            // Get the environment for the directory context.
-            environment = (Properties)dirContext.getEnvironment();
-
             // Set the temporary directory context.
             tempEnvironment = new Properties();
-            tempEnvironment.put(Context.INITIAL_CONTEXT_FACTORY, environment.getProperty(Context.INITIAL_CONTEXT_FACTORY));
-            tempEnvironment.put(Context.PROVIDER_URL, environment.getProperty(Context.PROVIDER_URL));
-            tempEnvironment.put(Context.SECURITY_AUTHENTICATION, environment.getProperty(Context.SECURITY_AUTHENTICATION));
+            tempEnvironment.put(Context.INITIAL_CONTEXT_FACTORY, contextEnvironment.getProperty(Context.INITIAL_CONTEXT_FACTORY));
+            tempEnvironment.put(Context.PROVIDER_URL, contextEnvironment.getProperty(Context.PROVIDER_URL));
+            tempEnvironment.put(Context.SECURITY_AUTHENTICATION, contextEnvironment.getProperty(Context.SECURITY_AUTHENTICATION));
             tempEnvironment.put(Context.SECURITY_CREDENTIALS, password);
             tempEnvironment.put(Context.SECURITY_PRINCIPAL, getAccountDN(accountName).toString());
             tempDirContext = new InitialDirContext(tempEnvironment);
 
-            // Check if the password is the password for the account.
-            tempDirContext.getAttributes(getAccountRDN(accountName));
+            try {
+
+                // Check if the password is the password for the account.
+                tempDirContext.getAttributes(getAccountRDN(accountName));
+            }
+            finally {
+                tempDirContext.close();
+            }
         }
         catch(AuthenticationException e) {
             isPassword = false;
@@ -919,6 +1292,120 @@ public class EntryAccountManagerImpl implements EntryAccountManager {
         return isPassword;
     }
 
+    /**
+     * List the groups.
+     *
+     * @param  listDirContext  the directory context to list the groups with.
+     *
+     * @return  the group names.
+     *
+     * @throws  NamingException  if unable to list the groups.
+     */
+    private static Set<String> listGroups(DirContext listDirContext) throws NamingException {
+
+        // Declare.
+        Set<String> groupNames;
+
+        // Initialize.
+        groupNames = new HashSet<String>();
+
+        try {
+
+            // Declare.
+            SearchControls controls;
+            NamingEnumeration<SearchResult> results;
+
+            // Set the search controls.
+            controls = new SearchControls();
+            controls.setSearchScope(SearchControls.ONELEVEL_SCOPE);
+            controls.setReturningAttributes(new String[]{"cn"});
+
+            // Search for the groups.
+            results = listDirContext.search(
+                    getContainerRDN(GROUPS_CONTAINER_NAME), "(objectClass=groupOfUniqueNames)", controls);
+
+            try {
+
+                // Loop through the results.
+                while (results.hasMore()) {
+
+                    // Declare.
+                    Attribute cnAttribute;
+
+                    // Get the cn attribute.
+                    cnAttribute = results.next().getAttributes().get("cn");
+
+                    // Check if the cn attribute exists.
+                    if (cnAttribute != null) {
+
+                        // Add the group name to the set.
+                        groupNames.add((String)cnAttribute.get());
+                    }
+                }
+            }
+            finally {
+                results.close();
+            }
+        }
+        catch(NameNotFoundException e) {
+            // The groups container does not exist, so there are no groups.
+        }
+
+        return groupNames;
+    }
+
+    /**
+     * Load the group membership index.
+     *
+     * @param  groupAccounts      the accounts of the groups.
+     * @param  groupNestedGroups  the nested groups of the groups.
+     */
+    private void loadGroupMembershipIndex(Map<String, Set<String>> groupAccounts, Map<String, Set<String>> groupNestedGroups) {
+
+        // Declare.
+        Map<String, Set<String>> accountGroups;
+        Map<String, Set<String>> parentGroups;
+
+        // Initialize.
+        accountGroups = new HashMap<String, Set<String>>();
+        parentGroups = new HashMap<String, Set<String>>();
+
+        // Loop through the groups.
+        for (String groupName : groupAccounts.keySet()) {
+
+            // Check if the parent groups of the group are not set.
+            if (!parentGroups.containsKey(groupName)) {
+                parentGroups.put(groupName, new HashSet<String>());
+            }
+
+            // Loop through the accounts of the group.
+            for (String accountName : groupAccounts.get(groupName)) {
+
+                // Check if the groups of the account are not set.
+                if (!accountGroups.containsKey(accountName)) {
+                    accountGroups.put(accountName, new HashSet<String>());
+                }
+
+                // Add the group to the groups of the account.
+                accountGroups.get(accountName).add(groupName);
+            }
+
+            // Loop through the nested groups of the group.
+            for (String nestedGroupName : groupNestedGroups.get(groupName)) {
+
+                // Check if the parent groups of the nested group are not set.
+                if (!parentGroups.containsKey(nestedGroupName)) {
+                    parentGroups.put(nestedGroupName, new HashSet<String>());
+                }
+
+                // Add the group to the parent groups of the nested group.
+                parentGroups.get(nestedGroupName).add(groupName);
+            }
+        }
+
+        // Load the group membership index.
+        groupMembershipIndex.load(accountGroups, parentGroups);
+    }
     /**
      * Lock the account.
      *
@@ -952,6 +1439,19 @@ public class EntryAccountManagerImpl implements EntryAccountManager {
         }
     }
 
+    /**
+     * Create a directory context for a lookup.  The connection is taken from
+     * the connection pool and returned to it when the directory context is
+     * closed.
+     *
+     * @return  the directory context.
+     *
+     * @throws  NamingException  if unable to create the directory context.
+     */
+    private DirContext newDirContext() throws NamingException {
+        return new InitialDirContext(contextEnvironment);
+    }
+
     /**
      * Remove the account.
      *
@@ -976,8 +1476,8 @@ public class EntryAccountManagerImpl implements EntryAccountManager {
             accountNames = new HashSet<String>();
             accountNames.add(accountName);
 
-            // Loop through the group names of the account.
-            for (String groupName : getGroups(accountName)) {
+            // Loop through the direct group names of the account.
+            for (String groupName : new HashSet<String>(getDirectGroups(dirContext, accountName))) {
 
                 // Remove this account (member) from the group.
                 removeMembers(groupName, accountNames);
@@ -985,6 +1485,9 @@ public class EntryAccountManagerImpl implements EntryAccountManager {
 
             // Remove the account.
             dirContext.destroySubcontext(getAccountRDN(accountName));
+
+            // Remove the account from the group membership index.
+            groupMembershipIndex.removeAccount(accountName);
         }
         catch(NamingException e) {
             throw new EntryAccountManagerException(
@@ -1009,8 +1512,25 @@ public class EntryAccountManagerImpl implements EntryAccountManager {
 
         try {
 
+            // Declare.
+            Set<String> groupNames;
+
+            // Add this group to a set of group names.
+            groupNames = new HashSet<String>();
+            groupNames.add(groupName);
+
+            // Loop through the parent group names of the group.
+            for (String parentGroupName : searchParentGroups(dirContext, groupName)) {
+
+                // Remove this group (nested group) from the parent group.
+                removeNestedGroups(parentGroupName, groupNames);
+            }
+
             // Remove the group.
             dirContext.destroySubcontext(getGroupRDN(groupName));
+
+            // Remove the group from the group membership index.
+            groupMembershipIndex.removeGroup(groupName);
         }
         catch(NamingException e) {
             throw new EntryAccountManagerException(
@@ -1047,6 +1567,9 @@ public class EntryAccountManagerImpl implements EntryAccountManager {
 
             // Add members to the group.
             dirContext.modifyAttributes(getGroupRDN(groupName), DirContext.REMOVE_ATTRIBUTE, attributes);
+
+            // Unindex the members of the group.
+            groupMembershipIndex.removeMembers(groupName, accountNames);
         }
         catch(NamingException e) {
             throw new EntryAccountManagerException(
@@ -1055,7 +1578,103 @@ public class EntryAccountManagerImpl implements EntryAccountManager {
     }
 
     /**
-     * Set the environment.
+     * Remove the nested groups from the group.
+     *
+     * @param  groupName         the group name.
+     * @param  nestedGroupNames  the nested group names.
+     *
+     * @throws  AccountManagerException   if unable to remove the nested groups from the group.
+     * @throws  IllegalArgumentException  if the group name and/or one or more of the nested group names is invalid.
+     * @throws  NoSuchEntryException      if the group does not exist.
+     */
+    @Override
+    public void removeNestedGroups(String groupName, Set<String> nestedGroupNames) {
+
+        checkEmpty(groupName, "The group name is invalid.");
+        checkEmpty(nestedGroupNames, "The nested group names is invalid.");
+        checkNoSuchGroup(groupName, "The group " + groupName + " does not exist.");
+
+        try {
+
+            // Declare.
+            Attributes attributes;
+
+            // Set the attributes.
+            attributes = new BasicAttributes();
+            attributes.put(getUniqueMemberAttribute(getGroupUniqueMemberValues(nestedGroupNames)));
+
+            // Remove nested groups from the group.
+            dirContext.modifyAttributes(getGroupRDN(groupName), DirContext.REMOVE_ATTRIBUTE, attributes);
+
+            // Unindex the nested groups of the group.
+            groupMembershipIndex.removeNestedGroups(groupName, nestedGroupNames);
+        }
+        catch(NamingException e) {
+            throw new EntryAccountManagerException(
+                    "Unable to remove the nested groups " + nestedGroupNames + " from the group " + groupName + ".", e);
+        }
+    }
+
+    /**
+     * Search for the direct parent groups of the group.
+     *
+     * @param  searchDirContext  the directory context to search with.
+     * @param  groupName         the group name.
+     *
+     * @return  the direct parent groups.
+     *
+     * @throws  NamingException  if unable to search for the parent groups.
+     */
+    private Set<String> searchParentGroups(DirContext searchDirContext, String groupName) throws NamingException {
+
+        // Declare.
+        SearchControls controls;
+        Set<String> parentGroupNames;
+        NamingEnumeration<SearchResult> results;
+
+        // Initialize.
+        parentGroupNames = new HashSet<String>();
+
+        // Set the search controls.
+        controls = new SearchControls();
+        controls.setSearchScope(SearchControls.ONELEVEL_SCOPE);
+        controls.setReturningAttributes(new String[]{"cn"});
+
+        // Search for the groups with the group as a unique member.
+        results = searchDirContext.search(
+                getContainerRDN(GROUPS_CONTAINER_NAME), "(uniqueMember={0})",
+                new Object[]{getGroupDN(groupName).toString()}, controls);
+
+        try {
+
+            // Loop through the results.
+            while (results.hasMore()) {
+
+                // Declare.
+                Attribute cnAttribute;
+
+                // Get the cn attribute.
+                cnAttribute = results.next().getAttributes().get("cn");
+
+                // Check if the cn attribute exists.
+                if (cnAttribute != null) {
+
+                    // Add the parent group name to the set.
+                    parentGroupNames.add((String)cnAttribute.get());
+                }
+            }
+        }
+        finally {
+            results.close();
+        }
+
+        return parentGroupNames;
+    }
+
+    /**
+     * Set the environment.  The group membership index holds at most the
+     * group index maximum number of accounts and of groups, which expire
+     * after the group index time to live, in milliseconds.
      *
      * @param  environment  the environment.
      *
@@ -1084,9 +1703,17 @@ public class EntryAccountManagerImpl implements EntryAccountManager {
             contextEnvironment.put(Context.SECURITY_AUTHENTICATION, "simple");
             contextEnvironment.put(Context.SECURITY_CREDENTIALS, environment.getProperty(SECURITY_CREDENTIALS));
             contextEnvironment.put(Context.SECURITY_PRINCIPAL, environment.getProperty(SECURITY_PRINCIPAL));
+            contextEnvironment.put(CONNECT_POOL, "true");
 
             // Create the directory context.
+            this.contextEnvironment = contextEnvironment;
             this.dirContext = new InitialDirContext(contextEnvironment);
+            this.baseDN = this.dirContext.getNameInNamespace();
+
+            // Create the group membership index.
+            this.groupMembershipIndex = new GroupMembershipIndex(
+                    Integer.parseInt(environment.getProperty(GROUP_INDEX_MAX_ENTRIES, String.valueOf(GROUP_INDEX_MAX_ENTRIES_DEFAULT))),
+                    Long.parseLong(environment.getProperty(GROUP_INDEX_TIME_TO_LIVE, String.valueOf(GROUP_INDEX_TIME_TO_LIVE_DEFAULT))));
         }
         catch(NamingException e) {
             throw new EntryAccountManagerException(
@@ -1094,6 +1721,71 @@ public class EntryAccountManagerImpl implements EntryAccountManager {
         }
     }
 
+    /**
+     * Start warming up the group membership index.  The groups are loaded
+     * with warmUp, in one or more partitions, and the warm up is completed
+     * with finishWarmUp.  Starting a warm up stops the previous one.  The
+     * groups are listed with their own directory context, so the warm up
+     * may start while other lookups run.
+     *
+     * @return  the group names to load.
+     *
+     * @throws  AccountManagerException  if unable to list the groups.
+     */
+    @Override
+    public List<String> startWarmUp() {
+
+        // Declare.
+        List<String> groupNames;
+
+        try {
+
+            // Declare.
+            DirContext listDirContext;
+
+            // Create a directory context to list the groups.
+            listDirContext = newDirContext();
+
+            try {
+
+                // Get the groups.
+                groupNames = new ArrayList<String>(listGroups(listDirContext));
+            }
+            finally {
+                listDirContext.close();
+            }
+        }
+        catch(NamingException e) {
+            throw new EntryAccountManagerException("Unable to list the groups to warm up.", e);
+        }
+
+        this.warmUp = new WarmUp(groupNames.size());
+
+        return groupNames;
+    }
+
+    /**
+     * Get this object as a String, with the lookup coalescing statistics.
+     *
+     * @return  this object as a String.
+     */
+    @Override
+    public String toString() {
+
+        // Declare.
+        StringBuilder toString;
+
+        // Initialize.
+        toString = new StringBuilder();
+
+        toString.append("EntryAccountManagerImpl [");
+        toString.append("accountExistsLookups = ").append(this.accountExistsLookups);
+        toString.append(", groupsLookups = ").append(this.groupsLookups);
+        toString.append("]");
+
+        return toString.toString();
+    }
+
     /**
      * Unlock the account.
      *
@@ -1127,4 +1819,90 @@ public class EntryAccountManagerImpl implements EntryAccountManager {
                     "Unable to unlock the account " + accountName + ".", e);
         }
     }
+
+    /**
+     * Warm up the group membership index with the groups of the partition.
+     * The partitions of the group names returned by startWarmUp may be
+     * loaded in parallel, each using its own directory context.  The
+     * loading stops if the warm up is finished.
+     *
+     * @param  groupNames  the group names of the partition.
+     *
+     * @throws  AccountManagerException  if unable to load the groups.
+     * @throws  IllegalStateException    if the warm up is not started.
+     */
+    @Override
+    public void warmUp(List<String> groupNames) {
+
+        // Declare.
+        WarmUp warmUp;
+
+        // Initialize.
+        warmUp = this.warmUp;
+
+        // Check if the warm up is not started.
+        if (warmUp == null) {
+            throw new IllegalStateException("The warm up is not started.");
+        }
+
+        try {
+
+            // Declare.
+            DirContext workerDirContext;
+
+            // Create a directory context for this partition.
+            workerDirContext = newDirContext();
+
+            try {
+
+                // Loop through the group names.
+                for (String groupName : groupNames) {
+
+                    // Declare.
+                    Attribute uniqueMemberAttribute;
+                    Set<String> accountNames;
+
+                    // Check if the warm up is finished.
+                    if (this.warmUp != warmUp) {
+                        break;
+                    }
+
+                    // Get the unique member attribute for the group.
+                    uniqueMemberAttribute = workerDirContext.getAttributes(
+                            getGroupRDN(groupName), new String[]{"uniqueMember"}).get("uniqueMember");
+
+                    // Get the accounts and nested groups of the group.
+                    accountNames = getAccountNames(uniqueMemberAttribute);
+                    accountNames.remove(DUMMY_ACCOUNT_NAME);
+                    warmUp.groupAccounts.put(groupName, accountNames);
+                    warmUp.groupNestedGroups.put(groupName, getGroupNames(uniqueMemberAttribute));
+                }
+            }
+            finally {
+                workerDirContext.close();
+            }
+        }
+        catch(NamingException e) {
+            throw new EntryAccountManagerException("Unable to warm up the groups.", e);
+        }
+    }
+
+    /**
+     * Group memberships loaded by a warm up.
+     */
+    private static class WarmUp {
+
+        private final ConcurrentMap<String, Set<String>> groupAccounts = new ConcurrentHashMap<String, Set<String>>();
+        private final int groupCount;
+        private final ConcurrentMap<String, Set<String>> groupNestedGroups = new ConcurrentHashMap<String, Set<String>>();
+
+        /**
+         * Constructor.
+         *
+         * @param  groupCount  the number of groups to load.
+         */
+        public WarmUp(int groupCount) {
+            this.groupCount = groupCount;
+        }
+    }
 }
@@ -0,0 +1,883 @@
+package org.lazydog.entry.internal.account.manager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+
+/**
+ * Group membership index.
+ *
+ * <p>The index keeps the direct groups of accounts and the direct parent
+ * groups of groups, and memoizes the transitive closure of both.  Once the
+ * effective groups of an account are resolved, looking them up again is a
+ * single hash probe.  The memoized closures are invalidated incrementally,
+ * only for the accounts and groups affected by a change; the index keeps
+ * the reverse edges, the accounts of each group and the child groups of
+ * each group, so the affected closures are found without scanning the
+ * index.</p>
+ *
+ * <p>The index holds at most the maximum number of accounts and of groups,
+ * evicting the least recently used, and each account and group expires
+ * after the time to live, so the changes made by other nodes or directly in
+ * the directory are read again within the time to live.</p>
+ *
+ * @author  Ron Rickard
+ */
+public class GroupMembershipIndex {
+
+    private static final int MAX_ENTRIES_DEFAULT = 100000;
+    private static final long TIME_TO_LIVE_DEFAULT = 600000;
+    private final Map<String, AccountEntry> accounts = new LinkedHashMap<String, AccountEntry>(16, 0.75f, true);
+    private final Map<String, Set<String>> childGroups = new HashMap<String, Set<String>>();
+    private final Map<String, Set<String>> groupAccounts = new HashMap<String, Set<String>>();
+    private final Map<String, GroupEntry> groups = new LinkedHashMap<String, GroupEntry>(16, 0.75f, true);
+    private final int maxEntries;
+    private final long timeToLive;
+
+    /**
+     * Indexed account.
+     */
+    private static final class AccountEntry {
+
+        private Set<String> effectiveGroups;
+        private final long expiryTime;
+        private final Set<String> groups;
+
+        /**
+         * Constructor.
+         *
+         * @param  groups      the direct groups.
+         * @param  expiryTime  the expiry time in milliseconds.
+         */
+        private AccountEntry(Set<String> groups, long expiryTime) {
+            this.expiryTime = expiryTime;
+            this.groups = groups;
+        }
+    }
+
+    /**
+     * Indexed group.
+     */
+    private static final class GroupEntry {
+
+        private Set<String> ancestorGroups;
+        private final long expiryTime;
+        private final Set<String> parentGroups;
+
+        /**
+         * Constructor.
+         *
+         * @param  parentGroups  the direct parent groups.
+         * @param  expiryTime    the expiry time in milliseconds.
+         */
+        private GroupEntry(Set<String> parentGroups, long expiryTime) {
+            this.expiryTime = expiryTime;
+            this.parentGroups = parentGroups;
+        }
+    }
+
+    /**
+     * Constructor.  The index holds at most 100000 accounts and groups, which
+     * expire after 10 minutes.
+     */
+    public GroupMembershipIndex() {
+        this(MAX_ENTRIES_DEFAULT, TIME_TO_LIVE_DEFAULT);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param  maxEntries  the maximum number of accounts and of groups.
+     * @param  timeToLive  the time to live of an account or group in milliseconds.
+     *
+     * @throws  IllegalArgumentException  if the maximum number of entries or
+     *                                    the time to live is not positive.
+     */
+    public GroupMembershipIndex(int maxEntries, long timeToLive) {
+
+        // Check if the maximum number of entries or the time to live is not positive.
+        if (maxEntries <= 0 || timeToLive <= 0) {
+            throw new IllegalArgumentException("The maximum number of entries and the time to live must be positive.");
+        }
+
+        this.maxEntries = maxEntries;
+        this.timeToLive = timeToLive;
+    }
+
+    /**
+     * Add the accounts (members) to the group.
+     *
+     * @param  groupName     the group name.
+     * @param  accountNames  the account names.
+     */
+    public synchronized void addMembers(String groupName, Set<String> accountNames) {
+
+        // Loop through the account names.
+        for (String accountName : accountNames) {
+
+            // Declare.
+            AccountEntry entry;
+
+            // Get the indexed account.
+            entry = accounts.get(accountName);
+
+            // Check if the account is indexed and not a member of the group.
+            if (entry != null && !entry.groups.contains(groupName)) {
+
+                // Add the group to the direct groups of the account.
+                accounts.put(accountName, new AccountEntry(with(entry.groups, groupName), entry.expiryTime));
+                addEdge(groupAccounts, groupName, accountName);
+            }
+        }
+    }
+
+    /**
+     * Add the edge to the reverse edges.
+     *
+     * @param  edges  the reverse edges.
+     * @param  from   the start of the edge.
+     * @param  to     the end of the edge.
+     */
+    private static void addEdge(Map<String, Set<String>> edges, String from, String to) {
+
+        // Declare.
+        Set<String> ends;
+
+        // Get the ends of the edges.
+        ends = edges.get(from);
+
+        // Check if there are no edges.
+        if (ends == null) {
+            ends = new HashSet<String>();
+            edges.put(from, ends);
+        }
+
+        ends.add(to);
+    }
+
+    /**
+     * Add the nested groups to the group.
+     *
+     * @param  groupName         the group name.
+     * @param  nestedGroupNames  the nested group names.
+     */
+    public synchronized void addNestedGroups(String groupName, Set<String> nestedGroupNames) {
+
+        // Loop through the nested group names.
+        for (String nestedGroupName : nestedGroupNames) {
+
+            // Declare.
+            GroupEntry entry;
+
+            // Get the indexed nested group.
+            entry = groups.get(nestedGroupName);
+
+            // Check if the nested group is indexed and not nested in the group.
+            if (entry != null && !entry.parentGroups.contains(groupName)) {
+
+                // Invalidate the closures that include the nested group.
+                invalidate(nestedGroupName);
+
+                // Add the group to the parent groups of the nested group.
+                groups.put(nestedGroupName, new GroupEntry(with(entry.parentGroups, groupName), entry.expiryTime));
+                addEdge(childGroups, groupName, nestedGroupName);
+            }
+        }
+    }
+
+    /**
+     * Clear the index.
+     */
+    public synchronized void clear() {
+        accounts.clear();
+        childGroups.clear();
+        groupAccounts.clear();
+        groups.clear();
+    }
+
+    /**
+     * Check if the direct groups of the account are indexed.
+     *
+     * @param  accountName  the account name.
+     *
+     * @return  true if the direct groups of the account are indexed, otherwise false.
+     */
+    public synchronized boolean containsAccount(String accountName) {
+        return getAccount(accountName) != null;
+    }
+
+    /**
+     * Evict the least recently used accounts and groups over the maximum
+     * number of entries.
+     */
+    private void evict() {
+
+        // Loop through the accounts over the maximum number of entries.
+        while (accounts.size() > maxEntries) {
+            removeAccountEntry(accounts.keySet().iterator().next());
+        }
+
+        // Loop through the groups over the maximum number of entries.
+        while (groups.size() > maxEntries) {
+            removeGroupEntry(groups.keySet().iterator().next());
+        }
+    }
+
+    /**
+     * Get the indexed account.  The account is removed if it is expired.
+     *
+     * @param  accountName  the account name.
+     *
+     * @return  the indexed account, or null if the account is not indexed.
+     */
+    private AccountEntry getAccount(String accountName) {
+
+        // Declare.
+        AccountEntry entry;
+
+        // Get the indexed account.
+        entry = accounts.get(accountName);
+
+        // Check if the account is expired.
+        if (entry != null && entry.expiryTime <= System.currentTimeMillis()) {
+            removeAccountEntry(accountName);
+            entry = null;
+        }
+
+        return entry;
+    }
+
+    /**
+     * Get the number of indexed accounts.
+     *
+     * @return  the number of indexed accounts.
+     */
+    public synchronized int getAccountCount() {
+        return accounts.size();
+    }
+
+    /**
+     * Get the memoized effective groups of the account.
+     *
+     * @param  accountName  the account name.
+     *
+     * @return  the effective groups, or null if they are not resolved.
+     */
+    public synchronized Set<String> getEffectiveGroups(String accountName) {
+
+        // Declare.
+        AccountEntry entry;
+
+        // Get the indexed account.
+        entry = getAccount(accountName);
+
+        return (entry != null) ? entry.effectiveGroups : null;
+    }
+
+    /**
+     * Get the number of indexed groups.
+     *
+     * @return  the number of indexed groups.
+     */
+    public synchronized int getGroupCount() {
+        return groups.size();
+    }
+
+    /**
+     * Get the direct groups of the account.
+     *
+     * @param  accountName  the account name.
+     *
+     * @return  the direct groups, or null if they are not indexed.
+     */
+    public synchronized Set<String> getGroups(String accountName) {
+
+        // Declare.
+        AccountEntry entry;
+
+        // Get the indexed account.
+        entry = getAccount(accountName);
+
+        return (entry != null) ? entry.groups : null;
+    }
+
+    /**
+     * Get the groups reachable from the specified groups whose parent groups
+     * are not indexed or are expired.
+     *
+     * @param  groupNames  the group names.
+     *
+     * @return  the groups whose parent groups are not indexed.
+     */
+    public synchronized Set<String> getUnindexedGroups(Set<String> groupNames) {
+
+        // Declare.
+        long now;
+        List<String> pendingGroupNames;
+        Set<String> unindexedGroupNames;
+        Set<String> visitedGroupNames;
+
+        // Initialize.
+        now = System.currentTimeMillis();
+        pendingGroupNames = new ArrayList<String>(groupNames);
+        unindexedGroupNames = new HashSet<String>();
+        visitedGroupNames = new HashSet<String>();
+
+        // Loop through the pending group names.
+        while (!pendingGroupNames.isEmpty()) {
+
+            // Declare.
+            String groupName;
+            GroupEntry entry;
+
+            // Get the next group name.
+            groupName = pendingGroupNames.remove(pendingGroupNames.size() - 1);
+
+            // Check if the group has not been visited.
+            if (visitedGroupNames.add(groupName)) {
+
+                // Get the indexed group.
+                entry = groups.get(groupName);
+
+                // Check if the group is expired.
+                if (entry != null && entry.expiryTime <= now) {
+                    removeGroupEntry(groupName);
+                    entry = null;
+                }
+
+                // Check if the parent groups are not indexed.
+                if (entry == null) {
+                    unindexedGroupNames.add(groupName);
+                }
+                else {
+                    pendingGroupNames.addAll(entry.parentGroups);
+                }
+            }
+        }
+
+        return unindexedGroupNames;
+    }
+
+    /**
+     * Invalidate the memoized closures that include the group.  The closures
+     * that include the group are the ancestor groups of the group and of
+     * its descendant groups, and the effective groups of their accounts;
+     * they are found through the reverse edges.
+     *
+     * @param  groupName  the group name.
+     */
+    private void invalidate(String groupName) {
+
+        // Declare.
+        List<String> pendingGroupNames;
+        Set<String> visitedGroupNames;
+
+        // Initialize.
+        pendingGroupNames = new ArrayList<String>();
+        pendingGroupNames.add(groupName);
+        visitedGroupNames = new HashSet<String>();
+
+        // Loop through the group and its descendant groups.
+        while (!pendingGroupNames.isEmpty()) {
+
+            // Declare.
+            String descendantGroupName;
+
+            // Get the next group name.
+            descendantGroupName = pendingGroupNames.remove(pendingGroupNames.size() - 1);
+
+            // Check if the group has not been visited.
+            if (visitedGroupNames.add(descendantGroupName)) {
+
+                // Declare.
+                Set<String> accountNames;
+                Set<String> childGroupNames;
+                GroupEntry groupEntry;
+
+                // Invalidate the ancestor groups of the group.
+                groupEntry = groups.get(descendantGroupName);
+                if (groupEntry != null) {
+                    groupEntry.ancestorGroups = null;
+                }
+
+                // Invalidate the effective groups of the accounts of the group.
+                accountNames = groupAccounts.get(descendantGroupName);
+                if (accountNames != null) {
+
+                    // Loop through the account names.
+                    for (String accountName : accountNames) {
+
+                        // Declare.
+                        AccountEntry accountEntry;
+
+                        // Invalidate the effective groups of the account.
+                        accountEntry = accounts.get(accountName);
+                        if (accountEntry != null) {
+                            accountEntry.effectiveGroups = null;
+                        }
+                    }
+                }
+
+                // Add the child groups of the group.
+                childGroupNames = childGroups.get(descendantGroupName);
+                if (childGroupNames != null) {
+                    pendingGroupNames.addAll(childGroupNames);
+                }
+            }
+        }
+    }
+
+    /**
+     * Load the index, replacing its contents.
+     *
+     * @param  accountGroups  the direct groups of the accounts.
+     * @param  parentGroups   the direct parent groups of the groups.
+     */
+    public synchronized void load(Map<String, Set<String>> accountGroups, Map<String, Set<String>> parentGroups) {
+
+        // Clear the index.
+        clear();
+
+        // Loop through the direct groups of the accounts.
+        for (Map.Entry<String, Set<String>> entry : accountGroups.entrySet()) {
+            putAccountEntry(entry.getKey(), entry.getValue());
+        }
+
+        // Loop through the direct parent groups of the groups.
+        for (Map.Entry<String, Set<String>> entry : parentGroups.entrySet()) {
+            putGroupEntry(entry.getKey(), entry.getValue());
+        }
+
+        evict();
+    }
+
+    /**
+     * Put the indexed account and its reverse edges.
+     *
+     * @param  accountName  the account name.
+     * @param  groupNames   the direct group names.
+     */
+    private void putAccountEntry(String accountName, Set<String> groupNames) {
+
+        // Remove the indexed account.
+        removeAccountEntry(accountName);
+
+        // Index the account.
+        accounts.put(accountName, new AccountEntry(
+                Collections.unmodifiableSet(new HashSet<String>(groupNames)), System.currentTimeMillis() + timeToLive));
+
+        // Loop through the direct group names.
+        for (String groupName : groupNames) {
+            addEdge(groupAccounts, groupName, accountName);
+        }
+    }
+
+    /**
+     * Put the indexed group and its reverse edges.
+     *
+     * @param  groupName         the group name.
+     * @param  parentGroupNames  the direct parent group names.
+     */
+    private void putGroupEntry(String groupName, Set<String> parentGroupNames) {
+
+        // Declare.
+        GroupEntry entry;
+
+        // Remove the reverse edges of the indexed group.
+        entry = groups.remove(groupName);
+        if (entry != null) {
+
+            // Loop through the parent group names.
+            for (String parentGroupName : entry.parentGroups) {
+                removeEdge(childGroups, parentGroupName, groupName);
+            }
+        }
+
+        // Index the group.
+        groups.put(groupName, new GroupEntry(
+                Collections.unmodifiableSet(new HashSet<String>(parentGroupNames)), System.currentTimeMillis() + timeToLive));
+
+        // Loop through the parent group names.
+        for (String parentGroupName : parentGroupNames) {
+            addEdge(childGroups, parentGroupName, groupName);
+        }
+    }
+
+    /**
+     * Put the direct groups of the account.
+     *
+     * @param  accountName  the account name.
+     * @param  groupNames   the direct group names.
+     */
+    public synchronized void putGroups(String accountName, Set<String> groupNames) {
+        putAccountEntry(accountName, groupNames);
+        evict();
+    }
+
+    /**
+     * Put the direct parent groups of the group.
+     *
+     * @param  groupName         the group name.
+     * @param  parentGroupNames  the direct parent group names.
+     */
+    public synchronized void putParentGroups(String groupName, Set<String> parentGroupNames) {
+        invalidate(groupName);
+        putGroupEntry(groupName, parentGroupNames);
+        evict();
+    }
+
+    /**
+     * Remove the account from the index.
+     *
+     * @param  accountName  the account name.
+     */
+    public synchronized void removeAccount(String accountName) {
+        removeAccountEntry(accountName);
+    }
+
+    /**
+     * Remove the indexed account and its reverse edges.
+     *
+     * @param  accountName  the account name.
+     */
+    private void removeAccountEntry(String accountName) {
+
+        // Declare.
+        AccountEntry entry;
+
+        // Remove the indexed account.
+        entry = accounts.remove(accountName);
+
+        // Check if the account was indexed.
+        if (entry != null) {
+
+            // Loop through the direct group names.
+            for (String groupName : entry.groups) {
+                removeEdge(groupAccounts, groupName, accountName);
+            }
+        }
+    }
+
+    /**
+     * Remove the edge from the reverse edges.
+     *
+     * @param  edges  the reverse edges.
+     * @param  from   the start of the edge.
+     * @param  to     the end of the edge.
+     */
+    private static void removeEdge(Map<String, Set<String>> edges, String from, String to) {
+
+        // Declare.
+        Set<String> ends;
+
+        // Get the ends of the edges.
+        ends = edges.get(from);
+
+        // Check if the edge exists.
+        if (ends != null && ends.remove(to) && ends.isEmpty()) {
+            edges.remove(from);
+        }
+    }
+
+    /**
+     * Remove the group from the index.
+     *
+     * @param  groupName  the group name.
+     */
+    public synchronized void removeGroup(String groupName) {
+
+        // Declare.
+        Set<String> accountNames;
+        Set<String> childGroupNames;
+
+        // Invalidate the closures that include the group.
+        invalidate(groupName);
+
+        // Remove the group from the direct groups of its accounts.
+        accountNames = groupAccounts.remove(groupName);
+        if (accountNames != null) {
+
+            // Loop through the account names.
+            for (String accountName : accountNames) {
+
+                // Declare.
+                AccountEntry entry;
+
+                // Replace the direct groups of the account.
+                entry = accounts.get(accountName);
+                if (entry != null) {
+                    accounts.put(accountName, new AccountEntry(without(entry.groups, groupName), entry.expiryTime));
+                }
+            }
+        }
+
+        // Remove the group from the parent groups of its child groups.
+        childGroupNames = childGroups.remove(groupName);
+        if (childGroupNames != null) {
+
+            // Loop through the child group names.
+            for (String childGroupName : childGroupNames) {
+
+                // Declare.
+                GroupEntry entry;
+
+                // Replace the parent groups of the child group.
+                entry = groups.get(childGroupName);
+                if (entry != null) {
+                    groups.put(childGroupName, new GroupEntry(without(entry.parentGroups, groupName), entry.expiryTime));
+                }
+            }
+        }
+
+        // Remove the group.
+        removeGroupEntry(groupName);
+    }
+
+    /**
+     * Remove the indexed group and its reverse edges.  The closures that
+     * include the group are invalidated.
+     *
+     * @param  groupName  the group name.
+     */
+    private void removeGroupEntry(String groupName) {
+
+        // Declare.
+        GroupEntry entry;
+
+        // Invalidate the closures that include the group.
+        invalidate(groupName);
+
+        // Remove the indexed group.
+        entry = groups.remove(groupName);
+
+        // Check if the group was indexed.
+        if (entry != null) {
+
+            // Loop through the parent group names.
+            for (String parentGroupName : entry.parentGroups) {
+                removeEdge(childGroups, parentGroupName, groupName);
+            }
+        }
+    }
+
+    /**
+     * Remove the accounts (members) from the group.
+     *
+     * @param  groupName     the group name.
+     * @param  accountNames  the account names.
+     */
+    public synchronized void removeMembers(String groupName, Set<String> accountNames) {
+
+        // Loop through the account names.
+        for (String accountName : accountNames) {
+
+            // Declare.
+            AccountEntry entry;
+
+            // Get the indexed account.
+            entry = accounts.get(accountName);
+
+            // Check if the account is indexed and a member of the group.
+            if (entry != null && entry.groups.contains(groupName)) {
+
+                // Remove the group from the direct groups of the account.
+                accounts.put(accountName, new AccountEntry(without(entry.groups, groupName), entry.expiryTime));
+                removeEdge(groupAccounts, groupName, accountName);
+            }
+        }
+    }
+
+    /**
+     * Remove the nested groups from the group.
+     *
+     * @param  groupName         the group name.
+     * @param  nestedGroupNames  the nested group names.
+     */
+    public synchronized void removeNestedGroups(String groupName, Set<String> nestedGroupNames) {
+
+        // Loop through the nested group names.
+        for (String nestedGroupName : nestedGroupNames) {
+
+            // Declare.
+            GroupEntry entry;
+
+            // Get the indexed nested group.
+            entry = groups.get(nestedGroupName);
+
+            // Check if the nested group is indexed and nested in the group.
+            if (entry != null && entry.parentGroups.contains(groupName)) {
+
+                // Invalidate the closures that include the nested group.
+                invalidate(nestedGroupName);
+
+                // Remove the group from the parent groups of the nested group.
+                groups.put(nestedGroupName, new GroupEntry(without(entry.parentGroups, groupName), entry.expiryTime));
+                removeEdge(childGroups, groupName, nestedGroupName);
+            }
+        }
+    }
+
+    /**
+     * Resolve the ancestor groups of the group, including the group itself.
+     * The walk is cycle-safe and reuses the memoized closure of any group
+     * it reaches.  Groups whose parent groups are not indexed are treated
+     * as top-level groups.
+     *
+     * @param  groupName  the group name.
+     *
+     * @return  the ancestor groups.
+     */
+    private Set<String> resolveAncestorGroups(String groupName) {
+
+        // Declare.
+        GroupEntry entry;
+        Set<String> groupAncestorGroups;
+
+        // Get the memoized ancestor groups.
+        entry = groups.get(groupName);
+        groupAncestorGroups = (entry != null) ? entry.ancestorGroups : null;
+
+        // Check if the ancestor groups are not memoized.
+        if (groupAncestorGroups == null) {
+
+            // Declare.
+            List<String> pendingGroupNames;
+            Set<String> visitedGroupNames;
+
+            // Initialize.
+            pendingGroupNames = new ArrayList<String>();
+            pendingGroupNames.add(groupName);
+            visitedGroupNames = new HashSet<String>();
+
+            // Loop through the pending group names.
+            while (!pendingGroupNames.isEmpty()) {
+
+                // Declare.
+                String pendingGroupName;
+
+                // Get the next group name.
+                pendingGroupName = pendingGroupNames.remove(pendingGroupNames.size() - 1);
+
+                // Check if the group has not been visited.
+                if (visitedGroupNames.add(pendingGroupName)) {
+
+                    // Declare.
+                    GroupEntry pendingEntry;
+                    Set<String> memoizedGroupNames;
+
+                    // Get the memoized ancestor groups of the pending group.
+                    pendingEntry = groups.get(pendingGroupName);
+                    memoizedGroupNames = (pendingEntry == null || pendingGroupName.equals(groupName))
+                            ? null : pendingEntry.ancestorGroups;
+
+                    // Check if the ancestor groups of the pending group are memoized.
+                    if (memoizedGroupNames != null) {
+                        visitedGroupNames.addAll(memoizedGroupNames);
+                    }
+                    else if (pendingEntry != null) {
+                        pendingGroupNames.addAll(pendingEntry.parentGroups);
+                    }
+                }
+            }
+
+            // Memoize the ancestor groups, if the group is indexed.
+            groupAncestorGroups = Collections.unmodifiableSet(visitedGroupNames);
+            if (entry != null) {
+                entry.ancestorGroups = groupAncestorGroups;
+            }
+        }
+
+        return groupAncestorGroups;
+    }
+
+    /**
+     * Resolve the effective groups of the account.  The direct groups of the
+     * account must be indexed.
+     *
+     * @param  accountName  the account name.
+     *
+     * @return  the effective groups.
+     *
+     * @throws  IllegalStateException  if the direct groups of the account are not indexed.
+     */
+    public synchronized Set<String> resolveEffectiveGroups(String accountName) {
+
+        // Declare.
+        AccountEntry entry;
+
+        // Get the indexed account.
+        entry = accounts.get(accountName);
+
+        // Check if the direct groups are not indexed.
+        if (entry == null) {
+            throw new IllegalStateException(
+                    "The groups of the account " + accountName + " are not indexed.");
+        }
+
+        // Check if the effective groups are not memoized.
+        if (entry.effectiveGroups == null) {
+
+            // Declare.
+            Set<String> resolvedGroupNames;
+
+            // Loop through the direct groups.
+            resolvedGroupNames = new HashSet<String>();
+            for (String groupName : entry.groups) {
+
+                // Add the ancestor groups of the group.
+                resolvedGroupNames.addAll(resolveAncestorGroups(groupName));
+            }
+
+            // Memoize the effective groups.
+            entry.effectiveGroups = Collections.unmodifiableSet(resolvedGroupNames);
+        }
+
+        return entry.effectiveGroups;
+    }
+
+    /**
+     * Get a copy of the values with the value.
+     *
+     * @param  values  the values.
+     * @param  value   the value.
+     *
+     * @return  the copy of the values with the value.
+     */
+    private static Set<String> with(Set<String> values, String value) {
+
+        // Declare.
+        Set<String> newValues;
+
+        // Copy the values and add the value.
+        newValues = new HashSet<String>(values);
+        newValues.add(value);
+
+        return Collections.unmodifiableSet(newValues);
+    }
+
+    /**
+     * Get a copy of the values without the value.
+     *
+     * @param  values  the values.
+     * @param  value   the value.
+     *
+     * @return  the copy of the values without the value.
+     */
+    private static Set<String> without(Set<String> values, String value) {
+
+        // Declare.
+        Set<String> newValues;
+
+        // Copy the values and remove the value.
+        newValues = new HashSet<String>(values);
+        newValues.remove(value);
+
+        return Collections.unmodifiableSet(newValues);
+    }
+}
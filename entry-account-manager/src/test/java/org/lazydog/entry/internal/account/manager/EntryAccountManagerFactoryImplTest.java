@@ -0,0 +1,27 @@
+package org.lazydog.entry.internal.account.manager;
+
+import java.util.Properties;
+import static org.junit.Assert.*;
+import org.junit.Test;
+import org.lazydog.entry.spi.account.manager.EntryAccountManagerException;
+import org.lazydog.entry.spi.account.manager.EntryAccountManagerFactory;
+
+
+/**
+ * Unit tests for EntryAccountManagerFactoryImpl class.
+ *
+ * @author  Ron Rickard
+ */
+public class EntryAccountManagerFactoryImplTest {
+
+    @Test
+    public void instance() {
+        assertTrue(EntryAccountManagerFactory.instance() instanceof EntryAccountManagerFactoryImpl);
+        assertSame(EntryAccountManagerFactory.instance(), EntryAccountManagerFactory.instance());
+    }
+
+    @Test(expected=EntryAccountManagerException.class)
+    public void createEntryAccountManagerMissingEnvironment() {
+        new EntryAccountManagerFactoryImpl().createEntryAccountManager(new Properties());
+    }
+}
@@ -1,6 +1,7 @@
 package org.lazydog.entry.internal.account.manager;
 
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import static org.junit.Assert.*;
 import org.junit.AfterClass;
@@ -301,6 +302,91 @@ public class EntryAccountManagerImplTest {
         assertEquals(groupNames, accountManager.getGroups("testaccount1"));
     }
 
+    @Test
+    public void getGroupsNested() {
+        Set<String> accountNames = new HashSet<String>();
+        accountNames.add("testaccount1");
+        Set<String> nestedGroupNames = new HashSet<String>();
+        nestedGroupNames.add("testgroup1");
+        Set<String> groupNames = new HashSet<String>();
+        groupNames.add("testgroup1");
+        groupNames.add("testgroup2");
+
+        accountManager.createAccount("testaccount1", "test123");
+        accountManager.createGroup("testgroup1");
+        accountManager.createGroup("testgroup2");
+        accountManager.addMembers("testgroup1", accountNames);
+        accountManager.addNestedGroups("testgroup2", nestedGroupNames);
+        assertEquals(groupNames, accountManager.getGroups("testaccount1"));
+        assertEquals(nestedGroupNames, accountManager.getNestedGroups("testgroup2"));
+        assertTrue(accountManager.isMember("testaccount1", "testgroup2"));
+
+        accountManager.removeNestedGroups("testgroup2", nestedGroupNames);
+        assertEquals(nestedGroupNames, accountManager.getGroups("testaccount1"));
+        assertFalse(accountManager.isMember("testaccount1", "testgroup2"));
+    }
+
+    @Test
+    public void getGroupsNestedCycle() {
+        Set<String> accountNames = new HashSet<String>();
+        accountNames.add("testaccount1");
+        Set<String> nestedGroupNames1 = new HashSet<String>();
+        nestedGroupNames1.add("testgroup1");
+        Set<String> nestedGroupNames2 = new HashSet<String>();
+        nestedGroupNames2.add("testgroup2");
+        Set<String> groupNames = new HashSet<String>();
+        groupNames.add("testgroup1");
+        groupNames.add("testgroup2");
+
+        accountManager.createAccount("testaccount1", "test123");
+        accountManager.createGroup("testgroup1");
+        accountManager.createGroup("testgroup2");
+        accountManager.addMembers("testgroup1", accountNames);
+        accountManager.addNestedGroups("testgroup2", nestedGroupNames1);
+        accountManager.addNestedGroups("testgroup1", nestedGroupNames2);
+        assertEquals(groupNames, accountManager.getGroups("testaccount1"));
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void addNestedGroupsSelf() {
+        Set<String> nestedGroupNames = new HashSet<String>();
+        nestedGroupNames.add("testgroup1");
+
+        accountManager.createGroup("testgroup1");
+        accountManager.addNestedGroups("testgroup1", nestedGroupNames);
+    }
+
+    @Test(expected=NoSuchEntryException.class)
+    public void addNestedGroupsNoSuchGroup() {
+        Set<String> nestedGroupNames = new HashSet<String>();
+        nestedGroupNames.add("testgroup2");
+
+        accountManager.createGroup("testgroup1");
+        accountManager.addNestedGroups("testgroup1", nestedGroupNames);
+    }
+
+    @Test
+    public void warmUp() {
+        Set<String> accountNames = new HashSet<String>();
+        accountNames.add("testaccount1");
+        Set<String> nestedGroupNames = new HashSet<String>();
+        nestedGroupNames.add("testgroup1");
+        Set<String> groupNames = new HashSet<String>();
+        groupNames.add("testgroup1");
+        groupNames.add("testgroup2");
+
+        accountManager.createAccount("testaccount1", "test123");
+        accountManager.createGroup("testgroup1");
+        accountManager.createGroup("testgroup2");
+        accountManager.addMembers("testgroup1", accountNames);
+        accountManager.addNestedGroups("testgroup2", nestedGroupNames);
+        List<String> warmUpGroupNames = ((EntryAccountManagerImpl)accountManager).startWarmUp();
+        ((EntryAccountManagerImpl)accountManager).warmUp(warmUpGroupNames.subList(0, 1));
+        ((EntryAccountManagerImpl)accountManager).warmUp(warmUpGroupNames.subList(1, warmUpGroupNames.size()));
+        assertTrue(((EntryAccountManagerImpl)accountManager).finishWarmUp());
+        assertEquals(groupNames, accountManager.getGroups("testaccount1"));
+    }
+
     @Test
     public void getGroupsNoGroup() {
         accountManager.createAccount("testaccount1", "test123");
@@ -0,0 +1,165 @@
+package org.lazydog.entry.internal.account.manager;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+
+
+/**
+ * Unit tests for GroupMembershipIndex class.
+ *
+ * @author  Ron Rickard
+ */
+public class GroupMembershipIndexTest {
+
+    private GroupMembershipIndex index;
+
+    private static Set<String> setOf(String... values) {
+        Set<String> set = new HashSet<String>();
+        for (String value : values) {
+            set.add(value);
+        }
+        return set;
+    }
+
+    @Before
+    public void beforeTest() {
+        index = new GroupMembershipIndex();
+        index.putGroups("testaccount1", setOf("testgroup1"));
+        index.putParentGroups("testgroup1", setOf("testgroup2"));
+        index.putParentGroups("testgroup2", setOf("testgroup3"));
+        index.putParentGroups("testgroup3", new HashSet<String>());
+    }
+
+    @Test
+    public void resolveEffectiveGroups() {
+        assertNull(index.getEffectiveGroups("testaccount1"));
+        assertEquals(setOf("testgroup1", "testgroup2", "testgroup3"), index.resolveEffectiveGroups("testaccount1"));
+        assertEquals(setOf("testgroup1", "testgroup2", "testgroup3"), index.getEffectiveGroups("testaccount1"));
+    }
+
+    @Test
+    public void resolveEffectiveGroupsCycle() {
+        index.putParentGroups("testgroup3", setOf("testgroup1"));
+        assertEquals(setOf("testgroup1", "testgroup2", "testgroup3"), index.resolveEffectiveGroups("testaccount1"));
+    }
+
+    @Test(expected=IllegalStateException.class)
+    public void resolveEffectiveGroupsNotIndexed() {
+        index.resolveEffectiveGroups("testaccount2");
+    }
+
+    @Test
+    public void getUnindexedGroups() {
+        index.putParentGroups("testgroup3", setOf("testgroup4"));
+        assertEquals(setOf("testgroup4"), index.getUnindexedGroups(setOf("testgroup1")));
+    }
+
+    @Test
+    public void load() {
+        Map<String, Set<String>> accountGroups = new HashMap<String, Set<String>>();
+        accountGroups.put("testaccount2", setOf("testgroup4"));
+        Map<String, Set<String>> parentGroups = new HashMap<String, Set<String>>();
+        parentGroups.put("testgroup4", setOf("testgroup5"));
+        parentGroups.put("testgroup5", new HashSet<String>());
+
+        index.resolveEffectiveGroups("testaccount1");
+        index.load(accountGroups, parentGroups);
+        assertFalse(index.containsAccount("testaccount1"));
+        assertNull(index.getEffectiveGroups("testaccount1"));
+        assertEquals(new HashSet<String>(), index.getUnindexedGroups(setOf("testgroup4")));
+        assertEquals(setOf("testgroup4", "testgroup5"), index.resolveEffectiveGroups("testaccount2"));
+    }
+
+    @Test
+    public void addNestedGroups() {
+        index.putParentGroups("testgroup4", new HashSet<String>());
+        index.resolveEffectiveGroups("testaccount1");
+        index.addNestedGroups("testgroup4", setOf("testgroup2"));
+        assertNull(index.getEffectiveGroups("testaccount1"));
+        assertEquals(setOf("testgroup1", "testgroup2", "testgroup3", "testgroup4"), index.resolveEffectiveGroups("testaccount1"));
+    }
+
+    @Test
+    public void removeNestedGroups() {
+        index.resolveEffectiveGroups("testaccount1");
+        index.removeNestedGroups("testgroup3", setOf("testgroup2"));
+        assertEquals(setOf("testgroup1", "testgroup2"), index.resolveEffectiveGroups("testaccount1"));
+    }
+
+    @Test
+    public void addMembers() {
+        index.resolveEffectiveGroups("testaccount1");
+        index.putParentGroups("testgroup4", new HashSet<String>());
+        index.addMembers("testgroup4", setOf("testaccount1"));
+        assertEquals(setOf("testgroup1", "testgroup2", "testgroup3", "testgroup4"), index.resolveEffectiveGroups("testaccount1"));
+    }
+
+    @Test
+    public void removeMembers() {
+        index.resolveEffectiveGroups("testaccount1");
+        index.removeMembers("testgroup1", setOf("testaccount1"));
+        assertEquals(new HashSet<String>(), index.resolveEffectiveGroups("testaccount1"));
+    }
+
+    @Test
+    public void removeGroup() {
+        index.resolveEffectiveGroups("testaccount1");
+        index.removeGroup("testgroup2");
+        assertEquals(setOf("testgroup1"), index.resolveEffectiveGroups("testaccount1"));
+    }
+
+    @Test
+    public void removeAccount() {
+        index.resolveEffectiveGroups("testaccount1");
+        index.removeAccount("testaccount1");
+        assertFalse(index.containsAccount("testaccount1"));
+        assertNull(index.getEffectiveGroups("testaccount1"));
+    }
+
+    @Test
+    public void evict() {
+        GroupMembershipIndex boundedIndex = new GroupMembershipIndex(2, 60000);
+        boundedIndex.putGroups("testaccount1", setOf("testgroup1"));
+        boundedIndex.putGroups("testaccount2", setOf("testgroup1"));
+        boundedIndex.getGroups("testaccount1");
+        boundedIndex.putGroups("testaccount3", setOf("testgroup1"));
+        assertEquals(2, boundedIndex.getAccountCount());
+        assertTrue(boundedIndex.containsAccount("testaccount1"));
+        assertFalse(boundedIndex.containsAccount("testaccount2"));
+    }
+
+    @Test
+    public void expire() throws Exception {
+        GroupMembershipIndex expiringIndex = new GroupMembershipIndex(10, 1);
+        expiringIndex.putGroups("testaccount1", setOf("testgroup1"));
+        expiringIndex.putParentGroups("testgroup1", new HashSet<String>());
+        expiringIndex.resolveEffectiveGroups("testaccount1");
+        Thread.sleep(20);
+        assertNull(expiringIndex.getEffectiveGroups("testaccount1"));
+        assertFalse(expiringIndex.containsAccount("testaccount1"));
+        assertEquals(setOf("testgroup1"), expiringIndex.getUnindexedGroups(setOf("testgroup1")));
+        assertEquals(0, expiringIndex.getGroupCount());
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void groupMembershipIndexInvalid() {
+        new GroupMembershipIndex(0, 60000);
+    }
+
+    @Test
+    public void putParentGroups() {
+        index.putGroups("testaccount2", setOf("testgroup4"));
+        index.putParentGroups("testgroup4", new HashSet<String>());
+        index.resolveEffectiveGroups("testaccount1");
+        index.resolveEffectiveGroups("testaccount2");
+        index.putParentGroups("testgroup3", setOf("testgroup5"));
+        assertNull(index.getEffectiveGroups("testaccount1"));
+        assertEquals(setOf("testgroup4"), index.getEffectiveGroups("testaccount2"));
+        assertEquals(setOf("testgroup1", "testgroup2", "testgroup3", "testgroup5"), index.resolveEffectiveGroups("testaccount1"));
+    }
+}
@@ -0,0 +1,70 @@
+package org.lazydog.entry;
+
+import java.io.Serializable;
+
+
+/**
+ * Admission rejected exception.  The write operation was rejected before it
+ * started, so nothing was changed and the caller may retry it later.
+ *
+ * @author  Ron Rickard
+ */
+public class AdmissionRejectedException extends RuntimeException implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+    private String applicationId;
+    private Reason reason;
+    private long retryAfter;
+
+    /**
+     * Rejection reason.
+     */
+    public enum Reason {
+        QUEUE_FULL,
+        QUEUE_TIMEOUT,
+        RATE_LIMITED,
+        REQUEST_IN_FLIGHT;
+    }
+
+    /**
+     * Constructs a new exception with the specified message.
+     *
+     * @param  applicationId  the application identifier.
+     * @param  reason         the rejection reason.
+     * @param  retryAfter     the suggested delay before a retry in milliseconds.
+     * @param  message        the message.
+     */
+    public AdmissionRejectedException(String applicationId, Reason reason, long retryAfter, String message) {
+        super(message);
+        this.applicationId = applicationId;
+        this.reason = reason;
+        this.retryAfter = retryAfter;
+    }
+
+    /**
+     * Get the application identifier.
+     *
+     * @return  the application identifier.
+     */
+    public String getApplicationId() {
+        return this.applicationId;
+    }
+
+    /**
+     * Get the rejection reason.
+     *
+     * @return  the rejection reason.
+     */
+    public Reason getReason() {
+        return this.reason;
+    }
+
+    /**
+     * Get the suggested delay before a retry.
+     *
+     * @return  the suggested delay before a retry in milliseconds.
+     */
+    public long getRetryAfter() {
+        return this.retryAfter;
+    }
+}
@@ -0,0 +1,58 @@
+package org.lazydog.entry;
+
+import java.io.Serializable;
+
+
+/**
+ * Dependency unavailable exception.  A repository or directory call was
+ * not answered because the threads reserved for the dependency are
+ * saturated or the call did not finish within its deadline.  The caller
+ * may retry it later.
+ *
+ * @author  Ron Rickard
+ */
+public class DependencyUnavailableException extends RuntimeException implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+    private String dependency;
+    private Reason reason;
+
+    /**
+     * Unavailability reason.
+     */
+    public enum Reason {
+        SATURATED,
+        TIMED_OUT;
+    }
+
+    /**
+     * Constructs a new exception with the specified message.
+     *
+     * @param  dependency  the dependency.
+     * @param  reason      the unavailability reason.
+     * @param  message     the message.
+     */
+    public DependencyUnavailableException(String dependency, Reason reason, String message) {
+        super(message);
+        this.dependency = dependency;
+        this.reason = reason;
+    }
+
+    /**
+     * Get the dependency.
+     *
+     * @return  the dependency.
+     */
+    public String getDependency() {
+        return this.dependency;
+    }
+
+    /**
+     * Get the unavailability reason.
+     *
+     * @return  the unavailability reason.
+     */
+    public Reason getReason() {
+        return this.reason;
+    }
+}
@@ -0,0 +1,77 @@
+package org.lazydog.entry;
+
+import java.io.Serializable;
+import java.util.List;
+
+
+/**
+ * Invalidation published by the Entry service when user profiles or
+ * application profiles change, so the clients caching them drop their
+ * copies.
+ *
+ * @author  Ron Rickard
+ */
+public class EntryInvalidation implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+    private List<String> keys;
+    private Type type;
+
+    /**
+     * Invalidation type.
+     */
+    public enum Type {
+        APPLICATION_PROFILE,
+        USER_PROFILE;
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param  type  the invalidation type.
+     * @param  keys  the usernames or application identifiers that changed,
+     *               or null if all of them may have changed.
+     */
+    public EntryInvalidation(Type type, List<String> keys) {
+        this.keys = keys;
+        this.type = type;
+    }
+
+    /**
+     * Get the usernames or application identifiers that changed.
+     *
+     * @return  the usernames or application identifiers that changed, or
+     *          null if all of them may have changed.
+     */
+    public List<String> getKeys() {
+        return this.keys;
+    }
+
+    /**
+     * Get the invalidation type.
+     *
+     * @return  the invalidation type.
+     */
+    public Type getType() {
+        return this.type;
+    }
+
+    /**
+     * Get this object as a String.
+     *
+     * @return  this object as a String.
+     */
+    @Override
+    public String toString() {
+
+        // Initialize.
+        StringBuffer toString = new StringBuffer();
+
+        toString.append("EntryInvalidation [");
+        toString.append("keys = ").append(this.getKeys());
+        toString.append(", type = ").append(this.getType());
+        toString.append("]");
+
+        return toString.toString();
+    }
+}
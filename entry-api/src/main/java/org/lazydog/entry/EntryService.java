@@ -1,5 +1,7 @@
 package org.lazydog.entry;
 
+import java.util.List;
+import java.util.concurrent.Future;
 import org.lazydog.entry.model.UserProfile;
 
 
@@ -12,17 +14,45 @@ public interface EntryService {
 
     public boolean activate(String username, String activationCode);
 
+    public Future<Boolean> activateAsync(String username, String activationCode);
+
+    public String activateByCode(String activationCode);
+
     public boolean deactivate(String username);
 
     public String getAuthenticationModuleClassName(String applicationId);
 
+    public UserLoginContext getLoginContext(String applicationId, String username);
+
     public String getRegistrationURL(String applicationId);
 
     public UserProfile getUserProfile(String username);
 
+    public Future<UserProfile> getUserProfileAsync(String username);
+
+    public UserProfile getUserProfileByUuid(String uuid);
+
+    public boolean isUsernameAvailable(String username);
+
     public void modify(UserProfile userProfile);
+
+    public void recordLogin(String username);
+
+    public void refreshApplicationProfiles();
     
     public boolean register(UserProfile userProfile, String applicationId);
 
+    public boolean register(UserProfile userProfile, String applicationId, String requestKey);
+
+    public Future<Boolean> registerAsync(UserProfile userProfile, String applicationId);
+
+    public Future<Boolean> registerAsync(UserProfile userProfile, String applicationId, String requestKey);
+
+    public List<RegistrationResult> registerAll(List<UserProfile> userProfiles, String applicationId);
+
+    public UserSearchPage searchUsers(UserSummary.Field field, String prefix, String afterKey, int limit);
+
+    public void setWriteRateLimit(String applicationId, double rate, int burstSize);
+
     public boolean unregister(String username);
 }
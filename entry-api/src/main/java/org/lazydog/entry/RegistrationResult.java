@@ -0,0 +1,95 @@
+package org.lazydog.entry;
+
+import java.io.Serializable;
+
+
+/**
+ * Outcome of registering one user profile in a batch registration.
+ *
+ * @author  Ron Rickard
+ */
+public class RegistrationResult implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+    private String message;
+    private Status status;
+    private String username;
+
+    /**
+     * Registration status.
+     */
+    public enum Status {
+        ALREADY_EXISTS,
+        FAILED,
+        REGISTERED;
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param  username  the username.
+     * @param  status    the registration status.
+     * @param  message   the message explaining the status, or null.
+     */
+    public RegistrationResult(String username, Status status, String message) {
+        this.message = message;
+        this.status = status;
+        this.username = username;
+    }
+
+    /**
+     * Get the message explaining the status.
+     *
+     * @return  the message explaining the status, or null.
+     */
+    public String getMessage() {
+        return this.message;
+    }
+
+    /**
+     * Get the registration status.
+     *
+     * @return  the registration status.
+     */
+    public Status getStatus() {
+        return this.status;
+    }
+
+    /**
+     * Get the username.
+     *
+     * @return  the username.
+     */
+    public String getUsername() {
+        return this.username;
+    }
+
+    /**
+     * Check if the user profile is registered.
+     *
+     * @return  true if the user profile is registered, otherwise false.
+     */
+    public boolean isRegistered() {
+        return this.status == Status.REGISTERED;
+    }
+
+    /**
+     * Get this object as a String.
+     *
+     * @return  this object as a String.
+     */
+    @Override
+    public String toString() {
+
+        // Initialize.
+        StringBuffer toString = new StringBuffer();
+
+        toString.append("RegistrationResult [");
+        toString.append("message = ").append(this.getMessage());
+        toString.append(", status = ").append(this.getStatus());
+        toString.append(", username = ").append(this.getUsername());
+        toString.append("]");
+
+        return toString.toString();
+    }
+}
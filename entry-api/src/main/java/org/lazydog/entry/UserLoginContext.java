@@ -0,0 +1,133 @@
+package org.lazydog.entry;
+
+import java.io.Serializable;
+import java.util.Set;
+import org.lazydog.entry.model.UserProfile;
+
+
+/**
+ * Everything a relying application needs to log a user in, gathered by one
+ * Entry service call.
+ *
+ * @author  Ron Rickard
+ */
+public class UserLoginContext implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+    private boolean accountExists;
+    private boolean accountLocked;
+    private String applicationId;
+    private String authenticationModuleClassName;
+    private Set<String> groups;
+    private String registrationURL;
+    private UserProfile userProfile;
+
+    /**
+     * Constructor.
+     *
+     * @param  applicationId                  the application identifier.
+     * @param  authenticationModuleClassName  the authentication module class name.
+     * @param  registrationURL                the registration URL.
+     * @param  userProfile                    the user profile, or null if it does not exist.
+     * @param  accountExists                  true if the user account exists, otherwise false.
+     * @param  accountLocked                  true if the user account is locked, otherwise false.
+     * @param  groups                         the effective groups of the user account.
+     */
+    public UserLoginContext(String applicationId, String authenticationModuleClassName, String registrationURL,
+            UserProfile userProfile, boolean accountExists, boolean accountLocked, Set<String> groups) {
+        this.accountExists = accountExists;
+        this.accountLocked = accountLocked;
+        this.applicationId = applicationId;
+        this.authenticationModuleClassName = authenticationModuleClassName;
+        this.groups = groups;
+        this.registrationURL = registrationURL;
+        this.userProfile = userProfile;
+    }
+
+    /**
+     * Get the application identifier.
+     *
+     * @return  the application identifier.
+     */
+    public String getApplicationId() {
+        return this.applicationId;
+    }
+
+    /**
+     * Get the authentication module class name.
+     *
+     * @return  the authentication module class name.
+     */
+    public String getAuthenticationModuleClassName() {
+        return this.authenticationModuleClassName;
+    }
+
+    /**
+     * Get the effective groups of the user account.
+     *
+     * @return  the effective groups, empty if the user account does not exist.
+     */
+    public Set<String> getGroups() {
+        return this.groups;
+    }
+
+    /**
+     * Get the registration URL.
+     *
+     * @return  the registration URL.
+     */
+    public String getRegistrationURL() {
+        return this.registrationURL;
+    }
+
+    /**
+     * Get the user profile.
+     *
+     * @return  the user profile, or null if it does not exist.
+     */
+    public UserProfile getUserProfile() {
+        return this.userProfile;
+    }
+
+    /**
+     * Check if the user account exists.
+     *
+     * @return  true if the user account exists, otherwise false.
+     */
+    public boolean isAccountExists() {
+        return this.accountExists;
+    }
+
+    /**
+     * Check if the user account is locked.
+     *
+     * @return  true if the user account is locked, otherwise false.
+     */
+    public boolean isAccountLocked() {
+        return this.accountLocked;
+    }
+
+    /**
+     * Get this object as a String.
+     *
+     * @return  this object as a String.
+     */
+    @Override
+    public String toString() {
+
+        // Initialize.
+        StringBuffer toString = new StringBuffer();
+
+        toString.append("UserLoginContext [");
+        toString.append("accountExists = ").append(this.isAccountExists());
+        toString.append(", accountLocked = ").append(this.isAccountLocked());
+        toString.append(", applicationId = ").append(this.getApplicationId());
+        toString.append(", authenticationModuleClassName = ").append(this.getAuthenticationModuleClassName());
+        toString.append(", groups = ").append(this.getGroups());
+        toString.append(", registrationURL = ").append(this.getRegistrationURL());
+        toString.append(", userProfile = ").append(this.getUserProfile());
+        toString.append("]");
+
+        return toString.toString();
+    }
+}
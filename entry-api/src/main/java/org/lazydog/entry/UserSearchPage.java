@@ -0,0 +1,75 @@
+package org.lazydog.entry;
+
+import java.io.Serializable;
+import java.util.List;
+
+
+/**
+ * Page of the users found by a user search.
+ *
+ * @author  Ron Rickard
+ */
+public class UserSearchPage implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+    private String nextKey;
+    private List<UserSummary> users;
+
+    /**
+     * Constructor.
+     *
+     * @param  users    the users of the page.
+     * @param  nextKey  the key of the next page, or null if this is the last page.
+     */
+    public UserSearchPage(List<UserSummary> users, String nextKey) {
+        this.nextKey = nextKey;
+        this.users = users;
+    }
+
+    /**
+     * Get the key of the next page.  The key is opaque; it is passed back
+     * to the user search to get the next page.
+     *
+     * @return  the key of the next page, or null if this is the last page.
+     */
+    public String getNextKey() {
+        return this.nextKey;
+    }
+
+    /**
+     * Get the users of the page.
+     *
+     * @return  the users, in the order of the search field.
+     */
+    public List<UserSummary> getUsers() {
+        return this.users;
+    }
+
+    /**
+     * Check if there is a next page.
+     *
+     * @return  true if there is a next page, otherwise false.
+     */
+    public boolean hasNextPage() {
+        return this.nextKey != null;
+    }
+
+    /**
+     * Get this object as a String.
+     *
+     * @return  this object as a String.
+     */
+    @Override
+    public String toString() {
+
+        // Initialize.
+        StringBuffer toString = new StringBuffer();
+
+        toString.append("UserSearchPage [");
+        toString.append("nextKey = ").append(this.getNextKey());
+        toString.append(", users = ").append(this.getUsers());
+        toString.append("]");
+
+        return toString.toString();
+    }
+}
@@ -0,0 +1,154 @@
+package org.lazydog.entry;
+
+import java.io.Serializable;
+import java.util.Date;
+
+
+/**
+ * Summary of a user profile returned by a user search.
+ *
+ * @author  Ron Rickard
+ */
+public class UserSummary implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+    private Date createTime;
+    private String emailAddress;
+    private String firstName;
+    private String lastName;
+    private String username;
+    private String uuid;
+
+    /**
+     * Field the users are searched and sorted by.
+     */
+    public enum Field {
+        EMAIL_ADDRESS,
+        LAST_NAME,
+        USERNAME;
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param  username      the username.
+     * @param  uuid          the UUID.
+     * @param  firstName     the first name.
+     * @param  lastName      the last name.
+     * @param  emailAddress  the email address.
+     * @param  createTime    the create time.
+     */
+    public UserSummary(String username, String uuid, String firstName, String lastName, String emailAddress, Date createTime) {
+        this.createTime = createTime;
+        this.emailAddress = emailAddress;
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.username = username;
+        this.uuid = uuid;
+    }
+
+    /**
+     * Get the create time.
+     *
+     * @return  the create time.
+     */
+    public Date getCreateTime() {
+        return this.createTime;
+    }
+
+    /**
+     * Get the email address.
+     *
+     * @return  the email address.
+     */
+    public String getEmailAddress() {
+        return this.emailAddress;
+    }
+
+    /**
+     * Get the first name.
+     *
+     * @return  the first name.
+     */
+    public String getFirstName() {
+        return this.firstName;
+    }
+
+    /**
+     * Get the last name.
+     *
+     * @return  the last name.
+     */
+    public String getLastName() {
+        return this.lastName;
+    }
+
+    /**
+     * Get the username.
+     *
+     * @return  the username.
+     */
+    public String getUsername() {
+        return this.username;
+    }
+
+    /**
+     * Get the UUID.
+     *
+     * @return  the UUID.
+     */
+    public String getUuid() {
+        return this.uuid;
+    }
+
+    /**
+     * Get the value of the field.
+     *
+     * @param  field  the field.
+     *
+     * @return  the value of the field.
+     */
+    public String getValue(Field field) {
+
+        // Declare.
+        String value;
+
+        // Get the value of the field.
+        switch (field) {
+            case EMAIL_ADDRESS:
+                value = this.getEmailAddress();
+                break;
+            case LAST_NAME:
+                value = this.getLastName();
+                break;
+            default:
+                value = this.getUsername();
+                break;
+        }
+
+        return value;
+    }
+
+    /**
+     * Get this object as a String.
+     *
+     * @return  this object as a String.
+     */
+    @Override
+    public String toString() {
+
+        // Initialize.
+        StringBuffer toString = new StringBuffer();
+
+        toString.append("UserSummary [");
+        toString.append("createTime = ").append(this.getCreateTime());
+        toString.append(", emailAddress = ").append(this.getEmailAddress());
+        toString.append(", firstName = ").append(this.getFirstName());
+        toString.append(", lastName = ").append(this.getLastName());
+        toString.append(", username = ").append(this.getUsername());
+        toString.append(", uuid = ").append(this.getUuid());
+        toString.append("]");
+
+        return toString.toString();
+    }
+}
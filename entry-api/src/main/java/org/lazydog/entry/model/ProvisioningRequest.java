@@ -0,0 +1,247 @@
+package org.lazydog.entry.model;
+
+import java.io.Serializable;
+import java.util.Date;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
+
+
+/**
+ * Entity class used to represent a directory provisioning request waiting in
+ * the provisioning outbox.  The password of a provisioning request is
+ * encrypted, never stored in clear text.
+ *
+ * @author  Ron Rickard
+ */
+public class ProvisioningRequest extends Entity<ProvisioningRequest> implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+    @NotNull(message="Account name is required.")
+    @Size(max=255, message="Account name cannot contain more than 255 characters.")
+    private String accountName;
+    private int attempts;
+    @Size(max=255, message="Group name cannot contain more than 255 characters.")
+    private String groupName;
+    @Size(max=1024, message="Last error cannot contain more than 1024 characters.")
+    private String lastError;
+    @NotNull(message="Next attempt time is required.")
+    private Date nextAttemptTime;
+    @NotNull(message="Operation is required.")
+    private Operation operation;
+    @Size(max=512, message="Password cannot contain more than 512 characters.")
+    private String password;
+
+    /**
+     * Provisioning operation.
+     */
+    public enum Operation {
+        ADD_MEMBER,
+        CHANGE_PASSWORD,
+        CREATE_ACCOUNT,
+        LOCK_ACCOUNT,
+        REMOVE_ACCOUNT,
+        UNLOCK_ACCOUNT;
+    }
+
+    /**
+     * Create a copy of this object.
+     *
+     * @return  a copy of this object.
+     */
+    @Override
+    public ProvisioningRequest copy() {
+
+        // Declare.
+        ProvisioningRequest copy;
+
+        // Create a copy.
+        copy = super.copy();
+        copy.setAccountName(this.getAccountName());
+        copy.setAttempts(this.getAttempts());
+        copy.setGroupName(this.getGroupName());
+        copy.setLastError(this.getLastError());
+        copy.setNextAttemptTime(this.getNextAttemptTime());
+        copy.setOperation(this.getOperation());
+        copy.setPassword(this.getPassword());
+
+        return copy;
+    }
+
+    /**
+     * Get the account name.
+     *
+     * @return  the account name.
+     */
+    public String getAccountName() {
+        return this.accountName;
+    }
+
+    /**
+     * Get the number of failed attempts.
+     *
+     * @return  the number of failed attempts.
+     */
+    public int getAttempts() {
+        return this.attempts;
+    }
+
+    /**
+     * Get the group name.
+     *
+     * @return  the group name.
+     */
+    public String getGroupName() {
+        return this.groupName;
+    }
+
+    /**
+     * Get the last error.
+     *
+     * @return  the last error.
+     */
+    public String getLastError() {
+        return this.lastError;
+    }
+
+    /**
+     * Get the next attempt time.
+     *
+     * @return  the next attempt time.
+     */
+    public Date getNextAttemptTime() {
+        return this.nextAttemptTime;
+    }
+
+    /**
+     * Get the operation.
+     *
+     * @return  the operation.
+     */
+    public Operation getOperation() {
+        return this.operation;
+    }
+
+    /**
+     * Get the encrypted password.
+     *
+     * @return  the encrypted password.
+     */
+    public String getPassword() {
+        return this.password;
+    }
+
+    /**
+     * Get a new instance of this class.
+     *
+     * @param  operation    the operation.
+     * @param  accountName  the account name.
+     *
+     * @return  a new instance of this class.
+     */
+    public static ProvisioningRequest newInstance(Operation operation, String accountName) {
+
+        // Declare.
+        ProvisioningRequest provisioningRequest;
+
+        // Create the provisioning request.
+        provisioningRequest = new ProvisioningRequest();
+        provisioningRequest.setAccountName(accountName);
+        provisioningRequest.setCreateTime(new Date());
+        provisioningRequest.setNextAttemptTime(provisioningRequest.getCreateTime());
+        provisioningRequest.setOperation(operation);
+
+        return provisioningRequest;
+    }
+
+    /**
+     * Set the account name.
+     *
+     * @param  accountName  the account name.
+     */
+    public void setAccountName(String accountName) {
+        this.accountName = trimmed(accountName);
+    }
+
+    /**
+     * Set the number of failed attempts.
+     *
+     * @param  attempts  the number of failed attempts.
+     */
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+
+    /**
+     * Set the group name.
+     *
+     * @param  groupName  the group name.
+     */
+    public void setGroupName(String groupName) {
+        this.groupName = trimmed(groupName);
+    }
+
+    /**
+     * Set the last error.
+     *
+     * @param  lastError  the last error.
+     */
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+
+    /**
+     * Set the next attempt time.
+     *
+     * @param  nextAttemptTime  the next attempt time.
+     */
+    public void setNextAttemptTime(Date nextAttemptTime) {
+        this.nextAttemptTime = nextAttemptTime;
+    }
+
+    /**
+     * Set the operation.
+     *
+     * @param  operation  the operation.
+     */
+    public void setOperation(Operation operation) {
+        this.operation = operation;
+    }
+
+    /**
+     * Set the encrypted password.
+     *
+     * @param  password  the encrypted password.
+     */
+    public void setPassword(String password) {
+        this.password = password;
+    }
+
+    /**
+     * Get this object as a String.  The password is not included.
+     *
+     * @return  this object as a String.
+     */
+    @Override
+    public String toString() {
+
+        // Declare.
+        StringBuffer toString;
+
+        // Initialize.
+        toString = new StringBuffer();
+
+        toString.append("ProvisioningRequest [");
+        toString.append("accountName = ").append(this.getAccountName());
+        toString.append(", attempts = ").append(this.getAttempts());
+        toString.append(", createTime = ").append(this.getCreateTime());
+        toString.append(", groupName = ").append(this.getGroupName());
+        toString.append(", id = ").append(this.getId());
+        toString.append(", lastError = ").append(this.getLastError());
+        toString.append(", modifyTime = ").append(this.getModifyTime());
+        toString.append(", nextAttemptTime = ").append(this.getNextAttemptTime());
+        toString.append(", operation = ").append(this.getOperation());
+        toString.append("]");
+
+        return toString.toString();
+    }
+}
@@ -1,6 +1,7 @@
 package org.lazydog.entry.model;
 
 import java.io.Serializable;
+import java.util.Date;
 import java.util.UUID;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Size;
@@ -21,6 +22,7 @@ public class UserProfile extends Entity<UserProfile> implements Comparable<UserP
     @NotNull(message="First name is required.")
     @Size(max=255, message="First name cannot contain more than 255 characters.")
     private String firstName;
+    private Date lastLoginTime;
     @NotNull(message="Last name is required.")
     @Size(max=255, message="Last name cannot contain more than 255 characters.")
     private String lastName;
@@ -68,6 +70,7 @@ public class UserProfile extends Entity<UserProfile> implements Comparable<UserP
         copy.setActivationCode(this.getActivationCode());
         copy.setEmailAddress(this.getEmailAddress());
         copy.setFirstName(this.getFirstName());
+        copy.setLastLoginTime(this.getLastLoginTime());
         copy.setLastName(this.getLastName());
         copy.setUsername(this.getUsername());
         copy.setUuid(this.getUuid());
@@ -132,6 +135,15 @@ public class UserProfile extends Entity<UserProfile> implements Comparable<UserP
         return this.firstName;
     }
 
+    /**
+     * Get the last login time.
+     *
+     * @return  the last login time.
+     */
+    public Date getLastLoginTime() {
+        return this.lastLoginTime;
+    }
+
     /**
      * Get the last name.
      *
@@ -224,6 +236,15 @@ public class UserProfile extends Entity<UserProfile> implements Comparable<UserP
         this.firstName = trimmed(firstName);
     }
 
+    /**
+     * Set the last login time.
+     *
+     * @param  lastLoginTime  the last login time.
+     */
+    public void setLastLoginTime(Date lastLoginTime) {
+        this.lastLoginTime = lastLoginTime;
+    }
+
     /**
      * Set the last name.
      *
@@ -277,6 +298,7 @@ public class UserProfile extends Entity<UserProfile> implements Comparable<UserP
         toString.append(", emailAddress = ").append(this.getEmailAddress());
         toString.append(", firstName = ").append(this.getFirstName());
         toString.append(", id = ").append(this.getId());
+        toString.append(", lastLoginTime = ").append(this.getLastLoginTime());
         toString.append(", lastName = ").append(this.getLastName());
         toString.append(", modifyTime = ").append(this.getModifyTime());
         toString.append(", username = ").append(this.getUsername());
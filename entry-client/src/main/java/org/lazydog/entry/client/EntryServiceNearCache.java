@@ -0,0 +1,795 @@
+package org.lazydog.entry.client;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageListener;
+import javax.jms.ObjectMessage;
+import org.lazydog.entry.EntryInvalidation;
+import org.lazydog.entry.EntryService;
+import org.lazydog.entry.RegistrationResult;
+import org.lazydog.entry.UserLoginContext;
+import org.lazydog.entry.UserSearchPage;
+import org.lazydog.entry.UserSummary;
+import org.lazydog.entry.model.UserProfile;
+
+
+/**
+ * Entry service near cache.
+ *
+ * <p>The near cache wraps the remote Entry service and keeps the user
+ * profiles, the uuids of the users, and the authentication module class
+ * names and registration URLs of the applications in memory, so the pages
+ * of a client read them without calling the Entry service.  The cache
+ * holds at most the maximum number of entries, evicting the least recently
+ * used, and each entry expires after the time to live.</p>
+ *
+ * <p>The Entry service publishes an invalidation when user profiles or
+ * application profiles change, and the near cache drops its copies when it
+ * receives the invalidation.  The changes made through the near cache are
+ * invalidated at once, so a client reads its own changes.  A copy loaded
+ * while an invalidation is received is not cached, since it may be older
+ * than the change.  The invalidations are not persistent; while they
+ * cannot be received, the near cache is disabled and every call goes to
+ * the Entry service, and the time to live bounds how long a copy may be
+ * stale if an invalidation is lost.</p>
+ *
+ * <p>The login contexts are not cached, since they hold the state of the
+ * user account in the directory, and neither are the searches.</p>
+ *
+ * @author  Ron Rickard
+ */
+public class EntryServiceNearCache implements EntryService, MessageListener {
+
+    private static final String AUTHENTICATION_MODULE_CLASS_NAME = "authenticationModuleClassName:";
+    private static final Logger LOGGER = Logger.getLogger(EntryServiceNearCache.class.getName());
+    private static final String REGISTRATION_URL = "registrationURL:";
+    private static final String USER_PROFILE = "userProfile:";
+    private static final String UUID = "uuid:";
+    private final EntryService delegate;
+    private boolean enabled;
+    private final Map<String, CacheEntry> entries;
+    private final AtomicLong hitCount = new AtomicLong();
+    private long invalidationCount;
+    private final AtomicLong missCount = new AtomicLong();
+    private final long timeToLive;
+
+    /**
+     * Cache entry.
+     */
+    private static final class CacheEntry {
+
+        private final long expiryTime;
+        private final Object value;
+
+        /**
+         * Constructor.
+         *
+         * @param  value       the value.
+         * @param  expiryTime  the expiry time in milliseconds.
+         */
+        private CacheEntry(Object value, long expiryTime) {
+            this.expiryTime = expiryTime;
+            this.value = value;
+        }
+    }
+
+    /**
+     * Constructor.  The near cache is enabled.
+     *
+     * @param  delegate    the Entry service.
+     * @param  maxEntries  the maximum number of entries.
+     * @param  timeToLive  the time to live of an entry in milliseconds.
+     *
+     * @throws  IllegalArgumentException  if the Entry service is null, or the
+     *                                    maximum number of entries or the
+     *                                    time to live is not positive.
+     */
+    public EntryServiceNearCache(EntryService delegate, final int maxEntries, long timeToLive) {
+
+        // Check if the Entry service is null.
+        if (delegate == null) {
+            throw new IllegalArgumentException("The Entry service is required.");
+        }
+
+        // Check if the maximum number of entries or the time to live is not positive.
+        if (maxEntries <= 0 || timeToLive <= 0) {
+            throw new IllegalArgumentException("The maximum number of entries and the time to live must be positive.");
+        }
+
+        this.delegate = delegate;
+        this.enabled = true;
+        this.entries = new LinkedHashMap<String, CacheEntry>(16, 0.75f, true) {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CacheEntry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+        this.timeToLive = timeToLive;
+    }
+
+    /**
+     * Activate the user profile.  The cached user profile is invalidated.
+     *
+     * @param  username        the username.
+     * @param  activationCode  the activation code.
+     *
+     * @return  true if the user profile is activated, otherwise false.
+     */
+    @Override
+    public boolean activate(String username, String activationCode) {
+
+        try {
+            return this.delegate.activate(username, activationCode);
+        }
+        finally {
+            this.invalidate(USER_PROFILE + username);
+        }
+    }
+
+    /**
+     * Activate the user profile asynchronously.  The cached user profile is
+     * invalidated.
+     *
+     * @param  username        the username.
+     * @param  activationCode  the activation code.
+     *
+     * @return  the result of the activation.
+     */
+    @Override
+    public Future<Boolean> activateAsync(String username, String activationCode) {
+
+        try {
+            return this.delegate.activateAsync(username, activationCode);
+        }
+        finally {
+            this.invalidate(USER_PROFILE + username);
+        }
+    }
+
+    /**
+     * Activate the user profile with the activation code.  The cached user
+     * profile of the activated user is invalidated.
+     *
+     * @param  activationCode  the activation code.
+     *
+     * @return  the username of the activated user profile, or null if the
+     *          activation code is invalid.
+     */
+    @Override
+    public String activateByCode(String activationCode) {
+
+        // Declare.
+        String username;
+
+        // Activate the user profile.
+        username = this.delegate.activateByCode(activationCode);
+
+        // Check if the user profile is activated.
+        if (username != null) {
+            this.invalidate(USER_PROFILE + username);
+        }
+
+        return username;
+    }
+
+    /**
+     * Deactivate the user profile.  The cached user profile is invalidated.
+     *
+     * @param  username  the username.
+     *
+     * @return  true if the user profile is deactivated, otherwise false.
+     */
+    @Override
+    public boolean deactivate(String username) {
+
+        try {
+            return this.delegate.deactivate(username);
+        }
+        finally {
+            this.invalidate(USER_PROFILE + username);
+        }
+    }
+
+    /**
+     * Get the cached value.
+     *
+     * @param  key  the key.
+     *
+     * @return  the cached value, or null if the value is not cached or is
+     *          expired.
+     */
+    private synchronized Object get(String key) {
+
+        // Declare.
+        CacheEntry entry;
+
+        // Get the entry.
+        entry = this.enabled ? this.entries.get(key) : null;
+
+        // Check if the entry is expired.
+        if (entry != null && entry.expiryTime <= System.currentTimeMillis()) {
+            this.entries.remove(key);
+            entry = null;
+        }
+
+        // Count the hit or miss.
+        if (entry != null) {
+            this.hitCount.incrementAndGet();
+        }
+        else {
+            this.missCount.incrementAndGet();
+        }
+
+        return (entry != null) ? entry.value : null;
+    }
+
+    /**
+     * Get the authentication module class name of the application.
+     *
+     * @param  applicationId  the application identifier.
+     *
+     * @return  the authentication module class name.
+     */
+    @Override
+    public String getAuthenticationModuleClassName(String applicationId) {
+
+        // Declare.
+        String authenticationModuleClassName;
+        long invalidations;
+
+        // Get the cached authentication module class name.
+        authenticationModuleClassName = (String)this.get(AUTHENTICATION_MODULE_CLASS_NAME + applicationId);
+
+        // Check if the authentication module class name is not cached.
+        if (authenticationModuleClassName == null) {
+            invalidations = this.getInvalidationCount();
+            authenticationModuleClassName = this.delegate.getAuthenticationModuleClassName(applicationId);
+            this.put(AUTHENTICATION_MODULE_CLASS_NAME + applicationId, authenticationModuleClassName, invalidations);
+        }
+
+        return authenticationModuleClassName;
+    }
+
+    /**
+     * Get the hit count.
+     *
+     * @return  the number of values read from the cache.
+     */
+    public long getHitCount() {
+        return this.hitCount.get();
+    }
+
+    /**
+     * Get the invalidation count.
+     *
+     * @return  the number of invalidations applied to the cache.
+     */
+    public synchronized long getInvalidationCount() {
+        return this.invalidationCount;
+    }
+
+    /**
+     * Get the login context of the user for the application.  The login
+     * context is not cached.
+     *
+     * @param  applicationId  the application identifier.
+     * @param  username       the username.
+     *
+     * @return  the login context.
+     */
+    @Override
+    public UserLoginContext getLoginContext(String applicationId, String username) {
+        return this.delegate.getLoginContext(applicationId, username);
+    }
+
+    /**
+     * Get the miss count.
+     *
+     * @return  the number of values read from the Entry service.
+     */
+    public long getMissCount() {
+        return this.missCount.get();
+    }
+
+    /**
+     * Get the registration URL of the application.
+     *
+     * @param  applicationId  the application identifier.
+     *
+     * @return  the registration URL.
+     */
+    @Override
+    public String getRegistrationURL(String applicationId) {
+
+        // Declare.
+        long invalidations;
+        String registrationURL;
+
+        // Get the cached registration URL.
+        registrationURL = (String)this.get(REGISTRATION_URL + applicationId);
+
+        // Check if the registration URL is not cached.
+        if (registrationURL == null) {
+            invalidations = this.getInvalidationCount();
+            registrationURL = this.delegate.getRegistrationURL(applicationId);
+            this.put(REGISTRATION_URL + applicationId, registrationURL, invalidations);
+        }
+
+        return registrationURL;
+    }
+
+    /**
+     * Get the size.
+     *
+     * @return  the number of entries in the cache.
+     */
+    public synchronized int getSize() {
+        return this.entries.size();
+    }
+
+    /**
+     * Get the user profile.  A copy of the cached user profile is returned.
+     *
+     * @param  username  the username.
+     *
+     * @return  the user profile, or null if the user profile does not exist.
+     */
+    @Override
+    public UserProfile getUserProfile(String username) {
+
+        // Declare.
+        long invalidations;
+        UserProfile userProfile;
+
+        // Get the cached user profile.
+        userProfile = (UserProfile)this.get(USER_PROFILE + username);
+
+        // Check if the user profile is not cached.
+        if (userProfile == null) {
+            invalidations = this.getInvalidationCount();
+            userProfile = this.delegate.getUserProfile(username);
+            this.put(USER_PROFILE + username, (userProfile != null) ? userProfile.copy() : null, invalidations);
+        }
+        else {
+            userProfile = userProfile.copy();
+        }
+
+        return userProfile;
+    }
+
+    /**
+     * Get the user profile asynchronously.  The user profile is not cached.
+     *
+     * @param  username  the username.
+     *
+     * @return  the result of the user profile lookup.
+     */
+    @Override
+    public Future<UserProfile> getUserProfileAsync(String username) {
+        return this.delegate.getUserProfileAsync(username);
+    }
+
+    /**
+     * Get the user profile by uuid.  The username of the uuid is cached, and
+     * the user profile is read as by username.
+     *
+     * @param  uuid  the uuid.
+     *
+     * @return  the user profile, or null if the user profile does not exist.
+     */
+    @Override
+    public UserProfile getUserProfileByUuid(String uuid) {
+
+        // Declare.
+        long invalidations;
+        UserProfile userProfile;
+        String username;
+
+        // Initialize.
+        userProfile = null;
+
+        // Get the cached username of the uuid.
+        username = (String)this.get(UUID + uuid);
+
+        // Check if the username is cached.
+        if (username != null) {
+
+            // Get the user profile and check if it still has the uuid.
+            userProfile = this.getUserProfile(username);
+            if (userProfile == null || !uuid.equals(userProfile.getUuid())) {
+                this.invalidate(UUID + uuid);
+                userProfile = null;
+            }
+        }
+
+        // Check if the user profile is not found.
+        if (userProfile == null) {
+            invalidations = this.getInvalidationCount();
+            userProfile = this.delegate.getUserProfileByUuid(uuid);
+
+            // Check if the user profile exists.
+            if (userProfile != null) {
+                this.put(UUID + uuid, userProfile.getUsername(), invalidations);
+                this.put(USER_PROFILE + userProfile.getUsername(), userProfile.copy(), invalidations);
+            }
+        }
+
+        return userProfile;
+    }
+
+    /**
+     * Invalidate the cached value.
+     *
+     * @param  key  the key.
+     */
+    private synchronized void invalidate(String key) {
+        this.entries.remove(key);
+        this.invalidationCount++;
+    }
+
+    /**
+     * Invalidate the cached values.  The values of the keys with the prefix
+     * are invalidated, or all the values with the prefix if there are no
+     * keys.
+     *
+     * @param  prefix  the key prefix.
+     * @param  keys    the keys, or null for all the keys.
+     */
+    private synchronized void invalidate(String prefix, List<String> keys) {
+
+        // Check if there are keys.
+        if (keys != null) {
+
+            // Loop through the keys.
+            for (String key : keys) {
+                this.entries.remove(prefix + key);
+            }
+        }
+        else {
+
+            // Loop through the entries.
+            for (Iterator<String> iterator = this.entries.keySet().iterator(); iterator.hasNext();) {
+
+                // Check if the key has the prefix.
+                if (iterator.next().startsWith(prefix)) {
+                    iterator.remove();
+                }
+            }
+        }
+
+        this.invalidationCount++;
+    }
+
+    /**
+     * Invalidate all the cached values.
+     */
+    public synchronized void invalidateAll() {
+        this.entries.clear();
+        this.invalidationCount++;
+    }
+
+    /**
+     * Check if the near cache is enabled.
+     *
+     * @return  true if the near cache is enabled, otherwise false.
+     */
+    public synchronized boolean isEnabled() {
+        return this.enabled;
+    }
+
+    /**
+     * Check if the username is available.  The availability is not cached.
+     *
+     * @param  username  the username.
+     *
+     * @return  true if the username is available, otherwise false.
+     */
+    @Override
+    public boolean isUsernameAvailable(String username) {
+        return this.delegate.isUsernameAvailable(username);
+    }
+
+    /**
+     * Modify the user profile.  The cached user profile is invalidated.
+     *
+     * @param  userProfile  the user profile.
+     */
+    @Override
+    public void modify(UserProfile userProfile) {
+
+        try {
+            this.delegate.modify(userProfile);
+        }
+        finally {
+            this.invalidate(USER_PROFILE + userProfile.getUsername());
+        }
+    }
+
+    /**
+     * Receive the invalidation message.  The invalidation is applied to the
+     * cache; the cache is cleared if the message cannot be read.
+     *
+     * @param  message  the message.
+     */
+    @Override
+    public void onMessage(Message message) {
+
+        // Declare.
+        Object object;
+
+        try {
+
+            // Get the invalidation.
+            object = (message instanceof ObjectMessage) ? ((ObjectMessage)message).getObject() : null;
+        }
+        catch(JMSException e) {
+            LOGGER.log(Level.WARNING, "Unable to read the invalidation, clearing the near cache.", e);
+            this.invalidateAll();
+            return;
+        }
+
+        // Check if the message is an invalidation.
+        if (object instanceof EntryInvalidation) {
+            this.onInvalidation((EntryInvalidation)object);
+        }
+    }
+
+    /**
+     * Apply the invalidation to the cache.
+     *
+     * @param  invalidation  the invalidation.
+     */
+    public void onInvalidation(EntryInvalidation invalidation) {
+
+        // Check if the invalidation is for application profiles.
+        if (invalidation.getType() == EntryInvalidation.Type.APPLICATION_PROFILE) {
+            this.invalidate(AUTHENTICATION_MODULE_CLASS_NAME, invalidation.getKeys());
+            this.invalidate(REGISTRATION_URL, invalidation.getKeys());
+        }
+        else {
+            this.invalidate(USER_PROFILE, invalidation.getKeys());
+        }
+    }
+
+    /**
+     * Cache the value.  The value is not cached if it is null, the near
+     * cache is disabled, or an invalidation was applied since the value was
+     * loaded.
+     *
+     * @param  key            the key.
+     * @param  value          the value.
+     * @param  invalidations  the invalidation count before the value was
+     *                        loaded.
+     */
+    private synchronized void put(String key, Object value, long invalidations) {
+
+        // Check if the value can be cached.
+        if (value != null && this.enabled && this.invalidationCount == invalidations) {
+            this.entries.put(key, new CacheEntry(value, System.currentTimeMillis() + this.timeToLive));
+        }
+    }
+
+    /**
+     * Record the login of the user.  The user profile is invalidated by the
+     * Entry service when the last login time is written.
+     *
+     * @param  username  the username.
+     */
+    @Override
+    public void recordLogin(String username) {
+        this.delegate.recordLogin(username);
+    }
+
+    /**
+     * Refresh the application profiles.  The cached authentication module
+     * class names and registration URLs are invalidated.
+     */
+    @Override
+    public void refreshApplicationProfiles() {
+
+        try {
+            this.delegate.refreshApplicationProfiles();
+        }
+        finally {
+            this.invalidate(AUTHENTICATION_MODULE_CLASS_NAME, null);
+            this.invalidate(REGISTRATION_URL, null);
+        }
+    }
+
+    /**
+     * Register the user profile.  The cached user profile is invalidated.
+     *
+     * @param  userProfile    the user profile.
+     * @param  applicationId  the application identifier.
+     *
+     * @return  true if the user profile is registered, otherwise false.
+     */
+    @Override
+    public boolean register(UserProfile userProfile, String applicationId) {
+
+        try {
+            return this.delegate.register(userProfile, applicationId);
+        }
+        finally {
+            this.invalidate(USER_PROFILE + userProfile.getUsername());
+        }
+    }
+
+    /**
+     * Register the user profile with the request key.  The cached user
+     * profile is invalidated.
+     *
+     * @param  userProfile    the user profile.
+     * @param  applicationId  the application identifier.
+     * @param  requestKey     the request key.
+     *
+     * @return  true if the user profile is registered, otherwise false.
+     */
+    @Override
+    public boolean register(UserProfile userProfile, String applicationId, String requestKey) {
+
+        try {
+            return this.delegate.register(userProfile, applicationId, requestKey);
+        }
+        finally {
+            this.invalidate(USER_PROFILE + userProfile.getUsername());
+        }
+    }
+
+    /**
+     * Register the user profile asynchronously.  The cached user profile is
+     * invalidated.
+     *
+     * @param  userProfile    the user profile.
+     * @param  applicationId  the application identifier.
+     *
+     * @return  the result of the registration.
+     */
+    @Override
+    public Future<Boolean> registerAsync(UserProfile userProfile, String applicationId) {
+
+        try {
+            return this.delegate.registerAsync(userProfile, applicationId);
+        }
+        finally {
+            this.invalidate(USER_PROFILE + userProfile.getUsername());
+        }
+    }
+
+    /**
+     * Register the user profile asynchronously with the request key.  The
+     * cached user profile is invalidated.
+     *
+     * @param  userProfile    the user profile.
+     * @param  applicationId  the application identifier.
+     * @param  requestKey     the request key.
+     *
+     * @return  the result of the registration.
+     */
+    @Override
+    public Future<Boolean> registerAsync(UserProfile userProfile, String applicationId, String requestKey) {
+
+        try {
+            return this.delegate.registerAsync(userProfile, applicationId, requestKey);
+        }
+        finally {
+            this.invalidate(USER_PROFILE + userProfile.getUsername());
+        }
+    }
+
+    /**
+     * Register the user profiles.  The cached user profiles are invalidated.
+     *
+     * @param  userProfiles   the user profiles.
+     * @param  applicationId  the application identifier.
+     *
+     * @return  the registration results.
+     */
+    @Override
+    public List<RegistrationResult> registerAll(List<UserProfile> userProfiles, String applicationId) {
+
+        try {
+            return this.delegate.registerAll(userProfiles, applicationId);
+        }
+        finally {
+
+            // Loop through the user profiles.
+            for (UserProfile userProfile : userProfiles) {
+                this.invalidate(USER_PROFILE + userProfile.getUsername());
+            }
+        }
+    }
+
+    /**
+     * Search the users.  The searches are not cached.
+     *
+     * @param  field     the field.
+     * @param  prefix    the prefix of the field.
+     * @param  afterKey  the key of the page, or null for the first page.
+     * @param  limit     the maximum number of users.
+     *
+     * @return  the page of users.
+     */
+    @Override
+    public UserSearchPage searchUsers(UserSummary.Field field, String prefix, String afterKey, int limit) {
+        return this.delegate.searchUsers(field, prefix, afterKey, limit);
+    }
+
+    /**
+     * Set the near cache enabled.  The cache is cleared either way, so the
+     * values cached before it was disabled are not read once it is enabled
+     * again.
+     *
+     * @param  enabled  true if the near cache is enabled, otherwise false.
+     */
+    public synchronized void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        this.invalidateAll();
+    }
+
+    /**
+     * Set the write rate limit of the application.
+     *
+     * @param  applicationId  the application identifier.
+     * @param  rate           the rate in users per second.
+     * @param  burstSize      the burst size in users.
+     */
+    @Override
+    public void setWriteRateLimit(String applicationId, double rate, int burstSize) {
+        this.delegate.setWriteRateLimit(applicationId, rate, burstSize);
+    }
+
+    /**
+     * Get the statistics as a string.
+     *
+     * @return  the statistics as a string.
+     */
+    @Override
+    public String toString() {
+
+        // Declare.
+        StringBuilder toString;
+
+        // Initialize.
+        toString = new StringBuilder();
+
+        toString.append("EntryServiceNearCache [");
+        toString.append("enabled = ").append(this.isEnabled());
+        toString.append(", size = ").append(this.getSize());
+        toString.append(", hitCount = ").append(this.getHitCount());
+        toString.append(", missCount = ").append(this.getMissCount());
+        toString.append(", invalidationCount = ").append(this.getInvalidationCount());
+        toString.append("]");
+
+        return toString.toString();
+    }
+
+    /**
+     * Unregister the user profile.  The cached user profile is invalidated.
+     *
+     * @param  username  the username.
+     *
+     * @return  true if the user profile is unregistered, otherwise false.
+     */
+    @Override
+    public boolean unregister(String username) {
+
+        try {
+            return this.delegate.unregister(username);
+        }
+        finally {
+            this.invalidate(USER_PROFILE + username);
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package org.lazydog.entry.client;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.jms.Connection;
+import javax.jms.ConnectionFactory;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageConsumer;
+import javax.jms.Session;
+import javax.jms.Topic;
+import javax.naming.InitialContext;
+import javax.naming.NamingException;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+import org.lazydog.entry.EntryService;
+
+
+/**
+ * Near cache context listener.
+ *
+ * <p>The listener wraps the remote Entry service with a near cache when
+ * the web application starts and puts it in the servlet context under the
+ * Entry service interface name.  The invalidations of the Entry service
+ * are received from the invalidation topic on a daemon thread; the near
+ * cache is disabled while the topic cannot be reached and the thread
+ * reconnects after the retry interval.  The near cache is disabled unless
+ * the connection factory and the invalidation topic are set, so it never
+ * serves copies it cannot invalidate.</p>
+ *
+ * <p>The listener is configured with the context parameters:</p>
+ * <ul>
+ *   <li>org.lazydog.entry.client.entryService, the JNDI name of the Entry
+ *   service,</li>
+ *   <li>org.lazydog.entry.client.connectionFactory, the JNDI name of the
+ *   connection factory,</li>
+ *   <li>org.lazydog.entry.client.invalidationTopic, the JNDI name of the
+ *   invalidation topic,</li>
+ *   <li>org.lazydog.entry.client.cacheSize, the maximum number of cache
+ *   entries, and</li>
+ *   <li>org.lazydog.entry.client.timeToLive, the time to live of a cache
+ *   entry in milliseconds.</li>
+ * </ul>
+ *
+ * @author  Ron Rickard
+ */
+public class NearCacheContextListener implements ServletContextListener {
+
+    public static final String CACHE_SIZE = "org.lazydog.entry.client.cacheSize";
+    public static final String CONNECTION_FACTORY = "org.lazydog.entry.client.connectionFactory";
+    public static final String ENTRY_SERVICE = "org.lazydog.entry.client.entryService";
+    public static final String INVALIDATION_TOPIC = "org.lazydog.entry.client.invalidationTopic";
+    public static final String TIME_TO_LIVE = "org.lazydog.entry.client.timeToLive";
+    private static final int CACHE_SIZE_DEFAULT = 10000;
+    private static final Logger LOGGER = Logger.getLogger(NearCacheContextListener.class.getName());
+    private static final long RECEIVE_TIMEOUT = 1000;
+    private static final long RETRY_INTERVAL = 10000;
+    private static final long TIME_TO_LIVE_DEFAULT = 300000;
+    private volatile Connection connection;
+    private Thread receiver;
+    private volatile boolean stopped;
+
+    /**
+     * Stop receiving the invalidations.
+     *
+     * @param  event  the servlet context event.
+     */
+    @Override
+    public void contextDestroyed(ServletContextEvent event) {
+
+        // Stop the receiver.
+        stopped = true;
+        close();
+
+        // Check if the receiver is started.
+        if (receiver != null) {
+
+            try {
+                receiver.join(RECEIVE_TIMEOUT + RETRY_INTERVAL);
+            }
+            catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Create the near cache and start receiving the invalidations.
+     *
+     * @param  event  the servlet context event.
+     *
+     * @throws  IllegalArgumentException  if the Entry service, connection
+     *                                    factory or invalidation topic cannot
+     *                                    be looked up, or the cache size or
+     *                                    time to live is invalid.
+     */
+    @Override
+    public void contextInitialized(ServletContextEvent event) {
+
+        // Declare.
+        int cacheSize;
+        String cacheSizeValue;
+        final ConnectionFactory connectionFactory;
+        String connectionFactoryName;
+        ServletContext context;
+        EntryService entryService;
+        final Topic invalidationTopic;
+        String invalidationTopicName;
+        final EntryServiceNearCache nearCache;
+        long timeToLive;
+        String timeToLiveValue;
+
+        // Initialize.
+        context = event.getServletContext();
+        cacheSizeValue = context.getInitParameter(CACHE_SIZE);
+        connectionFactoryName = context.getInitParameter(CONNECTION_FACTORY);
+        invalidationTopicName = context.getInitParameter(INVALIDATION_TOPIC);
+        timeToLiveValue = context.getInitParameter(TIME_TO_LIVE);
+        cacheSize = (cacheSizeValue != null) ? Integer.parseInt(cacheSizeValue) : CACHE_SIZE_DEFAULT;
+        timeToLive = (timeToLiveValue != null) ? Long.parseLong(timeToLiveValue) : TIME_TO_LIVE_DEFAULT;
+
+        try {
+
+            // Look up the Entry service, connection factory and invalidation topic.
+            entryService = (EntryService)new InitialContext().lookup(context.getInitParameter(ENTRY_SERVICE));
+            connectionFactory = (connectionFactoryName != null)
+                    ? (ConnectionFactory)new InitialContext().lookup(connectionFactoryName)
+                    : null;
+            invalidationTopic = (invalidationTopicName != null)
+                    ? (Topic)new InitialContext().lookup(invalidationTopicName)
+                    : null;
+        }
+        catch(NamingException e) {
+            throw new IllegalArgumentException("Unable to look up the Entry service or the invalidation topic.", e);
+        }
+
+        // Create the near cache, disabled until the invalidations are received.
+        nearCache = new EntryServiceNearCache(entryService, cacheSize, timeToLive);
+        nearCache.setEnabled(false);
+        context.setAttribute(EntryService.class.getName(), nearCache);
+
+        // Check if the invalidation topic is set.
+        if (connectionFactory != null && invalidationTopic != null) {
+
+            // Receive the invalidations on a daemon thread.
+            receiver = new Thread(new Runnable() {
+
+                @Override
+                public void run() {
+                    receive(connectionFactory, invalidationTopic, nearCache);
+                }
+            }, "NearCacheContextListener-invalidation");
+            receiver.setDaemon(true);
+            receiver.start();
+        }
+        else {
+            LOGGER.log(Level.WARNING, "The invalidation topic is not set, the near cache is disabled.");
+        }
+    }
+
+    /**
+     * Close the connection.
+     */
+    private void close() {
+
+        // Declare.
+        Connection connection;
+
+        // Initialize.
+        connection = this.connection;
+        this.connection = null;
+
+        // Check if the connection is open.
+        if (connection != null) {
+
+            try {
+                connection.close();
+            }
+            catch(JMSException e) {
+                LOGGER.log(Level.FINE, "Unable to close the invalidation connection.", e);
+            }
+        }
+    }
+
+    /**
+     * Receive the invalidations until the listener is stopped.  The near
+     * cache is enabled while the invalidations are received, and disabled
+     * and cleared when the connection fails.
+     *
+     * @param  connectionFactory  the connection factory.
+     * @param  invalidationTopic  the invalidation topic.
+     * @param  nearCache          the near cache.
+     */
+    private void receive(ConnectionFactory connectionFactory, Topic invalidationTopic, EntryServiceNearCache nearCache) {
+
+        // Loop until the listener is stopped.
+        while (!stopped) {
+
+            try {
+
+                // Declare.
+                MessageConsumer consumer;
+                Session session;
+
+                // Subscribe to the invalidation topic.
+                connection = connectionFactory.createConnection();
+                session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+                consumer = session.createConsumer(invalidationTopic);
+                connection.start();
+                nearCache.setEnabled(true);
+
+                // Loop until the listener is stopped.
+                while (!stopped) {
+
+                    // Declare.
+                    Message message;
+
+                    // Receive the invalidation.
+                    message = consumer.receive(RECEIVE_TIMEOUT);
+                    if (message != null) {
+                        nearCache.onMessage(message);
+                    }
+                }
+            }
+            catch(JMSException e) {
+
+                // Check if the listener is not stopped.
+                if (!stopped) {
+                    LOGGER.log(Level.WARNING, "Unable to receive the invalidations, the near cache is disabled.", e);
+                }
+            }
+            catch(RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Unable to receive the invalidations, the near cache is disabled.", e);
+            }
+            finally {
+                nearCache.setEnabled(false);
+                close();
+            }
+
+            // Check if the listener is not stopped.
+            if (!stopped) {
+
+                try {
+
+                    // Wait before reconnecting.
+                    Thread.sleep(RETRY_INTERVAL);
+                }
+                catch(InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+}
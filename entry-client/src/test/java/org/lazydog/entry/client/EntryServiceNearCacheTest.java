@@ -0,0 +1,267 @@
+package org.lazydog.entry.client;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Future;
+import org.lazydog.entry.EntryInvalidation;
+import org.lazydog.entry.EntryService;
+import org.lazydog.entry.RegistrationResult;
+import org.lazydog.entry.UserLoginContext;
+import org.lazydog.entry.UserSearchPage;
+import org.lazydog.entry.UserSummary;
+import org.lazydog.entry.model.UserProfile;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+
+/**
+ * Unit tests for EntryServiceNearCache class.
+ *
+ * @author  Ron Rickard
+ */
+public class EntryServiceNearCacheTest {
+
+    @Test
+    public void disabled() {
+        CountingEntryService delegate = new CountingEntryService();
+        EntryServiceNearCache nearCache = new EntryServiceNearCache(delegate, 10, 60000);
+        nearCache.setEnabled(false);
+        nearCache.getUserProfile("testaccount1");
+        nearCache.getUserProfile("testaccount1");
+        assertEquals(2, delegate.calls);
+        assertEquals(0, nearCache.getSize());
+    }
+
+    @Test
+    public void getRegistrationURL() {
+        CountingEntryService delegate = new CountingEntryService();
+        EntryServiceNearCache nearCache = new EntryServiceNearCache(delegate, 10, 60000);
+        assertEquals("url:Test", nearCache.getRegistrationURL("Test"));
+        assertEquals("url:Test", nearCache.getRegistrationURL("Test"));
+        assertEquals(1, delegate.calls);
+        nearCache.onInvalidation(new EntryInvalidation(EntryInvalidation.Type.APPLICATION_PROFILE, null));
+        nearCache.getRegistrationURL("Test");
+        assertEquals(2, delegate.calls);
+    }
+
+    @Test
+    public void getUserProfile() {
+        CountingEntryService delegate = new CountingEntryService();
+        EntryServiceNearCache nearCache = new EntryServiceNearCache(delegate, 10, 60000);
+        UserProfile userProfile = nearCache.getUserProfile("testaccount1");
+        userProfile.setFirstName("changed");
+        assertEquals("testaccount1", nearCache.getUserProfile("testaccount1").getFirstName());
+        assertEquals(1, delegate.calls);
+        assertEquals(1, nearCache.getHitCount());
+        assertEquals(1, nearCache.getMissCount());
+    }
+
+    @Test
+    public void getUserProfileByUuid() {
+        CountingEntryService delegate = new CountingEntryService();
+        EntryServiceNearCache nearCache = new EntryServiceNearCache(delegate, 10, 60000);
+        assertEquals("testaccount1", nearCache.getUserProfileByUuid("uuid-testaccount1").getUsername());
+        assertEquals("testaccount1", nearCache.getUserProfileByUuid("uuid-testaccount1").getUsername());
+        assertEquals("testaccount1", nearCache.getUserProfile("testaccount1").getUsername());
+        assertEquals(1, delegate.calls);
+    }
+
+    @Test
+    public void getUserProfileEvicted() {
+        CountingEntryService delegate = new CountingEntryService();
+        EntryServiceNearCache nearCache = new EntryServiceNearCache(delegate, 2, 60000);
+        nearCache.getUserProfile("testaccount1");
+        nearCache.getUserProfile("testaccount2");
+        nearCache.getUserProfile("testaccount1");
+        nearCache.getUserProfile("testaccount3");
+        assertEquals(2, nearCache.getSize());
+        nearCache.getUserProfile("testaccount1");
+        assertEquals(3, delegate.calls);
+        nearCache.getUserProfile("testaccount2");
+        assertEquals(4, delegate.calls);
+    }
+
+    @Test
+    public void getUserProfileExpired() throws Exception {
+        CountingEntryService delegate = new CountingEntryService();
+        EntryServiceNearCache nearCache = new EntryServiceNearCache(delegate, 10, 1);
+        nearCache.getUserProfile("testaccount1");
+        Thread.sleep(20);
+        nearCache.getUserProfile("testaccount1");
+        assertEquals(2, delegate.calls);
+    }
+
+    @Test
+    public void getUserProfileInvalidatedWhileLoading() {
+        final EntryServiceNearCache[] nearCache = new EntryServiceNearCache[1];
+        CountingEntryService delegate = new CountingEntryService() {
+            @Override
+            public UserProfile getUserProfile(String username) {
+                nearCache[0].onInvalidation(new EntryInvalidation(EntryInvalidation.Type.USER_PROFILE, Arrays.asList(username)));
+                return super.getUserProfile(username);
+            }
+        };
+        nearCache[0] = new EntryServiceNearCache(delegate, 10, 60000);
+        nearCache[0].getUserProfile("testaccount1");
+        assertEquals(0, nearCache[0].getSize());
+    }
+
+    @Test
+    public void modify() {
+        CountingEntryService delegate = new CountingEntryService();
+        EntryServiceNearCache nearCache = new EntryServiceNearCache(delegate, 10, 60000);
+        UserProfile userProfile = nearCache.getUserProfile("testaccount1");
+        userProfile.setFirstName("changed");
+        nearCache.modify(userProfile);
+        assertEquals("changed", nearCache.getUserProfile("testaccount1").getFirstName());
+        assertEquals(2, delegate.calls);
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void nearCacheInvalid() {
+        new EntryServiceNearCache(new CountingEntryService(), 0, 60000);
+    }
+
+    @Test
+    public void onInvalidation() {
+        CountingEntryService delegate = new CountingEntryService();
+        EntryServiceNearCache nearCache = new EntryServiceNearCache(delegate, 10, 60000);
+        nearCache.getUserProfile("testaccount1");
+        nearCache.getUserProfile("testaccount2");
+        nearCache.getRegistrationURL("Test");
+        nearCache.onInvalidation(new EntryInvalidation(EntryInvalidation.Type.USER_PROFILE, Arrays.asList("testaccount1")));
+        nearCache.getUserProfile("testaccount1");
+        nearCache.getUserProfile("testaccount2");
+        nearCache.getRegistrationURL("Test");
+        assertEquals(4, delegate.calls);
+        assertEquals(1, nearCache.getInvalidationCount());
+    }
+
+    /**
+     * Entry service counting the reads.
+     */
+    private static class CountingEntryService implements EntryService {
+
+        private int calls;
+        private Map<String, UserProfile> userProfiles = new HashMap<String, UserProfile>();
+
+        @Override
+        public boolean activate(String username, String activationCode) {
+            return true;
+        }
+
+        @Override
+        public Future<Boolean> activateAsync(String username, String activationCode) {
+            return null;
+        }
+
+        @Override
+        public String activateByCode(String activationCode) {
+            return null;
+        }
+
+        @Override
+        public boolean deactivate(String username) {
+            return true;
+        }
+
+        @Override
+        public String getAuthenticationModuleClassName(String applicationId) {
+            calls++;
+            return "module:" + applicationId;
+        }
+
+        @Override
+        public UserLoginContext getLoginContext(String applicationId, String username) {
+            return null;
+        }
+
+        @Override
+        public String getRegistrationURL(String applicationId) {
+            calls++;
+            return "url:" + applicationId;
+        }
+
+        @Override
+        public UserProfile getUserProfile(String username) {
+            calls++;
+            if (!userProfiles.containsKey(username)) {
+                UserProfile userProfile = new UserProfile();
+                userProfile.setFirstName(username);
+                userProfile.setUsername(username);
+                userProfile.setUuid("uuid-" + username);
+                userProfiles.put(username, userProfile);
+            }
+            return userProfiles.get(username).copy();
+        }
+
+        @Override
+        public Future<UserProfile> getUserProfileAsync(String username) {
+            return null;
+        }
+
+        @Override
+        public UserProfile getUserProfileByUuid(String uuid) {
+            return getUserProfile(uuid.substring("uuid-".length()));
+        }
+
+        @Override
+        public boolean isUsernameAvailable(String username) {
+            return !userProfiles.containsKey(username);
+        }
+
+        @Override
+        public void modify(UserProfile userProfile) {
+            userProfiles.put(userProfile.getUsername(), userProfile.copy());
+        }
+
+        @Override
+        public void recordLogin(String username) {
+        }
+
+        @Override
+        public void refreshApplicationProfiles() {
+        }
+
+        @Override
+        public boolean register(UserProfile userProfile, String applicationId) {
+            return true;
+        }
+
+        @Override
+        public boolean register(UserProfile userProfile, String applicationId, String requestKey) {
+            return true;
+        }
+
+        @Override
+        public Future<Boolean> registerAsync(UserProfile userProfile, String applicationId) {
+            return null;
+        }
+
+        @Override
+        public Future<Boolean> registerAsync(UserProfile userProfile, String applicationId, String requestKey) {
+            return null;
+        }
+
+        @Override
+        public List<RegistrationResult> registerAll(List<UserProfile> userProfiles, String applicationId) {
+            return null;
+        }
+
+        @Override
+        public UserSearchPage searchUsers(UserSummary.Field field, String prefix, String afterKey, int limit) {
+            return null;
+        }
+
+        @Override
+        public void setWriteRateLimit(String applicationId, double rate, int burstSize) {
+        }
+
+        @Override
+        public boolean unregister(String username) {
+            return true;
+        }
+    }
+}
@@ -1,5 +1,11 @@
 package org.lazydog.entry.spi.repository;
 
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import org.lazydog.entry.UserSummary;
+import org.lazydog.entry.model.ProvisioningRequest;
+import org.lazydog.entry.model.UserProfile;
 import org.lazydog.repository.Repository;
 
 
@@ -9,4 +15,78 @@ import org.lazydog.repository.Repository;
  * @author  Ron Rickard
  */
 public interface EntryRepository extends Repository {
+
+    /**
+     * Find the user profiles created before the create time that are not
+     * activated, after the user profile, in create time order.
+     *
+     * @param  createdBefore  the create time.
+     * @param  after          the last user profile of the previous page, or
+     *                        null for the first page.
+     * @param  maxResults     the maximum number of user profiles.
+     *
+     * @return  the user profiles.
+     */
+    public List<UserProfile> findExpiredRegistrations(Date createdBefore, UserProfile after, int maxResults);
+
+    /**
+     * Find the oldest provisioning requests in the provisioning outbox that
+     * are due.  A provisioning request is due if its next attempt time has
+     * come and no earlier provisioning request for its account is waiting
+     * for a retry, so the provisioning requests of an account are applied
+     * in order.
+     *
+     * @param  now         the current time.
+     * @param  maxResults  the maximum number of provisioning requests.
+     *
+     * @return  the provisioning requests, oldest first.
+     */
+    public List<ProvisioningRequest> findProvisioningRequests(Date now, int maxResults);
+
+    /**
+     * Find the registered usernames after the username, in username order.
+     *
+     * @param  afterUsername  the last username of the previous page, or null
+     *                        for the first page.
+     * @param  maxResults     the maximum number of usernames.
+     *
+     * @return  the usernames.
+     */
+    public List<String> findUsernames(String afterUsername, int maxResults);
+
+    /**
+     * Remove the user profiles of the expired registrations with one delete.
+     * A user profile activated since it was found is not removed.
+     *
+     * @param  ids  the IDs of the user profiles.
+     *
+     * @return  the number of user profiles removed.
+     */
+    public int removeExpiredRegistrations(List<Integer> ids);
+
+    /**
+     * Search the users whose field starts with the prefix, after the user,
+     * in field and username order.
+     *
+     * @param  field          the field.
+     * @param  prefix         the prefix, or null for all users.
+     * @param  afterValue     the field value of the last user of the previous
+     *                        page, or null for the first page.
+     * @param  afterUsername  the username of the last user of the previous
+     *                        page, or null for the first page.
+     * @param  maxResults     the maximum number of users.
+     *
+     * @return  the user summaries.
+     */
+    public List<UserSummary> searchUsers(UserSummary.Field field, String prefix, String afterValue, String afterUsername, int maxResults);
+
+    /**
+     * Update the last login times of the users.  A last login time is only
+     * updated if it is newer than the stored one.
+     *
+     * @param  lastLoginTimes  the last login times by username.
+     *
+     * @return  the number of user profiles updated.
+     */
+    public int updateLastLoginTimes(Map<String, Date> lastLoginTimes);
 }
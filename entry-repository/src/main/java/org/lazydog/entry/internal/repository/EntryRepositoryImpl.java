@@ -1,5 +1,13 @@
 package org.lazydog.entry.internal.repository;
 
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import javax.persistence.Query;
+import javax.persistence.TypedQuery;
+import org.lazydog.entry.UserSummary;
+import org.lazydog.entry.model.ProvisioningRequest;
+import org.lazydog.entry.model.UserProfile;
 import org.lazydog.entry.spi.repository.EntryRepository;
 import org.lazydog.repository.jpa.AbstractRepository;
 
@@ -10,4 +18,197 @@ import org.lazydog.repository.jpa.AbstractRepository;
  * @author  Ron Rickard
  */
 public class EntryRepositoryImpl extends AbstractRepository implements EntryRepository {
+
+    /**
+     * Find the user profiles created before the create time that are not
+     * activated, after the user profile, in create time order.  A user
+     * profile is not activated while it has an activation code.  The create
+     * time index is used to seek to the page.
+     *
+     * @param  createdBefore  the create time.
+     * @param  after          the last user profile of the previous page, or
+     *                        null for the first page.
+     * @param  maxResults     the maximum number of user profiles.
+     *
+     * @return  the user profiles.
+     */
+    @Override
+    public List<UserProfile> findExpiredRegistrations(Date createdBefore, UserProfile after, int maxResults) {
+        return this.getEntityManager()
+                .createQuery("select u from UserProfile u where u.activationCode is not null and u.createTime < :createdBefore"
+                        + " and (u.createTime > :afterCreateTime or (u.createTime = :afterCreateTime and u.id > :afterId))"
+                        + " order by u.createTime, u.id", UserProfile.class)
+                .setParameter("createdBefore", createdBefore)
+                .setParameter("afterCreateTime", (after != null) ? after.getCreateTime() : new Date(0))
+                .setParameter("afterId", (after != null) ? after.getId() : Integer.valueOf(0))
+                .setMaxResults(maxResults)
+                .getResultList();
+    }
+
+    /**
+     * Find the oldest provisioning requests in the provisioning outbox that
+     * are due.  A provisioning request is due if its next attempt time has
+     * come and no earlier provisioning request for its account is waiting
+     * for a retry.  The next attempt time index is used to find the due
+     * provisioning requests and the account name index to check the earlier
+     * ones.
+     *
+     * @param  now         the current time.
+     * @param  maxResults  the maximum number of provisioning requests.
+     *
+     * @return  the provisioning requests, oldest first.
+     */
+    @Override
+    public List<ProvisioningRequest> findProvisioningRequests(Date now, int maxResults) {
+        return this.getEntityManager()
+                .createQuery("select p from ProvisioningRequest p where p.nextAttemptTime <= :now"
+                        + " and not exists (select q from ProvisioningRequest q"
+                        + " where q.accountName = p.accountName and q.id < p.id and q.nextAttemptTime > :now)"
+                        + " order by p.id", ProvisioningRequest.class)
+                .setParameter("now", now)
+                .setMaxResults(maxResults)
+                .getResultList();
+    }
+
+    /**
+     * Find the registered usernames after the username, in username order.
+     * The unique username index is used to seek to the page.
+     *
+     * @param  afterUsername  the last username of the previous page, or null
+     *                        for the first page.
+     * @param  maxResults     the maximum number of usernames.
+     *
+     * @return  the usernames.
+     */
+    @Override
+    public List<String> findUsernames(String afterUsername, int maxResults) {
+        return this.getEntityManager()
+                .createQuery("select u.username from UserProfile u where u.username > :afterUsername order by u.username", String.class)
+                .setParameter("afterUsername", (afterUsername != null) ? afterUsername : "")
+                .setMaxResults(maxResults)
+                .getResultList();
+    }
+
+    /**
+     * Remove the user profiles of the expired registrations with one delete.
+     * A user profile activated since it was found is not removed.
+     *
+     * @param  ids  the IDs of the user profiles.
+     *
+     * @return  the number of user profiles removed.
+     */
+    @Override
+    public int removeExpiredRegistrations(List<Integer> ids) {
+        return this.getEntityManager()
+                .createQuery("delete from UserProfile u where u.id in :ids and u.activationCode is not null")
+                .setParameter("ids", ids)
+                .executeUpdate();
+    }
+
+    /**
+     * Search the users whose field starts with the prefix, after the user,
+     * in field and username order.  The field and username index is used to
+     * seek to the page, so the page depth does not matter, and only the
+     * summary columns are selected.
+     *
+     * @param  field          the field.
+     * @param  prefix         the prefix, or null for all users.
+     * @param  afterValue     the field value of the last user of the previous
+     *                        page, or null for the first page.
+     * @param  afterUsername  the username of the last user of the previous
+     *                        page, or null for the first page.
+     * @param  maxResults     the maximum number of users.
+     *
+     * @return  the user summaries.
+     */
+    @Override
+    public List<UserSummary> searchUsers(UserSummary.Field field, String prefix, String afterValue, String afterUsername, int maxResults) {
+
+        // Declare.
+        String path;
+        TypedQuery<UserSummary> query;
+        StringBuilder queryString;
+
+        // Get the path of the field.
+        switch (field) {
+            case EMAIL_ADDRESS:
+                path = "u.emailAddress";
+                break;
+            case LAST_NAME:
+                path = "u.lastName";
+                break;
+            default:
+                path = "u.username";
+                break;
+        }
+
+        // Build the query string.
+        queryString = new StringBuilder()
+                .append("select new org.lazydog.entry.UserSummary(u.username, u.uuid, u.firstName, u.lastName, u.emailAddress, u.createTime)")
+                .append(" from UserProfile u where ").append(path).append(" is not null");
+        if (prefix != null && prefix.length() > 0) {
+            queryString.append(" and ").append(path).append(" like :prefix escape '!'");
+        }
+        if (afterUsername != null) {
+            if (field == UserSummary.Field.USERNAME) {
+                queryString.append(" and u.username > :afterUsername");
+            }
+            else {
+                queryString.append(" and (").append(path).append(" > :afterValue or (")
+                        .append(path).append(" = :afterValue and u.username > :afterUsername))");
+            }
+        }
+        queryString.append(" order by ").append(path);
+        if (field != UserSummary.Field.USERNAME) {
+            queryString.append(", u.username");
+        }
+
+        // Create the query.
+        query = this.getEntityManager().createQuery(queryString.toString(), UserSummary.class);
+        if (prefix != null && prefix.length() > 0) {
+            query.setParameter("prefix", prefix.replace("!", "!!").replace("%", "!%").replace("_", "!_") + "%");
+        }
+        if (afterUsername != null) {
+            query.setParameter("afterUsername", afterUsername);
+            if (field != UserSummary.Field.USERNAME) {
+                query.setParameter("afterValue", afterValue);
+            }
+        }
+
+        return query.setMaxResults(maxResults).getResultList();
+    }
+
+    /**
+     * Update the last login times of the users.  A last login time is only
+     * updated if it is newer than the stored one, so a late update never
+     * moves a last login time back.  The updates are run in the caller's
+     * transaction.
+     *
+     * @param  lastLoginTimes  the last login times by username.
+     *
+     * @return  the number of user profiles updated.
+     */
+    @Override
+    public int updateLastLoginTimes(Map<String, Date> lastLoginTimes) {
+
+        // Declare.
+        Query query;
+        int updatedCount;
+
+        // Initialize.
+        query = this.getEntityManager()
+                .createQuery("update UserProfile u set u.lastLoginTime = :lastLoginTime where u.username = :username"
+                        + " and (u.lastLoginTime is null or u.lastLoginTime < :lastLoginTime)");
+        updatedCount = 0;
+
+        // Loop through the last login times.
+        for (Map.Entry<String, Date> entry : lastLoginTimes.entrySet()) {
+            updatedCount += query
+                    .setParameter("lastLoginTime", entry.getValue())
+                    .setParameter("username", entry.getKey())
+                    .executeUpdate();
+        }
+
+        return updatedCount;
+    }
 }
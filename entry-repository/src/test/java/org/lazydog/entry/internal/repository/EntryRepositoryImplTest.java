@@ -1,15 +1,22 @@
 package org.lazydog.entry.internal.repository;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
+import java.util.List;
 import java.util.UUID;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.assertNull;
 import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
+import org.lazydog.entry.UserSummary;
 import org.lazydog.entry.model.ApplicationProfile;
 import org.lazydog.entry.model.ApplicationServerProfile;
 import org.lazydog.entry.model.AuthenticationModule;
+import org.lazydog.entry.model.ProvisioningRequest;
 import org.lazydog.entry.model.UserProfile;
 import org.lazydog.entry.spi.repository.EntryRepository;
 import org.lazydog.repository.Criteria;
@@ -217,4 +224,165 @@ public class EntryRepositoryImplTest {
         ((EntryRepositoryWrapper)repository).getEntityManager().getTransaction().commit();
         assertNull(repository.find(UserProfile.class, persistedUserProfile.getId()));
     }
+
+    @Test
+    public void findProvisioningRequests() {
+        Date now = new Date();
+        removeProvisioningRequests();
+        ProvisioningRequest first = persistProvisioningRequest("testoutbox1", new Date(now.getTime() - 2000));
+        ProvisioningRequest second = persistProvisioningRequest("testoutbox1", new Date(now.getTime() - 1000));
+        persistProvisioningRequest("testoutbox2", new Date(now.getTime() + 60000));
+        persistProvisioningRequest("testoutbox2", new Date(now.getTime() - 1000));
+        ProvisioningRequest third = persistProvisioningRequest("testoutbox3", now);
+
+        try {
+            assertEquals(Arrays.asList(first.getId(), second.getId(), third.getId()), findProvisioningRequestIds(now, 10));
+            assertEquals(Arrays.asList(first.getId(), second.getId()), findProvisioningRequestIds(now, 2));
+            assertEquals(Arrays.asList(first.getId()), findProvisioningRequestIds(new Date(now.getTime() - 1500), 10));
+        }
+        finally {
+            removeProvisioningRequests();
+        }
+    }
+
+    @Test
+    public void findUsernames() {
+        persistPageUserProfiles();
+
+        try {
+            assertEquals(Arrays.asList("testpage1", "testpage2"), findUsernames("testpage", 2));
+            assertEquals(Arrays.asList("testpage3", "testpage4"), findUsernames("testpage2", 2));
+            assertEquals(Arrays.asList("testpage5"), findUsernames("testpage4", 2));
+            assertTrue(findUsernames("testpage5", 2).isEmpty());
+        }
+        finally {
+            removePageUserProfiles();
+        }
+    }
+
+    @Test
+    public void searchUsers() {
+        persistPageUserProfiles();
+
+        try {
+
+            // The ties on the last name are ordered by username, also across the page boundary.
+            assertEquals(Arrays.asList("testpage2", "testpage3"),
+                    usernames(repository.searchUsers(UserSummary.Field.LAST_NAME, "Pagetest", null, null, 2)));
+            assertEquals(Arrays.asList("testpage4", "testpage1"),
+                    usernames(repository.searchUsers(UserSummary.Field.LAST_NAME, "Pagetest", "Pagetesta", "testpage3", 2)));
+            assertEquals(Arrays.asList("testpage5"),
+                    usernames(repository.searchUsers(UserSummary.Field.LAST_NAME, "Pagetest", "Pagetestb", "testpage1", 2)));
+            assertTrue(repository.searchUsers(UserSummary.Field.LAST_NAME, "Pagetest", "Pagetestc", "testpage5", 2).isEmpty());
+
+            // The usernames are unique, so the page is sought by username alone.
+            assertEquals(Arrays.asList("testpage3", "testpage4"),
+                    usernames(repository.searchUsers(UserSummary.Field.USERNAME, "testpage", null, "testpage2", 2)));
+            assertTrue(repository.searchUsers(UserSummary.Field.USERNAME, "testpage", null, "testpage5", 2).isEmpty());
+
+            // The like wildcards in the prefix are matched literally.
+            assertTrue(repository.searchUsers(UserSummary.Field.LAST_NAME, "Pagetest_", null, null, 2).isEmpty());
+        }
+        finally {
+            removePageUserProfiles();
+        }
+    }
+
+    @Test
+    public void updateLastLoginTimes() {
+        persistUserProfile();
+        Date lastLoginTime = new Date();
+        ((EntryRepositoryWrapper)repository).getEntityManager().getTransaction().begin();
+        assertEquals(1, repository.updateLastLoginTimes(Collections.singletonMap(userProfile.getUsername(), lastLoginTime)));
+        assertEquals(0, repository.updateLastLoginTimes(Collections.singletonMap(userProfile.getUsername(), new Date(lastLoginTime.getTime() - 60000))));
+        ((EntryRepositoryWrapper)repository).getEntityManager().getTransaction().commit();
+        ((EntryRepositoryWrapper)repository).getEntityManager().clear();
+
+        // The update is flushed and read back.
+        UserProfile storedUserProfile = repository.find(UserProfile.class, persistedUserProfile.getId());
+        assertEquals(lastLoginTime.getTime(), storedUserProfile.getLastLoginTime().getTime());
+
+        // Persisting the user profile, even without a last login time, does not write the last login time.
+        storedUserProfile.setFirstName("Changed");
+        storedUserProfile.setLastLoginTime(null);
+        ((EntryRepositoryWrapper)repository).getEntityManager().getTransaction().begin();
+        repository.persist(storedUserProfile);
+        ((EntryRepositoryWrapper)repository).getEntityManager().getTransaction().commit();
+        ((EntryRepositoryWrapper)repository).getEntityManager().clear();
+        storedUserProfile = repository.find(UserProfile.class, persistedUserProfile.getId());
+        assertEquals("Changed", storedUserProfile.getFirstName());
+        assertEquals(lastLoginTime.getTime(), storedUserProfile.getLastLoginTime().getTime());
+    }
+
+    private static List<Integer> findProvisioningRequestIds(Date now, int maxResults) {
+        List<Integer> ids = new ArrayList<Integer>();
+        for (ProvisioningRequest provisioningRequest : repository.findProvisioningRequests(now, maxResults)) {
+            if (provisioningRequest.getAccountName().startsWith("testoutbox")) {
+                ids.add(provisioningRequest.getId());
+            }
+        }
+        return ids;
+    }
+
+    private static List<String> findUsernames(String afterUsername, int maxResults) {
+        List<String> usernames = new ArrayList<String>();
+        for (String username : repository.findUsernames(afterUsername, maxResults)) {
+            if (username.startsWith("testpage")) {
+                usernames.add(username);
+            }
+        }
+        return usernames;
+    }
+
+    private static void persistPageUserProfiles() {
+        String[] lastNames = {"Pagetestb", "Pagetesta", "Pagetesta", "Pagetesta", "Pagetestc"};
+        removePageUserProfiles();
+        ((EntryRepositoryWrapper)repository).getEntityManager().getTransaction().begin();
+        for (int x = 0; x < lastNames.length; x++) {
+            UserProfile pageUserProfile = new UserProfile();
+            pageUserProfile.setCreateTime(new Date());
+            pageUserProfile.setEmailAddress("testpage" + (x + 1) + "@test.com");
+            pageUserProfile.setFirstName("Test");
+            pageUserProfile.setLastName(lastNames[x]);
+            pageUserProfile.setUsername("testpage" + (x + 1));
+            pageUserProfile.setUuid(UUID.randomUUID().toString());
+            repository.persist(pageUserProfile);
+        }
+        ((EntryRepositoryWrapper)repository).getEntityManager().getTransaction().commit();
+    }
+
+    private static ProvisioningRequest persistProvisioningRequest(String accountName, Date nextAttemptTime) {
+        ProvisioningRequest provisioningRequest = ProvisioningRequest.newInstance(ProvisioningRequest.Operation.CREATE_ACCOUNT, accountName);
+        provisioningRequest.setNextAttemptTime(nextAttemptTime);
+        ((EntryRepositoryWrapper)repository).getEntityManager().getTransaction().begin();
+        provisioningRequest = repository.persist(provisioningRequest);
+        ((EntryRepositoryWrapper)repository).getEntityManager().getTransaction().commit();
+        return provisioningRequest;
+    }
+
+    private static void removePageUserProfiles() {
+        ((EntryRepositoryWrapper)repository).getEntityManager().getTransaction().begin();
+        ((EntryRepositoryWrapper)repository).getEntityManager()
+                .createQuery("delete from UserProfile u where u.username like 'testpage%'")
+                .executeUpdate();
+        ((EntryRepositoryWrapper)repository).getEntityManager().getTransaction().commit();
+        ((EntryRepositoryWrapper)repository).getEntityManager().clear();
+    }
+
+    private static void removeProvisioningRequests() {
+        ((EntryRepositoryWrapper)repository).getEntityManager().getTransaction().begin();
+        ((EntryRepositoryWrapper)repository).getEntityManager()
+                .createQuery("delete from ProvisioningRequest p where p.accountName like 'testoutbox%'")
+                .executeUpdate();
+        ((EntryRepositoryWrapper)repository).getEntityManager().getTransaction().commit();
+        ((EntryRepositoryWrapper)repository).getEntityManager().clear();
+    }
+
+    private static List<String> usernames(List<UserSummary> users) {
+        List<String> usernames = new ArrayList<String>();
+        for (UserSummary user : users) {
+            usernames.add(user.getUsername());
+        }
+        return usernames;
+    }
 }
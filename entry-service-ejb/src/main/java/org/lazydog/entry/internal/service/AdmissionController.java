@@ -0,0 +1,360 @@
+package org.lazydog.entry.internal.service;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.lazydog.entry.AdmissionRejectedException;
+
+
+/**
+ * Admission controller of the write operations.
+ *
+ * <p>Every application has a token bucket that refills at its rate and
+ * holds up to its burst size.  A write takes as many tokens as it writes
+ * users; a batch larger than the burst size is admitted when the bucket is
+ * full and leaves it in debt, so the following writes wait until the debt
+ * is repaid.  Admitted writes then wait in a bounded queue for one of a
+ * fixed number of write slots.  A write is rejected at once if its bucket
+ * is empty or the queue is full, and after the queue timeout if no slot is
+ * freed.  The rates are adjustable at runtime.</p>
+ *
+ * @author  Ron Rickard
+ */
+public class AdmissionController {
+
+    private final ConcurrentMap<String, TokenBucket> buckets = new ConcurrentHashMap<String, TokenBucket>();
+    private volatile Limit defaultLimit;
+    private final AtomicLong admittedCount = new AtomicLong();
+    private final ConcurrentMap<String, Limit> limits = new ConcurrentHashMap<String, Limit>();
+    private final AtomicLong queueFullCount = new AtomicLong();
+    private final int queueSize;
+    private final long queueTimeout;
+    private final AtomicLong queueTimeoutCount = new AtomicLong();
+    private final AtomicLong rateLimitedCount = new AtomicLong();
+    private final Semaphore slots;
+    private final AtomicInteger waitingCount = new AtomicInteger();
+
+    /**
+     * Rate limit.
+     */
+    private static final class Limit {
+
+        private final int burstSize;
+        private final double rate;
+
+        /**
+         * Constructor.
+         *
+         * @param  rate       the rate in tokens per second, or 0 for no limit.
+         * @param  burstSize  the burst size in tokens.
+         */
+        private Limit(double rate, int burstSize) {
+            this.burstSize = burstSize;
+            this.rate = rate;
+        }
+    }
+
+    /**
+     * Token bucket of an application.
+     */
+    private static final class TokenBucket {
+
+        private long refillTime;
+        private double tokens;
+
+        /**
+         * Constructor.
+         *
+         * @param  limit  the rate limit.
+         */
+        private TokenBucket(Limit limit) {
+            this.refillTime = System.nanoTime();
+            this.tokens = limit.burstSize;
+        }
+
+        /**
+         * Take the tokens from the bucket.
+         *
+         * @param  limit   the rate limit.
+         * @param  tokens  the number of tokens.
+         *
+         * @return  0 if the tokens are taken, otherwise the delay before
+         *          enough tokens are available in milliseconds.
+         */
+        private synchronized long take(Limit limit, int tokens) {
+
+            // Declare.
+            long now;
+            double required;
+
+            // Refill the bucket.
+            now = System.nanoTime();
+            this.tokens = Math.min(limit.burstSize, this.tokens + (now - this.refillTime) * limit.rate / 1000000000.0);
+            this.refillTime = now;
+
+            // Get the tokens required, a full bucket for a batch larger than the burst size.
+            required = Math.min(tokens, limit.burstSize);
+
+            // Check if there are not enough tokens.
+            if (this.tokens < required) {
+                return (long)Math.ceil((required - this.tokens) * 1000 / limit.rate);
+            }
+
+            this.tokens -= tokens;
+
+            return 0;
+        }
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param  rate          the default rate in tokens per second, or 0 for no limit.
+     * @param  burstSize     the default burst size in tokens.
+     * @param  slotCount     the number of write slots.
+     * @param  queueSize     the maximum number of writes waiting for a slot.
+     * @param  queueTimeout  the maximum wait for a slot in milliseconds.
+     *
+     * @throws  IllegalArgumentException  if an argument is invalid.
+     */
+    public AdmissionController(double rate, int burstSize, int slotCount, int queueSize, long queueTimeout) {
+
+        // Check if the number of write slots is not positive.
+        if (slotCount <= 0) {
+            throw new IllegalArgumentException("The number of write slots must be positive.");
+        }
+
+        // Check if the queue size or queue timeout is negative.
+        if (queueSize < 0 || queueTimeout < 0) {
+            throw new IllegalArgumentException("The queue size and queue timeout cannot be negative.");
+        }
+
+        this.defaultLimit = limit(rate, burstSize);
+        this.queueSize = queueSize;
+        this.queueTimeout = queueTimeout;
+        this.slots = new Semaphore(slotCount, true);
+    }
+
+    /**
+     * Admit the write of the application.  The caller must release the
+     * admitted write.
+     *
+     * @param  applicationId  the application identifier.
+     * @param  tokens         the number of users written.
+     *
+     * @throws  AdmissionRejectedException  if the write is rejected.
+     */
+    public void admit(String applicationId, int tokens) {
+
+        // Declare.
+        Limit limit;
+
+        // Get the rate limit of the application.
+        limit = getLimit(applicationId);
+
+        // Check if the rate is limited.
+        if (limit.rate > 0) {
+
+            // Declare.
+            TokenBucket bucket;
+            TokenBucket existingBucket;
+            long retryAfter;
+
+            // Get the token bucket of the application.
+            bucket = this.buckets.get(key(applicationId));
+            if (bucket == null) {
+                bucket = new TokenBucket(limit);
+                existingBucket = this.buckets.putIfAbsent(key(applicationId), bucket);
+                bucket = (existingBucket != null) ? existingBucket : bucket;
+            }
+
+            // Take the tokens.
+            retryAfter = bucket.take(limit, tokens);
+            if (retryAfter > 0) {
+                this.rateLimitedCount.incrementAndGet();
+                throw new AdmissionRejectedException(applicationId, AdmissionRejectedException.Reason.RATE_LIMITED, retryAfter,
+                        "The write rate of the application " + applicationId + " is exceeded.");
+            }
+        }
+
+        // Check if a write slot is free.
+        if (this.slots.tryAcquire()) {
+            this.admittedCount.incrementAndGet();
+            return;
+        }
+
+        // Check if the queue is full.
+        if (this.waitingCount.incrementAndGet() > this.queueSize) {
+            this.waitingCount.decrementAndGet();
+            this.queueFullCount.incrementAndGet();
+            throw new AdmissionRejectedException(applicationId, AdmissionRejectedException.Reason.QUEUE_FULL, this.queueTimeout,
+                    "The write queue is full.");
+        }
+
+        try {
+
+            // Wait for a write slot.
+            if (!this.slots.tryAcquire(this.queueTimeout, TimeUnit.MILLISECONDS)) {
+                this.queueTimeoutCount.incrementAndGet();
+                throw new AdmissionRejectedException(applicationId, AdmissionRejectedException.Reason.QUEUE_TIMEOUT, this.queueTimeout,
+                        "No write slot was freed within " + this.queueTimeout + " milliseconds.");
+            }
+            this.admittedCount.incrementAndGet();
+        }
+        catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            this.queueTimeoutCount.incrementAndGet();
+            throw new AdmissionRejectedException(applicationId, AdmissionRejectedException.Reason.QUEUE_TIMEOUT, this.queueTimeout,
+                    "Interrupted while waiting for a write slot.");
+        }
+        finally {
+            this.waitingCount.decrementAndGet();
+        }
+    }
+
+    /**
+     * Get the admitted count.
+     *
+     * @return  the number of admitted writes.
+     */
+    public long getAdmittedCount() {
+        return this.admittedCount.get();
+    }
+
+    /**
+     * Get the rate limit of the application.
+     *
+     * @param  applicationId  the application identifier.
+     *
+     * @return  the rate limit.
+     */
+    private Limit getLimit(String applicationId) {
+
+        // Declare.
+        Limit limit;
+
+        // Get the rate limit of the application.
+        limit = (applicationId != null) ? this.limits.get(applicationId) : null;
+
+        return (limit != null) ? limit : this.defaultLimit;
+    }
+
+    /**
+     * Get the queue full count.
+     *
+     * @return  the number of writes rejected because the queue was full.
+     */
+    public long getQueueFullCount() {
+        return this.queueFullCount.get();
+    }
+
+    /**
+     * Get the queue timeout count.
+     *
+     * @return  the number of writes rejected because no slot was freed in time.
+     */
+    public long getQueueTimeoutCount() {
+        return this.queueTimeoutCount.get();
+    }
+
+    /**
+     * Get the rate limited count.
+     *
+     * @return  the number of writes rejected by the rate limit.
+     */
+    public long getRateLimitedCount() {
+        return this.rateLimitedCount.get();
+    }
+
+    /**
+     * Get the token bucket key of the application.  The writes without an
+     * application share one token bucket.
+     *
+     * @param  applicationId  the application identifier, or null.
+     *
+     * @return  the token bucket key.
+     */
+    private static String key(String applicationId) {
+        return (applicationId != null) ? applicationId : "";
+    }
+
+    /**
+     * Get the rate limit.
+     *
+     * @param  rate       the rate in tokens per second, or 0 for no limit.
+     * @param  burstSize  the burst size in tokens.
+     *
+     * @return  the rate limit.
+     *
+     * @throws  IllegalArgumentException  if the rate or burst size is invalid.
+     */
+    private static Limit limit(double rate, int burstSize) {
+
+        // Check if the rate is negative or the burst size is not positive for a limited rate.
+        if (rate < 0 || (rate > 0 && burstSize <= 0)) {
+            throw new IllegalArgumentException("The rate cannot be negative and the burst size must be positive.");
+        }
+
+        return new Limit(rate, burstSize);
+    }
+
+    /**
+     * Release the admitted write.
+     */
+    public void release() {
+        this.slots.release();
+    }
+
+    /**
+     * Set the rate limit of the application.  The token bucket of the
+     * application starts full under the new rate limit.
+     *
+     * @param  applicationId  the application identifier, or null for the
+     *                        default rate limit.
+     * @param  rate           the rate in tokens per second, or 0 for no limit.
+     * @param  burstSize      the burst size in tokens.
+     *
+     * @throws  IllegalArgumentException  if the rate or burst size is invalid.
+     */
+    public void setLimit(String applicationId, double rate, int burstSize) {
+
+        // Check if the default rate limit is set.
+        if (applicationId == null) {
+            this.defaultLimit = limit(rate, burstSize);
+            this.buckets.clear();
+        }
+        else {
+            this.limits.put(applicationId, limit(rate, burstSize));
+            this.buckets.remove(applicationId);
+        }
+    }
+
+    /**
+     * Get the statistics as a string.
+     *
+     * @return  the statistics as a string.
+     */
+    @Override
+    public String toString() {
+
+        // Declare.
+        StringBuilder toString;
+
+        // Initialize.
+        toString = new StringBuilder();
+
+        toString.append("AdmissionController [");
+        toString.append("admittedCount = ").append(this.getAdmittedCount());
+        toString.append(", rateLimitedCount = ").append(this.getRateLimitedCount());
+        toString.append(", queueFullCount = ").append(this.getQueueFullCount());
+        toString.append(", queueTimeoutCount = ").append(this.getQueueTimeoutCount());
+        toString.append(", waitingCount = ").append(this.waitingCount.get());
+        toString.append(", freeSlots = ").append(this.slots.availablePermits());
+        toString.append("]");
+
+        return toString.toString();
+    }
+}
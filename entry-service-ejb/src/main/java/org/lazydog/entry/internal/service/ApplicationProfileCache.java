@@ -0,0 +1,217 @@
+package org.lazydog.entry.internal.service;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.lazydog.entry.model.ApplicationProfile;
+
+
+/**
+ * Application profile cache.
+ *
+ * <p>The cache holds an immutable snapshot of each application profile,
+ * keyed by the application identifier.  The snapshots are published as an
+ * unmodifiable map that is replaced on every change, so lookups never
+ * lock.</p>
+ *
+ * @author  Ron Rickard
+ */
+public class ApplicationProfileCache {
+
+    private volatile Map<String, Snapshot> snapshots = Collections.emptyMap();
+
+    /**
+     * Immutable snapshot of the application profile values used by the
+     * Entry service.
+     */
+    public static final class Snapshot {
+
+        private final String applicationId;
+        private final String authenticationModuleClassName;
+        private final String defaultGroupName;
+        private final String registrationURL;
+
+        /**
+         * Constructor.
+         *
+         * @param  applicationProfile  the application profile.
+         */
+        private Snapshot(ApplicationProfile applicationProfile) {
+            this.applicationId = applicationProfile.getApplicationId();
+            this.authenticationModuleClassName = (applicationProfile.getAuthenticationModule() != null)
+                    ? applicationProfile.getAuthenticationModule().getClassName()
+                    : null;
+            this.defaultGroupName = applicationProfile.getDefaultGroupName();
+            this.registrationURL = applicationProfile.getRegistrationURL();
+        }
+
+        /**
+         * Compare this snapshot to the specified object.
+         *
+         * @param  object  the object to compare this snapshot against.
+         *
+         * @return  true if the object is a snapshot with the same values,
+         *          otherwise false.
+         */
+        @Override
+        public boolean equals(Object object) {
+
+            // Declare.
+            Snapshot snapshot;
+
+            // Check if the object is not a snapshot.
+            if (!(object instanceof Snapshot)) {
+                return false;
+            }
+
+            // Initialize.
+            snapshot = (Snapshot)object;
+
+            return equal(this.applicationId, snapshot.applicationId)
+                    && equal(this.authenticationModuleClassName, snapshot.authenticationModuleClassName)
+                    && equal(this.defaultGroupName, snapshot.defaultGroupName)
+                    && equal(this.registrationURL, snapshot.registrationURL);
+        }
+
+        /**
+         * Get the application identifier.
+         *
+         * @return  the application identifier.
+         */
+        public String getApplicationId() {
+            return this.applicationId;
+        }
+
+        /**
+         * Get the authentication module class name.
+         *
+         * @return  the authentication module class name.
+         */
+        public String getAuthenticationModuleClassName() {
+            return this.authenticationModuleClassName;
+        }
+
+        /**
+         * Get the default group name.
+         *
+         * @return  the default group name.
+         */
+        public String getDefaultGroupName() {
+            return this.defaultGroupName;
+        }
+
+        /**
+         * Get the registration URL.
+         *
+         * @return  the registration URL.
+         */
+        public String getRegistrationURL() {
+            return this.registrationURL;
+        }
+
+        /**
+         * Get the hash code of this snapshot.
+         *
+         * @return  the hash code of this snapshot.
+         */
+        @Override
+        public int hashCode() {
+            return (this.applicationId != null) ? this.applicationId.hashCode() : 0;
+        }
+    }
+
+    /**
+     * Clear the cache.
+     */
+    public synchronized void clear() {
+        this.snapshots = Collections.emptyMap();
+    }
+
+    /**
+     * Check if the values are equal.
+     *
+     * @param  value1  the first value.
+     * @param  value2  the second value.
+     *
+     * @return  true if both values are null or equal, otherwise false.
+     */
+    private static boolean equal(String value1, String value2) {
+        return (value1 == null) ? value2 == null : value1.equals(value2);
+    }
+
+    /**
+     * Get the snapshot of the application profile.
+     *
+     * @param  applicationId  the application identifier.
+     *
+     * @return  the snapshot, or null if the application profile is not cached.
+     */
+    public Snapshot get(String applicationId) {
+        return this.snapshots.get(applicationId);
+    }
+
+    /**
+     * Put the application profile in the cache.
+     *
+     * @param  applicationProfile  the application profile.
+     *
+     * @return  the snapshot of the application profile.
+     */
+    public synchronized Snapshot put(ApplicationProfile applicationProfile) {
+
+        // Declare.
+        Map<String, Snapshot> snapshots;
+        Snapshot snapshot;
+
+        // Create the snapshot.
+        snapshot = new Snapshot(applicationProfile);
+
+        // Publish a copy of the snapshots with the snapshot.
+        snapshots = new HashMap<String, Snapshot>(this.snapshots);
+        snapshots.put(snapshot.getApplicationId(), snapshot);
+        this.snapshots = Collections.unmodifiableMap(snapshots);
+
+        return snapshot;
+    }
+
+    /**
+     * Replace the cache contents with the application profiles.
+     *
+     * @param  applicationProfiles  the application profiles.
+     *
+     * @return  true if the cache contents changed, otherwise false.
+     */
+    public synchronized boolean replaceAll(List<ApplicationProfile> applicationProfiles) {
+
+        // Declare.
+        Map<String, Snapshot> snapshots;
+
+        // Initialize.
+        snapshots = new HashMap<String, Snapshot>();
+
+        // Loop through the application profiles.
+        for (ApplicationProfile applicationProfile : applicationProfiles) {
+            snapshots.put(applicationProfile.getApplicationId(), new Snapshot(applicationProfile));
+        }
+
+        // Check if the snapshots are unchanged.
+        if (snapshots.equals(this.snapshots)) {
+            return false;
+        }
+
+        // Publish the snapshots.
+        this.snapshots = Collections.unmodifiableMap(snapshots);
+
+        return true;
+    }
+
+    /**
+     * Get the number of cached application profiles.
+     *
+     * @return  the number of cached application profiles.
+     */
+    public int size() {
+        return this.snapshots.size();
+    }
+}
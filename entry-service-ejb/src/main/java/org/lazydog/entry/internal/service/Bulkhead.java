@@ -0,0 +1,551 @@
+package org.lazydog.entry.internal.service;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.lazydog.entry.DependencyUnavailableException;
+
+
+/**
+ * Bulkhead of a dependency.
+ *
+ * <p>The bulkhead holds a fixed number of permits for the calls to the
+ * dependency, and a call runs on the executor only while it holds a
+ * permit.  A caller waits, up to the timeout, for a permit, behind a
+ * bounded number of other callers; it is rejected at once if the permits
+ * are held and that many callers are already waiting, and it stops waiting
+ * for the result at its deadline.  A slow dependency therefore ties up its
+ * own permits only, and the callers of the other dependencies are not
+ * affected.  The bulkhead starts no threads; a call that is abandoned at
+ * its deadline holds its permit until it returns.</p>
+ *
+ * <p>Every call has a priority.  The interactive callers waiting for a
+ * permit get it before the bulk callers, and the bulk calls may only hold
+ * some of the permits, so the others are reserved for the interactive
+ * calls.  A bulk caller waits, up to the timeout, until the bulk calls
+ * hold fewer permits than that.</p>
+ *
+ * @author  Ron Rickard
+ */
+public class Bulkhead {
+
+    private int activeCount;
+    private final Semaphore bulkPermits;
+    private final AtomicLong bulkSubmittedCount = new AtomicLong();
+    private final int bulkThreads;
+    private final Executor executor;
+    private int interactiveWaitingCount;
+    private final AtomicInteger maximumQueueDepth = new AtomicInteger();
+    private final String name;
+    private final int queueSize;
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private final AtomicLong submittedCount = new AtomicLong();
+    private final int threads;
+    private final long timeout;
+    private final AtomicLong timeoutCount = new AtomicLong();
+    private int waitingCount;
+
+    /**
+     * Priority of a call.
+     */
+    public enum Priority {
+
+        /**
+         * A call a user is waiting for.
+         */
+        INTERACTIVE,
+
+        /**
+         * A call of a batch or an administrative job.
+         */
+        BULK;
+    }
+
+    /**
+     * Call holding a permit until it returns.
+     */
+    private final class Task<V> extends FutureTask<V> {
+
+        private final Priority priority;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        /**
+         * Constructor.
+         *
+         * @param  callable  the call.
+         * @param  priority  the priority.
+         */
+        private Task(Callable<V> callable, Priority priority) {
+            super(callable);
+            this.priority = priority;
+        }
+
+        /**
+         * Release the permits of the call once.
+         */
+        private void release() {
+
+            // Check if the permits are not released.
+            if (this.released.compareAndSet(false, true)) {
+                Bulkhead.this.release(this.priority);
+            }
+        }
+
+        /**
+         * Run the call, unless it is cancelled, and release its permits.
+         */
+        @Override
+        public void run() {
+
+            try {
+                super.run();
+            }
+            finally {
+                release();
+            }
+        }
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param  name         the name of the dependency.
+     * @param  executor     the executor running the calls.
+     * @param  threads      the number of calls that may run at once.
+     * @param  bulkThreads  the number of calls the bulk calls may hold.
+     * @param  queueSize    the maximum number of callers waiting for a permit.
+     * @param  timeout      the maximum wait for a call in milliseconds.
+     *
+     * @throws  IllegalArgumentException  if an argument is invalid.
+     */
+    public Bulkhead(String name, Executor executor, int threads, int bulkThreads, int queueSize, long timeout) {
+
+        // Check if the executor does not exist.
+        if (executor == null) {
+            throw new IllegalArgumentException("The executor of the " + name + " bulkhead is required.");
+        }
+
+        // Check if the number of threads, queue size or timeout is not positive.
+        if (threads <= 0 || queueSize <= 0 || timeout <= 0) {
+            throw new IllegalArgumentException("The number of threads, queue size and timeout of the " + name + " bulkhead must be positive.");
+        }
+
+        // Check if the number of bulk threads is not between 1 and the number of threads.
+        if (bulkThreads <= 0 || bulkThreads > threads) {
+            throw new IllegalArgumentException("The number of bulk threads of the " + name + " bulkhead must be between 1 and " + threads + ".");
+        }
+
+        this.bulkPermits = new Semaphore(bulkThreads, true);
+        this.bulkThreads = bulkThreads;
+        this.executor = executor;
+        this.name = name;
+        this.queueSize = queueSize;
+        this.threads = threads;
+        this.timeout = timeout;
+    }
+
+    /**
+     * Acquire a permit for a call with the priority, waiting for it until
+     * the deadline.  An interactive caller gets a free permit before the
+     * bulk callers.
+     *
+     * @param  priority  the priority.
+     * @param  deadline  the deadline in milliseconds.
+     *
+     * @throws  DependencyUnavailableException  if the bulkhead is saturated.
+     * @throws  IllegalStateException           if the caller was interrupted.
+     */
+    private synchronized void acquire(Priority priority, long deadline) {
+
+        // Check if a permit is free.
+        if (isPermitFree(priority)) {
+            this.activeCount++;
+            return;
+        }
+
+        // Check if the queue is full.
+        if (this.waitingCount >= this.queueSize) {
+            throw saturated();
+        }
+
+        this.waitingCount++;
+        if (priority == Priority.INTERACTIVE) {
+            this.interactiveWaitingCount++;
+        }
+
+        // Record the maximum queue depth.
+        if (this.waitingCount > this.maximumQueueDepth.get()) {
+            this.maximumQueueDepth.set(this.waitingCount);
+        }
+
+        try {
+
+            // Wait for a free permit.
+            while (!isPermitFree(priority)) {
+
+                // Declare.
+                long remaining;
+
+                // Initialize.
+                remaining = deadline - System.currentTimeMillis();
+
+                // Check if the deadline passed.
+                if (remaining <= 0) {
+                    throw saturated();
+                }
+
+                this.wait(remaining);
+            }
+
+            this.activeCount++;
+        }
+        catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the " + this.name + " bulkhead.", e);
+        }
+        finally {
+            this.waitingCount--;
+            if (priority == Priority.INTERACTIVE) {
+                this.interactiveWaitingCount--;
+
+                // Wake up the bulk callers waiting behind this caller.
+                this.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Call the dependency interactively and wait for the result until the
+     * deadline.
+     *
+     * @param  callable  the call.
+     *
+     * @return  the result.
+     *
+     * @throws  DependencyUnavailableException  if the bulkhead is saturated
+     *                                          or the call timed out.
+     */
+    public <V> V call(Callable<V> callable) {
+        return call(callable, Priority.INTERACTIVE);
+    }
+
+    /**
+     * Call the dependency with the priority and wait for the result until
+     * the deadline.
+     *
+     * @param  callable  the call.
+     * @param  priority  the priority.
+     *
+     * @return  the result.
+     *
+     * @throws  DependencyUnavailableException  if the bulkhead is saturated
+     *                                          or the call timed out.
+     */
+    public <V> V call(Callable<V> callable, Priority priority) {
+        return get(submit(callable, priority), getDeadline());
+    }
+
+    /**
+     * Get the result of the call, waiting for it until the deadline.  The
+     * call is cancelled if it is not done by the deadline; a call already
+     * running is not interrupted, since it runs on a thread of the
+     * container.  An unchecked exception thrown by the call is rethrown.
+     *
+     * @param  future    the future result of the call.
+     * @param  deadline  the deadline in milliseconds.
+     *
+     * @return  the result.
+     *
+     * @throws  DependencyUnavailableException  if the call timed out.
+     * @throws  IllegalStateException           if the call threw a checked
+     *                                          exception or the caller was
+     *                                          interrupted.
+     */
+    public <V> V get(Future<V> future, long deadline) {
+
+        // Declare.
+        V result;
+
+        try {
+            result = future.get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+        }
+        catch(ExecutionException e) {
+
+            // Check if the cause is unchecked.
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException)e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error)e.getCause();
+            }
+
+            throw new IllegalStateException("The " + this.name + " call failed.", e.getCause());
+        }
+        catch(InterruptedException e) {
+            future.cancel(false);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the " + this.name + " call.", e);
+        }
+        catch(TimeoutException e) {
+            future.cancel(false);
+            this.timeoutCount.incrementAndGet();
+            throw new DependencyUnavailableException(this.name, DependencyUnavailableException.Reason.TIMED_OUT,
+                    "The " + this.name + " call did not finish within " + this.timeout + " milliseconds.");
+        }
+
+        return result;
+    }
+
+    /**
+     * Get the active count.
+     *
+     * @return  the number of calls holding a permit.
+     */
+    public synchronized int getActiveCount() {
+        return this.activeCount;
+    }
+
+    /**
+     * Get the bulk active count.
+     *
+     * @return  the number of bulk calls holding a permit or waiting for one.
+     */
+    public int getBulkActiveCount() {
+        return this.bulkThreads - this.bulkPermits.availablePermits();
+    }
+
+    /**
+     * Get the bulk submitted count.
+     *
+     * @return  the number of bulk calls submitted.
+     */
+    public long getBulkSubmittedCount() {
+        return this.bulkSubmittedCount.get();
+    }
+
+    /**
+     * Get the deadline of a call started now.
+     *
+     * @return  the deadline in milliseconds.
+     */
+    public long getDeadline() {
+        return System.currentTimeMillis() + this.timeout;
+    }
+
+    /**
+     * Get the maximum queue depth.
+     *
+     * @return  the largest number of callers seen waiting for a permit.
+     */
+    public int getMaximumQueueDepth() {
+        return this.maximumQueueDepth.get();
+    }
+
+    /**
+     * Get the queue depth.
+     *
+     * @return  the number of callers waiting for a permit.
+     */
+    public synchronized int getQueueDepth() {
+        return this.waitingCount;
+    }
+
+    /**
+     * Get the rejected count.
+     *
+     * @return  the number of calls rejected because the bulkhead was saturated.
+     */
+    public long getRejectedCount() {
+        return this.rejectedCount.get();
+    }
+
+    /**
+     * Get the saturation.
+     *
+     * @return  the fraction of the permits and queue in use, between 0 and 1.
+     */
+    public synchronized double getSaturation() {
+        return Math.min(1.0, (double)(this.activeCount + this.waitingCount) / (this.threads + this.queueSize));
+    }
+
+    /**
+     * Get the submitted count.
+     *
+     * @return  the number of calls submitted.
+     */
+    public long getSubmittedCount() {
+        return this.submittedCount.get();
+    }
+
+    /**
+     * Get the timeout count.
+     *
+     * @return  the number of calls not finished by their deadline.
+     */
+    public long getTimeoutCount() {
+        return this.timeoutCount.get();
+    }
+
+    /**
+     * Check if a permit is free for a call with the priority.  A permit is
+     * not free for a bulk call while an interactive caller is waiting.
+     *
+     * @param  priority  the priority.
+     *
+     * @return  true if a permit is free, otherwise false.
+     */
+    private boolean isPermitFree(Priority priority) {
+        return this.activeCount < this.threads
+                && (priority == Priority.INTERACTIVE || this.interactiveWaitingCount == 0);
+    }
+
+    /**
+     * Release the permits of a call with the priority.
+     *
+     * @param  priority  the priority.
+     */
+    private void release(Priority priority) {
+
+        synchronized(this) {
+            this.activeCount--;
+            this.notifyAll();
+        }
+
+        // Check if the call is a bulk call.
+        if (priority == Priority.BULK) {
+            this.bulkPermits.release();
+        }
+    }
+
+    /**
+     * Get the exception thrown when the bulkhead is saturated.
+     *
+     * @return  the exception.
+     */
+    private DependencyUnavailableException saturated() {
+        this.rejectedCount.incrementAndGet();
+        return new DependencyUnavailableException(this.name, DependencyUnavailableException.Reason.SATURATED,
+                "The " + this.name + " bulkhead is saturated.");
+    }
+
+    /**
+     * Submit the interactive call to the dependency.
+     *
+     * @param  callable  the call.
+     *
+     * @return  the future result of the call.
+     *
+     * @throws  DependencyUnavailableException  if the bulkhead is saturated.
+     */
+    public <V> Future<V> submit(Callable<V> callable) {
+        return submit(callable, Priority.INTERACTIVE);
+    }
+
+    /**
+     * Submit the call to the dependency with the priority.  The caller
+     * waits, up to the timeout, for a permit; a bulk caller also waits
+     * until the bulk calls hold fewer than the number of bulk threads.
+     *
+     * @param  callable  the call.
+     * @param  priority  the priority.
+     *
+     * @return  the future result of the call.
+     *
+     * @throws  DependencyUnavailableException  if the bulkhead is saturated.
+     * @throws  IllegalStateException           if the caller was interrupted.
+     */
+    public <V> Future<V> submit(Callable<V> callable, Priority priority) {
+
+        // Declare.
+        long deadline;
+        Task<V> task;
+
+        // Initialize.
+        deadline = getDeadline();
+
+        // Check if the call is a bulk call.
+        if (priority == Priority.BULK) {
+
+            try {
+
+                // Wait for a bulk permit.
+                if (!this.bulkPermits.tryAcquire(this.timeout, TimeUnit.MILLISECONDS)) {
+                    throw saturated();
+                }
+            }
+            catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for the " + this.name + " bulkhead.", e);
+            }
+        }
+
+        try {
+            acquire(priority, deadline);
+        }
+        catch(RuntimeException e) {
+
+            // Release the bulk permit.
+            if (priority == Priority.BULK) {
+                this.bulkPermits.release();
+            }
+
+            throw e;
+        }
+
+        // Create the call.
+        task = new Task<V>(callable, priority);
+
+        this.submittedCount.incrementAndGet();
+        if (priority == Priority.BULK) {
+            this.bulkSubmittedCount.incrementAndGet();
+        }
+
+        try {
+            this.executor.execute(task);
+        }
+        catch(RuntimeException e) {
+            task.release();
+            throw saturated();
+        }
+
+        return task;
+    }
+
+    /**
+     * Get the statistics as a string.
+     *
+     * @return  the statistics as a string.
+     */
+    @Override
+    public String toString() {
+
+        // Declare.
+        StringBuilder toString;
+
+        // Initialize.
+        toString = new StringBuilder();
+
+        toString.append("Bulkhead [");
+        toString.append("name = ").append(this.name);
+        toString.append(", submittedCount = ").append(this.getSubmittedCount());
+        toString.append(", bulkSubmittedCount = ").append(this.getBulkSubmittedCount());
+        toString.append(", rejectedCount = ").append(this.getRejectedCount());
+        toString.append(", timeoutCount = ").append(this.getTimeoutCount());
+        toString.append(", activeCount = ").append(this.getActiveCount());
+        toString.append(", bulkActiveCount = ").append(this.getBulkActiveCount());
+        toString.append(", queueDepth = ").append(this.getQueueDepth());
+        toString.append(", maximumQueueDepth = ").append(this.getMaximumQueueDepth());
+        toString.append(", saturation = ").append(this.getSaturation());
+        toString.append("]");
+
+        return toString.toString();
+    }
+}
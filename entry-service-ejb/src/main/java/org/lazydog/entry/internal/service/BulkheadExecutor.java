@@ -0,0 +1,40 @@
+package org.lazydog.entry.internal.service;
+
+import java.util.concurrent.Executor;
+import javax.ejb.Asynchronous;
+import javax.ejb.LocalBean;
+import javax.ejb.Stateless;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+
+
+/**
+ * Bulkhead executor Enterprise Java Bean.
+ *
+ * <p>The bulkheads run their calls asynchronously on the threads of the
+ * container through this bean, so the Entry service does not start threads
+ * of its own and the calls run with the naming and security context of the
+ * container.  A call runs outside a transaction, as the reads on the
+ * bulkheads did not join the transaction of the caller.</p>
+ *
+ * <p>An instance that is not managed by the container runs the calls on
+ * the caller's thread.</p>
+ *
+ * @author  Ron Rickard
+ */
+@Stateless(name="ejb/BulkheadExecutor")
+@LocalBean
+public class BulkheadExecutor implements Executor {
+
+    /**
+     * Run the command asynchronously.
+     *
+     * @param  command  the command.
+     */
+    @Asynchronous
+    @Override
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public void execute(Runnable command) {
+        command.run();
+    }
+}
@@ -1,17 +1,67 @@
 package org.lazydog.entry.internal.service;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import javax.ejb.AsyncResult;
+import javax.ejb.Asynchronous;
 import javax.ejb.EJB;
+import javax.ejb.Lock;
+import javax.ejb.LockType;
 import javax.ejb.Remote;
+import javax.ejb.Schedule;
 import javax.ejb.Singleton;
+import javax.ejb.Startup;
+import javax.ejb.Timeout;
+import javax.ejb.Timer;
+import javax.ejb.TimerConfig;
+import javax.ejb.TimerService;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
 import javax.interceptor.Interceptors;
+import javax.jms.Connection;
+import javax.jms.ConnectionFactory;
+import javax.jms.DeliveryMode;
+import javax.jms.JMSException;
+import javax.jms.MessageProducer;
+import javax.jms.Session;
+import javax.jms.Topic;
+import javax.naming.InitialContext;
+import javax.naming.NamingException;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
 import org.lazydog.ejbmonitor.interceptor.EJBMonitor;
+import org.lazydog.entry.EntryInvalidation;
 import org.lazydog.entry.EntryService;
+import org.lazydog.entry.RegistrationResult;
+import org.lazydog.entry.UserLoginContext;
+import org.lazydog.entry.UserSearchPage;
+import org.lazydog.entry.UserSummary;
 import org.lazydog.entry.model.ApplicationProfile;
+import org.lazydog.entry.model.ProvisioningRequest;
 import org.lazydog.entry.model.UserProfile;
 import org.lazydog.entry.spi.account.manager.EntryAccountManager;
+import org.lazydog.entry.spi.account.manager.NoSuchEntryException;
+import org.lazydog.entry.spi.account.manager.SingleFlight;
 import org.lazydog.entry.spi.repository.EntryRepository;
 import org.lazydog.repository.Criteria;
 import org.lazydog.repository.criterion.Comparison;
@@ -19,202 +69,2114 @@ import org.lazydog.repository.criterion.Comparison;
 
 /**
  * Entry service Enterprise Java Beans.
+ *
+ * <p>The bean takes the container read lock, so calls run concurrently.
+ * The operations that change a user are serialized per username by a
+ * striped lock instead, so the changes to a user stay ordered while
+ * different users are changed in parallel.</p>
+ *
+ * <p>The read operations call the repository and the directory on
+ * bulkheads, separate bounded numbers of calls running asynchronously on
+ * the threads of the container, and wait for them until a deadline, so a
+ * slow directory does not hold up the reads that only need the repository.
+ * The write operations call them on the caller's thread, in the caller's
+ * transaction, and are bounded by the admission control instead.  The
+ * reads of the batch and scheduled jobs are bulk calls, which wait behind
+ * the interactive reads and may only hold some of the bulkhead permits.</p>
  * 
  * @author  Ron Rickard
  */
 @Singleton(name="ejb/EntryService")
+@Startup
+@Lock(LockType.READ)
 @Remote(EntryService.class)
 @Interceptors(EJBMonitor.class)
 public class EntryServiceImpl implements EntryService {
 
+    public static final String ACKNOWLEDGEMENT_MODE = "entry.service.acknowledgement.mode";
+    public static final String DIRECTORY_BULK_THREADS = "entry.service.directory.bulk.threads";
+    public static final String DIRECTORY_QUEUE_SIZE = "entry.service.directory.queue.size";
+    public static final String DIRECTORY_THREADS = "entry.service.directory.threads";
+    public static final String DIRECTORY_TIMEOUT = "entry.service.directory.timeout";
+    public static final String INVALIDATION_CONNECTION_FACTORY = "entry.service.invalidation.connection.factory";
+    public static final String INVALIDATION_TOPIC = "entry.service.invalidation.topic";
+    public static final String LAST_LOGIN_BATCH_SIZE = "entry.service.last.login.batch.size";
+    public static final String LAST_LOGIN_FLUSH_INTERVAL = "entry.service.last.login.flush.interval";
+    public static final String LOCK_STRIPES = "entry.service.lock.stripes";
+    public static final String PROVISIONING_OUTBOX = "entry.service.provisioning.outbox";
+    public static final String PROVISIONING_OUTBOX_KEY = "entry.service.provisioning.outbox.key";
+    public static final String REGISTRATION_PURGE_AGE = "entry.service.registration.purge.age";
+    public static final String REGISTRATION_PURGE_CHUNK_SIZE = "entry.service.registration.purge.chunk.size";
+    public static final String REGISTRATION_PURGE_MAX_DURATION = "entry.service.registration.purge.max.duration";
+    public static final String REGISTRATION_PURGE_RATE = "entry.service.registration.purge.rate";
+    public static final String REPOSITORY_BULK_THREADS = "entry.service.repository.bulk.threads";
+    public static final String REPOSITORY_QUEUE_SIZE = "entry.service.repository.queue.size";
+    public static final String REPOSITORY_THREADS = "entry.service.repository.threads";
+    public static final String REPOSITORY_TIMEOUT = "entry.service.repository.timeout";
+    public static final String REQUEST_KEY_MAX_KEYS = "entry.service.request.key.max.keys";
+    public static final String REQUEST_KEY_TIME_TO_LIVE = "entry.service.request.key.time.to.live";
+    public static final String REQUEST_KEY_WAIT_TIMEOUT = "entry.service.request.key.wait.timeout";
+    public static final String USER_PROFILE_CACHE_EVICTION_POLICY = "entry.service.user.profile.cache.eviction.policy";
+    public static final String USER_PROFILE_CACHE_SIZE = "entry.service.user.profile.cache.size";
+    public static final String USER_PROFILE_CACHE_TIME_TO_LIVE = "entry.service.user.profile.cache.time.to.live";
+    public static final String USERNAME_FILTER_EXPECTED_USERNAMES = "entry.service.username.filter.expected.usernames";
+    public static final String USERNAME_FILTER_FALSE_POSITIVE_RATE = "entry.service.username.filter.false.positive.rate";
+    public static final String VERIFICATION_SAMPLE_RATE = "entry.service.verification.sample.rate";
+    public static final String WRITE_BURST_SIZE = "entry.service.write.burst.size";
+    public static final String WRITE_QUEUE_SIZE = "entry.service.write.queue.size";
+    public static final String WRITE_QUEUE_TIMEOUT = "entry.service.write.queue.timeout";
+    public static final String WRITE_RATE = "entry.service.write.rate";
+    public static final String WRITE_SLOTS = "entry.service.write.slots";
+    private static final String ACKNOWLEDGEMENT_MODE_DEFAULT = "VERIFY";
+    private static final int DIRECTORY_BULK_THREADS_DEFAULT = 4;
+    private static final int DIRECTORY_QUEUE_SIZE_DEFAULT = 64;
+    private static final int DIRECTORY_THREADS_DEFAULT = 16;
+    private static final long DIRECTORY_TIMEOUT_DEFAULT = 5000;
+    private static final int LAST_LOGIN_BATCH_SIZE_DEFAULT = 500;
+    private static final long LAST_LOGIN_FLUSH_INTERVAL_DEFAULT = 30000;
+    private static final int LOCK_STRIPES_DEFAULT = 64;
+    private static final Logger LOGGER = Logger.getLogger(EntryServiceImpl.class.getName());
+    private static final int REGISTRATION_PURGE_AGE_DEFAULT = 30;
+    private static final int REGISTRATION_PURGE_CHUNK_SIZE_DEFAULT = 500;
+    private static final int REGISTRATION_PURGE_MAX_DURATION_DEFAULT = 120;
+    private static final double REGISTRATION_PURGE_RATE_DEFAULT = 50;
+    private static final int REPOSITORY_BULK_THREADS_DEFAULT = 4;
+    private static final int REPOSITORY_QUEUE_SIZE_DEFAULT = 64;
+    private static final int REPOSITORY_THREADS_DEFAULT = 16;
+    private static final long REPOSITORY_TIMEOUT_DEFAULT = 5000;
+    private static final int REQUEST_KEY_MAX_KEYS_DEFAULT = 100000;
+    private static final int REQUEST_KEY_TIME_TO_LIVE_DEFAULT = 1440;
+    private static final long REQUEST_KEY_WAIT_TIMEOUT_DEFAULT = 5000;
+    private static final int SEARCH_LIMIT_MAXIMUM = 1000;
+    private static final String USER_PROFILE_CACHE_EVICTION_POLICY_DEFAULT = "LRU";
+    private static final int USER_PROFILE_CACHE_SIZE_DEFAULT = 10000;
+    private static final long USER_PROFILE_CACHE_TIME_TO_LIVE_DEFAULT = 300000;
+    private static final int USERNAME_FILTER_BATCH_SIZE = 10000;
+    private static final String USERNAME_FILTER_BUILD = "username filter build";
+    private static final int USERNAME_FILTER_EXPECTED_USERNAMES_DEFAULT = 1000000;
+    private static final double USERNAME_FILTER_FALSE_POSITIVE_RATE_DEFAULT = 0.01;
+    private static final int WRITE_BURST_SIZE_DEFAULT = 10;
+    private static final int WRITE_QUEUE_SIZE_DEFAULT = 256;
+    private static final long WRITE_QUEUE_TIMEOUT_DEFAULT = 5000;
+    private static final double WRITE_RATE_DEFAULT = 0;
+    private static final int WRITE_SLOTS_DEFAULT = 32;
+
     @EJB
     private EntryRepository entryRepository;
 
+    // The bulkheads run their calls on the caller's thread until the
+    // container injects the bulkhead executor.
+    @EJB
+    private BulkheadExecutor bulkheadExecutor = new BulkheadExecutor();
+
     @EJB
     private EntryAccountManager entryAccountManager;
 
+    @Resource(name="EntryServiceEnvironment")
+    private Properties environment;
+
+    @Resource
+    private TimerService timerService;
+
+    @Resource
+    private TransactionSynchronizationRegistry transactionSynchronizationRegistry;
+
+    private AdmissionController admissionController = new AdmissionController(
+            WRITE_RATE_DEFAULT, WRITE_BURST_SIZE_DEFAULT, WRITE_SLOTS_DEFAULT, WRITE_QUEUE_SIZE_DEFAULT, WRITE_QUEUE_TIMEOUT_DEFAULT);
+    private AcknowledgementMode acknowledgementMode = AcknowledgementMode.valueOf(ACKNOWLEDGEMENT_MODE_DEFAULT);
+    private final SingleFlight<String, String> activations = new SingleFlight<String, String>("activation");
+    private final ApplicationProfileCache applicationProfileCache = new ApplicationProfileCache();
+    private Bulkhead directoryBulkhead = new Bulkhead(
+            "directory", bulkheadExecutor, DIRECTORY_THREADS_DEFAULT, DIRECTORY_BULK_THREADS_DEFAULT, DIRECTORY_QUEUE_SIZE_DEFAULT, DIRECTORY_TIMEOUT_DEFAULT);
+    private volatile ConnectionFactory invalidationConnectionFactory;
+    private final AtomicLong invalidationFailureCount = new AtomicLong();
+    private final AtomicLong invalidationPublishedCount = new AtomicLong();
+    private volatile Topic invalidationTopic;
+    private int lastLoginBatchSize = LAST_LOGIN_BATCH_SIZE_DEFAULT;
+    private LastLoginBuffer lastLoginBuffer = new LastLoginBuffer(LOCK_STRIPES_DEFAULT);
+    private long lastLoginFlushInterval = LAST_LOGIN_FLUSH_INTERVAL_DEFAULT;
+    private final AtomicLong lastLoginFlushedCount = new AtomicLong();
+    private volatile PasswordCipher passwordCipher;
+    private boolean provisioningOutbox;
+    private int registrationPurgeAge = REGISTRATION_PURGE_AGE_DEFAULT;
+    private int registrationPurgeChunkSize = REGISTRATION_PURGE_CHUNK_SIZE_DEFAULT;
+    private int registrationPurgeMaxDuration = REGISTRATION_PURGE_MAX_DURATION_DEFAULT;
+    private volatile PurgeProgress registrationPurgeProgress;
+    private double registrationPurgeRate = REGISTRATION_PURGE_RATE_DEFAULT;
+    private RequestKeyStore<Boolean> registrations = newRegistrations(REQUEST_KEY_MAX_KEYS_DEFAULT, REQUEST_KEY_TIME_TO_LIVE_DEFAULT, REQUEST_KEY_WAIT_TIMEOUT_DEFAULT);
+    private Bulkhead repositoryBulkhead = new Bulkhead(
+            "repository", bulkheadExecutor, REPOSITORY_THREADS_DEFAULT, REPOSITORY_BULK_THREADS_DEFAULT, REPOSITORY_QUEUE_SIZE_DEFAULT, REPOSITORY_TIMEOUT_DEFAULT);
+    private final SingleFlight<String, UserProfile> userProfileLookups = new SingleFlight<String, UserProfile>("user profile") {
+        @Override
+        protected UserProfile share(UserProfile userProfile) {
+            return (userProfile != null) ? userProfile.copy() : null;
+        }
+    };
+    private UserProfileCache userProfileCache = new UserProfileCache(
+            USER_PROFILE_CACHE_SIZE_DEFAULT, UserProfileCache.EvictionPolicy.valueOf(USER_PROFILE_CACHE_EVICTION_POLICY_DEFAULT),
+            USER_PROFILE_CACHE_TIME_TO_LIVE_DEFAULT);
+    private StripedLock userLocks = new StripedLock(LOCK_STRIPES_DEFAULT);
+    private volatile UsernameBloomFilter usernameFilter;
+    private int usernameFilterExpectedUsernames = USERNAME_FILTER_EXPECTED_USERNAMES_DEFAULT;
+    private double usernameFilterFalsePositiveRate = USERNAME_FILTER_FALSE_POSITIVE_RATE_DEFAULT;
+    private volatile UsernameBloomFilter usernameFilterRebuild;
+    private final AtomicLong verificationCount = new AtomicLong();
+    private final AtomicLong verificationFailureCount = new AtomicLong();
+    private final Random verificationRandom = new Random();
+    private double verificationSampleRate;
+
+    /**
+     * Acknowledgement mode of the directory writes.
+     */
+    public enum AcknowledgementMode {
+
+        /**
+         * Every directory write is read back before it is acknowledged.
+         */
+        VERIFY,
+
+        /**
+         * A directory write that does not throw is acknowledged without
+         * reading it back.  A sample of the writes is read back and logged
+         * if it does not match.
+         */
+        WRITE;
+    }
+
+    /**
+     * Check if the user account exists on the directory bulkhead.
+     *
+     * @param  username  the username.
+     * @param  priority  the priority.
+     *
+     * @return  true if the user account exists, otherwise false.
+     *
+     * @throws  DependencyUnavailableException  if the directory bulkhead is
+     *                                          saturated or the check timed out.
+     */
+    private boolean accountExists(final String username, Bulkhead.Priority priority) {
+
+        return directoryBulkhead.call(new Callable<Boolean>() {
+
+            @Override
+            public Boolean call() {
+                return entryAccountManager.accountExists(username);
+            }
+        }, priority);
+    }
+
+    /**
+     * Activate the user profile for the specified username using the
+     * specified activate code.  The user profile is found by the activation
+     * code with the activation code index.  The activation code is removed
+     * from the activated user profile, so the user profiles with an
+     * activation code are the ones never activated.  If the provisioning
+     * outbox is enabled, the user account is unlocked later by the
+     * provisioning outbox drainer.  An activation code that is not the
+     * activation code of the user profile, including one already used,
+     * does not activate the user profile.
+     *
+     * @param  username        the username.
+     * @param  activationCode  the activation code.
+     *
+     * @return  true if the user profile is activated, otherwise false.
+     */
+    @Override
+    public boolean activate(String username, String activationCode) {
+
+        // Begin the write.
+        beginWrite(null, username);
+
+        try {
+
+            // Declare.
+            UserProfile userProfile;
+
+            // Get the user profile for the activation code.
+            userProfile = (activationCode != null) ? findUserProfile("activationCode", activationCode, null) : null;
+
+            // Check if the supplied activation code is not the activation code of the user profile.
+            if (userProfile == null || !username.equals(userProfile.getUsername())) {
+                return false;
+            }
+
+            // Record the activation by removing the activation code.
+            userProfile.setActivationCode(null);
+            userProfile.setModifyTime(new Date());
+            entryRepository.persist(userProfile);
+            invalidateUserProfile(username);
+
+            // Check if the provisioning outbox is enabled.
+            if (provisioningOutbox) {
+
+                // Enqueue unlocking the user account after the requests registering it.
+                enqueue(ProvisioningRequest.Operation.UNLOCK_ACCOUNT, username, null, null);
+
+                return true;
+            }
+
+            // Unlock the user account.
+            entryAccountManager.unlockAccount(username);
+
+            return (isVerified()) ? verified(!entryAccountManager.isAccountLocked(username), "activate", username) : true;
+        }
+        finally {
+            endWrite(username);
+        }
+    }
+
+    /**
+     * Activate the user profile for the specified username using the
+     * specified activate code asynchronously.
+     *
+     * @param  username        the username.
+     * @param  activationCode  the activation code.
+     *
+     * @return  the future result, true if the user profile is activated,
+     *          otherwise false.
+     */
+    @Asynchronous
+    @Override
+    public Future<Boolean> activateAsync(String username, String activationCode) {
+        return new AsyncResult<Boolean>(activate(username, activationCode));
+    }
+
+    /**
+     * Activate the user profile with the specified activation code, such as
+     * the one in the link of an activation email.  Concurrent activations
+     * with the same activation code share one activation, so repeated clicks
+     * on the link are activated once.
+     *
+     * @param  activationCode  the activation code.
+     *
+     * @return  the username of the activated user profile, or null if the
+     *          activation code is not the activation code of a user profile
+     *          or the user profile is not activated.
+     */
+    @Override
+    public String activateByCode(final String activationCode) {
+
+        // Check if the activation code is missing.
+        if (activationCode == null || "".equals(activationCode)) {
+            return null;
+        }
+
+        return activations.get(activationCode, new Callable<String>() {
+
+            @Override
+            public String call() {
+
+                // Declare.
+                UserProfile userProfile;
+
+                // Get the user profile for the activation code.
+                userProfile = findUserProfile("activationCode", activationCode, repositoryBulkhead);
+
+                return (userProfile != null && activate(userProfile.getUsername(), activationCode)) ? userProfile.getUsername() : null;
+            }
+        });
+    }
+
+    /**
+     * Add the user accounts of a bulk registration to the default group.  If
+     * the user accounts cannot be added with one membership update, they are
+     * added one at a time; a user account that still cannot be added is
+     * removed with its user profile and its registration fails, so no user
+     * is left registered outside the default group.
+     *
+     * @param  defaultGroupName       the default group name.
+     * @param  accountIndexes         the indexes of the registrations by
+     *                                account name.
+     * @param  persistedUserProfiles  the persisted user profiles, by index.
+     * @param  registrationResults    the registration results, by index.
+     */
+    private void addDefaultMembers(String defaultGroupName, Map<String, Integer> accountIndexes,
+            UserProfile[] persistedUserProfiles, RegistrationResult[] registrationResults) {
+
+        try {
+
+            // Add the user accounts to the default group.
+            entryAccountManager.addMembers(defaultGroupName, accountIndexes.keySet());
+            return;
+        }
+        catch(RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Unable to add the user accounts to the default group " + defaultGroupName + " at once.", e);
+        }
+
+        // Loop through the user accounts.
+        for (Map.Entry<String, Integer> accountIndex : accountIndexes.entrySet()) {
+
+            // Declare.
+            int index;
+            String username;
+
+            // Initialize.
+            index = accountIndex.getValue();
+            username = accountIndex.getKey();
+
+            try {
+
+                // Add the user account to the default group.
+                entryAccountManager.addMembers(defaultGroupName, Collections.singleton(username));
+            }
+            catch(RuntimeException e) {
+
+                // Lock the username.
+                userLocks.lock(username);
+
+                try {
+
+                    // Remove the user account and the user profile.
+                    entryAccountManager.removeAccount(username);
+                    entryRepository.remove(UserProfile.class, persistedUserProfiles[index].getId());
+                    invalidateUserProfile(username);
+                }
+                catch(RuntimeException removeException) {
+                    LOGGER.log(Level.SEVERE, "Unable to remove the registration of " + username + ".", removeException);
+                }
+                finally {
+                    userLocks.unlock(username);
+                }
+
+                registrationResults[index] = new RegistrationResult(username, RegistrationResult.Status.FAILED, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Begin a write of the user.  The write is admitted for the application
+     * and the username is locked by the transaction, or by the current
+     * thread if there is no transaction.
+     *
+     * @param  applicationId  the application identifier, or null.
+     * @param  username       the username.
+     *
+     * @throws  AdmissionRejectedException  if the write is rejected.
+     */
+    private void beginWrite(String applicationId, String username) {
+        admissionController.admit(applicationId, 1);
+        userLocks.lock(username, getLockOwner());
+    }
+
+    /**
+     * Check if the value changed.
+     *
+     * @param  storedValue  the stored value.
+     * @param  value        the value.
+     *
+     * @return  true if the value changed, otherwise false.
+     */
+    private static boolean changed(String storedValue, String value) {
+        return (storedValue == null) ? value != null : !storedValue.equals(value);
+    }
+
+    /**
+     * Deactivate the user profile for the specified username.
+     *
+     * @param  username  the username.
+     *
+     * @return  true if the user profile is deactivated, otherwise false.
+     */
+    @Override
+    public boolean deactivate(String username) {
+
+        // Begin the write.
+        beginWrite(null, username);
+
+        try {
+
+            // Lock the user account.
+            entryAccountManager.lockAccount(username);
+
+            return (isVerified()) ? verified(entryAccountManager.isAccountLocked(username), "deactivate", username) : true;
+        }
+        finally {
+            endWrite(username);
+        }
+    }
+
+    /**
+     * Flush the buffered last login times.  The bean is destroyed without
+     * a transaction, so every batch of last login times is written in its
+     * own transaction.
+     */
+    @PreDestroy
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    protected void destroy() {
+        flushLastLoginTimes();
+    }
+
+    /**
+     * Get the result of the directory lookup, waiting for it until the
+     * deadline.
+     *
+     * @param  lookup    the directory lookup.
+     * @param  deadline  the deadline in milliseconds.
+     *
+     * @return  the result, or null if the directory entry does not exist.
+     *
+     * @throws  DependencyUnavailableException  if the directory lookup timed out.
+     */
+    private <V> V directoryResult(Future<V> lookup, long deadline) {
+
+        try {
+            return directoryBulkhead.get(lookup, deadline);
+        }
+        catch(RuntimeException e) {
+
+            // Loop through the causes.
+            for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+
+                // Check if the directory entry does not exist.
+                if (cause instanceof NoSuchEntryException) {
+                    return null;
+                }
+            }
+
+            throw e;
+        }
+    }
+
+    /**
+     * End the write of the user.  The admitted write is released and the
+     * username is unlocked when the transaction completes, so a concurrent
+     * write of the user does not read the user before the write commits.  If
+     * there is no transaction, the username is unlocked now.
+     *
+     * @param  username  the username.
+     */
+    private void endWrite(final String username) {
+
+        // Declare.
+        final Object owner;
+
+        // Get the lock owner.
+        owner = getLockOwner();
+
+        admissionController.release();
+
+        // Check if there is no transaction.
+        if (owner instanceof Thread) {
+            userLocks.unlock(username, owner);
+            return;
+        }
+
+        try {
+
+            // Unlock the username when the transaction completes.
+            transactionSynchronizationRegistry.registerInterposedSynchronization(new Synchronization() {
+
+                @Override
+                public void afterCompletion(int status) {
+                    userLocks.unlock(username, owner);
+                }
+
+                @Override
+                public void beforeCompletion() {
+                }
+            });
+        }
+        catch(IllegalStateException e) {
+
+            // The transaction is completing, so unlock the username now.
+            userLocks.unlock(username, owner);
+        }
+    }
+
+    /**
+     * Enqueue the provisioning request in the provisioning outbox.  The
+     * provisioning request is persisted in the caller's transaction and
+     * applied to the directory later by the provisioning outbox drainer.
+     * The password is encrypted with the provisioning outbox key.
+     *
+     * @param  operation    the operation.
+     * @param  accountName  the account name.
+     * @param  groupName    the group name, or null.
+     * @param  password     the password, or null.
+     *
+     * @return  the persisted provisioning request.
+     */
+    private ProvisioningRequest enqueue(ProvisioningRequest.Operation operation, String accountName, String groupName, String password) {
+
+        // Declare.
+        ProvisioningRequest provisioningRequest;
+
+        // Create the provisioning request.
+        provisioningRequest = ProvisioningRequest.newInstance(operation, accountName);
+        provisioningRequest.setGroupName(groupName);
+        provisioningRequest.setPassword((password != null) ? passwordCipher.encrypt(password) : null);
+
+        // Persist the provisioning request.
+        return entryRepository.persist(provisioningRequest);
+    }
+
+    /**
+     * Find the application profile in the repository.
+     *
+     * @param  applicationId  the application identifier.
+     *
+     * @return  the application profile, or null if it does not exist.
+     */
+    private ApplicationProfile findApplicationProfile(String applicationId) {
+
+        // Declare.
+        Criteria<ApplicationProfile> criteria;
+
+        // Get the application profile for the application identifier.
+        criteria = entryRepository.getCriteria(ApplicationProfile.class);
+        criteria.add(Comparison.eq("applicationId", applicationId));
+
+        return entryRepository.find(ApplicationProfile.class, criteria);
+    }
+
+    /**
+     * Find the chunk of expired registrations after the user profile as a
+     * bulk read.
+     *
+     * @param  createdBefore  the create time the registrations expire at.
+     * @param  after          the last user profile of the previous chunk, or
+     *                        null for the first chunk.
+     *
+     * @return  the user profiles, in create time order.
+     */
+    private List<UserProfile> findExpiredRegistrations(final Date createdBefore, final UserProfile after) {
+
+        return repositoryBulkhead.call(new Callable<List<UserProfile>>() {
+
+            @Override
+            public List<UserProfile> call() {
+                return entryRepository.findExpiredRegistrations(createdBefore, after, registrationPurgeChunkSize);
+            }
+        }, Bulkhead.Priority.BULK);
+    }
+
+    /**
+     * Find the user profile with the property value in the repository and
+     * put it in the user profile cache.  Concurrent finds of the same
+     * property value share one repository lookup.
+     *
+     * @param  property   the property.
+     * @param  value      the value.
+     * @param  bulkhead   the repository bulkhead, or null to find the user
+     *                    profile on the caller's thread.
+     *
+     * @return  the user profile, or null if the user profile does not exist.
+     *
+     * @throws  DependencyUnavailableException  if the repository bulkhead is
+     *                                          saturated or the lookup timed out.
+     */
+    private UserProfile findUserProfile(final String property, final String value, final Bulkhead bulkhead) {
+
+        // Declare.
+        final Callable<UserProfile> lookup;
+
+        // Initialize.
+        lookup = new Callable<UserProfile>() {
+
+            @Override
+            public UserProfile call() {
+
+                // Declare.
+                Criteria<UserProfile> criteria;
+                long invalidationCount;
+                UserProfile userProfile;
+
+                // Get the invalidation count before the user profile is read.
+                invalidationCount = (userProfileCache != null) ? userProfileCache.getInvalidationCount() : 0;
+
+                // Get the user profile for the property value.
+                criteria = entryRepository.getCriteria(UserProfile.class);
+                criteria.add(Comparison.eq(property, value));
+                userProfile = entryRepository.find(UserProfile.class, criteria);
+
+                // Check if the user profile exists and the user profile cache is enabled.
+                if (userProfile != null && userProfileCache != null) {
+                    userProfileCache.put(userProfile, invalidationCount);
+                }
+
+                return userProfile;
+            }
+        };
+
+        return userProfileLookups.get(property + "=" + value, (bulkhead == null) ? lookup : new Callable<UserProfile>() {
+
+            @Override
+            public UserProfile call() {
+                return bulkhead.call(lookup);
+            }
+        });
+    }
+
+    /**
+     * Find the page of registered usernames after the username as a bulk
+     * read.
+     *
+     * @param  afterUsername  the username the page starts after, or null
+     *                        for the first page.
+     *
+     * @return  the usernames, in username order.
+     */
+    private List<String> findUsernames(final String afterUsername) {
+
+        return repositoryBulkhead.call(new Callable<List<String>>() {
+
+            @Override
+            public List<String> call() {
+                return entryRepository.findUsernames(afterUsername, USERNAME_FILTER_BATCH_SIZE);
+            }
+        }, Bulkhead.Priority.BULK);
+    }
+
+    /**
+     * Flush the buffered last login times to the repository, in batches of
+     * the last login batch size.  Every batch is written in its own
+     * transaction and the cached user profiles of its users are
+     * invalidated.  If a batch fails, it and the batches left are put back
+     * in the buffer for the next flush.
+     */
+    protected void flushLastLoginTimes() {
+
+        // Declare.
+        Map<String, Date> batch;
+        Map<String, Date> lastLoginTimes;
+
+        // Initialize.
+        batch = new HashMap<String, Date>();
+        lastLoginTimes = lastLoginBuffer.drain();
+
+        // Loop through the last login times.
+        for (Iterator<Map.Entry<String, Date>> iterator = lastLoginTimes.entrySet().iterator(); iterator.hasNext();) {
+
+            // Declare.
+            Map.Entry<String, Date> entry;
+
+            // Add the last login time to the batch.
+            entry = iterator.next();
+            batch.put(entry.getKey(), entry.getValue());
+
+            // Check if the batch is full or this is the last login time.
+            if (batch.size() >= lastLoginBatchSize || !iterator.hasNext()) {
+
+                try {
+
+                    // Write the batch.
+                    entryRepository.updateLastLoginTimes(batch);
+                    lastLoginFlushedCount.addAndGet(batch.size());
+                }
+                catch(RuntimeException e) {
+
+                    // Put the batch and the batches left back in the buffer.
+                    lastLoginBuffer.restore(batch);
+                    while (iterator.hasNext()) {
+                        entry = iterator.next();
+                        lastLoginBuffer.restore(Collections.singletonMap(entry.getKey(), entry.getValue()));
+                    }
+
+                    LOGGER.log(Level.WARNING, "Unable to flush the last login times.", e);
+                    break;
+                }
+
+                invalidateUserProfiles(batch.keySet());
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Get the application profile snapshot.  The snapshot is served from the
+     * application profile cache and only loaded from the repository if the
+     * application profile is not cached yet.
+     *
+     * @param  applicationId  the application identifier.
+     * @param  bulkhead       the repository bulkhead, or null to load the
+     *                        application profile on the caller's thread.
+     *
+     * @return  the application profile snapshot.
+     *
+     * @throws  DependencyUnavailableException  if the repository bulkhead is
+     *                                          saturated or the lookup timed out.
+     */
+    private ApplicationProfileCache.Snapshot getApplicationProfile(final String applicationId, Bulkhead bulkhead) {
+        
+        // Declare.
+        ApplicationProfileCache.Snapshot snapshot;
+
+        // Get the application profile snapshot from the cache.
+        snapshot = applicationProfileCache.get(applicationId);
+
+        // Check if the application profile is not cached.
+        if (snapshot == null) {
+
+            // Declare.
+            ApplicationProfile applicationProfile;
+
+            // Get the application profile for the application identifier.
+            applicationProfile = (bulkhead == null) ? findApplicationProfile(applicationId) : bulkhead.call(new Callable<ApplicationProfile>() {
+
+                @Override
+                public ApplicationProfile call() {
+                    return findApplicationProfile(applicationId);
+                }
+            });
+
+            // Check if the application profile exists.
+            if (applicationProfile != null) {
+                snapshot = applicationProfileCache.put(applicationProfile);
+            }
+        }
+
+        return snapshot;
+    }
+    
+    /**
+     * Get the authentication module class name.
+     * 
+     * @param  applicationId  the application identifier.
+     * 
+     * @return  the authentication module class name.
+     */
+    @Override
+    public String getAuthenticationModuleClassName(String applicationId) {
+        return getApplicationProfile(applicationId, repositoryBulkhead).getAuthenticationModuleClassName();
+    }
+
+    /**
+     * Get the entry repository.
+     * 
+     * @return  the entry repository.
+     */
+    protected EntryRepository getEntryRepository() {
+        return this.entryRepository;
+    }
+
+    /**
+     * Get the owner of the user locks taken by the current call, the
+     * transaction if there is one, otherwise the current thread.
+     *
+     * @return  the lock owner.
+     */
+    private Object getLockOwner() {
+
+        // Declare.
+        Object transactionKey;
+
+        // Get the transaction key.
+        transactionKey = (transactionSynchronizationRegistry != null) ? transactionSynchronizationRegistry.getTransactionKey() : null;
+
+        return (transactionKey != null) ? transactionKey : Thread.currentThread();
+    }
+
+    /**
+     * Get the login context of the user for the specified application in one
+     * call.  The lock state and effective groups of the user account are
+     * looked up on the directory bulkhead while the application profile and
+     * user profile are read from the caches or the repository bulkhead.
+     *
+     * @param  applicationId  the application identifier.
+     * @param  username       the username.
+     *
+     * @return  the login context.
+     */
+    @Override
+    public UserLoginContext getLoginContext(String applicationId, final String username) {
+
+        // Declare.
+        Future<Boolean> accountLocked;
+        Boolean accountLockedResult;
+        long deadline;
+        Future<Set<String>> groups;
+        Set<String> groupsResult;
+        ApplicationProfileCache.Snapshot snapshot;
+        UserProfile userProfile;
+
+        // Look up the lock state and effective groups of the user account.
+        deadline = directoryBulkhead.getDeadline();
+        accountLocked = directoryBulkhead.submit(new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                return entryAccountManager.isAccountLocked(username);
+            }
+        });
+        try {
+            groups = directoryBulkhead.submit(new Callable<Set<String>>() {
+                @Override
+                public Set<String> call() {
+                    return entryAccountManager.getGroups(username);
+                }
+            });
+        }
+        catch(RuntimeException e) {
+            accountLocked.cancel(false);
+            throw e;
+        }
+
+        try {
+
+            // Get the application profile and user profile meanwhile.
+            snapshot = getApplicationProfile(applicationId, repositoryBulkhead);
+            userProfile = getUserProfile(username);
+
+            // Wait for the directory lookups until the deadline.
+            accountLockedResult = directoryResult(accountLocked, deadline);
+            groupsResult = directoryResult(groups, deadline);
+        }
+        finally {
+            accountLocked.cancel(false);
+            groups.cancel(false);
+        }
+
+        return new UserLoginContext(
+                applicationId,
+                (snapshot != null) ? snapshot.getAuthenticationModuleClassName() : null,
+                (snapshot != null) ? snapshot.getRegistrationURL() : null,
+                userProfile,
+                groupsResult != null,
+                Boolean.TRUE.equals(accountLockedResult),
+                (groupsResult != null) ? groupsResult : new HashSet<String>());
+    }
+
+    /**
+     * Get the registration URL.
+     *
+     * @param  applicationId  the application identifier.
+     *
+     * @return  the registration URL.
+     */
+    @Override
+    public String getRegistrationURL(String applicationId) {
+        return getApplicationProfile(applicationId, repositoryBulkhead).getRegistrationURL();
+    }
+
+    /**
+     * Get the user profile for the specified username.  The user profile is
+     * served from the user profile cache if it is cached.
+     *
+     * @param  username  the username.
+     *
+     * @return  the user profile.
+     */
+    @Override
+    public UserProfile getUserProfile(String username) {
+        return getUserProfile(username, repositoryBulkhead);
+    }
+
+    /**
+     * Get the user profile for the specified username.  The user profile is
+     * served from the user profile cache if it is cached.
+     *
+     * @param  username  the username.
+     * @param  bulkhead  the repository bulkhead, or null to find the user
+     *                   profile on the caller's thread.
+     *
+     * @return  the user profile.
+     */
+    private UserProfile getUserProfile(String username, Bulkhead bulkhead) {
+
+        // Declare.
+        UserProfile userProfile;
+
+        // Get the user profile from the user profile cache.
+        userProfile = (userProfileCache != null) ? userProfileCache.get(username) : null;
+
+        return (userProfile != null) ? userProfile : findUserProfile("username", username, bulkhead);
+    }
+
+    /**
+     * Get the user profile for the specified username asynchronously.
+     *
+     * @param  username  the username.
+     *
+     * @return  the future user profile.
+     */
+    @Asynchronous
+    @Override
+    public Future<UserProfile> getUserProfileAsync(String username) {
+        return new AsyncResult<UserProfile>(getUserProfile(username));
+    }
+
+    /**
+     * Get the user profile for the specified UUID.  The user profile is
+     * served from the user profile cache if it is cached.
+     *
+     * @param  uuid  the UUID.
+     *
+     * @return  the user profile.
+     */
+    @Override
+    public UserProfile getUserProfileByUuid(String uuid) {
+
+        // Declare.
+        UserProfile userProfile;
+
+        // Get the user profile from the user profile cache.
+        userProfile = (userProfileCache != null) ? userProfileCache.getByUuid(uuid) : null;
+
+        return (userProfile != null) ? userProfile : findUserProfile("uuid", uuid, repositoryBulkhead);
+    }
+
+    /**
+     * Set the environment, start flushing the last login times, load the
+     * application profiles into the application profile cache, and start
+     * building the username filter.  The username filter is built on a timer
+     * after startup, so a slow or unavailable repository does not hold up
+     * or fail the startup; until it is built, the available usernames are
+     * looked up in the repository.  If the application profiles cannot be
+     * loaded, they are loaded when they are first used.
+     */
+    @PostConstruct
+    protected void initialize() {
+        setEnvironment(environment);
+
+        // Check if the timer service exists.
+        if (timerService != null) {
+
+            // Flush the last login times periodically.
+            timerService.createIntervalTimer(lastLoginFlushInterval, lastLoginFlushInterval, new TimerConfig(null, false));
+
+            // Build the username filter after startup.
+            timerService.createSingleActionTimer(0, new TimerConfig(USERNAME_FILTER_BUILD, false));
+        }
+
+        try {
+            refreshApplicationProfiles();
+        }
+        catch(RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Unable to load the application profiles.", e);
+        }
+    }
+
+    /**
+     * Invalidate the cached user profile for the username, here and on the
+     * clients.
+     *
+     * @param  username  the username.
+     */
+    private void invalidateUserProfile(String username) {
+        invalidateUserProfiles(Collections.singletonList(username));
+    }
+
+    /**
+     * Invalidate the cached user profiles for the usernames, here and on the
+     * clients.  The clients are sent one invalidation for all the usernames.
+     * The cached user profiles are invalidated at once and again when the
+     * transaction completes, so a user profile read and cached before the
+     * change is committed does not outlive the change.
+     *
+     * @param  usernames  the usernames.
+     */
+    private void invalidateUserProfiles(Collection<String> usernames) {
+
+        // Declare.
+        final List<String> invalidatedUsernames;
+        final UserProfileCache userProfileCache;
+
+        // Initialize.
+        invalidatedUsernames = new ArrayList<String>(usernames);
+        userProfileCache = this.userProfileCache;
+
+        // Check if the user profile cache is enabled.
+        if (userProfileCache != null) {
+
+            // Loop through the usernames.
+            for (String username : invalidatedUsernames) {
+                userProfileCache.invalidate(username);
+            }
+
+            // Check if there is a transaction.
+            if (transactionSynchronizationRegistry != null
+                    && transactionSynchronizationRegistry.getTransactionStatus() != Status.STATUS_NO_TRANSACTION) {
+
+                // Invalidate the cached user profiles again when the transaction completes.
+                transactionSynchronizationRegistry.registerInterposedSynchronization(new Synchronization() {
+
+                    @Override
+                    public void afterCompletion(int status) {
+
+                        // Loop through the usernames.
+                        for (String username : invalidatedUsernames) {
+                            userProfileCache.invalidate(username);
+                        }
+                    }
+
+                    @Override
+                    public void beforeCompletion() {
+                    }
+                });
+            }
+        }
+
+        publishInvalidation(new EntryInvalidation(EntryInvalidation.Type.USER_PROFILE, invalidatedUsernames));
+    }
+
+    /**
+     * Check if the username is available.  A username the username filter
+     * does not contain is available without a lookup; otherwise the user
+     * profile is looked up.  The answer is advisory: the username may be
+     * taken before it is registered, which registration still rejects.
+     *
+     * @param  username  the username.
+     *
+     * @return  true if the username is available, otherwise false.
+     */
+    @Override
+    public boolean isUsernameAvailable(String username) {
+
+        // Declare.
+        boolean available;
+        UsernameBloomFilter filter;
+
+        // Get the username filter.
+        filter = usernameFilter;
+
+        // Check if the username is definitely not registered.
+        if (filter != null && !filter.mightContain(username)) {
+            return true;
+        }
+
+        // Check if the user profile does not exist.
+        available = (getUserProfile(username) == null);
+        if (available && filter != null) {
+            filter.recordFalsePositive();
+        }
+
+        return available;
+    }
+
+    /**
+     * Check if the directory write is verified by reading it back.  Every
+     * write is verified in the VERIFY acknowledgement mode; in the WRITE
+     * acknowledgement mode only the sampled writes are verified.
+     *
+     * @return  true if the directory write is verified, otherwise false.
+     */
+    private boolean isVerified() {
+        return acknowledgementMode == AcknowledgementMode.VERIFY
+                || (verificationSampleRate > 0 && verificationRandom.nextDouble() < verificationSampleRate);
+    }
+
+    /**
+     * Log the user profile cache, username filter, lookup, lock, admission,
+     * bulkhead, invalidation and registration purge statistics.
+     */
+    @Schedule(hour="*", persistent=false)
+    protected void logStatistics() {
+
+        // Check if the user profile cache is enabled.
+        if (userProfileCache != null) {
+            LOGGER.log(Level.INFO, "{0}", userProfileCache);
+        }
+
+        // Check if the username filter is built.
+        if (usernameFilter != null) {
+            LOGGER.log(Level.INFO, "{0}", usernameFilter);
+        }
+
+        LOGGER.log(Level.INFO, "{0}", userProfileLookups);
+        LOGGER.log(Level.INFO, "{0}", activations);
+        LOGGER.log(Level.INFO, "{0}", registrations);
+        LOGGER.log(Level.INFO, "{0}, flushedCount = {1}", new Object[] {lastLoginBuffer, lastLoginFlushedCount.get()});
+        LOGGER.log(Level.INFO, "{0}", userLocks);
+        LOGGER.log(Level.INFO, "{0}", admissionController);
+        LOGGER.log(Level.INFO, "{0}", repositoryBulkhead);
+        LOGGER.log(Level.INFO, "{0}", directoryBulkhead);
+
+        // Check if the invalidations are published.
+        if (invalidationTopic != null) {
+            LOGGER.log(Level.INFO, "Published {0} invalidations, {1} could not be sent.",
+                    new Object[] {invalidationPublishedCount.get(), invalidationFailureCount.get()});
+        }
+
+        // Check if the registrations were purged.
+        if (registrationPurgeProgress != null) {
+            LOGGER.log(Level.INFO, "{0}", registrationPurgeProgress);
+        }
+
+        // Check if the directory writes are sampled.
+        if (acknowledgementMode == AcknowledgementMode.WRITE && verificationSampleRate > 0) {
+            LOGGER.log(Level.INFO, "Verified {0} sampled directory writes, {1} did not match.",
+                    new Object[] {verificationCount.get(), verificationFailureCount.get()});
+        }
+    }
+
+    /**
+     * Modify the user profile.  The user profile is compared with the stored
+     * user profile and only written if its names or email address changed.
+     * The stored user profile is read from the repository under the user
+     * lock, not from the user profile cache or a shared lookup, so the
+     * changes are applied to its current columns and a concurrent activation
+     * is not undone.  The password is only changed if the user profile carries one.  The
+     * password is never stored in or returned with a user profile, so a
+     * client saving a user profile it read carries no password unless the
+     * user entered a new one, and saving an unchanged user profile writes
+     * nothing and makes no directory call.
+     *
+     * @param  userProfile  the user profile.
+     */
+    @Override
+    public void modify(UserProfile userProfile) {
+
+        // Begin the write.
+        beginWrite(null, userProfile.getUsername());
+
+        try {
+
+            // Declare.
+            Criteria<UserProfile> criteria;
+            UserProfile storedUserProfile;
+
+            // Get the stored user profile from the repository.
+            criteria = entryRepository.getCriteria(UserProfile.class);
+            criteria.add(Comparison.eq("username", userProfile.getUsername()));
+            storedUserProfile = entryRepository.find(UserProfile.class, criteria);
+
+            // Check if the user profile is not stored.
+            if (storedUserProfile == null) {
+
+                // Persist the user profile.
+                userProfile.setModifyTime(new Date());
+                entryRepository.persist(userProfile);
+                invalidateUserProfile(userProfile.getUsername());
+            }
+            // Check if the user profile changed.
+            else if (changed(storedUserProfile.getEmailAddress(), userProfile.getEmailAddress())
+                    || changed(storedUserProfile.getFirstName(), userProfile.getFirstName())
+                    || changed(storedUserProfile.getLastName(), userProfile.getLastName())) {
+
+                // Apply the changes to the stored user profile.
+                storedUserProfile.setEmailAddress(userProfile.getEmailAddress());
+                storedUserProfile.setFirstName(userProfile.getFirstName());
+                storedUserProfile.setLastName(userProfile.getLastName());
+                storedUserProfile.setModifyTime(new Date());
+                userProfile.setModifyTime(storedUserProfile.getModifyTime());
+
+                // Persist the stored user profile.
+                entryRepository.persist(storedUserProfile);
+                invalidateUserProfile(userProfile.getUsername());
+            }
+
+            // Check if a new password is entered.
+            if (userProfile.getPassword() != null) {
+
+                // Check if the provisioning outbox is enabled.
+                if (provisioningOutbox) {
+                    enqueue(ProvisioningRequest.Operation.CHANGE_PASSWORD, userProfile.getUsername(), null, userProfile.getPassword());
+                }
+                else {
+
+                    // Change the user account password.
+                    entryAccountManager.changePassword(userProfile.getUsername(), userProfile.getPassword());
+                }
+            }
+        }
+        finally {
+            endWrite(userProfile.getUsername());
+        }
+    }
+
+    /**
+     * Create the registration request key store.  A registration is
+     * completed when its transaction completes, so its outcome is only
+     * replayed once it is committed.
+     *
+     * @param  maxKeys      the maximum number of request keys.
+     * @param  timeToLive   the time, in minutes, an outcome is kept.
+     * @param  waitTimeout  the time, in milliseconds, a retried registration
+     *                      waits for the original registration.
+     *
+     * @return  the registration request key store.
+     */
+    private RequestKeyStore<Boolean> newRegistrations(int maxKeys, int timeToLive, long waitTimeout) {
+
+        return new RequestKeyStore<Boolean>("registration", maxKeys, timeToLive * 60000L, waitTimeout) {
+
+            @Override
+            protected void executed(final String key) {
+
+                // Check if there is no transaction.
+                if (transactionSynchronizationRegistry == null
+                        || transactionSynchronizationRegistry.getTransactionStatus() == Status.STATUS_NO_TRANSACTION) {
+                    complete(key, true);
+                    return;
+                }
+
+                // Complete the registration when the transaction completes.
+                transactionSynchronizationRegistry.registerInterposedSynchronization(new Synchronization() {
+
+                    @Override
+                    public void afterCompletion(int status) {
+                        complete(key, status == Status.STATUS_COMMITTED);
+                    }
+
+                    @Override
+                    public void beforeCompletion() {
+                    }
+                });
+            }
+        };
+    }
+
+    /**
+     * Publish the invalidation to the clients.  The invalidation is sent
+     * when the transaction commits, so a client reloading on the
+     * invalidation reads the change, and is not sent if the transaction
+     * rolls back.  The invalidation is not persistent; a client missing it
+     * keeps its copy until the copy expires.  A failure to send the
+     * invalidation is logged and does not fail the change.
+     *
+     * @param  invalidation  the invalidation.
+     */
+    private void publishInvalidation(final EntryInvalidation invalidation) {
+
+        // Check if the invalidations are not published.
+        if (invalidationConnectionFactory == null || invalidationTopic == null) {
+            return;
+        }
+
+        // Check if there is no transaction.
+        if (transactionSynchronizationRegistry == null
+                || transactionSynchronizationRegistry.getTransactionStatus() == Status.STATUS_NO_TRANSACTION) {
+            sendInvalidation(invalidation);
+            return;
+        }
+
+        // Send the invalidation when the transaction commits.
+        transactionSynchronizationRegistry.registerInterposedSynchronization(new Synchronization() {
+
+            @Override
+            public void afterCompletion(int status) {
+
+                // Check if the transaction is committed.
+                if (status == Status.STATUS_COMMITTED) {
+                    sendInvalidation(invalidation);
+                }
+            }
+
+            @Override
+            public void beforeCompletion() {
+            }
+        });
+    }
+
+    /**
+     * Purge the chunk of expired registrations.  The user accounts are
+     * removed in parallel as bulk calls on the directory bulkhead, then the
+     * user profiles whose user account is removed are removed with one
+     * delete.  A user profile left by a failed delete has no user account
+     * and is removed by the next purge.
+     *
+     * @param  userProfiles  the user profiles of the expired registrations.
+     * @param  progress      the purge progress.
+     */
+    private void purgeExpiredRegistrations(List<UserProfile> userProfiles, PurgeProgress progress) {
+
+        // Declare.
+        long deadline;
+        final List<Integer> ids;
+        List<Future<Boolean>> removals;
+
+        // Initialize.
+        ids = new ArrayList<Integer>();
+        removals = new ArrayList<Future<Boolean>>();
+
+        try {
+
+            // Loop through the user profiles.
+            for (final UserProfile userProfile : userProfiles) {
+
+                // Remove the user account.
+                removals.add(directoryBulkhead.submit(new Callable<Boolean>() {
+
+                    @Override
+                    public Boolean call() {
+                        return removeExpiredAccount(userProfile.getUsername());
+                    }
+                }, Bulkhead.Priority.BULK));
+            }
+
+            // Get the deadline of the user account removals.
+            deadline = directoryBulkhead.getDeadline();
+
+            // Loop through the user account removals.
+            for (int index = 0; index < removals.size(); index++) {
+
+                try {
+
+                    // Check if the user account is removed.
+                    if (directoryBulkhead.get(removals.get(index), deadline)) {
+                        ids.add(userProfiles.get(index).getId());
+                    }
+                    else {
+                        progress.skipped();
+                    }
+                }
+                catch(RuntimeException e) {
+                    progress.failed();
+                    LOGGER.log(Level.WARNING, "Unable to remove the user account " + userProfiles.get(index).getUsername() + ".", e);
+                }
+            }
+        }
+        finally {
+
+            // Loop through the user account removals.
+            for (Future<Boolean> removal : removals) {
+                removal.cancel(false);
+            }
+        }
+
+        // Check if any user accounts were removed.
+        if (!ids.isEmpty()) {
+
+            // Remove the user profiles in one transaction.
+            progress.purged(repositoryBulkhead.call(new Callable<Integer>() {
+
+                @Override
+                public Integer call() {
+                    return entryRepository.removeExpiredRegistrations(ids);
+                }
+            }, Bulkhead.Priority.BULK));
+
+            // Loop through the user profiles.
+            for (UserProfile userProfile : userProfiles) {
+                invalidateUserProfile(userProfile.getUsername());
+            }
+        }
+    }
+
+    /**
+     * Purge the registrations not activated within the registration purge
+     * age, in days.  The expired registrations are read in chunks, oldest
+     * first, and each chunk is purged in its own transaction.  The purge
+     * runs at night, before the username filter is rebuilt, at no more than
+     * the registration purge rate per second, and stops after the maximum
+     * duration, in minutes; the next purge continues with the registrations
+     * left.  The progress is logged after every chunk.
+     */
+    @Schedule(hour="2", persistent=false)
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    protected void purgeExpiredRegistrations() {
+
+        // Declare.
+        UserProfile after;
+        Date createdBefore;
+        long deadline;
+        List<UserProfile> userProfiles;
+        PurgeProgress progress;
+
+        // Check if the registration purge is disabled.
+        if (registrationPurgeAge <= 0) {
+            return;
+        }
+
+        // Initialize.
+        after = null;
+        createdBefore = new Date(System.currentTimeMillis() - registrationPurgeAge * 86400000L);
+        progress = new PurgeProgress("expired registrations");
+        deadline = progress.getStartTime() + registrationPurgeMaxDuration * 60000L;
+        registrationPurgeProgress = progress;
+
+        LOGGER.log(Level.INFO, "Purging the registrations not activated since {0}.", createdBefore);
+
+        // Loop through the chunks of expired registrations.
+        do {
+
+            // Get the chunk of expired registrations.
+            userProfiles = findExpiredRegistrations(createdBefore, after);
+
+            // Check if there are expired registrations.
+            if (!userProfiles.isEmpty()) {
+
+                // Purge the chunk of expired registrations.
+                progress.chunk(userProfiles.size());
+                after = userProfiles.get(userProfiles.size() - 1);
+                purgeExpiredRegistrations(userProfiles, progress);
+                LOGGER.log(Level.INFO, "{0}", progress);
+
+                // Throttle the purge.
+                throttle(progress.getScannedCount(), registrationPurgeRate, progress.getStartTime());
+            }
+        }
+        while (userProfiles.size() == registrationPurgeChunkSize && System.currentTimeMillis() < deadline);
+
+        // Check if the purge stopped before all the expired registrations were purged.
+        if (userProfiles.size() == registrationPurgeChunkSize) {
+            LOGGER.log(Level.WARNING, "The registration purge stopped after {0} minutes; the next purge continues it.",
+                    registrationPurgeMaxDuration);
+        }
+    }
+
+    /**
+     * Add the username to the username filter, and to the username filter
+     * being rebuilt.
+     *
+     * @param  username  the username.
+     */
+    private void putUsername(String username) {
+
+        // Declare.
+        UsernameBloomFilter filter;
+
+        // Add the username to the username filter.
+        filter = usernameFilter;
+        if (filter != null) {
+            filter.put(username);
+        }
+
+        // Add the username to the username filter being rebuilt.
+        filter = usernameFilterRebuild;
+        if (filter != null) {
+            filter.put(username);
+        }
+    }
+
+    /**
+     * Rebuild the username filter from the registered usernames.  The
+     * username filter cannot forget unregistered usernames, so it is rebuilt
+     * every night.  The usernames are read in pages in username order, as
+     * bulk reads.  The current username filter is used until the new one is
+     * built, and is kept if the new one cannot be built.
+     */
+    @Schedule(hour="3", persistent=false)
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    protected void rebuildUsernameFilter() {
+
+        // Declare.
+        String afterUsername;
+        UsernameBloomFilter filter;
+        List<String> usernames;
+
+        // Initialize.
+        afterUsername = null;
+        filter = new UsernameBloomFilter(usernameFilterExpectedUsernames, usernameFilterFalsePositiveRate);
+
+        // Register the new filter so concurrent registrations are added to it.
+        usernameFilterRebuild = filter;
+
+        try {
+
+            // Loop through the pages of usernames.
+            do {
+                usernames = findUsernames(afterUsername);
+                for (String username : usernames) {
+                    filter.put(username);
+                    afterUsername = username;
+                }
+            }
+            while (usernames.size() == USERNAME_FILTER_BATCH_SIZE);
+
+            // Publish the new filter.
+            usernameFilter = filter;
+        }
+        catch(RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Unable to build the username filter.", e);
+            return;
+        }
+        finally {
+            usernameFilterRebuild = null;
+        }
+
+        // Check if the username filter is over capacity.
+        if (filter.getUsernameCount() > usernameFilterExpectedUsernames) {
+            LOGGER.log(Level.WARNING, "The username filter holds {0} usernames but expects {1}; increase {2}.",
+                    new Object[] {filter.getUsernameCount(), usernameFilterExpectedUsernames, USERNAME_FILTER_EXPECTED_USERNAMES});
+        }
+    }
+
     /**
-     * Activate the user profile for the specified username using the
-     * specified activate code.
-     *
-     * @param  username        the username.
-     * @param  activationCode  the activation code.
+     * Record the successful login of the user.  The login time is buffered
+     * and written with the next flush; only the newest login time of the
+     * user is written.
      *
-     * @return  true if the user profile is activated, otherwise false.
+     * @param  username  the username.
      */
     @Override
-    public boolean activate(String username, String activationCode) {
+    public void recordLogin(String username) {
+        lastLoginBuffer.record(username, System.currentTimeMillis());
+    }
+
+    /**
+     * Refresh the application profile cache from the repository.  The cache
+     * is refreshed every 15 minutes and can be refreshed on demand after an
+     * application profile is changed.  The application profiles are read as
+     * a bulk read, and the clients are told to drop their application
+     * profiles only if the application profiles changed.
+     */
+    @Override
+    @Schedule(hour="*", minute="*/15", persistent=false)
+    public void refreshApplicationProfiles() {
 
         // Declare.
-        UserProfile userProfile;
+        boolean changed;
 
-        // Get the user profile for username.
-        userProfile = getUserProfile(username);
+        // Replace the cached application profiles.
+        changed = applicationProfileCache.replaceAll(repositoryBulkhead.call(new Callable<List<ApplicationProfile>>() {
 
-        // Check if the supplied activation code is correct.
-        if (activationCode.equals(userProfile.getActivationCode())) {
+            @Override
+            public List<ApplicationProfile> call() {
+                return entryRepository.findList(ApplicationProfile.class);
+            }
+        }, Bulkhead.Priority.BULK));
 
-            // Unlock the user account.
-            entryAccountManager.unlockAccount(username);
+        // Check if the application profiles changed.
+        if (changed) {
+            publishInvalidation(new EntryInvalidation(EntryInvalidation.Type.APPLICATION_PROFILE, null));
         }
-
-        return !entryAccountManager.isAccountLocked(username);
     }
 
     /**
-     * Deactivate the user profile for the specified username.
+     * Remove the user account of the expired registration.  Whether the
+     * registration expired is decided by the user profile: the user account
+     * is kept if the user profile was activated since the expired
+     * registrations were found, which is checked again under the user lock.
+     * The user account is also kept if it is not locked, since the accounts
+     * registered before the accounts were locked until activation kept
+     * their activation codes when they were activated.
      *
      * @param  username  the username.
      *
-     * @return  true if the user profile is deactivated, otherwise false.
+     * @return  true if the user account is removed or does not exist, false
+     *          if it is kept.
      */
-    @Override
-    public boolean deactivate(String username) {
+    private boolean removeExpiredAccount(String username) {
+
+        // Lock the username.
+        userLocks.lock(username);
+
+        try {
 
-        // Lock the user account.
-        entryAccountManager.lockAccount(username);
+            // Declare.
+            UserProfile userProfile;
+
+            // Check if the user profile was activated.
+            userProfile = findUserProfile("username", username, null);
+            if (userProfile != null && userProfile.getActivationCode() == null) {
+                return false;
+            }
+
+            // Check if the user account does not exist.
+            if (!entryAccountManager.accountExists(username)) {
+                return true;
+            }
+
+            // Check if the user account was registered before the accounts were locked.
+            if (!entryAccountManager.isAccountLocked(username)) {
+                LOGGER.log(Level.INFO, "Kept the unlocked user account {0} of an expired registration.", username);
+                return false;
+            }
+
+            // Remove the user account.
+            entryAccountManager.removeAccount(username);
+
+            return true;
+        }
+        finally {
+            userLocks.unlock(username);
+        }
+    }
 
-        return entryAccountManager.isAccountLocked(username);
+    /**
+     * Remove the expired registration request keys.
+     */
+    @Schedule(hour="*", minute="*/5", persistent=false)
+    protected void removeExpiredRequestKeys() {
+        registrations.removeExpired();
     }
 
     /**
-     * Get the application profile.
+     * Register the user profile for the specified application.  The user
+     * account is locked until the user profile is activated.  If the
+     * provisioning outbox is enabled, the user account is created later by
+     * the provisioning outbox drainer and true is returned once the user
+     * profile and the provisioning requests are persisted.
      *
+     * @param  userProfile    the user profile.
      * @param  applicationId  the application identifier.
      *
-     * @return  the application profile.
+     * @return  true if the user account exists, otherwise false.
      */
-    private ApplicationProfile getApplicationProfile(String applicationId) {
-        
-        // Declare.
-        Criteria<ApplicationProfile> criteria;
-        ApplicationProfile applicationProfile;
-        
-        // Get the application profile for the application identifier.
-        criteria = entryRepository.getCriteria(ApplicationProfile.class);
-        criteria.add(Comparison.eq("applicationId", applicationId));
-        applicationProfile = entryRepository.find(ApplicationProfile.class, criteria);
-        
-        return applicationProfile;
+    @Override
+    public boolean register(UserProfile userProfile, String applicationId) {
+
+        // Begin the write.
+        beginWrite(applicationId, userProfile.getUsername());
+
+        try {
+
+            // Declare.
+            Set<String> accountNames;
+            String defaultGroupName;
+
+            // Set the create time, modify time, activation code,
+            // and UUID for the user profile.
+            userProfile.setCreateTime(new Date());
+            userProfile.setModifyTime(userProfile.getCreateTime());
+
+            // Persist the user profile.
+            entryRepository.persist(userProfile);
+            invalidateUserProfile(userProfile.getUsername());
+            putUsername(userProfile.getUsername());
+
+            // Get the default group for the application identifier.
+            defaultGroupName = getApplicationProfile(applicationId, null).getDefaultGroupName();
+
+            // Check if the provisioning outbox is enabled.
+            if (provisioningOutbox) {
+
+                // Enqueue creating and locking the user account and adding it to the default group.
+                enqueue(ProvisioningRequest.Operation.CREATE_ACCOUNT, userProfile.getUsername(), null, userProfile.getPassword());
+                enqueue(ProvisioningRequest.Operation.LOCK_ACCOUNT, userProfile.getUsername(), null, null);
+                enqueue(ProvisioningRequest.Operation.ADD_MEMBER, userProfile.getUsername(), defaultGroupName, null);
+
+                return true;
+            }
+
+            // Create the user account.
+            entryAccountManager.createAccount(userProfile.getUsername(), userProfile.getPassword());
+
+            // Lock the user account until it is activated.
+            entryAccountManager.lockAccount(userProfile.getUsername());
+
+            // Set the account names.
+            accountNames = new HashSet<String>();
+            accountNames.add(userProfile.getUsername());
+
+            // Add the user account to the default group.
+            entryAccountManager.addMembers(defaultGroupName, accountNames);
+
+            return (isVerified()) ? verified(entryAccountManager.accountExists(userProfile.getUsername()), "register", userProfile.getUsername()) : true;
+        }
+        finally {
+            endWrite(userProfile.getUsername());
+        }
     }
-    
+
     /**
-     * Get the authentication module class name.
-     * 
+     * Register the user profile for the specified application once for the
+     * request key.  A registration retried with the request key waits for
+     * the original registration and returns its outcome instead of
+     * registering again; the outcome is kept once the original registration
+     * commits.  A request key belongs to the username it was first used with.
+     * The request keys are kept in memory on this node only, so a
+     * registration retried after a restart or on another node registers
+     * again.
+     *
+     * @param  userProfile    the user profile.
      * @param  applicationId  the application identifier.
-     * 
-     * @return  the authentication module class name.
+     * @param  requestKey     the request key, or null to always register.
+     *
+     * @return  true if the user account exists, otherwise false.
+     *
+     * @throws  AdmissionRejectedException  if the original registration did
+     *                                       not complete within the request
+     *                                       key wait timeout.
+     * @throws  IllegalArgumentException     if the request key was used with
+     *                                       another username.
      */
     @Override
-    public String getAuthenticationModuleClassName(String applicationId) {
-        return getApplicationProfile(applicationId).getAuthenticationModule().getClassName();
+    public boolean register(final UserProfile userProfile, final String applicationId, String requestKey) {
+
+        // Check if there is no request key.
+        if (requestKey == null) {
+            return register(userProfile, applicationId);
+        }
+
+        return registrations.execute(requestKey, userProfile.getUsername(), new Callable<Boolean>() {
+
+            @Override
+            public Boolean call() {
+                return register(userProfile, applicationId);
+            }
+        });
     }
 
     /**
-     * Get the entry repository.
-     * 
-     * @return  the entry repository.
+     * Register the user profile for the specified application
+     * asynchronously.  The caller's thread is released as soon as the
+     * registration is queued, so a web client can complete the request from
+     * another thread when the future is done.
+     *
+     * @param  userProfile    the user profile.
+     * @param  applicationId  the application identifier.
+     *
+     * @return  the future result, true if the user account exists,
+     *          otherwise false.
      */
-    protected EntryRepository getEntryRepository() {
-        return this.entryRepository;
+    @Asynchronous
+    @Override
+    public Future<Boolean> registerAsync(UserProfile userProfile, String applicationId) {
+        return new AsyncResult<Boolean>(register(userProfile, applicationId));
     }
 
     /**
-     * Get the registration URL.
+     * Register the user profile for the specified application once for the
+     * request key asynchronously.
      *
+     * @param  userProfile    the user profile.
      * @param  applicationId  the application identifier.
+     * @param  requestKey     the request key, or null to always register.
      *
-     * @return  the registration URL.
+     * @return  the future result, true if the user account exists,
+     *          otherwise false.
      */
+    @Asynchronous
     @Override
-    public String getRegistrationURL(String applicationId) {
-        return getApplicationProfile(applicationId).getRegistrationURL();
+    public Future<Boolean> registerAsync(UserProfile userProfile, String applicationId, String requestKey) {
+        return new AsyncResult<Boolean>(register(userProfile, applicationId, requestKey));
     }
 
     /**
-     * Get the user profile for the specified username.
+     * Register the user profiles for the specified application.
      *
-     * @param  username  the username.
+     * <p>The application profile is looked up once, every user profile is
+     * persisted in its own transaction, and all the new accounts are added
+     * to the default group with one membership update.  A user profile that
+     * cannot be registered does not stop the others; its outcome is returned
+     * instead.  If the user accounts cannot be added to the default group,
+     * the registrations whose user account still cannot be added alone are
+     * removed and fail.  Since the user profile is committed when it is persisted, a
+     * repository failure is reported for the user profile it belongs to and
+     * the user account created for it is removed, rather than failing the
+     * whole batch at commit and leaving the user accounts behind.  If the
+     * provisioning outbox is enabled, the user accounts are not created;
+     * the provisioning requests creating them and adding them to the default
+     * group are enqueued after the user profile instead, and the user
+     * profile is removed if they cannot be enqueued.  The directory checks
+     * of the usernames are bulk reads.</p>
      *
-     * @return  the user profile.
+     * @param  userProfiles   the user profiles.
+     * @param  applicationId  the application identifier.
+     *
+     * @return  the registration results, in the order of the user profiles.
      */
     @Override
-    public UserProfile getUserProfile(String username) {
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public List<RegistrationResult> registerAll(List<UserProfile> userProfiles, String applicationId) {
 
         // Declare.
-        Criteria<UserProfile> criteria;
-        UserProfile userProfile;
+        Map<String, Integer> accountIndexes;
+        Date createTime;
+        String defaultGroupName;
+        UserProfile[] persistedUserProfiles;
+        RegistrationResult[] registrationResults;
+        Set<String> usernames;
+
+        // Initialize.
+        accountIndexes = new HashMap<String, Integer>();
+        createTime = new Date();
+        persistedUserProfiles = new UserProfile[userProfiles.size()];
+        registrationResults = new RegistrationResult[userProfiles.size()];
+        usernames = new HashSet<String>();
+
+        // Admit the writes.
+        admissionController.admit(applicationId, Math.max(1, userProfiles.size()));
+
+        try {
+
+            // Get the default group for the application identifier.
+            defaultGroupName = getApplicationProfile(applicationId, null).getDefaultGroupName();
+
+            // Loop through the user profiles.
+            for (int index = 0; index < registrationResults.length; index++) {
+
+                // Declare.
+                UserProfile userProfile;
+                String username;
+
+                // Get the user profile.
+                userProfile = userProfiles.get(index);
+                username = userProfile.getUsername();
+
+                // Check if the username or password is missing.
+                if (username == null || "".equals(username) || userProfile.getPassword() == null || "".equals(userProfile.getPassword())) {
+                    registrationResults[index] = new RegistrationResult(username, RegistrationResult.Status.FAILED, "The username and password are required.");
+                }
+                // Check if the username is registered or repeated in the batch.
+                else if (!usernames.add(username) || getUserProfile(username, null) != null || accountExists(username, Bulkhead.Priority.BULK)) {
+                    registrationResults[index] = new RegistrationResult(username, RegistrationResult.Status.ALREADY_EXISTS, "The username " + username + " is already registered.");
+                }
+                else {
+
+                    // Lock the username.
+                    userLocks.lock(username);
+
+                    try {
+
+                        // Check if the provisioning outbox is enabled.
+                        if (provisioningOutbox) {
+
+                            // Check if the registration was not enqueued.
+                            if (!registerLater(userProfile, defaultGroupName, createTime)) {
+                                registrationResults[index] = new RegistrationResult(username, RegistrationResult.Status.FAILED, "The registration cannot be enqueued.");
+                                continue;
+                            }
+
+                            registrationResults[index] = new RegistrationResult(username, RegistrationResult.Status.REGISTERED, null);
+                            continue;
+                        }
 
-        // Get the user profile for the username.
-        criteria = entryRepository.getCriteria(UserProfile.class);
-        criteria.add(Comparison.eq("username", username));
-        userProfile = entryRepository.find(UserProfile.class, criteria);
+                        try {
 
-        return userProfile;
+                            // Create the user account.
+                            entryAccountManager.createAccount(username, userProfile.getPassword());
+                        }
+                        catch(RuntimeException e) {
+                            registrationResults[index] = new RegistrationResult(username, RegistrationResult.Status.FAILED, e.getMessage());
+                            continue;
+                        }
+
+                        try {
+
+                            // Lock the user account until it is activated.
+                            entryAccountManager.lockAccount(username);
+                        }
+                        catch(RuntimeException e) {
+
+                            // Remove the user account that cannot be locked.
+                            entryAccountManager.removeAccount(username);
+                            registrationResults[index] = new RegistrationResult(username, RegistrationResult.Status.FAILED, e.getMessage());
+                            continue;
+                        }
+
+                        try {
+
+                            // Set the create time and modify time for the user profile.
+                            userProfile.setCreateTime(createTime);
+                            userProfile.setModifyTime(createTime);
+
+                            // Persist the user profile.
+                            persistedUserProfiles[index] = entryRepository.persist(userProfile);
+                            invalidateUserProfile(username);
+                            putUsername(username);
+                        }
+                        catch(RuntimeException e) {
+
+                            // Remove the user account created for the user profile.
+                            entryAccountManager.removeAccount(username);
+                            registrationResults[index] = new RegistrationResult(username, RegistrationResult.Status.FAILED, e.getMessage());
+                            continue;
+                        }
+                    }
+                    finally {
+                        userLocks.unlock(username);
+                    }
+
+                    accountIndexes.put(username, index);
+                    registrationResults[index] = new RegistrationResult(username, RegistrationResult.Status.REGISTERED, null);
+                }
+            }
+
+            // Check if any user accounts were created.
+            if (!accountIndexes.isEmpty()) {
+
+                // Add the user accounts to the default group.
+                addDefaultMembers(defaultGroupName, accountIndexes, persistedUserProfiles, registrationResults);
+            }
+
+            return new ArrayList<RegistrationResult>(Arrays.asList(registrationResults));
+        }
+        finally {
+            admissionController.release();
+        }
     }
 
     /**
-     * Modify the user profile.
+     * Register the user profile of a bulk registration later through the
+     * provisioning outbox.  The user profile and the provisioning requests
+     * are each persisted in their own transaction, so if a provisioning
+     * request cannot be enqueued, the user profile and the provisioning
+     * requests enqueued for it are removed.
      *
-     * @param  userProfile  the user profile.
+     * @param  userProfile       the user profile.
+     * @param  defaultGroupName  the default group name.
+     * @param  createTime        the create time.
+     *
+     * @return  true if the registration is enqueued, otherwise false.
      */
-    @Override
-    public void modify(UserProfile userProfile) {
+    private boolean registerLater(UserProfile userProfile, String defaultGroupName, Date createTime) {
+
+        // Declare.
+        List<ProvisioningRequest> provisioningRequests;
+        UserProfile persistedUserProfile;
+
+        // Initialize.
+        provisioningRequests = new ArrayList<ProvisioningRequest>();
+        persistedUserProfile = null;
+
+        try {
+
+            // Set the create time and modify time for the user profile.
+            userProfile.setCreateTime(createTime);
+            userProfile.setModifyTime(createTime);
+
+            // Persist the user profile.
+            persistedUserProfile = entryRepository.persist(userProfile);
+            invalidateUserProfile(userProfile.getUsername());
+            putUsername(userProfile.getUsername());
+
+            // Enqueue creating and locking the user account and adding it to the default group.
+            provisioningRequests.add(enqueue(ProvisioningRequest.Operation.CREATE_ACCOUNT, userProfile.getUsername(), null, userProfile.getPassword()));
+            provisioningRequests.add(enqueue(ProvisioningRequest.Operation.LOCK_ACCOUNT, userProfile.getUsername(), null, null));
+            provisioningRequests.add(enqueue(ProvisioningRequest.Operation.ADD_MEMBER, userProfile.getUsername(), defaultGroupName, null));
 
-        // Set the modify time.
-        userProfile.setModifyTime(new Date());
+            return true;
+        }
+        catch(RuntimeException e) {
+
+            LOGGER.log(Level.WARNING, "Unable to enqueue the registration of " + userProfile.getUsername() + ".", e);
 
-        // Persist the user profile.
-        entryRepository.persist(userProfile);
+            try {
 
-        // Check if the password exists.
-        if (userProfile.getPassword() != null) {
+                // Loop through the provisioning requests enqueued.
+                for (ProvisioningRequest provisioningRequest : provisioningRequests) {
+                    entryRepository.remove(ProvisioningRequest.class, provisioningRequest.getId());
+                }
 
-            // Change the user account password.
-            entryAccountManager.changePassword(userProfile.getUsername(), userProfile.getPassword());
+                // Check if the user profile was persisted.
+                if (persistedUserProfile != null) {
+                    entryRepository.remove(UserProfile.class, persistedUserProfile.getId());
+                    invalidateUserProfile(userProfile.getUsername());
+                }
+            }
+            catch(RuntimeException removeException) {
+                LOGGER.log(Level.SEVERE, "Unable to remove the registration of " + userProfile.getUsername() + ".", removeException);
+            }
+
+            return false;
         }
     }
 
     /**
-     * Register the user profile for the specified application.
+     * Search the users whose field starts with the prefix.  The users are
+     * returned a page at a time in field and username order.  The key of the
+     * next page holds the field value and username of the last user, so the
+     * next page is sought from it on the index instead of skipping the
+     * previous pages.  The search is a bulk read.
      *
-     * @param  userProfile    the user profile.
-     * @param  applicationId  the application identifier.
+     * @param  field     the field.
+     * @param  prefix    the prefix, or null for all users.
+     * @param  afterKey  the key of the next page from the previous page, or
+     *                   null for the first page.
+     * @param  limit     the maximum number of users on the page.
      *
-     * @return  true if the user account exists, otherwise false.
+     * @return  the page of users.
+     *
+     * @throws  IllegalArgumentException        if the field, key or limit
+     *                                          is invalid.
+     * @throws  DependencyUnavailableException  if the repository bulkhead is
+     *                                          saturated or the search timed out.
      */
     @Override
-    public boolean register(UserProfile userProfile, String applicationId) {
+    public UserSearchPage searchUsers(final UserSummary.Field field, final String prefix, String afterKey, final int limit) {
 
         // Declare.
-        Set<String> accountNames;
-        String defaultGroupName;
+        final String afterUsername;
+        final String afterValue;
+        String nextKey;
+        List<UserSummary> users;
+
+        // Check if the field or limit is invalid.
+        if (field == null || limit <= 0 || limit > SEARCH_LIMIT_MAXIMUM) {
+            throw new IllegalArgumentException("The field is required and the limit must be between 1 and " + SEARCH_LIMIT_MAXIMUM + ".");
+        }
+
+        // Check if this is the first page.
+        if (afterKey == null) {
+            afterUsername = null;
+            afterValue = null;
+        }
+        else {
+
+            // Declare.
+            int separator;
+            int valueLength;
+
+            try {
+
+                // Get the field value and username from the key.
+                separator = afterKey.indexOf(':');
+                valueLength = Integer.parseInt(afterKey.substring(0, separator));
+                afterValue = afterKey.substring(separator + 1, separator + 1 + valueLength);
+                afterUsername = afterKey.substring(separator + 1 + valueLength);
+            }
+            catch(RuntimeException e) {
+                throw new IllegalArgumentException("The key " + afterKey + " is invalid.");
+            }
+        }
+
+        // Get one user more than the limit to find out if there is a next page.
+        users = repositoryBulkhead.call(new Callable<List<UserSummary>>() {
+
+            @Override
+            public List<UserSummary> call() {
+                return entryRepository.searchUsers(field, prefix, afterValue, afterUsername, limit + 1);
+            }
+        }, Bulkhead.Priority.BULK);
+
+        // Initialize.
+        nextKey = null;
+
+        // Check if there is a next page.
+        if (users.size() > limit) {
+
+            // Declare.
+            UserSummary last;
+            String value;
+
+            // Get the key of the next page from the last user of the page.
+            users = new ArrayList<UserSummary>(users.subList(0, limit));
+            last = users.get(limit - 1);
+            value = last.getValue(field);
+            nextKey = value.length() + ":" + value + last.getUsername();
+        }
 
-        // Set the create time, modify time, activation code,
-        // and UUID for the user profile.
-        userProfile.setCreateTime(new Date());
-        userProfile.setModifyTime(userProfile.getCreateTime());
+        return new UserSearchPage(users, nextKey);
+    }
+
+    /**
+     * Send the invalidation to the invalidation topic.  The connection is
+     * opened for the invalidation and closed afterwards; the connection
+     * factory is expected to pool the connections.
+     *
+     * @param  invalidation  the invalidation.
+     */
+    private void sendInvalidation(EntryInvalidation invalidation) {
 
-        // Persist the user profile.
-        entryRepository.persist(userProfile);
+        // Declare.
+        Connection connection;
 
-        // Create the user account.
-        entryAccountManager.createAccount(userProfile.getUsername(), userProfile.getPassword());
+        // Initialize.
+        connection = null;
 
-        // Lock the user account.
-//entryAccountManager.lockAccount(userProfile.getUsername());
+        try {
 
-        // Set the account names.
-        accountNames = new HashSet<String>();
-        accountNames.add(userProfile.getUsername());
+            // Declare.
+            MessageProducer producer;
+            Session session;
 
-        // Get the default group for the application identifier.
-        defaultGroupName = getApplicationProfile(applicationId).getDefaultGroupName();
+            // Send the invalidation.
+            connection = invalidationConnectionFactory.createConnection();
+            session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            producer = session.createProducer(invalidationTopic);
+            producer.setDeliveryMode(DeliveryMode.NON_PERSISTENT);
+            producer.send(session.createObjectMessage(invalidation));
+            invalidationPublishedCount.incrementAndGet();
+        }
+        catch(JMSException e) {
+            invalidationFailureCount.incrementAndGet();
+            LOGGER.log(Level.WARNING, "Unable to publish the invalidation " + invalidation + ".", e);
+        }
+        finally {
 
-        // Add the user account to the default group.
-        entryAccountManager.addMembers(defaultGroupName, accountNames);
+            // Check if the connection is open.
+            if (connection != null) {
 
-        return entryAccountManager.accountExists(userProfile.getUsername());
+                try {
+                    connection.close();
+                }
+                catch(JMSException e) {
+                    LOGGER.log(Level.FINE, "Unable to close the invalidation connection.", e);
+                }
+            }
+        }
     }
 
     /**
@@ -226,6 +2188,253 @@ public class EntryServiceImpl implements EntryService {
         this.entryAccountManager = entryAccountManager;
     }
 
+    /**
+     * Set the environment.  The user profile cache is sized and given its
+     * eviction policy and time to live, in milliseconds, from the
+     * environment; a size of 0 disables it.  The
+     * provisioning outbox is enabled if the provisioning outbox property is
+     * true, and its passwords are encrypted with the provisioning outbox
+     * key, an AES key in hexadecimal.  The directory writes are verified according to the
+     * acknowledgement mode and the verification sample rate, a fraction
+     * between 0 and 1.  The users are locked with the number of lock
+     * stripes.  The username filter is sized for the expected number of
+     * usernames and the false positive rate.  The writes are admitted with
+     * the default write rate limit and the write slots and queue.  The
+     * repository and directory reads run on bulkheads with their own
+     * number of concurrent calls, calls the bulk reads may hold, queue size
+     * and timeout in milliseconds.  The registrations not activated within the registration
+     * purge age, in days, are purged in chunks at the registration purge
+     * rate for at most the maximum duration, in minutes; an age of 0
+     * disables the purge.  The outcomes of the registrations with a request
+     * key are kept for the time to live, in minutes, up to the maximum number
+     * of request keys, and a retried registration waits for the original
+     * registration for at most the request key wait timeout, in
+     * milliseconds.  The last login times are buffered on as many stripes
+     * as the user locks and flushed in batches of the last login batch size
+     * every flush interval, in milliseconds.  The changes of the user
+     * profiles and application profiles are published to the invalidation
+     * topic, looked up with the invalidation connection factory by their
+     * JNDI names, if both are set.
+     *
+     * @param  environment  the environment.
+     *
+     * @throws  IllegalArgumentException  if the user profile cache size,
+     *                                    eviction policy or time to live, the
+     *                                    provisioning outbox key, the
+     *                                    acknowledgement
+     *                                    mode, the verification sample rate,
+     *                                    the number of lock stripes, the
+     *                                    username filter size, the write
+     *                                    admission, a bulkhead, the
+     *                                    registration purge, the request key
+     *                                    store, the last login flush, or the
+     *                                    invalidation topic is invalid.
+     */
+    protected void setEnvironment(Properties environment) {
+
+        // Declare.
+        long cacheTimeToLive;
+        int directoryBulkThreads;
+        int directoryQueueSize;
+        int directoryThreads;
+        long directoryTimeout;
+        String evictionPolicy;
+        String invalidationConnectionFactoryName;
+        String invalidationTopicName;
+        int loginBatchSize;
+        long loginFlushInterval;
+        String mode;
+        String outboxKey;
+        int purgeAge;
+        int purgeChunkSize;
+        int purgeMaxDuration;
+        double purgeRate;
+        int repositoryBulkThreads;
+        int repositoryQueueSize;
+        int repositoryThreads;
+        long repositoryTimeout;
+        LastLoginBuffer replacedLastLoginBuffer;
+        int requestKeyMaxKeys;
+        int requestKeyTimeToLive;
+        long requestKeyWaitTimeout;
+        double sampleRate;
+        int size;
+        int stripes;
+        int usernames;
+        double usernamesFalsePositiveRate;
+        int writeBurstSize;
+        int writeQueueSize;
+        long writeQueueTimeout;
+        double writeRate;
+        int writeSlots;
+
+        // Initialize.
+        cacheTimeToLive = USER_PROFILE_CACHE_TIME_TO_LIVE_DEFAULT;
+        directoryBulkThreads = DIRECTORY_BULK_THREADS_DEFAULT;
+        directoryQueueSize = DIRECTORY_QUEUE_SIZE_DEFAULT;
+        directoryThreads = DIRECTORY_THREADS_DEFAULT;
+        directoryTimeout = DIRECTORY_TIMEOUT_DEFAULT;
+        evictionPolicy = USER_PROFILE_CACHE_EVICTION_POLICY_DEFAULT;
+        invalidationConnectionFactoryName = null;
+        invalidationTopicName = null;
+        loginBatchSize = LAST_LOGIN_BATCH_SIZE_DEFAULT;
+        loginFlushInterval = LAST_LOGIN_FLUSH_INTERVAL_DEFAULT;
+        mode = ACKNOWLEDGEMENT_MODE_DEFAULT;
+        outboxKey = null;
+        provisioningOutbox = false;
+        purgeAge = REGISTRATION_PURGE_AGE_DEFAULT;
+        purgeChunkSize = REGISTRATION_PURGE_CHUNK_SIZE_DEFAULT;
+        purgeMaxDuration = REGISTRATION_PURGE_MAX_DURATION_DEFAULT;
+        purgeRate = REGISTRATION_PURGE_RATE_DEFAULT;
+        repositoryBulkThreads = REPOSITORY_BULK_THREADS_DEFAULT;
+        repositoryQueueSize = REPOSITORY_QUEUE_SIZE_DEFAULT;
+        repositoryThreads = REPOSITORY_THREADS_DEFAULT;
+        repositoryTimeout = REPOSITORY_TIMEOUT_DEFAULT;
+        requestKeyMaxKeys = REQUEST_KEY_MAX_KEYS_DEFAULT;
+        requestKeyTimeToLive = REQUEST_KEY_TIME_TO_LIVE_DEFAULT;
+        requestKeyWaitTimeout = REQUEST_KEY_WAIT_TIMEOUT_DEFAULT;
+        sampleRate = 0;
+        size = USER_PROFILE_CACHE_SIZE_DEFAULT;
+        stripes = LOCK_STRIPES_DEFAULT;
+        usernames = USERNAME_FILTER_EXPECTED_USERNAMES_DEFAULT;
+        usernamesFalsePositiveRate = USERNAME_FILTER_FALSE_POSITIVE_RATE_DEFAULT;
+        writeBurstSize = WRITE_BURST_SIZE_DEFAULT;
+        writeQueueSize = WRITE_QUEUE_SIZE_DEFAULT;
+        writeQueueTimeout = WRITE_QUEUE_TIMEOUT_DEFAULT;
+        writeRate = WRITE_RATE_DEFAULT;
+        writeSlots = WRITE_SLOTS_DEFAULT;
+
+        // Check if the environment exists.
+        if (environment != null) {
+            mode = environment.getProperty(ACKNOWLEDGEMENT_MODE, mode);
+            directoryBulkThreads = Integer.parseInt(environment.getProperty(DIRECTORY_BULK_THREADS, String.valueOf(directoryBulkThreads)));
+            directoryQueueSize = Integer.parseInt(environment.getProperty(DIRECTORY_QUEUE_SIZE, String.valueOf(directoryQueueSize)));
+            directoryThreads = Integer.parseInt(environment.getProperty(DIRECTORY_THREADS, String.valueOf(directoryThreads)));
+            directoryTimeout = Long.parseLong(environment.getProperty(DIRECTORY_TIMEOUT, String.valueOf(directoryTimeout)));
+            invalidationConnectionFactoryName = environment.getProperty(INVALIDATION_CONNECTION_FACTORY);
+            invalidationTopicName = environment.getProperty(INVALIDATION_TOPIC);
+            loginBatchSize = Integer.parseInt(environment.getProperty(LAST_LOGIN_BATCH_SIZE, String.valueOf(loginBatchSize)));
+            loginFlushInterval = Long.parseLong(environment.getProperty(LAST_LOGIN_FLUSH_INTERVAL, String.valueOf(loginFlushInterval)));
+            stripes = Integer.parseInt(environment.getProperty(LOCK_STRIPES, String.valueOf(stripes)));
+            provisioningOutbox = Boolean.parseBoolean(environment.getProperty(PROVISIONING_OUTBOX));
+            outboxKey = environment.getProperty(PROVISIONING_OUTBOX_KEY);
+            purgeAge = Integer.parseInt(environment.getProperty(REGISTRATION_PURGE_AGE, String.valueOf(purgeAge)));
+            purgeChunkSize = Integer.parseInt(environment.getProperty(REGISTRATION_PURGE_CHUNK_SIZE, String.valueOf(purgeChunkSize)));
+            purgeMaxDuration = Integer.parseInt(environment.getProperty(REGISTRATION_PURGE_MAX_DURATION, String.valueOf(purgeMaxDuration)));
+            purgeRate = Double.parseDouble(environment.getProperty(REGISTRATION_PURGE_RATE, String.valueOf(purgeRate)));
+            repositoryBulkThreads = Integer.parseInt(environment.getProperty(REPOSITORY_BULK_THREADS, String.valueOf(repositoryBulkThreads)));
+            repositoryQueueSize = Integer.parseInt(environment.getProperty(REPOSITORY_QUEUE_SIZE, String.valueOf(repositoryQueueSize)));
+            repositoryThreads = Integer.parseInt(environment.getProperty(REPOSITORY_THREADS, String.valueOf(repositoryThreads)));
+            repositoryTimeout = Long.parseLong(environment.getProperty(REPOSITORY_TIMEOUT, String.valueOf(repositoryTimeout)));
+            requestKeyMaxKeys = Integer.parseInt(environment.getProperty(REQUEST_KEY_MAX_KEYS, String.valueOf(requestKeyMaxKeys)));
+            requestKeyTimeToLive = Integer.parseInt(environment.getProperty(REQUEST_KEY_TIME_TO_LIVE, String.valueOf(requestKeyTimeToLive)));
+            requestKeyWaitTimeout = Long.parseLong(environment.getProperty(REQUEST_KEY_WAIT_TIMEOUT, String.valueOf(requestKeyWaitTimeout)));
+            evictionPolicy = environment.getProperty(USER_PROFILE_CACHE_EVICTION_POLICY, evictionPolicy);
+            size = Integer.parseInt(environment.getProperty(USER_PROFILE_CACHE_SIZE, String.valueOf(size)));
+            cacheTimeToLive = Long.parseLong(environment.getProperty(USER_PROFILE_CACHE_TIME_TO_LIVE, String.valueOf(cacheTimeToLive)));
+            sampleRate = Double.parseDouble(environment.getProperty(VERIFICATION_SAMPLE_RATE, String.valueOf(sampleRate)));
+            usernames = Integer.parseInt(environment.getProperty(USERNAME_FILTER_EXPECTED_USERNAMES, String.valueOf(usernames)));
+            usernamesFalsePositiveRate = Double.parseDouble(environment.getProperty(
+                    USERNAME_FILTER_FALSE_POSITIVE_RATE, String.valueOf(usernamesFalsePositiveRate)));
+            writeBurstSize = Integer.parseInt(environment.getProperty(WRITE_BURST_SIZE, String.valueOf(writeBurstSize)));
+            writeQueueSize = Integer.parseInt(environment.getProperty(WRITE_QUEUE_SIZE, String.valueOf(writeQueueSize)));
+            writeQueueTimeout = Long.parseLong(environment.getProperty(WRITE_QUEUE_TIMEOUT, String.valueOf(writeQueueTimeout)));
+            writeRate = Double.parseDouble(environment.getProperty(WRITE_RATE, String.valueOf(writeRate)));
+            writeSlots = Integer.parseInt(environment.getProperty(WRITE_SLOTS, String.valueOf(writeSlots)));
+        }
+
+        // Check if only one of the invalidation connection factory and topic is set.
+        if ((invalidationConnectionFactoryName == null) != (invalidationTopicName == null)) {
+            throw new IllegalArgumentException("The invalidation connection factory and topic must be set together.");
+        }
+
+        // Check if the last login batch size or flush interval is not positive.
+        if (loginBatchSize <= 0 || loginFlushInterval <= 0) {
+            throw new IllegalArgumentException("The last login batch size and flush interval must be positive.");
+        }
+
+        // Check if the registration purge is invalid.
+        if (purgeAge < 0 || purgeChunkSize <= 0 || purgeMaxDuration <= 0 || purgeRate < 0) {
+            throw new IllegalArgumentException("The registration purge is invalid.");
+        }
+
+        // Check if the username filter size is invalid.
+        if (usernames <= 0 || usernamesFalsePositiveRate <= 0 || usernamesFalsePositiveRate >= 1) {
+            throw new IllegalArgumentException("The username filter size is invalid.");
+        }
+
+        // Check if the verification sample rate is invalid.
+        if (sampleRate < 0 || sampleRate > 1) {
+            throw new IllegalArgumentException("The verification sample rate must be between 0 and 1.");
+        }
+
+        // Check if the provisioning outbox is enabled without a key.
+        if (provisioningOutbox && outboxKey == null) {
+            throw new IllegalArgumentException("The provisioning outbox key is required.");
+        }
+
+        // Create the password cipher of the provisioning outbox.
+        passwordCipher = (provisioningOutbox) ? new PasswordCipher(outboxKey) : null;
+
+        // Set the acknowledgement mode and verification sample rate.
+        acknowledgementMode = AcknowledgementMode.valueOf(mode.toUpperCase());
+        verificationSampleRate = sampleRate;
+
+        // Create the user locks.
+        userLocks = new StripedLock(stripes);
+
+        // Check if the invalidations are published.
+        if (invalidationTopicName != null) {
+
+            try {
+
+                // Look up the invalidation connection factory and topic.
+                invalidationConnectionFactory = (ConnectionFactory)new InitialContext().lookup(invalidationConnectionFactoryName);
+                invalidationTopic = (Topic)new InitialContext().lookup(invalidationTopicName);
+            }
+            catch(NamingException e) {
+                throw new IllegalArgumentException("The invalidation topic " + invalidationTopicName + " cannot be looked up.", e);
+            }
+        }
+        else {
+            invalidationConnectionFactory = null;
+            invalidationTopic = null;
+        }
+
+        // Set the last login flush and replace the last login buffer,
+        // keeping the last login times buffered so far.
+        lastLoginBatchSize = loginBatchSize;
+        lastLoginFlushInterval = loginFlushInterval;
+        replacedLastLoginBuffer = lastLoginBuffer;
+        lastLoginBuffer = new LastLoginBuffer(stripes);
+        lastLoginBuffer.restore(replacedLastLoginBuffer.drain());
+
+        // Set the registration purge.
+        registrationPurgeAge = purgeAge;
+        registrationPurgeChunkSize = purgeChunkSize;
+        registrationPurgeMaxDuration = purgeMaxDuration;
+        registrationPurgeRate = purgeRate;
+
+        // Set the username filter size.
+        usernameFilterExpectedUsernames = usernames;
+        usernameFilterFalsePositiveRate = usernamesFalsePositiveRate;
+
+        // Create the admission controller.
+        admissionController = new AdmissionController(writeRate, writeBurstSize, writeSlots, writeQueueSize, writeQueueTimeout);
+
+        // Create the registration request key store.
+        registrations = newRegistrations(requestKeyMaxKeys, requestKeyTimeToLive, requestKeyWaitTimeout);
+
+        // Create the bulkheads.
+        directoryBulkhead = new Bulkhead("directory", bulkheadExecutor, directoryThreads, directoryBulkThreads, directoryQueueSize, directoryTimeout);
+        repositoryBulkhead = new Bulkhead("repository", bulkheadExecutor, repositoryThreads, repositoryBulkThreads, repositoryQueueSize, repositoryTimeout);
+
+        // Create the user profile cache.
+        userProfileCache = (size > 0)
+                ? new UserProfileCache(size, UserProfileCache.EvictionPolicy.valueOf(evictionPolicy.toUpperCase()), cacheTimeToLive)
+                : null;
+    }
+
     /**
      * Set the Entry repository.
      *
@@ -235,6 +2444,73 @@ public class EntryServiceImpl implements EntryService {
         this.entryRepository = entryRepository;
     }
 
+    /**
+     * Set the write rate limit of the application.  The write rate limit
+     * takes effect at once.
+     *
+     * @param  applicationId  the application identifier, or null for the
+     *                        default write rate limit.
+     * @param  rate           the rate in users per second, or 0 for no limit.
+     * @param  burstSize      the burst size in users.
+     *
+     * @throws  IllegalArgumentException  if the rate or burst size is invalid.
+     */
+    @Override
+    public void setWriteRateLimit(String applicationId, double rate, int burstSize) {
+        admissionController.setLimit(applicationId, rate, burstSize);
+    }
+
+    /**
+     * Throttle the job to the rate by sleeping until its count is due.
+     *
+     * @param  count      the number of items processed.
+     * @param  rate       the rate in items per second, or 0 for no limit.
+     * @param  startTime  the time the job started in milliseconds.
+     */
+    private static void throttle(long count, double rate, long startTime) {
+
+        // Declare.
+        long delay;
+
+        // Check if the rate is not limited.
+        if (rate <= 0) {
+            return;
+        }
+
+        // Get the delay until the count is due.
+        delay = startTime + (long)(count * 1000 / rate) - System.currentTimeMillis();
+
+        try {
+
+            // Check if the job is ahead of the rate.
+            if (delay > 0) {
+                Thread.sleep(delay);
+            }
+        }
+        catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Handle the timer.  The username filter build timer builds the username
+     * filter; the interval timer flushes the last login times.
+     *
+     * @param  timer  the timer.
+     */
+    @Timeout
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    protected void timeout(Timer timer) {
+
+        // Check if the timer builds the username filter.
+        if (USERNAME_FILTER_BUILD.equals(timer.getInfo())) {
+            rebuildUsernameFilter();
+        }
+        else {
+            flushLastLoginTimes();
+        }
+    }
+
     /**
      * Unregister the user profile.
      *
@@ -243,18 +2519,66 @@ public class EntryServiceImpl implements EntryService {
     @Override
     public boolean unregister(String username) {
 
-        // Declare.
-        UserProfile userProfile;
+        // Begin the write.
+        beginWrite(null, username);
+
+        try {
+
+            // Declare.
+            UserProfile userProfile;
 
-        // Get the user profile for username.
-        userProfile = getUserProfile(username);
+            // Get the user profile for username.
+            userProfile = getUserProfile(username, null);
 
-        // Remove the user profile.
-        entryRepository.remove(UserProfile.class, userProfile.getId());
+            // Remove the user profile.
+            entryRepository.remove(UserProfile.class, userProfile.getId());
+            invalidateUserProfile(userProfile.getUsername());
 
-        // Remove the user account.
-        entryAccountManager.removeAccount(userProfile.getUsername());
+            // Check if the provisioning outbox is enabled.
+            if (provisioningOutbox) {
+
+                // Enqueue removing the user account.
+                enqueue(ProvisioningRequest.Operation.REMOVE_ACCOUNT, userProfile.getUsername(), null, null);
+
+                return true;
+            }
+
+            // Remove the user account.
+            entryAccountManager.removeAccount(userProfile.getUsername());
+
+            return (isVerified()) ? verified(!entryAccountManager.accountExists(userProfile.getUsername()), "unregister", userProfile.getUsername()) : true;
+        }
+        finally {
+            endWrite(username);
+        }
+    }
+
+    /**
+     * Record the result of a directory write verification.  A failed sampled
+     * verification is logged, since the write was acknowledged without it in
+     * the WRITE acknowledgement mode.
+     *
+     * @param  verified   true if the directory write is verified, otherwise false.
+     * @param  operation  the operation.
+     * @param  username   the username.
+     *
+     * @return  true if the directory write is verified, otherwise false.
+     */
+    private boolean verified(boolean verified, String operation, String username) {
+
+        // Check if the directory write is sampled.
+        if (acknowledgementMode == AcknowledgementMode.WRITE) {
+
+            verificationCount.incrementAndGet();
+
+            // Check if the directory write is not verified.
+            if (!verified) {
+                verificationFailureCount.incrementAndGet();
+                LOGGER.log(Level.WARNING, "The {0} of {1} was acknowledged but not found in the directory.",
+                        new Object[] {operation, username});
+            }
+        }
 
-        return !entryAccountManager.accountExists(userProfile.getUsername());
+        return verified;
     }
 }
@@ -0,0 +1,254 @@
+package org.lazydog.entry.internal.service;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * Buffer of the last login times.
+ *
+ * <p>The logins are recorded in memory and drained periodically to be
+ * written in batches.  Only the newest login time of a user is kept, so a
+ * user logging in many times between two drains costs one write.  The
+ * usernames are hashed onto a fixed number of stripes, each with its own
+ * lock, so logins of users on different stripes are recorded in
+ * parallel.</p>
+ *
+ * @author  Ron Rickard
+ */
+public class LastLoginBuffer {
+
+    private final AtomicLong coalescedCount = new AtomicLong();
+    private final AtomicLong drainedCount = new AtomicLong();
+    private final AtomicLong recordedCount = new AtomicLong();
+    private final Stripe[] stripes;
+
+    /**
+     * Stripe of the buffer.
+     */
+    private static final class Stripe {
+
+        private Map<String, Long> loginTimes = new HashMap<String, Long>();
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param  stripes  the number of stripes, rounded up to a power of two.
+     *
+     * @throws  IllegalArgumentException  if the number of stripes is not positive.
+     */
+    public LastLoginBuffer(int stripes) {
+
+        // Check if the number of stripes is not positive.
+        if (stripes <= 0) {
+            throw new IllegalArgumentException("The number of stripes must be positive.");
+        }
+
+        this.stripes = new Stripe[(stripes == 1) ? 1 : Integer.highestOneBit(stripes - 1) << 1];
+
+        // Create the stripes.
+        for (int index = 0; index < this.stripes.length; index++) {
+            this.stripes[index] = new Stripe();
+        }
+    }
+
+    /**
+     * Drain the buffer.  The buffer is empty afterwards.
+     *
+     * @return  the last login times by username.
+     */
+    public Map<String, Date> drain() {
+
+        // Declare.
+        Map<String, Date> lastLoginTimes;
+
+        // Initialize.
+        lastLoginTimes = new HashMap<String, Date>();
+
+        // Loop through the stripes.
+        for (Stripe stripe : this.stripes) {
+
+            // Declare.
+            Map<String, Long> loginTimes;
+
+            // Replace the login times of the stripe.
+            synchronized (stripe) {
+                loginTimes = stripe.loginTimes;
+                stripe.loginTimes = new HashMap<String, Long>();
+            }
+
+            // Loop through the login times.
+            for (Map.Entry<String, Long> entry : loginTimes.entrySet()) {
+                lastLoginTimes.put(entry.getKey(), new Date(entry.getValue()));
+            }
+        }
+
+        this.drainedCount.addAndGet(lastLoginTimes.size());
+
+        return lastLoginTimes;
+    }
+
+    /**
+     * Get the coalesced count.
+     *
+     * @return  the number of logins replaced by a newer login of the same
+     *          user before they were drained.
+     */
+    public long getCoalescedCount() {
+        return this.coalescedCount.get();
+    }
+
+    /**
+     * Get the drained count.
+     *
+     * @return  the number of last login times drained.
+     */
+    public long getDrainedCount() {
+        return this.drainedCount.get();
+    }
+
+    /**
+     * Get the pending count.
+     *
+     * @return  the number of users with a login that is not drained.
+     */
+    public int getPendingCount() {
+
+        // Declare.
+        int pendingCount;
+
+        // Initialize.
+        pendingCount = 0;
+
+        // Loop through the stripes.
+        for (Stripe stripe : this.stripes) {
+            synchronized (stripe) {
+                pendingCount += stripe.loginTimes.size();
+            }
+        }
+
+        return pendingCount;
+    }
+
+    /**
+     * Get the recorded count.
+     *
+     * @return  the number of logins recorded.
+     */
+    public long getRecordedCount() {
+        return this.recordedCount.get();
+    }
+
+    /**
+     * Record the login of the user.  The login is ignored if a newer login
+     * of the user is in the buffer.
+     *
+     * @param  username   the username.
+     * @param  loginTime  the login time in milliseconds.
+     */
+    public void record(String username, long loginTime) {
+
+        // Declare.
+        Stripe stripe;
+
+        // Get the stripe.
+        stripe = this.stripes[stripe(username)];
+
+        this.recordedCount.incrementAndGet();
+
+        synchronized (stripe) {
+
+            // Declare.
+            Long bufferedLoginTime;
+
+            // Keep the newest login time.
+            bufferedLoginTime = stripe.loginTimes.get(username);
+            if (bufferedLoginTime == null || bufferedLoginTime < loginTime) {
+                stripe.loginTimes.put(username, loginTime);
+            }
+
+            // Check if a login of the user was in the buffer.
+            if (bufferedLoginTime != null) {
+                this.coalescedCount.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Restore the last login times that could not be written.  The newer
+     * logins recorded since they were drained are kept.
+     *
+     * @param  lastLoginTimes  the last login times by username.
+     */
+    public void restore(Map<String, Date> lastLoginTimes) {
+
+        // Loop through the last login times.
+        for (Map.Entry<String, Date> entry : lastLoginTimes.entrySet()) {
+
+            // Declare.
+            Stripe stripe;
+
+            // Get the stripe.
+            stripe = this.stripes[stripe(entry.getKey())];
+
+            synchronized (stripe) {
+
+                // Declare.
+                Long bufferedLoginTime;
+
+                // Keep the newest login time.
+                bufferedLoginTime = stripe.loginTimes.get(entry.getKey());
+                if (bufferedLoginTime == null || bufferedLoginTime < entry.getValue().getTime()) {
+                    stripe.loginTimes.put(entry.getKey(), entry.getValue().getTime());
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the stripe of the username.
+     *
+     * @param  username  the username.
+     *
+     * @return  the stripe index.
+     */
+    private int stripe(String username) {
+
+        // Declare.
+        int hash;
+
+        // Spread the hash code.
+        hash = (username != null) ? username.hashCode() : 0;
+        hash ^= (hash >>> 16);
+
+        return hash & (this.stripes.length - 1);
+    }
+
+    /**
+     * Get the statistics as a string.
+     *
+     * @return  the statistics as a string.
+     */
+    @Override
+    public String toString() {
+
+        // Declare.
+        StringBuilder toString;
+
+        // Initialize.
+        toString = new StringBuilder();
+
+        toString.append("LastLoginBuffer [");
+        toString.append("stripes = ").append(this.stripes.length);
+        toString.append(", recordedCount = ").append(this.getRecordedCount());
+        toString.append(", coalescedCount = ").append(this.getCoalescedCount());
+        toString.append(", drainedCount = ").append(this.getDrainedCount());
+        toString.append(", pendingCount = ").append(this.getPendingCount());
+        toString.append("]");
+
+        return toString.toString();
+    }
+}
@@ -0,0 +1,212 @@
+package org.lazydog.entry.internal.service;
+
+import java.io.UnsupportedEncodingException;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import javax.crypto.Cipher;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+
+/**
+ * Password cipher.
+ *
+ * <p>The passwords waiting in the provisioning outbox are encrypted with
+ * AES in CBC mode and a random initialization vector, so the outbox never
+ * holds a password in clear text.  The encrypted password is the
+ * initialization vector followed by the cipher text, in hexadecimal.  The
+ * key is an AES key of 128, 192 or 256 bits, in hexadecimal.</p>
+ *
+ * @author  Ron Rickard
+ */
+public class PasswordCipher {
+
+    private static final String ALGORITHM = "AES";
+    private static final String CHARSET = "UTF-8";
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+    private static final int IV_LENGTH = 16;
+    private static final String TRANSFORMATION = "AES/CBC/PKCS5Padding";
+    private final SecretKeySpec key;
+    private final SecureRandom random = new SecureRandom();
+
+    /**
+     * Constructor.
+     *
+     * @param  key  the AES key in hexadecimal.
+     *
+     * @throws  IllegalArgumentException  if the key is not an AES key of
+     *                                    128, 192 or 256 bits.
+     */
+    public PasswordCipher(String key) {
+
+        // Declare.
+        byte[] keyBytes;
+
+        // Check if the key is missing.
+        if (key == null) {
+            throw new IllegalArgumentException("The key is required.");
+        }
+
+        // Get the key bytes.
+        keyBytes = fromHex(key);
+
+        // Check if the key length is invalid.
+        if (keyBytes.length != 16 && keyBytes.length != 24 && keyBytes.length != 32) {
+            throw new IllegalArgumentException("The key must be 128, 192 or 256 bits.");
+        }
+
+        this.key = new SecretKeySpec(keyBytes, ALGORITHM);
+    }
+
+    /**
+     * Decrypt the encrypted password.
+     *
+     * @param  encryptedPassword  the encrypted password.
+     *
+     * @return  the password.
+     *
+     * @throws  IllegalArgumentException  if the encrypted password is invalid.
+     * @throws  IllegalStateException     if unable to decrypt the password.
+     */
+    public String decrypt(String encryptedPassword) {
+
+        // Declare.
+        byte[] bytes;
+        Cipher cipher;
+
+        // Get the bytes of the encrypted password.
+        bytes = fromHex(encryptedPassword);
+
+        // Check if the initialization vector is missing.
+        if (bytes.length <= IV_LENGTH) {
+            throw new IllegalArgumentException("The encrypted password is invalid.");
+        }
+
+        try {
+
+            // Decrypt the password.
+            cipher = Cipher.getInstance(TRANSFORMATION);
+            cipher.init(Cipher.DECRYPT_MODE, this.key, new IvParameterSpec(Arrays.copyOf(bytes, IV_LENGTH)));
+
+            return new String(cipher.doFinal(bytes, IV_LENGTH, bytes.length - IV_LENGTH), CHARSET);
+        }
+        catch(GeneralSecurityException e) {
+            throw new IllegalStateException("Unable to decrypt the password.", e);
+        }
+        catch(UnsupportedEncodingException e) {
+            throw new IllegalStateException("Unable to decrypt the password.", e);
+        }
+    }
+
+    /**
+     * Encrypt the password.
+     *
+     * @param  password  the password.
+     *
+     * @return  the encrypted password.
+     *
+     * @throws  IllegalStateException  if unable to encrypt the password.
+     */
+    public String encrypt(String password) {
+
+        // Declare.
+        byte[] bytes;
+        Cipher cipher;
+        byte[] cipherText;
+        byte[] iv;
+
+        // Initialize.
+        iv = new byte[IV_LENGTH];
+        this.random.nextBytes(iv);
+
+        try {
+
+            // Encrypt the password.
+            cipher = Cipher.getInstance(TRANSFORMATION);
+            cipher.init(Cipher.ENCRYPT_MODE, this.key, new IvParameterSpec(iv));
+            cipherText = cipher.doFinal(password.getBytes(CHARSET));
+        }
+        catch(GeneralSecurityException e) {
+            throw new IllegalStateException("Unable to encrypt the password.", e);
+        }
+        catch(UnsupportedEncodingException e) {
+            throw new IllegalStateException("Unable to encrypt the password.", e);
+        }
+
+        // Prepend the initialization vector to the cipher text.
+        bytes = new byte[IV_LENGTH + cipherText.length];
+        System.arraycopy(iv, 0, bytes, 0, IV_LENGTH);
+        System.arraycopy(cipherText, 0, bytes, IV_LENGTH, cipherText.length);
+
+        return toHex(bytes);
+    }
+
+    /**
+     * Get the bytes of the hexadecimal string.
+     *
+     * @param  hex  the hexadecimal string.
+     *
+     * @return  the bytes.
+     *
+     * @throws  IllegalArgumentException  if the string is not hexadecimal.
+     */
+    private static byte[] fromHex(String hex) {
+
+        // Declare.
+        byte[] bytes;
+
+        // Check if the string length is odd.
+        if (hex.length() % 2 != 0) {
+            throw new IllegalArgumentException("The value is not hexadecimal.");
+        }
+
+        // Initialize.
+        bytes = new byte[hex.length() / 2];
+
+        // Loop through the bytes.
+        for (int index = 0; index < bytes.length; index++) {
+
+            // Declare.
+            int high;
+            int low;
+
+            // Get the digits of the byte.
+            high = Character.digit(hex.charAt(index * 2), 16);
+            low = Character.digit(hex.charAt(index * 2 + 1), 16);
+
+            // Check if a digit is not hexadecimal.
+            if (high < 0 || low < 0) {
+                throw new IllegalArgumentException("The value is not hexadecimal.");
+            }
+
+            bytes[index] = (byte)((high << 4) | low);
+        }
+
+        return bytes;
+    }
+
+    /**
+     * Get the bytes as a hexadecimal string.
+     *
+     * @param  bytes  the bytes.
+     *
+     * @return  the hexadecimal string.
+     */
+    private static String toHex(byte[] bytes) {
+
+        // Declare.
+        char[] hex;
+
+        // Initialize.
+        hex = new char[bytes.length * 2];
+
+        // Loop through the bytes.
+        for (int index = 0; index < bytes.length; index++) {
+            hex[index * 2] = HEX_DIGITS[(bytes[index] >> 4) & 0xf];
+            hex[index * 2 + 1] = HEX_DIGITS[bytes[index] & 0xf];
+        }
+
+        return new String(hex);
+    }
+}
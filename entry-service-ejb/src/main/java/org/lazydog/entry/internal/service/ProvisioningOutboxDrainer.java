@@ -0,0 +1,252 @@
+package org.lazydog.entry.internal.service;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import javax.ejb.EJB;
+import javax.ejb.EJBException;
+import javax.ejb.Schedule;
+import javax.ejb.Singleton;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.interceptor.Interceptors;
+import org.lazydog.ejbmonitor.interceptor.EJBMonitor;
+import org.lazydog.entry.model.ProvisioningRequest;
+import org.lazydog.entry.spi.repository.EntryRepository;
+
+/**
+ * Provisioning outbox drainer Enterprise Java Bean.
+ *
+ * <p>The drainer applies the provisioning requests enqueued by the Entry
+ * service to the directory, oldest first.  The drain itself runs without a
+ * transaction; every provisioning request, or every batch of member
+ * additions to a group, is applied and removed from the outbox in its own
+ * transaction by the provisioning request applier.  Every operation is
+ * idempotent, so a request applied to the directory whose removal from the
+ * outbox was rolled back is harmless when it is applied again.  A failed
+ * request is retried with an exponential back-off, recorded in a separate
+ * transaction, and later requests for the same account wait for it, so the
+ * requests for an account are applied in order.  The passwords in the
+ * outbox are decrypted with the provisioning outbox key.</p>
+ *
+ * @author  Ron Rickard
+ */
+@Singleton(name="ejb/ProvisioningOutboxDrainer")
+@Interceptors(EJBMonitor.class)
+public class ProvisioningOutboxDrainer {
+
+    private static final int BATCH_SIZE = 100;
+    private static final int LAST_ERROR_LENGTH = 1024;
+    private static final Logger LOGGER = Logger.getLogger(ProvisioningOutboxDrainer.class.getName());
+    private static final int SEVERE_ATTEMPTS = 10;
+
+    @EJB
+    private EntryRepository entryRepository;
+
+    @Resource(name="EntryServiceEnvironment")
+    private Properties environment;
+
+    @EJB
+    private ProvisioningRequestApplier provisioningRequestApplier;
+
+    private PasswordCipher passwordCipher;
+
+    /**
+     * Add the members of the pending member additions, one membership update
+     * per group.  If the membership update fails, the member additions are
+     * applied one at a time so only the failing ones are retried.
+     *
+     * @param  pendingMembers       the pending member additions by group name.
+     * @param  blockedAccountNames  the account names blocked by a failed request.
+     * @param  now                  the current time.
+     */
+    private void addMembers(Map<String, List<ProvisioningRequest>> pendingMembers, Set<String> blockedAccountNames, Date now) {
+
+        // Loop through the group names.
+        for (Map.Entry<String, List<ProvisioningRequest>> entry : pendingMembers.entrySet()) {
+
+            try {
+                provisioningRequestApplier.addMembers(entry.getKey(), entry.getValue());
+            }
+            catch(RuntimeException e) {
+
+                // Loop through the provisioning requests.
+                for (ProvisioningRequest provisioningRequest : entry.getValue()) {
+                    apply(provisioningRequest, blockedAccountNames, now);
+                }
+            }
+        }
+
+        pendingMembers.clear();
+    }
+
+    /**
+     * Apply the provisioning request.  If the provisioning request fails, it
+     * is scheduled for a retry and its account is blocked.
+     *
+     * @param  provisioningRequest  the provisioning request.
+     * @param  blockedAccountNames  the account names blocked by a failed request.
+     * @param  now                  the current time.
+     */
+    private void apply(ProvisioningRequest provisioningRequest, Set<String> blockedAccountNames, Date now) {
+
+        try {
+            provisioningRequestApplier.apply(provisioningRequest, passwordCipher);
+        }
+        catch(RuntimeException e) {
+            blockedAccountNames.add(provisioningRequest.getAccountName());
+            retry(provisioningRequest, e, now);
+        }
+    }
+
+    /**
+     * Drain the provisioning outbox.
+     */
+    @Schedule(hour="*", minute="*", second="*/10", persistent=false)
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public void drain() {
+
+        // Declare.
+        Set<String> blockedAccountNames;
+        Date now;
+        Set<String> pendingAccountNames;
+        Map<String, List<ProvisioningRequest>> pendingMembers;
+
+        // Initialize.
+        blockedAccountNames = new HashSet<String>();
+        now = new Date();
+        pendingAccountNames = new HashSet<String>();
+        pendingMembers = new LinkedHashMap<String, List<ProvisioningRequest>>();
+
+        // Loop through the oldest provisioning requests that are due.
+        for (ProvisioningRequest provisioningRequest : entryRepository.findProvisioningRequests(now, BATCH_SIZE)) {
+
+            // Declare.
+            String accountName;
+
+            // Get the account name.
+            accountName = provisioningRequest.getAccountName();
+
+            // Check if an earlier request for the account failed.
+            if (blockedAccountNames.contains(accountName)) {
+                continue;
+            }
+
+            // Check if the provisioning request adds a member.
+            if (provisioningRequest.getOperation() == ProvisioningRequest.Operation.ADD_MEMBER) {
+
+                // Defer the member addition to batch it with the others for the group.
+                if (!pendingMembers.containsKey(provisioningRequest.getGroupName())) {
+                    pendingMembers.put(provisioningRequest.getGroupName(), new ArrayList<ProvisioningRequest>());
+                }
+                pendingMembers.get(provisioningRequest.getGroupName()).add(provisioningRequest);
+                pendingAccountNames.add(accountName);
+            }
+            else {
+
+                // Check if a member addition for the account is deferred.
+                if (pendingAccountNames.contains(accountName)) {
+                    addMembers(pendingMembers, blockedAccountNames, now);
+                    pendingAccountNames.clear();
+                }
+
+                // Check if the deferred member addition did not fail.
+                if (!blockedAccountNames.contains(accountName)) {
+                    apply(provisioningRequest, blockedAccountNames, now);
+                }
+            }
+        }
+
+        // Add the deferred members.
+        addMembers(pendingMembers, blockedAccountNames, now);
+    }
+
+    /**
+     * Initialize the password cipher from the provisioning outbox key of the
+     * environment.
+     */
+    @PostConstruct
+    protected void initialize() {
+
+        // Check if the environment exists and has a provisioning outbox key.
+        if (environment != null && environment.getProperty(EntryServiceImpl.PROVISIONING_OUTBOX_KEY) != null) {
+            passwordCipher = new PasswordCipher(environment.getProperty(EntryServiceImpl.PROVISIONING_OUTBOX_KEY));
+        }
+    }
+
+    /**
+     * Schedule the failed provisioning request for a retry in a separate
+     * transaction.
+     *
+     * @param  provisioningRequest  the provisioning request.
+     * @param  exception            the exception.
+     * @param  now                  the current time.
+     */
+    private void retry(ProvisioningRequest provisioningRequest, RuntimeException exception, Date now) {
+
+        // Declare.
+        int attempts;
+        Throwable cause;
+        String lastError;
+
+        // Get the cause unwrapped from the container exceptions.
+        cause = exception;
+        while (cause instanceof EJBException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+
+        // Get the last error.
+        lastError = String.valueOf(cause.getMessage());
+        if (lastError.length() > LAST_ERROR_LENGTH) {
+            lastError = lastError.substring(0, LAST_ERROR_LENGTH);
+        }
+
+        try {
+
+            // Schedule the retry.
+            attempts = provisioningRequestApplier.retry(provisioningRequest.getId(), lastError, now);
+
+            LOGGER.log((attempts >= SEVERE_ATTEMPTS) ? Level.SEVERE : Level.WARNING,
+                    "Unable to apply " + provisioningRequest + ".", cause);
+        }
+        catch(RuntimeException e) {
+            LOGGER.log(Level.SEVERE, "Unable to schedule the retry of " + provisioningRequest + ".", e);
+        }
+    }
+
+    /**
+     * Set the environment.
+     *
+     * @param  environment  the environment.
+     */
+    protected void setEnvironment(Properties environment) {
+        this.environment = environment;
+    }
+
+    /**
+     * Set the Entry repository.
+     *
+     * @param  entryRepository  the Entry repository.
+     */
+    protected void setEntryRepository(EntryRepository entryRepository) {
+        this.entryRepository = entryRepository;
+    }
+
+    /**
+     * Set the provisioning request applier.
+     *
+     * @param  provisioningRequestApplier  the provisioning request applier.
+     */
+    protected void setProvisioningRequestApplier(ProvisioningRequestApplier provisioningRequestApplier) {
+        this.provisioningRequestApplier = provisioningRequestApplier;
+    }
+}
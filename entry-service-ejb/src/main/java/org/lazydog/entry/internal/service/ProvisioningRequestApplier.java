@@ -0,0 +1,196 @@
+package org.lazydog.entry.internal.service;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import javax.ejb.EJB;
+import javax.ejb.LocalBean;
+import javax.ejb.Stateless;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.interceptor.Interceptors;
+import org.lazydog.ejbmonitor.interceptor.EJBMonitor;
+import org.lazydog.entry.model.ProvisioningRequest;
+import org.lazydog.entry.spi.account.manager.EntryAccountManager;
+import org.lazydog.entry.spi.repository.EntryRepository;
+
+
+/**
+ * Provisioning request applier Enterprise Java Bean.
+ *
+ * <p>The provisioning outbox drainer applies every provisioning request,
+ * or every batch of member additions to a group, in its own transaction
+ * through this bean, so a provisioning request applied to the directory
+ * is removed from the outbox as soon as it is applied, and a failure only
+ * rolls back the provisioning request that failed.  A retry is recorded in
+ * its own transaction too, after the failed one is rolled back.</p>
+ *
+ * @author  Ron Rickard
+ */
+@Stateless(name="ejb/ProvisioningRequestApplier")
+@LocalBean
+@Interceptors(EJBMonitor.class)
+public class ProvisioningRequestApplier {
+
+    private static final long MAXIMUM_RETRY_DELAY = 3600000;
+    private static final long RETRY_DELAY = 30000;
+
+    @EJB
+    private EntryRepository entryRepository;
+
+    @EJB
+    private EntryAccountManager entryAccountManager;
+
+    /**
+     * Add the accounts of the member additions to the group with one
+     * membership update and remove the member additions from the
+     * provisioning outbox.
+     *
+     * @param  groupName             the group name.
+     * @param  provisioningRequests  the member additions to the group.
+     */
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public void addMembers(String groupName, List<ProvisioningRequest> provisioningRequests) {
+
+        // Declare.
+        Set<String> accountNames;
+
+        // Initialize.
+        accountNames = new HashSet<String>();
+
+        // Loop through the provisioning requests.
+        for (ProvisioningRequest provisioningRequest : provisioningRequests) {
+
+            // Check if the account is not a member of the group.
+            if (!entryAccountManager.isMember(provisioningRequest.getAccountName(), groupName)) {
+                accountNames.add(provisioningRequest.getAccountName());
+            }
+        }
+
+        // Check if there are accounts to add.
+        if (!accountNames.isEmpty()) {
+            entryAccountManager.addMembers(groupName, accountNames);
+        }
+
+        // Loop through the provisioning requests.
+        for (ProvisioningRequest provisioningRequest : provisioningRequests) {
+            entryRepository.remove(ProvisioningRequest.class, provisioningRequest.getId());
+        }
+    }
+
+    /**
+     * Apply the provisioning request to the directory and remove it from the
+     * provisioning outbox.
+     *
+     * @param  provisioningRequest  the provisioning request.
+     * @param  passwordCipher       the password cipher of the provisioning
+     *                              outbox.
+     */
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public void apply(ProvisioningRequest provisioningRequest, PasswordCipher passwordCipher) {
+
+        // Declare.
+        String accountName;
+
+        // Get the account name.
+        accountName = provisioningRequest.getAccountName();
+
+        // Apply the operation.
+        switch (provisioningRequest.getOperation()) {
+
+            case ADD_MEMBER:
+                if (!entryAccountManager.isMember(accountName, provisioningRequest.getGroupName())) {
+                    entryAccountManager.addMembers(provisioningRequest.getGroupName(), Collections.singleton(accountName));
+                }
+                break;
+
+            case CHANGE_PASSWORD:
+                entryAccountManager.changePassword(accountName, passwordCipher.decrypt(provisioningRequest.getPassword()));
+                break;
+
+            case CREATE_ACCOUNT:
+                if (!entryAccountManager.accountExists(accountName)) {
+                    entryAccountManager.createAccount(accountName, passwordCipher.decrypt(provisioningRequest.getPassword()));
+                }
+                break;
+
+            case LOCK_ACCOUNT:
+                entryAccountManager.lockAccount(accountName);
+                break;
+
+            case REMOVE_ACCOUNT:
+                if (entryAccountManager.accountExists(accountName)) {
+                    entryAccountManager.removeAccount(accountName);
+                }
+                break;
+
+            case UNLOCK_ACCOUNT:
+                entryAccountManager.unlockAccount(accountName);
+                break;
+        }
+
+        // Remove the provisioning request.
+        entryRepository.remove(ProvisioningRequest.class, provisioningRequest.getId());
+    }
+
+    /**
+     * Schedule the failed provisioning request for a retry.  The retry
+     * delay doubles with every attempt up to the maximum retry delay.
+     *
+     * @param  id         the ID of the provisioning request.
+     * @param  lastError  the last error.
+     * @param  now        the current time.
+     *
+     * @return  the number of attempts, or 0 if the provisioning request no
+     *          longer exists.
+     */
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public int retry(Integer id, String lastError, Date now) {
+
+        // Declare.
+        int attempts;
+        ProvisioningRequest provisioningRequest;
+        long retryDelay;
+
+        // Get the provisioning request.
+        provisioningRequest = entryRepository.find(ProvisioningRequest.class, id);
+
+        // Check if the provisioning request no longer exists.
+        if (provisioningRequest == null) {
+            return 0;
+        }
+
+        // Double the retry delay for each attempt up to the maximum retry delay.
+        attempts = provisioningRequest.getAttempts() + 1;
+        retryDelay = Math.min(RETRY_DELAY << Math.min(attempts - 1, 16), MAXIMUM_RETRY_DELAY);
+
+        // Persist the provisioning request.
+        provisioningRequest.setAttempts(attempts);
+        provisioningRequest.setLastError(lastError);
+        provisioningRequest.setModifyTime(now);
+        provisioningRequest.setNextAttemptTime(new Date(now.getTime() + retryDelay));
+        entryRepository.persist(provisioningRequest);
+
+        return attempts;
+    }
+
+    /**
+     * Set the Entry account manager.
+     *
+     * @param  entryAccountManager  the Entry account manager.
+     */
+    protected void setEntryAccountManager(EntryAccountManager entryAccountManager) {
+        this.entryAccountManager = entryAccountManager;
+    }
+
+    /**
+     * Set the Entry repository.
+     *
+     * @param  entryRepository  the Entry repository.
+     */
+    protected void setEntryRepository(EntryRepository entryRepository) {
+        this.entryRepository = entryRepository;
+    }
+}
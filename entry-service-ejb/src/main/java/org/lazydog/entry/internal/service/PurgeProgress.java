@@ -0,0 +1,175 @@
+package org.lazydog.entry.internal.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * Progress of a purge.
+ *
+ * <p>The purge scans the expired entries in chunks.  Every scanned entry is
+ * purged, skipped because it must be kept, or failed and left for the next
+ * purge.  The throughput is the number of entries purged per second since
+ * the purge started.</p>
+ *
+ * @author  Ron Rickard
+ */
+public class PurgeProgress {
+
+    private final AtomicLong chunkCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private final String name;
+    private final AtomicLong purgedCount = new AtomicLong();
+    private final AtomicLong scannedCount = new AtomicLong();
+    private final AtomicLong skippedCount = new AtomicLong();
+    private final long startTime;
+
+    /**
+     * Constructor.
+     *
+     * @param  name  the name of the purge.
+     */
+    public PurgeProgress(String name) {
+        this.name = name;
+        this.startTime = System.currentTimeMillis();
+    }
+
+    /**
+     * Record a scanned chunk.
+     *
+     * @param  size  the number of entries scanned.
+     */
+    public void chunk(int size) {
+        this.chunkCount.incrementAndGet();
+        this.scannedCount.addAndGet(size);
+    }
+
+    /**
+     * Record a failed entry.
+     */
+    public void failed() {
+        this.failedCount.incrementAndGet();
+    }
+
+    /**
+     * Get the chunk count.
+     *
+     * @return  the number of chunks scanned.
+     */
+    public long getChunkCount() {
+        return this.chunkCount.get();
+    }
+
+    /**
+     * Get the elapsed time.
+     *
+     * @return  the time since the purge started in milliseconds.
+     */
+    public long getElapsedTime() {
+        return System.currentTimeMillis() - this.startTime;
+    }
+
+    /**
+     * Get the failed count.
+     *
+     * @return  the number of entries that failed to be purged.
+     */
+    public long getFailedCount() {
+        return this.failedCount.get();
+    }
+
+    /**
+     * Get the purged count.
+     *
+     * @return  the number of entries purged.
+     */
+    public long getPurgedCount() {
+        return this.purgedCount.get();
+    }
+
+    /**
+     * Get the scanned count.
+     *
+     * @return  the number of entries scanned.
+     */
+    public long getScannedCount() {
+        return this.scannedCount.get();
+    }
+
+    /**
+     * Get the skipped count.
+     *
+     * @return  the number of entries skipped.
+     */
+    public long getSkippedCount() {
+        return this.skippedCount.get();
+    }
+
+    /**
+     * Get the start time.
+     *
+     * @return  the time the purge started in milliseconds.
+     */
+    public long getStartTime() {
+        return this.startTime;
+    }
+
+    /**
+     * Get the throughput.
+     *
+     * @return  the number of entries purged per second.
+     */
+    public double getThroughput() {
+
+        // Declare.
+        long elapsedTime;
+
+        // Get the elapsed time.
+        elapsedTime = this.getElapsedTime();
+
+        return (elapsedTime <= 0) ? 0 : this.getPurgedCount() * 1000.0 / elapsedTime;
+    }
+
+    /**
+     * Record purged entries.
+     *
+     * @param  count  the number of entries purged.
+     */
+    public void purged(int count) {
+        this.purgedCount.addAndGet(count);
+    }
+
+    /**
+     * Record a skipped entry.
+     */
+    public void skipped() {
+        this.skippedCount.incrementAndGet();
+    }
+
+    /**
+     * Get the progress as a string.
+     *
+     * @return  the progress as a string.
+     */
+    @Override
+    public String toString() {
+
+        // Declare.
+        StringBuilder toString;
+
+        // Initialize.
+        toString = new StringBuilder();
+
+        toString.append("PurgeProgress [");
+        toString.append("name = ").append(this.name);
+        toString.append(", chunkCount = ").append(this.getChunkCount());
+        toString.append(", scannedCount = ").append(this.getScannedCount());
+        toString.append(", purgedCount = ").append(this.getPurgedCount());
+        toString.append(", skippedCount = ").append(this.getSkippedCount());
+        toString.append(", failedCount = ").append(this.getFailedCount());
+        toString.append(", elapsedTime = ").append(this.getElapsedTime());
+        toString.append(", throughput = ").append(this.getThroughput());
+        toString.append("]");
+
+        return toString.toString();
+    }
+}
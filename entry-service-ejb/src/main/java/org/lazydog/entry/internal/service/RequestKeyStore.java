@@ -0,0 +1,376 @@
+package org.lazydog.entry.internal.service;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.lazydog.entry.AdmissionRejectedException;
+
+
+/**
+ * Request key store.
+ *
+ * <p>The store records the outcome of the requests that carry a
+ * client-supplied request key, so a retried request returns the outcome of
+ * the original request instead of running again.  The first request with a
+ * key runs on its own thread; the requests with the same key arriving while
+ * it is in flight wait for it.  The outcome is only replayed once the
+ * request is completed as committed, at once unless {@link #executed(String)}
+ * is overridden; if the request fails or is rolled back, the key is released
+ * and the next request with it runs again.  A key belongs to the owner of
+ * the request it was first used with.  A request waits for the request in
+ * flight for at most the wait timeout and is then rejected, so the client
+ * retries it later instead of holding a thread.</p>
+ *
+ * <p>The keys are kept in memory on this node only.  They are lost when the
+ * application restarts, and a request retried on another node of a cluster
+ * runs again, so the clients that need the outcome replayed across nodes
+ * must be routed to the same node.</p>
+ *
+ * <p>Only the owner, the outcome and the expiry time are kept for a key.
+ * The outcomes expire after the time to live and the number of keys is
+ * bounded; when the store is full, a committed outcome is evicted before it
+ * expires to make room for a new key.</p>
+ *
+ * @param  <V>  the outcome type.
+ *
+ * @author  Ron Rickard
+ */
+public class RequestKeyStore<V> {
+
+    private final ConcurrentMap<String, Entry<V>> entries = new ConcurrentHashMap<String, Entry<V>>();
+    private final AtomicLong evictedCount = new AtomicLong();
+    private final AtomicLong executedCount = new AtomicLong();
+    private final int maxKeys;
+    private final String name;
+    private final AtomicLong replayedCount = new AtomicLong();
+    private final long timeToLive;
+    private final long waitTimeout;
+
+    /**
+     * Entry of a request key.
+     *
+     * @param  <V>  the outcome type.
+     */
+    private static final class Entry<V> {
+
+        private volatile boolean committed;
+        private final CountDownLatch completed = new CountDownLatch(1);
+        private volatile long expiryTime = Long.MAX_VALUE;
+        private volatile V outcome;
+        private final String owner;
+
+        /**
+         * Constructor.
+         *
+         * @param  owner  the owner of the request.
+         */
+        private Entry(String owner) {
+            this.owner = owner;
+        }
+
+        /**
+         * Wait for the request to complete.
+         *
+         * @param  timeout  the time, in milliseconds, to wait.
+         *
+         * @return  true if the request completed, or false if the wait timed
+         *          out or was interrupted.
+         */
+        private boolean await(long timeout) {
+
+            try {
+                return this.completed.await(timeout, TimeUnit.MILLISECONDS);
+            }
+            catch(InterruptedException e) {
+
+                // Restore the interrupt status.
+                Thread.currentThread().interrupt();
+
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param  name         the name used in the statistics.
+     * @param  maxKeys      the maximum number of keys.
+     * @param  timeToLive   the time, in milliseconds, an outcome is kept.
+     * @param  waitTimeout  the time, in milliseconds, a request waits for
+     *                      the request in flight.
+     *
+     * @throws  IllegalArgumentException  if the maximum number of keys, time
+     *                                    to live or wait timeout is not
+     *                                    positive.
+     */
+    public RequestKeyStore(String name, int maxKeys, long timeToLive, long waitTimeout) {
+
+        // Check if the maximum number of keys, time to live or wait timeout is not positive.
+        if (maxKeys <= 0 || timeToLive <= 0 || waitTimeout <= 0) {
+            throw new IllegalArgumentException("The maximum number of keys, time to live and wait timeout must be positive.");
+        }
+
+        this.maxKeys = maxKeys;
+        this.name = name;
+        this.timeToLive = timeToLive;
+        this.waitTimeout = waitTimeout;
+    }
+
+    /**
+     * Complete the request with the key.  The outcome of a committed request
+     * is replayed until it expires; the key of a request that is not
+     * committed is released.  The requests waiting for it are released
+     * either way.
+     *
+     * @param  key        the key.
+     * @param  committed  true if the request is committed, otherwise false.
+     */
+    public void complete(String key, boolean committed) {
+
+        // Declare.
+        Entry<V> entry;
+
+        // Get the entry of the key.
+        entry = this.entries.get(key);
+
+        // Check if the request is in flight.
+        if (entry != null && entry.completed.getCount() > 0) {
+
+            // Check if the request is committed.
+            if (committed) {
+                entry.expiryTime = System.currentTimeMillis() + this.timeToLive;
+                entry.committed = true;
+            }
+            else {
+                this.entries.remove(key, entry);
+            }
+
+            entry.completed.countDown();
+        }
+    }
+
+    /**
+     * Evict the first committed outcome found to make room for a key.
+     */
+    private void evict() {
+
+        // Loop through the entries.
+        for (Iterator<Map.Entry<String, Entry<V>>> iterator = this.entries.entrySet().iterator(); iterator.hasNext();) {
+
+            // Check if the request is committed.
+            if (iterator.next().getValue().committed) {
+                iterator.remove();
+                this.evictedCount.incrementAndGet();
+                break;
+            }
+        }
+    }
+
+    /**
+     * Execute the request with the key, or replay the outcome of the request
+     * executed with it.
+     *
+     * @param  key        the key.
+     * @param  owner      the owner of the request.
+     * @param  operation  the operation run if the request is not replayed.
+     *
+     * @return  the outcome.
+     *
+     * @throws  AdmissionRejectedException  if the request in flight with
+     *                                       the key did not complete within
+     *                                       the wait timeout, or the wait was
+     *                                       interrupted.
+     * @throws  IllegalArgumentException     if the key belongs to another
+     *                                       owner.
+     * @throws  RuntimeException             if the operation throws a runtime
+     *                                       exception.
+     */
+    public V execute(String key, String owner, Callable<V> operation) {
+
+        // Declare.
+        Entry<V> entry;
+
+        // Initialize.
+        entry = new Entry<V>(owner);
+
+        // Loop until the key is claimed or an outcome is replayed.
+        while (true) {
+
+            // Declare.
+            Entry<V> existingEntry;
+
+            // Claim the key.
+            existingEntry = this.entries.putIfAbsent(key, entry);
+
+            // Check if the key is claimed.
+            if (existingEntry == null) {
+                break;
+            }
+
+            // Check if the outcome expired.
+            if (existingEntry.expiryTime < System.currentTimeMillis()) {
+                this.entries.remove(key, existingEntry);
+                continue;
+            }
+
+            // Check if the key belongs to another owner.
+            if (!existingEntry.owner.equals(owner)) {
+                throw new IllegalArgumentException("The " + this.name + " request key " + key + " belongs to another request.");
+            }
+
+            // Wait for the request in flight.
+            if (!existingEntry.await(this.waitTimeout)) {
+                throw new AdmissionRejectedException(null, AdmissionRejectedException.Reason.REQUEST_IN_FLIGHT, this.waitTimeout,
+                        "The " + this.name + " request with the request key " + key + " is still in flight.");
+            }
+
+            // Check if the request is committed.
+            if (existingEntry.committed) {
+                this.replayedCount.incrementAndGet();
+                return existingEntry.outcome;
+            }
+        }
+
+        // Check if the store is full.
+        if (this.entries.size() > this.maxKeys) {
+
+            // Remove the expired outcomes.
+            removeExpired();
+
+            // Check if the store is still full.
+            if (this.entries.size() > this.maxKeys) {
+                evict();
+            }
+        }
+
+        this.executedCount.incrementAndGet();
+
+        try {
+
+            // Run the operation.
+            entry.outcome = operation.call();
+            executed(key);
+        }
+        catch(RuntimeException e) {
+            complete(key, false);
+            throw e;
+        }
+        catch(Exception e) {
+            complete(key, false);
+            throw new IllegalStateException("The " + this.name + " request failed.", e);
+        }
+        catch(Error e) {
+            complete(key, false);
+            throw e;
+        }
+
+        return entry.outcome;
+    }
+
+    /**
+     * Handle the executed request with the key.  The request is completed as
+     * committed; subclasses override this to complete the request when its
+     * transaction completes instead.
+     *
+     * @param  key  the key.
+     */
+    protected void executed(String key) {
+        complete(key, true);
+    }
+
+    /**
+     * Get the evicted count.
+     *
+     * @return  the number of outcomes evicted before they expired because
+     *          the store was full.
+     */
+    public long getEvictedCount() {
+        return this.evictedCount.get();
+    }
+
+    /**
+     * Get the executed count.
+     *
+     * @return  the number of requests executed.
+     */
+    public long getExecutedCount() {
+        return this.executedCount.get();
+    }
+
+    /**
+     * Get the key count.
+     *
+     * @return  the number of keys in flight or with an outcome.
+     */
+    public int getKeyCount() {
+        return this.entries.size();
+    }
+
+    /**
+     * Get the replayed count.
+     *
+     * @return  the number of requests that replayed an outcome.
+     */
+    public long getReplayedCount() {
+        return this.replayedCount.get();
+    }
+
+    /**
+     * Remove the expired outcomes.
+     *
+     * @return  the number of outcomes removed.
+     */
+    public int removeExpired() {
+
+        // Declare.
+        long now;
+        int removedCount;
+
+        // Initialize.
+        now = System.currentTimeMillis();
+        removedCount = 0;
+
+        // Loop through the entries.
+        for (Iterator<Map.Entry<String, Entry<V>>> iterator = this.entries.entrySet().iterator(); iterator.hasNext();) {
+
+            // Check if the outcome expired.
+            if (iterator.next().getValue().expiryTime < now) {
+                iterator.remove();
+                removedCount++;
+            }
+        }
+
+        return removedCount;
+    }
+
+    /**
+     * Get the statistics as a string.
+     *
+     * @return  the statistics as a string.
+     */
+    @Override
+    public String toString() {
+
+        // Declare.
+        StringBuilder toString;
+
+        // Initialize.
+        toString = new StringBuilder();
+
+        toString.append("RequestKeyStore [");
+        toString.append("name = ").append(this.name);
+        toString.append(", keyCount = ").append(this.getKeyCount());
+        toString.append(", executedCount = ").append(this.getExecutedCount());
+        toString.append(", replayedCount = ").append(this.getReplayedCount());
+        toString.append(", evictedCount = ").append(this.getEvictedCount());
+        toString.append("]");
+
+        return toString.toString();
+    }
+}
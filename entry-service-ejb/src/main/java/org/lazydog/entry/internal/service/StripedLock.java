@@ -0,0 +1,265 @@
+package org.lazydog.entry.internal.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * Striped lock keyed by string.
+ *
+ * <p>Keys are hashed onto a fixed number of reentrant locks (stripes), so
+ * operations on the same key are serialized while operations on keys of
+ * different stripes run in parallel.  Unrelated keys may share a stripe;
+ * more stripes make that less likely.  The time spent waiting for a
+ * stripe is measured.</p>
+ *
+ * <p>A stripe is held by an owner, the current thread by default.  A
+ * transaction may own a stripe instead, so the stripe is held until the
+ * transaction completes and may be unlocked on another thread than the one
+ * that locked it.</p>
+ *
+ * @author  Ron Rickard
+ */
+public class StripedLock {
+
+    private final AtomicLong acquisitionCount = new AtomicLong();
+    private final AtomicLong contentionCount = new AtomicLong();
+    private final Stripe[] stripes;
+    private final AtomicLong maximumWaitTime = new AtomicLong();
+    private final AtomicLong totalWaitTime = new AtomicLong();
+
+    /**
+     * Stripe.
+     */
+    private static class Stripe {
+
+        private int holdCount;
+        private Object owner;
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param  stripes  the number of stripes, rounded up to a power of two.
+     *
+     * @throws  IllegalArgumentException  if the number of stripes is not positive.
+     */
+    public StripedLock(int stripes) {
+
+        // Check if the number of stripes is not positive.
+        if (stripes <= 0) {
+            throw new IllegalArgumentException("The number of stripes must be positive.");
+        }
+
+        this.stripes = new Stripe[(stripes == 1) ? 1 : Integer.highestOneBit(stripes - 1) << 1];
+
+        // Create the stripes.
+        for (int index = 0; index < this.stripes.length; index++) {
+            this.stripes[index] = new Stripe();
+        }
+    }
+
+    /**
+     * Get the acquisition count.
+     *
+     * @return  the number of times a stripe was locked.
+     */
+    public long getAcquisitionCount() {
+        return this.acquisitionCount.get();
+    }
+
+    /**
+     * Get the contention count.
+     *
+     * @return  the number of times a stripe was locked after waiting for it.
+     */
+    public long getContentionCount() {
+        return this.contentionCount.get();
+    }
+
+    /**
+     * Get the maximum wait time.
+     *
+     * @return  the longest wait for a stripe in milliseconds.
+     */
+    public double getMaximumWaitTime() {
+        return this.maximumWaitTime.get() / 1000000.0;
+    }
+
+    /**
+     * Get the number of stripes.
+     *
+     * @return  the number of stripes.
+     */
+    public int getStripes() {
+        return this.stripes.length;
+    }
+
+    /**
+     * Get the total wait time.
+     *
+     * @return  the total wait for the stripes in milliseconds.
+     */
+    public double getTotalWaitTime() {
+        return this.totalWaitTime.get() / 1000000.0;
+    }
+
+    /**
+     * Lock the stripe of the key for the current thread.  The caller must
+     * unlock the key.
+     *
+     * @param  key  the key.
+     */
+    public void lock(String key) {
+        this.lock(key, Thread.currentThread());
+    }
+
+    /**
+     * Lock the stripe of the key for the owner.  The owner must unlock the
+     * key.  The wait for the stripe is not interrupted.
+     *
+     * @param  key    the key.
+     * @param  owner  the owner.
+     */
+    public void lock(String key, Object owner) {
+
+        // Declare.
+        Stripe stripe;
+
+        // Get the stripe.
+        stripe = this.stripes[stripe(key)];
+
+        this.acquisitionCount.incrementAndGet();
+
+        synchronized (stripe) {
+
+            // Check if the stripe is not free.
+            if (stripe.owner != null && !stripe.owner.equals(owner)) {
+
+                // Declare.
+                boolean interrupted;
+                long maximumWaitTime;
+                long startTime;
+                long waitTime;
+
+                // Initialize.
+                interrupted = false;
+
+                // Wait for the stripe.
+                startTime = System.nanoTime();
+                while (stripe.owner != null) {
+                    try {
+                        stripe.wait();
+                    }
+                    catch(InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+                waitTime = System.nanoTime() - startTime;
+
+                // Restore the interrupt.
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+
+                // Record the wait time.
+                this.contentionCount.incrementAndGet();
+                this.totalWaitTime.addAndGet(waitTime);
+                do {
+                    maximumWaitTime = this.maximumWaitTime.get();
+                }
+                while (waitTime > maximumWaitTime && !this.maximumWaitTime.compareAndSet(maximumWaitTime, waitTime));
+            }
+
+            stripe.owner = owner;
+            stripe.holdCount++;
+        }
+    }
+
+    /**
+     * Get the stripe index of the key.
+     *
+     * @param  key  the key.
+     *
+     * @return  the stripe index.
+     */
+    private int stripe(String key) {
+
+        // Declare.
+        int hash;
+
+        // Spread the hash code.
+        hash = (key != null) ? key.hashCode() : 0;
+        hash ^= (hash >>> 16);
+
+        return hash & (this.stripes.length - 1);
+    }
+
+    /**
+     * Get the statistics as a string.
+     *
+     * @return  the statistics as a string.
+     */
+    @Override
+    public String toString() {
+
+        // Declare.
+        StringBuilder toString;
+
+        // Initialize.
+        toString = new StringBuilder();
+
+        toString.append("StripedLock [");
+        toString.append("stripes = ").append(this.getStripes());
+        toString.append(", acquisitionCount = ").append(this.getAcquisitionCount());
+        toString.append(", contentionCount = ").append(this.getContentionCount());
+        toString.append(", totalWaitTime = ").append(this.getTotalWaitTime());
+        toString.append(", maximumWaitTime = ").append(this.getMaximumWaitTime());
+        toString.append("]");
+
+        return toString.toString();
+    }
+
+    /**
+     * Unlock the stripe of the key for the current thread.
+     *
+     * @param  key  the key.
+     *
+     * @throws  IllegalMonitorStateException  if the current thread does not
+     *                                        hold the stripe.
+     */
+    public void unlock(String key) {
+        this.unlock(key, Thread.currentThread());
+    }
+
+    /**
+     * Unlock the stripe of the key for the owner.
+     *
+     * @param  key    the key.
+     * @param  owner  the owner.
+     *
+     * @throws  IllegalMonitorStateException  if the owner does not hold the
+     *                                        stripe.
+     */
+    public void unlock(String key, Object owner) {
+
+        // Declare.
+        Stripe stripe;
+
+        // Get the stripe.
+        stripe = this.stripes[stripe(key)];
+
+        synchronized (stripe) {
+
+            // Check if the owner does not hold the stripe.
+            if (stripe.owner == null || !stripe.owner.equals(owner)) {
+                throw new IllegalMonitorStateException("The stripe is not held by " + owner + ".");
+            }
+
+            // Check if the stripe is released.
+            if (--stripe.holdCount == 0) {
+                stripe.owner = null;
+                stripe.notifyAll();
+            }
+        }
+    }
+}
@@ -0,0 +1,538 @@
+package org.lazydog.entry.internal.service;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import org.lazydog.entry.model.UserProfile;
+
+
+/**
+ * Bounded user profile cache, indexed by username and by UUID.
+ *
+ * <p>The cache holds copies of the user profiles, so callers can never
+ * change a cached user profile.  When the cache is full, the least recently
+ * used user profile is the eviction candidate.  With the LRU eviction policy
+ * the candidate is always evicted.  With the FREQUENCY eviction policy a new
+ * user profile is only admitted if it has been requested more often than
+ * the candidate, so a burst of one-time lookups cannot flush the user
+ * profiles that are read over and over.  The request frequencies are kept in
+ * a small count-min sketch that is halved periodically, so old popularity
+ * fades.</p>
+ *
+ * <p>A cached user profile expires after the time to live, so a stale
+ * user profile an invalidation missed is not served forever.</p>
+ *
+ * <p>A user profile read from the repository while the cache is being
+ * invalidated may be stale, so it can be put with the invalidation count
+ * taken before the read; it is not cached if an invalidation happened
+ * since.</p>
+ *
+ * @author  Ron Rickard
+ */
+public class UserProfileCache {
+
+    /**
+     * Eviction policy.
+     */
+    public enum EvictionPolicy {
+        FREQUENCY,
+        LRU;
+    }
+
+    private static final int[] SEEDS = {0x9e3779b9, 0x85ebca6b, 0xc2b2ae35, 0x27d4eb2f};
+    private static final int MAXIMUM_FREQUENCY = 15;
+    private final int capacity;
+    private final EvictionPolicy evictionPolicy;
+    private final AtomicLong evictionCount = new AtomicLong();
+    private final AtomicLong expirationCount = new AtomicLong();
+    private final int[] frequencies;
+    private final AtomicLong hitCount = new AtomicLong();
+    private long invalidationCount;
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong rejectionCount = new AtomicLong();
+    private final int sampleSize;
+    private int sampleCount;
+    private final long timeToLive;
+    private final Map<String, CachedUserProfile> userProfiles;
+    private final Map<String, String> usernames;
+
+    /**
+     * Constructor.
+     *
+     * @param  capacity        the maximum number of cached user profiles.
+     * @param  evictionPolicy  the eviction policy.
+     * @param  timeToLive      the time to live of a cached user profile in
+     *                         milliseconds.
+     *
+     * @throws  IllegalArgumentException  if the capacity or time to live is
+     *                                    not positive or the eviction policy
+     *                                    is null.
+     */
+    public UserProfileCache(int capacity, EvictionPolicy evictionPolicy, long timeToLive) {
+
+        // Check if the capacity is not positive.
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("The capacity must be positive.");
+        }
+
+        // Check if the eviction policy is null.
+        if (evictionPolicy == null) {
+            throw new IllegalArgumentException("The eviction policy is required.");
+        }
+
+        // Check if the time to live is not positive.
+        if (timeToLive <= 0) {
+            throw new IllegalArgumentException("The time to live must be positive.");
+        }
+
+        this.capacity = capacity;
+        this.evictionPolicy = evictionPolicy;
+        this.frequencies = new int[Integer.highestOneBit(Math.max(16, capacity * 4) - 1) << 1];
+        this.sampleSize = capacity * 10;
+        this.timeToLive = timeToLive;
+        this.userProfiles = new LinkedHashMap<String, CachedUserProfile>(16, 0.75f, true);
+        this.usernames = new HashMap<String, String>();
+    }
+
+    /**
+     * Clear the cache.  The statistics are kept.
+     */
+    public synchronized void clear() {
+        this.userProfiles.clear();
+        this.usernames.clear();
+    }
+
+    /**
+     * Get the frequency of the key.
+     *
+     * @param  key  the key.
+     *
+     * @return  the frequency.
+     */
+    private int frequency(String key) {
+
+        // Declare.
+        int frequency;
+
+        // Initialize.
+        frequency = MAXIMUM_FREQUENCY;
+
+        // Loop through the seeds.
+        for (int seed : SEEDS) {
+            frequency = Math.min(frequency, this.frequencies[index(key, seed)]);
+        }
+
+        return frequency;
+    }
+
+    /**
+     * Get the cached user profile for the username.
+     *
+     * @param  username  the username.
+     *
+     * @return  a copy of the cached user profile, or null if the user profile
+     *          is not cached.
+     */
+    public synchronized UserProfile get(String username) {
+
+        // Declare.
+        CachedUserProfile cachedUserProfile;
+
+        // Record the request and get the user profile.
+        increment(username);
+        cachedUserProfile = unexpired(this.userProfiles.get(username));
+
+        return hitOrMiss(cachedUserProfile);
+    }
+
+    /**
+     * Get the cached user profile for the UUID.
+     *
+     * @param  uuid  the UUID.
+     *
+     * @return  a copy of the cached user profile, or null if the user profile
+     *          is not cached.
+     */
+    public synchronized UserProfile getByUuid(String uuid) {
+
+        // Declare.
+        CachedUserProfile cachedUserProfile;
+        String username;
+
+        // Initialize.
+        cachedUserProfile = null;
+
+        // Get the username for the UUID.
+        username = this.usernames.get(uuid);
+
+        // Check if the username exists.
+        if (username != null) {
+
+            // Record the request and get the user profile.
+            increment(username);
+            cachedUserProfile = unexpired(this.userProfiles.get(username));
+        }
+
+        return hitOrMiss(cachedUserProfile);
+    }
+
+    /**
+     * Get the capacity.
+     *
+     * @return  the capacity.
+     */
+    public int getCapacity() {
+        return this.capacity;
+    }
+
+    /**
+     * Get the eviction count.
+     *
+     * @return  the number of user profiles evicted to make room.
+     */
+    public long getEvictionCount() {
+        return this.evictionCount.get();
+    }
+
+    /**
+     * Get the eviction policy.
+     *
+     * @return  the eviction policy.
+     */
+    public EvictionPolicy getEvictionPolicy() {
+        return this.evictionPolicy;
+    }
+
+    /**
+     * Get the expiration count.
+     *
+     * @return  the number of user profiles expired.
+     */
+    public long getExpirationCount() {
+        return this.expirationCount.get();
+    }
+
+    /**
+     * Get the hit count.
+     *
+     * @return  the number of requests served from the cache.
+     */
+    public long getHitCount() {
+        return this.hitCount.get();
+    }
+
+    /**
+     * Get the hit rate.
+     *
+     * @return  the ratio of hits to requests, or 0 if there are no requests.
+     */
+    public double getHitRate() {
+
+        // Declare.
+        long hitCount;
+        long requestCount;
+
+        // Get the hit count and request count.
+        hitCount = this.hitCount.get();
+        requestCount = hitCount + this.missCount.get();
+
+        return (requestCount == 0) ? 0 : (double)hitCount / requestCount;
+    }
+
+    /**
+     * Get the invalidation count.
+     *
+     * @return  the number of invalidations.
+     */
+    public synchronized long getInvalidationCount() {
+        return this.invalidationCount;
+    }
+
+    /**
+     * Get the miss count.
+     *
+     * @return  the number of requests not served from the cache.
+     */
+    public long getMissCount() {
+        return this.missCount.get();
+    }
+
+    /**
+     * Get the rejection count.
+     *
+     * @return  the number of user profiles not admitted by the FREQUENCY
+     *          eviction policy.
+     */
+    public long getRejectionCount() {
+        return this.rejectionCount.get();
+    }
+
+    /**
+     * Get the time to live.
+     *
+     * @return  the time to live of a cached user profile in milliseconds.
+     */
+    public long getTimeToLive() {
+        return this.timeToLive;
+    }
+
+    /**
+     * Record a hit or a miss for the user profile.
+     *
+     * @param  cachedUserProfile  the cached user profile, or null.
+     *
+     * @return  a copy of the cached user profile, or null.
+     */
+    private UserProfile hitOrMiss(CachedUserProfile cachedUserProfile) {
+
+        // Check if the user profile is cached.
+        if (cachedUserProfile != null) {
+            this.hitCount.incrementAndGet();
+        }
+        else {
+            this.missCount.incrementAndGet();
+        }
+
+        return (cachedUserProfile != null) ? cachedUserProfile.userProfile.copy() : null;
+    }
+
+    /**
+     * Increment the frequency of the key.  The frequencies are halved once
+     * the sample size is reached.
+     *
+     * @param  key  the key.
+     */
+    private void increment(String key) {
+
+        // Check if the frequencies are used.
+        if (this.evictionPolicy == EvictionPolicy.FREQUENCY && key != null) {
+
+            // Loop through the seeds.
+            for (int seed : SEEDS) {
+
+                // Declare.
+                int index;
+
+                // Increment the frequency up to the maximum frequency.
+                index = index(key, seed);
+                if (this.frequencies[index] < MAXIMUM_FREQUENCY) {
+                    this.frequencies[index]++;
+                }
+            }
+
+            // Check if the sample size is reached.
+            if (++this.sampleCount >= this.sampleSize) {
+
+                // Halve the frequencies.
+                for (int index = 0; index < this.frequencies.length; index++) {
+                    this.frequencies[index] >>>= 1;
+                }
+                this.sampleCount /= 2;
+            }
+        }
+    }
+
+    /**
+     * Get the frequency index of the key for the seed.
+     *
+     * @param  key   the key.
+     * @param  seed  the seed.
+     *
+     * @return  the frequency index.
+     */
+    private int index(String key, int seed) {
+
+        // Declare.
+        int hash;
+
+        // Spread the hash code with the seed.
+        hash = key.hashCode() * seed;
+        hash ^= hash >>> 16;
+
+        return hash & (this.frequencies.length - 1);
+    }
+
+    /**
+     * Invalidate the cached user profile for the username.
+     *
+     * @param  username  the username.
+     */
+    public synchronized void invalidate(String username) {
+        this.invalidationCount++;
+        remove(username);
+    }
+
+    /**
+     * Put the user profile in the cache, if the eviction policy admits it.
+     *
+     * @param  userProfile  the user profile.
+     *
+     * @return  true if the user profile is cached, otherwise false.
+     */
+    public synchronized boolean put(UserProfile userProfile) {
+        return put(userProfile, this.invalidationCount);
+    }
+
+    /**
+     * Put the user profile in the cache, if no invalidation happened since
+     * the invalidation count was taken and the eviction policy admits it.
+     *
+     * @param  userProfile         the user profile.
+     * @param  invalidationCount   the invalidation count taken before the
+     *                             user profile was read.
+     *
+     * @return  true if the user profile is cached, otherwise false.
+     */
+    public synchronized boolean put(UserProfile userProfile, long invalidationCount) {
+
+        // Declare.
+        boolean cached;
+        String username;
+
+        // Check if an invalidation happened since the user profile was read.
+        if (invalidationCount != this.invalidationCount) {
+            return false;
+        }
+
+        // Initialize.
+        cached = true;
+        username = userProfile.getUsername();
+
+        // Remove the existing user profile.
+        remove(username);
+
+        // Check if the cache is full.
+        if (this.userProfiles.size() >= this.capacity) {
+
+            // Declare.
+            Iterator<Map.Entry<String, CachedUserProfile>> iterator;
+            Map.Entry<String, CachedUserProfile> victim;
+
+            // Get the least recently used user profile.
+            iterator = this.userProfiles.entrySet().iterator();
+            victim = iterator.next();
+
+            // Check if the user profile is requested less often than the victim.
+            if (this.evictionPolicy == EvictionPolicy.FREQUENCY
+                    && frequency(username) <= frequency(victim.getKey())) {
+                this.rejectionCount.incrementAndGet();
+                cached = false;
+            }
+            else {
+
+                // Evict the victim.
+                iterator.remove();
+                this.usernames.remove(victim.getValue().userProfile.getUuid());
+                this.evictionCount.incrementAndGet();
+            }
+        }
+
+        // Check if the user profile is admitted.
+        if (cached) {
+            this.userProfiles.put(username, new CachedUserProfile(userProfile.copy(), System.currentTimeMillis() + this.timeToLive));
+            if (userProfile.getUuid() != null) {
+                this.usernames.put(userProfile.getUuid(), username);
+            }
+        }
+
+        return cached;
+    }
+
+    /**
+     * Remove the cached user profile for the username.
+     *
+     * @param  username  the username.
+     */
+    private void remove(String username) {
+
+        // Declare.
+        CachedUserProfile cachedUserProfile;
+
+        // Remove the user profile.
+        cachedUserProfile = this.userProfiles.remove(username);
+
+        // Check if the user profile was cached.
+        if (cachedUserProfile != null) {
+            this.usernames.remove(cachedUserProfile.userProfile.getUuid());
+        }
+    }
+
+    /**
+     * Get the number of cached user profiles.
+     *
+     * @return  the number of cached user profiles.
+     */
+    public synchronized int size() {
+        return this.userProfiles.size();
+    }
+
+    /**
+     * Get the statistics as a string.
+     *
+     * @return  the statistics as a string.
+     */
+    @Override
+    public String toString() {
+
+        // Declare.
+        StringBuilder toString;
+
+        // Initialize.
+        toString = new StringBuilder();
+
+        toString.append("UserProfileCache [");
+        toString.append("evictionPolicy = ").append(this.evictionPolicy);
+        toString.append(", capacity = ").append(this.capacity);
+        toString.append(", size = ").append(this.size());
+        toString.append(", hitCount = ").append(this.getHitCount());
+        toString.append(", missCount = ").append(this.getMissCount());
+        toString.append(", hitRate = ").append(this.getHitRate());
+        toString.append(", evictionCount = ").append(this.getEvictionCount());
+        toString.append(", expirationCount = ").append(this.getExpirationCount());
+        toString.append(", rejectionCount = ").append(this.getRejectionCount());
+        toString.append("]");
+
+        return toString.toString();
+    }
+
+    /**
+     * Remove the cached user profile if it is expired.
+     *
+     * @param  cachedUserProfile  the cached user profile, or null.
+     *
+     * @return  the cached user profile, or null if it is expired.
+     */
+    private CachedUserProfile unexpired(CachedUserProfile cachedUserProfile) {
+
+        // Check if the cached user profile is expired.
+        if (cachedUserProfile != null && cachedUserProfile.expiryTime <= System.currentTimeMillis()) {
+            remove(cachedUserProfile.userProfile.getUsername());
+            this.expirationCount.incrementAndGet();
+            cachedUserProfile = null;
+        }
+
+        return cachedUserProfile;
+    }
+
+    /**
+     * Cached user profile.
+     */
+    private static class CachedUserProfile {
+
+        private final long expiryTime;
+        private final UserProfile userProfile;
+
+        /**
+         * Constructor.
+         *
+         * @param  userProfile  the user profile.
+         * @param  expiryTime   the expiry time.
+         */
+        public CachedUserProfile(UserProfile userProfile, long expiryTime) {
+            this.expiryTime = expiryTime;
+            this.userProfile = userProfile;
+        }
+    }
+}
@@ -0,0 +1,286 @@
+package org.lazydog.entry.internal.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+
+/**
+ * Bloom filter of the registered usernames.
+ *
+ * <p>A username that is not in the filter is definitely not registered.  A
+ * username that is in the filter may be registered; the filter is sized so
+ * this is wrong for about the configured fraction of the unregistered
+ * usernames.  Usernames cannot be removed, so the filter is rebuilt
+ * periodically to drop unregistered usernames.  Usernames are compared
+ * ignoring case, like the directory and the repository compare them, so a
+ * username differing from a registered one only in case is not reported
+ * as available.  Adding and checking usernames never locks.</p>
+ *
+ * @author  Ron Rickard
+ */
+public class UsernameBloomFilter {
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    private final AtomicLongArray bits;
+    private final int bitCount;
+    private final AtomicLong falsePositiveCount = new AtomicLong();
+    private final int hashCount;
+    private final AtomicLong negativeCount = new AtomicLong();
+    private final AtomicLong usernameCount = new AtomicLong();
+
+    /**
+     * Constructor.
+     *
+     * @param  expectedUsernames  the expected number of usernames.
+     * @param  falsePositiveRate  the target false positive rate, between 0 and 1.
+     *
+     * @throws  IllegalArgumentException  if the expected number of usernames
+     *                                    is not positive or the false positive
+     *                                    rate is not between 0 and 1.
+     */
+    public UsernameBloomFilter(int expectedUsernames, double falsePositiveRate) {
+
+        // Check if the expected number of usernames is not positive.
+        if (expectedUsernames <= 0) {
+            throw new IllegalArgumentException("The expected number of usernames must be positive.");
+        }
+
+        // Check if the false positive rate is not between 0 and 1.
+        if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("The false positive rate must be between 0 and 1.");
+        }
+
+        // Size the filter for the expected number of usernames and the false positive rate.
+        this.bitCount = (int)Math.min(Integer.MAX_VALUE - 63,
+                Math.max(64, Math.ceil(-expectedUsernames * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)))));
+        this.hashCount = (int)Math.max(1, Math.round((double)this.bitCount / expectedUsernames * Math.log(2)));
+        this.bits = new AtomicLongArray((this.bitCount + 63) / 64);
+    }
+
+    /**
+     * Get the bit of the hash function.
+     *
+     * @param  hash   the hash of the username.
+     * @param  index  the index of the hash function.
+     *
+     * @return  the bit.
+     */
+    private int bit(long hash, int index) {
+        return (((int)hash + index * (int)(hash >>> 32)) & Integer.MAX_VALUE) % this.bitCount;
+    }
+
+    /**
+     * Check if the username might be registered.  The check is not counted
+     * as a negative.
+     *
+     * @param  username  the username.
+     *
+     * @return  true if the username might be registered, false if it is
+     *          definitely not registered.
+     */
+    private boolean contains(String username) {
+
+        // Declare.
+        long hash;
+
+        // Get the hash of the username.
+        hash = hash(username);
+
+        // Loop through the hash functions.
+        for (int index = 1; index <= this.hashCount; index++) {
+
+            // Declare.
+            int bit;
+
+            // Get the bit of the hash function.
+            bit = bit(hash, index);
+
+            // Check if the bit is not set.
+            if ((this.bits.get(bit >>> 6) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Get the bit count.
+     *
+     * @return  the number of bits.
+     */
+    public int getBitCount() {
+        return this.bitCount;
+    }
+
+    /**
+     * Get the expected false positive rate for the number of usernames added.
+     *
+     * @return  the expected false positive rate.
+     */
+    public double getExpectedFalsePositiveRate() {
+        return Math.pow(1 - Math.exp(-(double)this.hashCount * this.usernameCount.get() / this.bitCount), this.hashCount);
+    }
+
+    /**
+     * Get the false positive count.
+     *
+     * @return  the number of usernames reported as false positives.
+     */
+    public long getFalsePositiveCount() {
+        return this.falsePositiveCount.get();
+    }
+
+    /**
+     * Get the observed false positive rate.
+     *
+     * @return  the ratio of false positives to the checked usernames that
+     *          are not registered, or 0 if there are none.
+     */
+    public double getFalsePositiveRate() {
+
+        // Declare.
+        long falsePositiveCount;
+        long negativeCount;
+
+        // Get the false positive count and negative count.
+        falsePositiveCount = this.falsePositiveCount.get();
+        negativeCount = this.negativeCount.get() + falsePositiveCount;
+
+        return (negativeCount == 0) ? 0 : (double)falsePositiveCount / negativeCount;
+    }
+
+    /**
+     * Get the hash count.
+     *
+     * @return  the number of hash functions.
+     */
+    public int getHashCount() {
+        return this.hashCount;
+    }
+
+    /**
+     * Get the username count.
+     *
+     * @return  the number of usernames added.
+     */
+    public long getUsernameCount() {
+        return this.usernameCount.get();
+    }
+
+    /**
+     * Get the 64-bit FNV-1a hash of the lower case username.
+     *
+     * @param  username  the username.
+     *
+     * @return  the hash.
+     */
+    private static long hash(String username) {
+
+        // Declare.
+        long hash;
+
+        // Initialize.
+        hash = FNV_OFFSET_BASIS;
+
+        // Loop through the characters.
+        for (int index = 0; index < username.length(); index++) {
+            hash ^= Character.toLowerCase(username.charAt(index));
+            hash *= FNV_PRIME;
+        }
+
+        return hash;
+    }
+
+    /**
+     * Check if the username might be registered.
+     *
+     * @param  username  the username.
+     *
+     * @return  true if the username might be registered, false if it is
+     *          definitely not registered.
+     */
+    public boolean mightContain(String username) {
+
+        // Declare.
+        boolean mightContain;
+
+        // Check if the username might be registered.
+        mightContain = contains(username);
+        if (!mightContain) {
+            this.negativeCount.incrementAndGet();
+        }
+
+        return mightContain;
+    }
+
+    /**
+     * Add the username.
+     *
+     * @param  username  the username.
+     */
+    public void put(String username) {
+
+        // Declare.
+        long hash;
+
+        // Get the hash of the username.
+        hash = hash(username);
+
+        // Loop through the hash functions.
+        for (int index = 1; index <= this.hashCount; index++) {
+
+            // Declare.
+            int bit;
+            long mask;
+            long word;
+
+            // Get the bit of the hash function.
+            bit = bit(hash, index);
+            mask = 1L << bit;
+
+            // Set the bit.
+            do {
+                word = this.bits.get(bit >>> 6);
+            }
+            while ((word & mask) == 0 && !this.bits.compareAndSet(bit >>> 6, word, word | mask));
+        }
+
+        this.usernameCount.incrementAndGet();
+    }
+
+    /**
+     * Record a username the filter reported as possibly registered that is
+     * not registered.
+     */
+    public void recordFalsePositive() {
+        this.falsePositiveCount.incrementAndGet();
+    }
+
+    /**
+     * Get the statistics as a string.
+     *
+     * @return  the statistics as a string.
+     */
+    @Override
+    public String toString() {
+
+        // Declare.
+        StringBuilder toString;
+
+        // Initialize.
+        toString = new StringBuilder();
+
+        toString.append("UsernameBloomFilter [");
+        toString.append("bitCount = ").append(this.getBitCount());
+        toString.append(", hashCount = ").append(this.getHashCount());
+        toString.append(", usernameCount = ").append(this.getUsernameCount());
+        toString.append(", expectedFalsePositiveRate = ").append(this.getExpectedFalsePositiveRate());
+        toString.append(", falsePositiveRate = ").append(this.getFalsePositiveRate());
+        toString.append(", falsePositiveCount = ").append(this.getFalsePositiveCount());
+        toString.append("]");
+
+        return toString.toString();
+    }
+}
@@ -0,0 +1,104 @@
+package org.lazydog.entry.internal.service;
+
+import org.lazydog.entry.AdmissionRejectedException;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+
+/**
+ * Unit tests for AdmissionController class.
+ *
+ * @author  Ron Rickard
+ */
+public class AdmissionControllerTest {
+
+    @Test
+    public void admit() {
+        AdmissionController admissionController = new AdmissionController(0, 0, 2, 0, 0);
+
+        admissionController.admit("testapp1", 1);
+        admissionController.admit("testapp1", 1);
+        admissionController.release();
+        admissionController.admit("testapp1", 1);
+        assertEquals(3, admissionController.getAdmittedCount());
+    }
+
+    @Test
+    public void admitQueueFull() {
+        AdmissionController admissionController = new AdmissionController(0, 0, 1, 0, 0);
+
+        admissionController.admit("testapp1", 1);
+        try {
+            admissionController.admit("testapp1", 1);
+            fail();
+        }
+        catch(AdmissionRejectedException e) {
+            assertEquals(AdmissionRejectedException.Reason.QUEUE_FULL, e.getReason());
+        }
+        assertEquals(1, admissionController.getQueueFullCount());
+    }
+
+    @Test
+    public void admitQueueTimeout() {
+        AdmissionController admissionController = new AdmissionController(0, 0, 1, 1, 50);
+
+        admissionController.admit("testapp1", 1);
+        try {
+            admissionController.admit("testapp1", 1);
+            fail();
+        }
+        catch(AdmissionRejectedException e) {
+            assertEquals(AdmissionRejectedException.Reason.QUEUE_TIMEOUT, e.getReason());
+        }
+        assertEquals(1, admissionController.getQueueTimeoutCount());
+    }
+
+    @Test
+    public void admitRateLimited() {
+        AdmissionController admissionController = new AdmissionController(1, 2, 10, 0, 0);
+
+        admissionController.admit("testapp1", 1);
+        admissionController.admit("testapp1", 1);
+        try {
+            admissionController.admit("testapp1", 1);
+            fail();
+        }
+        catch(AdmissionRejectedException e) {
+            assertEquals(AdmissionRejectedException.Reason.RATE_LIMITED, e.getReason());
+            assertEquals("testapp1", e.getApplicationId());
+            assertTrue(e.getRetryAfter() > 0 && e.getRetryAfter() <= 1000);
+        }
+        admissionController.admit("testapp2", 1);
+        assertEquals(1, admissionController.getRateLimitedCount());
+    }
+
+    @Test
+    public void admitBatch() {
+        AdmissionController admissionController = new AdmissionController(1, 2, 10, 0, 0);
+
+        admissionController.admit("testapp1", 100);
+        try {
+            admissionController.admit("testapp1", 1);
+            fail();
+        }
+        catch(AdmissionRejectedException e) {
+            assertTrue(e.getRetryAfter() > 90000);
+        }
+    }
+
+    @Test
+    public void setLimit() {
+        AdmissionController admissionController = new AdmissionController(1, 1, 10, 0, 0);
+
+        admissionController.admit("testapp1", 1);
+        admissionController.setLimit("testapp1", 0, 0);
+        admissionController.admit("testapp1", 1);
+        admissionController.admit("testapp1", 1);
+        assertEquals(0, admissionController.getRateLimitedCount());
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void setLimitInvalid() {
+        new AdmissionController(0, 0, 10, 0, 0).setLimit("testapp1", 1, 0);
+    }
+}
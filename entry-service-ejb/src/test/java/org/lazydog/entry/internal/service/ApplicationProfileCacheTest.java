@@ -0,0 +1,89 @@
+package org.lazydog.entry.internal.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+import org.lazydog.entry.model.ApplicationProfile;
+import org.lazydog.entry.model.AuthenticationModule;
+
+
+/**
+ * Unit tests for ApplicationProfileCache class.
+ *
+ * @author  Ron Rickard
+ */
+public class ApplicationProfileCacheTest {
+
+    private ApplicationProfileCache cache;
+
+    @Before
+    public void beforeTest() {
+        cache = new ApplicationProfileCache();
+    }
+
+    private static ApplicationProfile applicationProfile(String applicationId, String defaultGroupName) {
+        AuthenticationModule authenticationModule = AuthenticationModule.newInstance();
+        authenticationModule.setClassName("org.lazydog.test.TestLoginModule");
+        ApplicationProfile applicationProfile = ApplicationProfile.newInstance();
+        applicationProfile.setApplicationId(applicationId);
+        applicationProfile.setAuthenticationModule(authenticationModule);
+        applicationProfile.setDefaultGroupName(defaultGroupName);
+        applicationProfile.setRegistrationURL("http://localhost/" + applicationId);
+        return applicationProfile;
+    }
+
+    @Test
+    public void get() {
+        cache.put(applicationProfile("testapp1", "testgroup1"));
+        assertEquals("testgroup1", cache.get("testapp1").getDefaultGroupName());
+        assertEquals("org.lazydog.test.TestLoginModule", cache.get("testapp1").getAuthenticationModuleClassName());
+        assertEquals("http://localhost/testapp1", cache.get("testapp1").getRegistrationURL());
+        assertNull(cache.get("testapp2"));
+    }
+
+    @Test
+    public void getSnapshot() {
+        ApplicationProfile applicationProfile = applicationProfile("testapp1", "testgroup1");
+        cache.put(applicationProfile);
+        applicationProfile.setDefaultGroupName("testgroup2");
+        assertEquals("testgroup1", cache.get("testapp1").getDefaultGroupName());
+    }
+
+    @Test
+    public void replaceAll() {
+        List<ApplicationProfile> applicationProfiles = new ArrayList<ApplicationProfile>();
+        applicationProfiles.add(applicationProfile("testapp2", "testgroup2"));
+        applicationProfiles.add(applicationProfile("testapp3", "testgroup3"));
+
+        cache.put(applicationProfile("testapp1", "testgroup1"));
+        assertTrue(cache.replaceAll(applicationProfiles));
+        assertNull(cache.get("testapp1"));
+        assertEquals("testgroup2", cache.get("testapp2").getDefaultGroupName());
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void replaceAllUnchanged() {
+        List<ApplicationProfile> applicationProfiles = new ArrayList<ApplicationProfile>();
+        applicationProfiles.add(applicationProfile("testapp1", "testgroup1"));
+        applicationProfiles.add(applicationProfile("testapp2", "testgroup2"));
+
+        assertTrue(cache.replaceAll(applicationProfiles));
+        ApplicationProfileCache.Snapshot snapshot = cache.get("testapp1");
+        assertFalse(cache.replaceAll(applicationProfiles));
+        assertSame(snapshot, cache.get("testapp1"));
+
+        applicationProfiles.get(1).setRegistrationURL("http://localhost/changed");
+        assertTrue(cache.replaceAll(applicationProfiles));
+        assertEquals("http://localhost/changed", cache.get("testapp2").getRegistrationURL());
+    }
+
+    @Test
+    public void clear() {
+        cache.put(applicationProfile("testapp1", "testgroup1"));
+        cache.clear();
+        assertEquals(0, cache.size());
+    }
+}
@@ -0,0 +1,196 @@
+package org.lazydog.entry.internal.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.lazydog.entry.DependencyUnavailableException;
+import static org.junit.Assert.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+
+/**
+ * Unit tests for Bulkhead class.
+ *
+ * @author  Ron Rickard
+ */
+public class BulkheadTest {
+
+    private ExecutorService callers;
+    private ExecutorService executor;
+
+    private static Callable<String> await(final CountDownLatch latch) {
+        return new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                latch.await();
+                return "done";
+            }
+        };
+    }
+
+    private static void awaitQueueDepth(Bulkhead bulkhead, int queueDepth) throws InterruptedException {
+        for (int x = 0; x < 1000 && bulkhead.getQueueDepth() < queueDepth; x++) {
+            Thread.sleep(5);
+        }
+        assertEquals(queueDepth, bulkhead.getQueueDepth());
+    }
+
+    private static Callable<String> call(final Bulkhead bulkhead, final Callable<String> callable, final Bulkhead.Priority priority) {
+        return new Callable<String>() {
+            @Override
+            public String call() {
+                return bulkhead.call(callable, priority);
+            }
+        };
+    }
+
+    private static Callable<String> record(final List<Bulkhead.Priority> order, final Bulkhead.Priority priority) {
+        return new Callable<String>() {
+            @Override
+            public String call() {
+                order.add(priority);
+                return "done";
+            }
+        };
+    }
+
+    @Before
+    public void beforeTest() {
+        callers = Executors.newCachedThreadPool();
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @After
+    public void afterTest() {
+        callers.shutdownNow();
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void call() {
+        Bulkhead bulkhead = new Bulkhead("test", executor, 1, 1, 1, 1000);
+
+        assertEquals("done", bulkhead.call(await(new CountDownLatch(0))));
+        assertEquals(1, bulkhead.getSubmittedCount());
+        assertEquals(0, bulkhead.getActiveCount());
+    }
+
+    @Test
+    public void callCallerThread() {
+        Bulkhead bulkhead = new Bulkhead("test", new BulkheadExecutor(), 1, 1, 1, 1000);
+
+        assertEquals("done", bulkhead.call(await(new CountDownLatch(0)), Bulkhead.Priority.BULK));
+        assertEquals("done", bulkhead.call(await(new CountDownLatch(0))));
+        assertEquals(0, bulkhead.getActiveCount());
+        assertEquals(0, bulkhead.getBulkActiveCount());
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void callFailed() {
+        Bulkhead bulkhead = new Bulkhead("test", executor, 1, 1, 1, 1000);
+
+        bulkhead.call(new Callable<String>() {
+            @Override
+            public String call() {
+                throw new IllegalArgumentException();
+            }
+        });
+    }
+
+    @Test
+    public void callSaturated() throws Exception {
+        Bulkhead bulkhead = new Bulkhead("test", executor, 1, 1, 1, 1000);
+        CountDownLatch latch = new CountDownLatch(1);
+
+        bulkhead.submit(await(latch));
+        Future<String> waiting = callers.submit(call(bulkhead, await(latch), Bulkhead.Priority.INTERACTIVE));
+        awaitQueueDepth(bulkhead, 1);
+        try {
+            bulkhead.call(await(latch));
+            fail();
+        }
+        catch(DependencyUnavailableException e) {
+            assertEquals(DependencyUnavailableException.Reason.SATURATED, e.getReason());
+            assertEquals("test", e.getDependency());
+        }
+        assertEquals(1, bulkhead.getRejectedCount());
+        assertEquals(1, bulkhead.getQueueDepth());
+        assertEquals(1.0, bulkhead.getSaturation(), 0);
+        latch.countDown();
+        assertEquals("done", waiting.get());
+        assertEquals(1, bulkhead.getMaximumQueueDepth());
+    }
+
+    @Test
+    public void callBulkReserved() {
+        Bulkhead bulkhead = new Bulkhead("test", executor, 2, 1, 1, 50);
+        CountDownLatch latch = new CountDownLatch(1);
+
+        bulkhead.submit(await(latch), Bulkhead.Priority.BULK);
+        try {
+            bulkhead.submit(await(latch), Bulkhead.Priority.BULK);
+            fail();
+        }
+        catch(DependencyUnavailableException e) {
+            assertEquals(DependencyUnavailableException.Reason.SATURATED, e.getReason());
+        }
+        assertEquals("done", bulkhead.call(await(new CountDownLatch(0))));
+        assertEquals(1, bulkhead.getBulkActiveCount());
+        latch.countDown();
+    }
+
+    @Test
+    public void callInteractiveFirst() throws Exception {
+        Bulkhead bulkhead = new Bulkhead("test", executor, 1, 1, 2, 1000);
+        CountDownLatch latch = new CountDownLatch(1);
+        final List<Bulkhead.Priority> order = Collections.synchronizedList(new ArrayList<Bulkhead.Priority>());
+
+        bulkhead.submit(await(latch));
+        Future<String> bulk = callers.submit(call(bulkhead, record(order, Bulkhead.Priority.BULK), Bulkhead.Priority.BULK));
+        awaitQueueDepth(bulkhead, 1);
+        Future<String> interactive = callers.submit(call(bulkhead, record(order, Bulkhead.Priority.INTERACTIVE), Bulkhead.Priority.INTERACTIVE));
+        awaitQueueDepth(bulkhead, 2);
+        latch.countDown();
+        bulk.get();
+        interactive.get();
+        assertEquals(Bulkhead.Priority.INTERACTIVE, order.get(0));
+        assertEquals(Bulkhead.Priority.BULK, order.get(1));
+        assertEquals(1, bulkhead.getBulkSubmittedCount());
+    }
+
+    @Test
+    public void callTimedOut() {
+        Bulkhead bulkhead = new Bulkhead("test", executor, 1, 1, 1, 50);
+        CountDownLatch latch = new CountDownLatch(1);
+        Future<String> future = bulkhead.submit(await(latch));
+
+        try {
+            bulkhead.get(future, bulkhead.getDeadline());
+            fail();
+        }
+        catch(DependencyUnavailableException e) {
+            assertEquals(DependencyUnavailableException.Reason.TIMED_OUT, e.getReason());
+        }
+        assertTrue(future.isCancelled());
+        assertEquals(1, bulkhead.getTimeoutCount());
+        assertEquals(1, bulkhead.getActiveCount());
+        latch.countDown();
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void constructorInvalid() {
+        new Bulkhead("test", executor, 0, 1, 1, 1000);
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void constructorNoExecutor() {
+        new Bulkhead("test", null, 1, 1, 1, 1000);
+    }
+}
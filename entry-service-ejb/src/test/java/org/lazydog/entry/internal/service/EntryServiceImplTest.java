@@ -1,7 +1,20 @@
 package org.lazydog.entry.internal.service;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.lazydog.entry.EntryService;
+import org.lazydog.entry.RegistrationResult;
+import org.lazydog.entry.UserSearchPage;
+import org.lazydog.entry.UserSummary;
 import org.lazydog.entry.model.UserProfile;
+import org.lazydog.repository.Criteria;
+import org.lazydog.repository.criterion.Comparison;
 import static org.junit.Assert.*;
 import org.junit.AfterClass;
 import org.junit.Before;
@@ -64,7 +77,46 @@ public class EntryServiceImplTest {
 
     @Test
     public void activate() {
+        EntryServiceWrapper activatingService = new EntryServiceWrapper();
+        EntryRepositoryWrapper entryRepository = (EntryRepositoryWrapper)activatingService.getEntryRepository();
+        entryRepository.getEntityManager().getTransaction().begin();
+        assertTrue(activatingService.register(userProfile.copy(), null));
+        entryRepository.getEntityManager().getTransaction().commit();
 
+        entryRepository.getEntityManager().getTransaction().begin();
+        assertFalse(activatingService.activate(userProfile.getUsername(), "invalid"));
+        entryRepository.getEntityManager().getTransaction().commit();
+        assertTrue(new EntryAccountManagerWrapper().isAccountLocked(userProfile.getUsername()));
+
+        entryRepository.getEntityManager().getTransaction().begin();
+        assertTrue(activatingService.activate(userProfile.getUsername(), userProfile.getActivationCode()));
+        entryRepository.getEntityManager().getTransaction().commit();
+        assertFalse(new EntryAccountManagerWrapper().isAccountLocked(userProfile.getUsername()));
+        assertNull(activatingService.getUserProfile(userProfile.getUsername()).getActivationCode());
+
+        // The activation code is used.
+        entryRepository.getEntityManager().getTransaction().begin();
+        assertFalse(activatingService.activate(userProfile.getUsername(), userProfile.getActivationCode()));
+        entryRepository.getEntityManager().getTransaction().commit();
+    }
+
+    @Test
+    public void activateByCode() {
+        EntryServiceWrapper activatingService = new EntryServiceWrapper();
+        EntryRepositoryWrapper entryRepository = (EntryRepositoryWrapper)activatingService.getEntryRepository();
+        entryRepository.getEntityManager().getTransaction().begin();
+        assertTrue(activatingService.register(userProfile.copy(), null));
+        entryRepository.getEntityManager().getTransaction().commit();
+
+        assertNull(activatingService.activateByCode(null));
+        assertNull(activatingService.activateByCode("invalid"));
+        entryRepository.getEntityManager().getTransaction().begin();
+        assertEquals(userProfile.getUsername(), activatingService.activateByCode(userProfile.getActivationCode()));
+        entryRepository.getEntityManager().getTransaction().commit();
+        assertFalse(new EntryAccountManagerWrapper().isAccountLocked(userProfile.getUsername()));
+
+        // The activation code is used.
+        assertNull(activatingService.activateByCode(userProfile.getActivationCode()));
     }
 
     @Test
@@ -83,6 +135,148 @@ public class EntryServiceImplTest {
 
     @Test
     public void modify() {
+        final AtomicInteger directoryCalls = new AtomicInteger();
+        EntryServiceWrapper modifyingService = new EntryServiceWrapper();
+        EntryRepositoryWrapper entryRepository = (EntryRepositoryWrapper)modifyingService.getEntryRepository();
+        entryRepository.getEntityManager().getTransaction().begin();
+        assertTrue(modifyingService.register(userProfile.copy(), null));
+        entryRepository.getEntityManager().getTransaction().commit();
+        modifyingService.setEntryAccountManager(new EntryAccountManagerWrapper() {
+            @Override
+            public void changePassword(String accountName, String password) {
+                directoryCalls.incrementAndGet();
+                super.changePassword(accountName, password);
+            }
+            @Override
+            public boolean isPassword(String accountName, String password) {
+                directoryCalls.incrementAndGet();
+                return super.isPassword(accountName, password);
+            }
+        });
+
+        // Save the user profile read from the service unchanged.
+        UserProfile storedUserProfile = modifyingService.getUserProfile(userProfile.getUsername());
+        assertNull(storedUserProfile.getPassword());
+        Date modifyTime = storedUserProfile.getModifyTime();
+        entryRepository.getEntityManager().getTransaction().begin();
+        modifyingService.modify(storedUserProfile);
+        entryRepository.getEntityManager().getTransaction().commit();
+        assertEquals(modifyTime, modifyingService.getUserProfile(userProfile.getUsername()).getModifyTime());
+        assertEquals(0, directoryCalls.get());
+
+        // Save the user profile with a changed name.
+        storedUserProfile.setFirstName("Changed");
+        entryRepository.getEntityManager().getTransaction().begin();
+        modifyingService.modify(storedUserProfile);
+        entryRepository.getEntityManager().getTransaction().commit();
+        assertEquals("Changed", modifyingService.getUserProfile(userProfile.getUsername()).getFirstName());
+        assertEquals(0, directoryCalls.get());
+    }
+
+    @Test
+    public void modifyAfterActivation() {
+        EntryServiceWrapper modifyingService = new EntryServiceWrapper();
+        EntryRepositoryWrapper entryRepository = (EntryRepositoryWrapper)modifyingService.getEntryRepository();
+        entryRepository.getEntityManager().getTransaction().begin();
+        assertTrue(modifyingService.register(userProfile.copy(), null));
+        entryRepository.getEntityManager().getTransaction().commit();
+
+        // Read and cache the user profile before it is activated.
+        UserProfile staleUserProfile = modifyingService.getUserProfile(userProfile.getUsername());
+        assertNotNull(staleUserProfile.getActivationCode());
+
+        // Activate the user profile behind the user profile cache, as another node would.
+        entryRepository.getEntityManager().getTransaction().begin();
+        entryRepository.getEntityManager()
+                .createQuery("update UserProfile u set u.activationCode = null where u.username = :username")
+                .setParameter("username", userProfile.getUsername())
+                .executeUpdate();
+        entryRepository.getEntityManager().getTransaction().commit();
+        entryRepository.getEntityManager().clear();
+
+        // Save the stale user profile with a changed name.
+        staleUserProfile.setFirstName("Changed");
+        entryRepository.getEntityManager().getTransaction().begin();
+        modifyingService.modify(staleUserProfile);
+        entryRepository.getEntityManager().getTransaction().commit();
+        entryRepository.getEntityManager().clear();
+        Criteria<UserProfile> criteria = entryRepository.getCriteria(UserProfile.class);
+        criteria.add(Comparison.eq("username", userProfile.getUsername()));
+        UserProfile storedUserProfile = entryRepository.find(UserProfile.class, criteria);
+        assertEquals("Changed", storedUserProfile.getFirstName());
+        assertNull(storedUserProfile.getActivationCode());
+    }
+
+    @Test
+    public void modifyPassword() {
+        EntryServiceWrapper modifyingService = new EntryServiceWrapper();
+        EntryRepositoryWrapper entryRepository = (EntryRepositoryWrapper)modifyingService.getEntryRepository();
+        entryRepository.getEntityManager().getTransaction().begin();
+        assertTrue(modifyingService.register(userProfile.copy(), null));
+        entryRepository.getEntityManager().getTransaction().commit();
+
+        UserProfile storedUserProfile = modifyingService.getUserProfile(userProfile.getUsername());
+        storedUserProfile.setPassword("test456");
+        entryRepository.getEntityManager().getTransaction().begin();
+        modifyingService.modify(storedUserProfile);
+        entryRepository.getEntityManager().getTransaction().commit();
+        assertTrue(new EntryAccountManagerWrapper().isPassword(userProfile.getUsername(), "test456"));
+    }
+
+    @Test
+    public void purgeExpiredRegistrations() {
+        EntryServiceWrapper purgingService = new EntryServiceWrapper();
+        EntryRepositoryWrapper entryRepository = (EntryRepositoryWrapper)purgingService.getEntryRepository();
+        entryRepository.getEntityManager().getTransaction().begin();
+        assertTrue(purgingService.register(userProfile.copy(), null));
+        entryRepository.getEntityManager().getTransaction().commit();
+        assertTrue(new EntryAccountManagerWrapper().isAccountLocked(userProfile.getUsername()));
+
+        // Age the registration past the registration purge age.
+        entryRepository.getEntityManager().getTransaction().begin();
+        UserProfile registeredUserProfile = purgingService.getUserProfile(userProfile.getUsername());
+        registeredUserProfile.setCreateTime(new Date(System.currentTimeMillis() - 2 * 86400000L));
+        entryRepository.persist(registeredUserProfile);
+        entryRepository.getEntityManager().getTransaction().commit();
+
+        Properties environment = new Properties();
+        environment.setProperty(EntryServiceImpl.REGISTRATION_PURGE_AGE, "1");
+        purgingService.setEnvironment(environment);
+        entryRepository.getEntityManager().getTransaction().begin();
+        purgingService.purgeExpiredRegistrations();
+        entryRepository.getEntityManager().getTransaction().commit();
+        assertNull(purgingService.getUserProfile(userProfile.getUsername()));
+        assertFalse(new EntryAccountManagerWrapper().accountExists(userProfile.getUsername()));
+    }
+
+    @Test
+    public void purgeExpiredRegistrationsLegacyActivated() {
+        EntryServiceWrapper purgingService = new EntryServiceWrapper();
+        EntryRepositoryWrapper entryRepository = (EntryRepositoryWrapper)purgingService.getEntryRepository();
+        entryRepository.getEntityManager().getTransaction().begin();
+        assertTrue(purgingService.register(userProfile.copy(), null));
+        entryRepository.getEntityManager().getTransaction().commit();
+
+        // Activate the account the way it was activated before accounts were locked until activation.
+        new EntryAccountManagerWrapper().unlockAccount(userProfile.getUsername());
+
+        // Age the registration past the registration purge age.
+        entryRepository.getEntityManager().getTransaction().begin();
+        UserProfile registeredUserProfile = purgingService.getUserProfile(userProfile.getUsername());
+        assertNotNull(registeredUserProfile.getActivationCode());
+        registeredUserProfile.setCreateTime(new Date(System.currentTimeMillis() - 2 * 86400000L));
+        entryRepository.persist(registeredUserProfile);
+        entryRepository.getEntityManager().getTransaction().commit();
+
+        Properties environment = new Properties();
+        environment.setProperty(EntryServiceImpl.REGISTRATION_PURGE_AGE, "1");
+        purgingService.setEnvironment(environment);
+        entryRepository.getEntityManager().getTransaction().begin();
+        purgingService.purgeExpiredRegistrations();
+        entryRepository.getEntityManager().getTransaction().commit();
+        assertNotNull(purgingService.getUserProfile(userProfile.getUsername()));
+        assertTrue(new EntryAccountManagerWrapper().accountExists(userProfile.getUsername()));
+        assertFalse(new EntryAccountManagerWrapper().isAccountLocked(userProfile.getUsername()));
     }
 
     @Test
@@ -93,6 +287,102 @@ public class EntryServiceImplTest {
         ((EntryRepositoryWrapper)((EntryServiceWrapper)service).getEntryRepository()).getEntityManager().getTransaction().commit();
     }
 
+    @Test
+    public void registerAll() {
+        List<UserProfile> userProfiles = new ArrayList<UserProfile>();
+        userProfiles.add(userProfile);
+        userProfiles.add(userProfile);
+        ((EntryRepositoryWrapper)((EntryServiceWrapper)service).getEntryRepository()).getEntityManager().getTransaction().begin();
+        List<RegistrationResult> registrationResults = service.registerAll(userProfiles, null);
+        ((EntryRepositoryWrapper)((EntryServiceWrapper)service).getEntryRepository()).getEntityManager().getTransaction().commit();
+        assertEquals(RegistrationResult.Status.REGISTERED, registrationResults.get(0).getStatus());
+        assertEquals(RegistrationResult.Status.ALREADY_EXISTS, registrationResults.get(1).getStatus());
+    }
+
+    @Test
+    public void registerAllMembershipFailure() {
+        EntryServiceWrapper failingService = new EntryServiceWrapper();
+        failingService.setEntryAccountManager(new EntryAccountManagerWrapper() {
+            @Override
+            public void addMembers(String groupName, Set<String> accountNames) {
+                throw new IllegalStateException("The directory is unavailable.");
+            }
+        });
+        EntryRepositoryWrapper entryRepository = (EntryRepositoryWrapper)failingService.getEntryRepository();
+        entryRepository.getEntityManager().getTransaction().begin();
+        List<RegistrationResult> registrationResults = failingService.registerAll(Collections.singletonList(userProfile.copy()), null);
+        entryRepository.getEntityManager().getTransaction().commit();
+        assertEquals(1, registrationResults.size());
+        assertEquals(RegistrationResult.Status.FAILED, registrationResults.get(0).getStatus());
+        assertEquals("The directory is unavailable.", registrationResults.get(0).getMessage());
+        assertNull(failingService.getUserProfile(userProfile.getUsername()));
+        assertFalse(new EntryAccountManagerWrapper().accountExists(userProfile.getUsername()));
+    }
+
+    @Test
+    public void registerAllRepositoryFailure() {
+        EntryServiceWrapper failingService = new EntryServiceWrapper();
+        failingService.setEntryRepository(new EntryRepositoryWrapper() {
+            @Override
+            public <T> T persist(T entity) {
+                throw new IllegalStateException("The repository is unavailable.");
+            }
+        });
+        List<RegistrationResult> registrationResults = failingService.registerAll(Collections.singletonList(userProfile), null);
+        assertEquals(RegistrationResult.Status.FAILED, registrationResults.get(0).getStatus());
+        assertFalse(new EntryAccountManagerWrapper().accountExists(userProfile.getUsername()));
+    }
+
+    @Test
+    public void searchUsers() {
+        EntryRepositoryWrapper entryRepository = (EntryRepositoryWrapper)((EntryServiceWrapper)service).getEntryRepository();
+        String[] lastNames = {"Keytest:1", "Keytest:1", "Keytest:12"};
+        removeKeyUserProfiles(entryRepository);
+        entryRepository.getEntityManager().getTransaction().begin();
+        for (int x = 0; x < lastNames.length; x++) {
+            UserProfile keyUserProfile = UserProfile.newInstance();
+            keyUserProfile.setCreateTime(new Date());
+            keyUserProfile.setEmailAddress("testkey" + (x + 1) + "@test.com");
+            keyUserProfile.setFirstName("Test");
+            keyUserProfile.setLastName(lastNames[x]);
+            keyUserProfile.setUsername("testkey" + (x + 1));
+            entryRepository.persist(keyUserProfile);
+        }
+        entryRepository.getEntityManager().getTransaction().commit();
+
+        try {
+
+            // The key holds the length of the field value, so a field value with a colon or digits is split correctly.
+            UserSearchPage page = service.searchUsers(UserSummary.Field.LAST_NAME, "Keytest", null, 1);
+            assertEquals(Arrays.asList("testkey1"), usernames(page));
+            assertEquals("9:Keytest:1testkey1", page.getNextKey());
+            page = service.searchUsers(UserSummary.Field.LAST_NAME, "Keytest", page.getNextKey(), 1);
+            assertEquals(Arrays.asList("testkey2"), usernames(page));
+            assertEquals("9:Keytest:1testkey2", page.getNextKey());
+            page = service.searchUsers(UserSummary.Field.LAST_NAME, "Keytest", page.getNextKey(), 1);
+            assertEquals(Arrays.asList("testkey3"), usernames(page));
+            assertFalse(page.hasNextPage());
+
+            // A full last page has a key, and the page after it is empty.
+            page = service.searchUsers(UserSummary.Field.LAST_NAME, "Keytest", null, 2);
+            assertEquals(Arrays.asList("testkey1", "testkey2"), usernames(page));
+            page = service.searchUsers(UserSummary.Field.LAST_NAME, "Keytest", page.getNextKey(), 1);
+            assertEquals(Arrays.asList("testkey3"), usernames(page));
+            assertNull(page.getNextKey());
+            page = service.searchUsers(UserSummary.Field.LAST_NAME, "Keytest", "10:Keytest:12testkey3", 1);
+            assertTrue(page.getUsers().isEmpty());
+            assertFalse(page.hasNextPage());
+        }
+        finally {
+            removeKeyUserProfiles(entryRepository);
+        }
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void searchUsersInvalidKey() {
+        service.searchUsers(UserSummary.Field.LAST_NAME, "Keytest", "99:Keytest", 1);
+    }
+
     @Test
     @Ignore
     public void unregister() {
@@ -101,4 +391,21 @@ public class EntryServiceImplTest {
         assertTrue(service.unregister(userProfile.getUsername()));
         ((EntryRepositoryWrapper)((EntryServiceWrapper)service).getEntryRepository()).getEntityManager().getTransaction().commit();
     }
+
+    private static void removeKeyUserProfiles(EntryRepositoryWrapper entryRepository) {
+        entryRepository.getEntityManager().getTransaction().begin();
+        entryRepository.getEntityManager()
+                .createQuery("delete from UserProfile u where u.username like 'testkey%'")
+                .executeUpdate();
+        entryRepository.getEntityManager().getTransaction().commit();
+        entryRepository.getEntityManager().clear();
+    }
+
+    private static List<String> usernames(UserSearchPage page) {
+        List<String> usernames = new ArrayList<String>();
+        for (UserSummary user : page.getUsers()) {
+            usernames.add(user.getUsername());
+        }
+        return usernames;
+    }
 }
@@ -0,0 +1,62 @@
+package org.lazydog.entry.internal.service;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.Map;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+
+/**
+ * Unit tests for LastLoginBuffer class.
+ *
+ * @author  Ron Rickard
+ */
+public class LastLoginBufferTest {
+
+    @Test
+    public void drain() {
+        LastLoginBuffer buffer = new LastLoginBuffer(4);
+        buffer.record("testaccount1", 1000);
+        buffer.record("testaccount2", 2000);
+        assertEquals(2, buffer.getPendingCount());
+        Map<String, Date> lastLoginTimes = buffer.drain();
+        assertEquals(2, lastLoginTimes.size());
+        assertEquals(new Date(1000), lastLoginTimes.get("testaccount1"));
+        assertEquals(new Date(2000), lastLoginTimes.get("testaccount2"));
+        assertEquals(0, buffer.getPendingCount());
+        assertTrue(buffer.drain().isEmpty());
+        assertEquals(2, buffer.getDrainedCount());
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void lastLoginBufferInvalid() {
+        new LastLoginBuffer(0);
+    }
+
+    @Test
+    public void record() {
+        LastLoginBuffer buffer = new LastLoginBuffer(4);
+        buffer.record("testaccount1", 2000);
+        buffer.record("testaccount1", 3000);
+        buffer.record("testaccount1", 1000);
+        assertEquals(new Date(3000), buffer.drain().get("testaccount1"));
+        assertEquals(3, buffer.getRecordedCount());
+        assertEquals(2, buffer.getCoalescedCount());
+    }
+
+    @Test
+    public void restore() {
+        LastLoginBuffer buffer = new LastLoginBuffer(4);
+        buffer.record("testaccount1", 1000);
+        buffer.record("testaccount2", 1000);
+        Map<String, Date> lastLoginTimes = buffer.drain();
+        buffer.record("testaccount1", 2000);
+        buffer.restore(lastLoginTimes);
+        buffer.restore(Collections.singletonMap("testaccount3", new Date(500)));
+        lastLoginTimes = buffer.drain();
+        assertEquals(new Date(2000), lastLoginTimes.get("testaccount1"));
+        assertEquals(new Date(1000), lastLoginTimes.get("testaccount2"));
+        assertEquals(new Date(500), lastLoginTimes.get("testaccount3"));
+    }
+}
@@ -0,0 +1,40 @@
+package org.lazydog.entry.internal.service;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+
+/**
+ * Unit tests for PasswordCipher class.
+ *
+ * @author  Ron Rickard
+ */
+public class PasswordCipherTest {
+
+    private static final String KEY = "000102030405060708090a0b0c0d0e0f";
+
+    @Test
+    public void decrypt() {
+        PasswordCipher cipher = new PasswordCipher(KEY);
+        assertEquals("test123", cipher.decrypt(cipher.encrypt("test123")));
+    }
+
+    @Test(expected=IllegalStateException.class)
+    public void decryptWrongKey() {
+        String encryptedPassword = new PasswordCipher(KEY).encrypt("test123");
+        new PasswordCipher("0f0e0d0c0b0a09080706050403020100").decrypt(encryptedPassword);
+    }
+
+    @Test
+    public void encrypt() {
+        PasswordCipher cipher = new PasswordCipher(KEY);
+        String encryptedPassword = cipher.encrypt("test123");
+        assertFalse(encryptedPassword.contains("test123"));
+        assertFalse(encryptedPassword.equals(cipher.encrypt("test123")));
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void passwordCipherInvalid() {
+        new PasswordCipher("0001020304");
+    }
+}
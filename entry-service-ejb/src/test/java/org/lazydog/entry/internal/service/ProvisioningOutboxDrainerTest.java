@@ -0,0 +1,201 @@
+package org.lazydog.entry.internal.service;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import org.junit.After;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+import org.lazydog.entry.internal.account.manager.memory.MemoryEntryAccountManagerImpl;
+import org.lazydog.entry.model.ProvisioningRequest;
+import org.lazydog.entry.spi.account.manager.EntryAccountManager;
+import org.lazydog.entry.spi.repository.EntryRepository;
+
+
+/**
+ * Unit tests for ProvisioningOutboxDrainer class.
+ *
+ * @author  Ron Rickard
+ */
+public class ProvisioningOutboxDrainerTest {
+
+    private static final String KEY = "000102030405060708090a0b0c0d0e0f";
+    private PasswordCipher cipher;
+    private ProvisioningOutboxDrainer drainer;
+    private EntryAccountManager entryAccountManager;
+    private Set<String> failingAccountNames;
+    private TreeMap<Integer, ProvisioningRequest> outbox;
+
+    @Before
+    public void beforeTest() {
+        cipher = new PasswordCipher(KEY);
+        entryAccountManager = new MemoryEntryAccountManagerImpl();
+        entryAccountManager.createGroup("testgroup");
+        failingAccountNames = new HashSet<String>();
+        outbox = new TreeMap<Integer, ProvisioningRequest>();
+        ProvisioningRequestApplier applier = new ProvisioningRequestApplier();
+        applier.setEntryAccountManager(failingAccountManager());
+        applier.setEntryRepository(outboxRepository());
+        Properties environment = new Properties();
+        environment.setProperty(EntryServiceImpl.PROVISIONING_OUTBOX_KEY, KEY);
+        drainer = new ProvisioningOutboxDrainer();
+        drainer.setEntryRepository(outboxRepository());
+        drainer.setEnvironment(environment);
+        drainer.setProvisioningRequestApplier(applier);
+        drainer.initialize();
+    }
+
+    @After
+    public void afterTest() {
+        entryAccountManager.close();
+    }
+
+    @Test
+    public void drain() {
+        enqueue(ProvisioningRequest.Operation.CREATE_ACCOUNT, "testaccount1", null, "test123");
+        enqueue(ProvisioningRequest.Operation.LOCK_ACCOUNT, "testaccount1", null, null);
+        enqueue(ProvisioningRequest.Operation.ADD_MEMBER, "testaccount1", "testgroup", null);
+        enqueue(ProvisioningRequest.Operation.CREATE_ACCOUNT, "testaccount2", null, "test456");
+        enqueue(ProvisioningRequest.Operation.ADD_MEMBER, "testaccount2", "testgroup", null);
+        drainer.drain();
+        assertTrue(outbox.isEmpty());
+        assertTrue(entryAccountManager.isPassword("testaccount1", "test123"));
+        assertTrue(entryAccountManager.isPassword("testaccount2", "test456"));
+        assertTrue(entryAccountManager.isAccountLocked("testaccount1"));
+        assertFalse(entryAccountManager.isAccountLocked("testaccount2"));
+        assertTrue(entryAccountManager.isMember("testaccount1", "testgroup"));
+        assertTrue(entryAccountManager.isMember("testaccount2", "testgroup"));
+    }
+
+    @Test
+    public void drainChangePassword() {
+        entryAccountManager.createAccount("testaccount1", "test123");
+        enqueue(ProvisioningRequest.Operation.CHANGE_PASSWORD, "testaccount1", null, "test456");
+        drainer.drain();
+        assertTrue(outbox.isEmpty());
+        assertTrue(entryAccountManager.isPassword("testaccount1", "test456"));
+    }
+
+    @Test
+    public void drainFailure() {
+        failingAccountNames.add("testaccount1");
+        ProvisioningRequest createAccount = enqueue(ProvisioningRequest.Operation.CREATE_ACCOUNT, "testaccount1", null, "test123");
+        ProvisioningRequest removeAccount = enqueue(ProvisioningRequest.Operation.REMOVE_ACCOUNT, "testaccount1", null, null);
+        enqueue(ProvisioningRequest.Operation.CREATE_ACCOUNT, "testaccount2", null, "test456");
+        drainer.drain();
+        assertEquals(2, outbox.size());
+        assertEquals(1, outbox.get(createAccount.getId()).getAttempts());
+        assertEquals("Unable to reach the directory.", outbox.get(createAccount.getId()).getLastError());
+        assertTrue(outbox.get(createAccount.getId()).getNextAttemptTime().after(new Date()));
+        assertEquals(0, outbox.get(removeAccount.getId()).getAttempts());
+        assertTrue(entryAccountManager.accountExists("testaccount2"));
+
+        // The later request for the account waits for the retry.
+        failingAccountNames.clear();
+        drainer.drain();
+        assertEquals(2, outbox.size());
+        assertFalse(entryAccountManager.accountExists("testaccount1"));
+
+        // The requests for the account are applied in order once the retry is due.
+        outbox.get(createAccount.getId()).setNextAttemptTime(new Date(0));
+        drainer.drain();
+        assertTrue(outbox.isEmpty());
+        assertFalse(entryAccountManager.accountExists("testaccount1"));
+    }
+
+    @Test
+    public void drainMemberFailure() {
+        entryAccountManager.createAccount("testaccount1", "test123");
+        entryAccountManager.createAccount("testaccount2", "test456");
+        failingAccountNames.add("testaccount1");
+        ProvisioningRequest addMember = enqueue(ProvisioningRequest.Operation.ADD_MEMBER, "testaccount1", "testgroup", null);
+        enqueue(ProvisioningRequest.Operation.ADD_MEMBER, "testaccount2", "testgroup", null);
+        drainer.drain();
+        assertEquals(1, outbox.size());
+        assertEquals(1, outbox.get(addMember.getId()).getAttempts());
+        assertFalse(entryAccountManager.isMember("testaccount1", "testgroup"));
+        assertTrue(entryAccountManager.isMember("testaccount2", "testgroup"));
+    }
+
+    private ProvisioningRequest enqueue(ProvisioningRequest.Operation operation, String accountName, String groupName, String password) {
+        ProvisioningRequest provisioningRequest = ProvisioningRequest.newInstance(operation, accountName);
+        provisioningRequest.setGroupName(groupName);
+        provisioningRequest.setPassword((password != null) ? cipher.encrypt(password) : null);
+        provisioningRequest.setId(nextId());
+        outbox.put(provisioningRequest.getId(), provisioningRequest);
+        return provisioningRequest;
+    }
+
+    private EntryAccountManager failingAccountManager() {
+        return (EntryAccountManager)Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] {EntryAccountManager.class}, new InvocationHandler() {
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                for (Object arg : (args != null) ? args : new Object[0]) {
+                    if (failingAccountNames.contains(arg)
+                            || (arg instanceof Set && !Collections.disjoint((Set<?>)arg, failingAccountNames))) {
+                        throw new IllegalStateException("Unable to reach the directory.");
+                    }
+                }
+                try {
+                    return method.invoke(entryAccountManager, args);
+                }
+                catch(InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            }
+        });
+    }
+
+    private int nextId() {
+        return (outbox.isEmpty()) ? 1 : outbox.lastKey() + 1;
+    }
+
+    private EntryRepository outboxRepository() {
+        return (EntryRepository)Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] {EntryRepository.class}, new InvocationHandler() {
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                if ("findProvisioningRequests".equals(method.getName())) {
+                    Date now = (Date)args[0];
+                    Set<String> waitingAccountNames = new HashSet<String>();
+                    List<ProvisioningRequest> provisioningRequests = new ArrayList<ProvisioningRequest>();
+                    for (ProvisioningRequest provisioningRequest : outbox.values()) {
+                        if (provisioningRequest.getNextAttemptTime().after(now)) {
+                            waitingAccountNames.add(provisioningRequest.getAccountName());
+                        }
+                        else if (!waitingAccountNames.contains(provisioningRequest.getAccountName())
+                                && provisioningRequests.size() < (Integer)args[1]) {
+                            provisioningRequests.add(provisioningRequest.copy());
+                        }
+                    }
+                    return provisioningRequests;
+                }
+                else if ("find".equals(method.getName()) && args[1] instanceof Integer) {
+                    ProvisioningRequest provisioningRequest = outbox.get((Integer)args[1]);
+                    return (provisioningRequest != null) ? provisioningRequest.copy() : null;
+                }
+                else if ("persist".equals(method.getName())) {
+                    ProvisioningRequest provisioningRequest = ((ProvisioningRequest)args[0]).copy();
+                    outbox.put(provisioningRequest.getId(), provisioningRequest);
+                    return provisioningRequest.copy();
+                }
+                else if ("remove".equals(method.getName())) {
+                    outbox.remove((Integer)args[1]);
+                    return null;
+                }
+                throw new UnsupportedOperationException(method.getName());
+            }
+        });
+    }
+}
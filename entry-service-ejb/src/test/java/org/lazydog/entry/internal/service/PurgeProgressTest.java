@@ -0,0 +1,40 @@
+package org.lazydog.entry.internal.service;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+
+/**
+ * Unit tests for PurgeProgress class.
+ *
+ * @author  Ron Rickard
+ */
+public class PurgeProgressTest {
+
+    @Test
+    public void progress() {
+        PurgeProgress progress = new PurgeProgress("test");
+
+        progress.chunk(3);
+        progress.purged(1);
+        progress.skipped();
+        progress.failed();
+        progress.chunk(2);
+        progress.purged(2);
+        assertEquals(2, progress.getChunkCount());
+        assertEquals(5, progress.getScannedCount());
+        assertEquals(3, progress.getPurgedCount());
+        assertEquals(1, progress.getSkippedCount());
+        assertEquals(1, progress.getFailedCount());
+    }
+
+    @Test
+    public void getThroughput() throws Exception {
+        PurgeProgress progress = new PurgeProgress("test");
+
+        assertEquals(0, progress.getThroughput(), 0);
+        progress.purged(10);
+        Thread.sleep(20);
+        assertTrue(progress.getThroughput() > 0 && progress.getThroughput() <= 500);
+    }
+}
@@ -0,0 +1,172 @@
+package org.lazydog.entry.internal.service;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.lazydog.entry.AdmissionRejectedException;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+
+/**
+ * Unit tests for RequestKeyStore class.
+ *
+ * @author  Ron Rickard
+ */
+public class RequestKeyStoreTest {
+
+    @Test
+    public void execute() {
+        RequestKeyStore<String> store = new RequestKeyStore<String>("test", 10, 60000, 5000);
+        AtomicInteger calls = new AtomicInteger();
+        assertEquals("value1", store.execute("key1", "owner1", counted(calls, "value1")));
+        assertEquals("value1", store.execute("key1", "owner1", counted(calls, "value2")));
+        assertEquals("value2", store.execute("key2", "owner1", counted(calls, "value2")));
+        assertEquals(2, calls.get());
+        assertEquals(2, store.getExecutedCount());
+        assertEquals(1, store.getReplayedCount());
+    }
+
+    @Test
+    public void executeDeferred() throws Exception {
+        final CountDownLatch executed = new CountDownLatch(1);
+        final RequestKeyStore<String> store = new RequestKeyStore<String>("test", 10, 60000, 5000) {
+            @Override
+            protected void executed(String key) {
+                executed.countDown();
+            }
+        };
+        final AtomicInteger calls = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            assertEquals("value1", store.execute("key1", "owner1", counted(calls, "value1")));
+            assertTrue(executed.await(5, TimeUnit.SECONDS));
+            Future<String> replay = executor.submit(execute(store, "key1", counted(calls, "value2")));
+            Thread.sleep(50);
+            assertFalse(replay.isDone());
+            store.complete("key1", false);
+            assertEquals("value2", replay.get(5, TimeUnit.SECONDS));
+            store.complete("key1", true);
+            assertEquals("value2", store.execute("key1", "owner1", counted(calls, "value3")));
+            assertEquals(2, calls.get());
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void executeEvicted() {
+        RequestKeyStore<String> store = new RequestKeyStore<String>("test", 1, 60000, 5000);
+        AtomicInteger calls = new AtomicInteger();
+        store.execute("key1", "owner1", counted(calls, "value1"));
+        store.execute("key2", "owner1", counted(calls, "value2"));
+        store.execute("key3", "owner1", counted(calls, "value3"));
+        assertTrue(store.getKeyCount() <= 2);
+        assertTrue(store.getEvictedCount() >= 1);
+    }
+
+    @Test
+    public void executeExpired() throws Exception {
+        RequestKeyStore<String> store = new RequestKeyStore<String>("test", 10, 1, 5000);
+        AtomicInteger calls = new AtomicInteger();
+        store.execute("key1", "owner1", counted(calls, "value1"));
+        Thread.sleep(20);
+        assertEquals("value2", store.execute("key1", "owner1", counted(calls, "value2")));
+        Thread.sleep(20);
+        assertEquals(1, store.removeExpired());
+        assertEquals(0, store.getKeyCount());
+    }
+
+    @Test
+    public void executeFailed() {
+        RequestKeyStore<String> store = new RequestKeyStore<String>("test", 10, 60000, 5000);
+        try {
+            store.execute("key1", "owner1", new Callable<String>() {
+                @Override
+                public String call() {
+                    throw new IllegalStateException("failed");
+                }
+            });
+            fail("IllegalStateException expected.");
+        }
+        catch(IllegalStateException e) {
+            assertEquals("failed", e.getMessage());
+        }
+        assertEquals(0, store.getKeyCount());
+        assertEquals("value1", store.execute("key1", "owner1", counted(new AtomicInteger(), "value1")));
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void executeOtherOwner() {
+        RequestKeyStore<String> store = new RequestKeyStore<String>("test", 10, 60000, 5000);
+        store.execute("key1", "owner1", counted(new AtomicInteger(), "value1"));
+        store.execute("key1", "owner2", counted(new AtomicInteger(), "value2"));
+    }
+
+    @Test
+    public void executeWaitInterrupted() {
+        RequestKeyStore<String> store = new RequestKeyStore<String>("test", 10, 60000, 5000) {
+            @Override
+            protected void executed(String key) {
+            }
+        };
+        store.execute("key1", "owner1", counted(new AtomicInteger(), "value1"));
+        Thread.currentThread().interrupt();
+        try {
+            store.execute("key1", "owner1", counted(new AtomicInteger(), "value2"));
+            fail("AdmissionRejectedException expected.");
+        }
+        catch(AdmissionRejectedException e) {
+            assertEquals(AdmissionRejectedException.Reason.REQUEST_IN_FLIGHT, e.getReason());
+        }
+        finally {
+            assertTrue(Thread.interrupted());
+        }
+    }
+
+    @Test
+    public void executeWaitTimeout() {
+        RequestKeyStore<String> store = new RequestKeyStore<String>("test", 10, 60000, 50) {
+            @Override
+            protected void executed(String key) {
+            }
+        };
+        AtomicInteger calls = new AtomicInteger();
+        store.execute("key1", "owner1", counted(calls, "value1"));
+        try {
+            store.execute("key1", "owner1", counted(calls, "value2"));
+            fail("AdmissionRejectedException expected.");
+        }
+        catch(AdmissionRejectedException e) {
+            assertEquals(AdmissionRejectedException.Reason.REQUEST_IN_FLIGHT, e.getReason());
+            assertEquals(50, e.getRetryAfter());
+        }
+        store.complete("key1", true);
+        assertEquals("value1", store.execute("key1", "owner1", counted(calls, "value3")));
+        assertEquals(1, calls.get());
+    }
+
+    private static Callable<String> counted(final AtomicInteger calls, final String value) {
+        return new Callable<String>() {
+            @Override
+            public String call() {
+                calls.incrementAndGet();
+                return value;
+            }
+        };
+    }
+
+    private static Callable<String> execute(final RequestKeyStore<String> store, final String key, final Callable<String> operation) {
+        return new Callable<String>() {
+            @Override
+            public String call() {
+                return store.execute(key, "owner1", operation);
+            }
+        };
+    }
+}
@@ -0,0 +1,94 @@
+package org.lazydog.entry.internal.service;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+
+/**
+ * Unit tests for StripedLock class.
+ *
+ * @author  Ron Rickard
+ */
+public class StripedLockTest {
+
+    @Test
+    public void getStripes() {
+        assertEquals(1, new StripedLock(1).getStripes());
+        assertEquals(64, new StripedLock(64).getStripes());
+        assertEquals(128, new StripedLock(65).getStripes());
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void getStripesInvalid() {
+        new StripedLock(0);
+    }
+
+    @Test
+    public void lock() throws Exception {
+        final StripedLock stripedLock = new StripedLock(16);
+        final CountDownLatch locked = new CountDownLatch(1);
+
+        stripedLock.lock("testaccount1");
+        Thread thread = new Thread() {
+            @Override
+            public void run() {
+                stripedLock.lock("testaccount1");
+                locked.countDown();
+                stripedLock.unlock("testaccount1");
+            }
+        };
+        thread.start();
+        assertFalse(locked.await(100, TimeUnit.MILLISECONDS));
+        stripedLock.unlock("testaccount1");
+        assertTrue(locked.await(5, TimeUnit.SECONDS));
+        thread.join();
+
+        assertEquals(2, stripedLock.getAcquisitionCount());
+        assertEquals(1, stripedLock.getContentionCount());
+        assertTrue(stripedLock.getMaximumWaitTime() >= 50);
+        assertEquals(stripedLock.getMaximumWaitTime(), stripedLock.getTotalWaitTime(), 0.001);
+    }
+
+    @Test
+    public void lockReentrant() {
+        StripedLock stripedLock = new StripedLock(16);
+
+        stripedLock.lock("testaccount1");
+        stripedLock.lock("testaccount1");
+        stripedLock.unlock("testaccount1");
+        stripedLock.unlock("testaccount1");
+        assertEquals(0, stripedLock.getContentionCount());
+    }
+
+    @Test
+    public void lockOwner() throws Exception {
+        final StripedLock stripedLock = new StripedLock(16);
+        final Object transactionKey = new Object();
+
+        stripedLock.lock("testaccount1", transactionKey);
+        stripedLock.lock("testaccount1", transactionKey);
+        Thread thread = new Thread() {
+            @Override
+            public void run() {
+                stripedLock.unlock("testaccount1", transactionKey);
+                stripedLock.unlock("testaccount1", transactionKey);
+            }
+        };
+        thread.start();
+        thread.join();
+
+        stripedLock.lock("testaccount1");
+        stripedLock.unlock("testaccount1");
+        assertEquals(0, stripedLock.getContentionCount());
+    }
+
+    @Test(expected=IllegalMonitorStateException.class)
+    public void unlockNotOwner() {
+        StripedLock stripedLock = new StripedLock(16);
+
+        stripedLock.lock("testaccount1", new Object());
+        stripedLock.unlock("testaccount1");
+    }
+}
@@ -0,0 +1,124 @@
+package org.lazydog.entry.internal.service;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+import org.lazydog.entry.model.UserProfile;
+
+
+/**
+ * Unit tests for UserProfileCache class.
+ *
+ * @author  Ron Rickard
+ */
+public class UserProfileCacheTest {
+
+    private static UserProfile userProfile(String username) {
+        UserProfile userProfile = UserProfile.newInstance();
+        userProfile.setUsername(username);
+        userProfile.setFirstName("Test");
+        userProfile.setLastName("Account");
+        return userProfile;
+    }
+
+    @Test
+    public void get() {
+        UserProfileCache cache = new UserProfileCache(10, UserProfileCache.EvictionPolicy.LRU, 60000);
+        UserProfile userProfile = userProfile("testaccount1");
+
+        assertNull(cache.get("testaccount1"));
+        cache.put(userProfile);
+        assertEquals("testaccount1", cache.get("testaccount1").getUsername());
+        assertEquals("testaccount1", cache.getByUuid(userProfile.getUuid()).getUsername());
+        assertEquals(2, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void getExpired() throws Exception {
+        UserProfileCache cache = new UserProfileCache(10, UserProfileCache.EvictionPolicy.LRU, 1);
+        UserProfile userProfile = userProfile("testaccount1");
+
+        cache.put(userProfile);
+        Thread.sleep(20);
+        assertNull(cache.get("testaccount1"));
+        assertNull(cache.getByUuid(userProfile.getUuid()));
+        assertEquals(0, cache.size());
+        assertEquals(1, cache.getExpirationCount());
+    }
+
+    @Test
+    public void getCopy() {
+        UserProfileCache cache = new UserProfileCache(10, UserProfileCache.EvictionPolicy.LRU, 60000);
+
+        cache.put(userProfile("testaccount1"));
+        cache.get("testaccount1").setFirstName("Changed");
+        assertEquals("Test", cache.get("testaccount1").getFirstName());
+    }
+
+    @Test
+    public void invalidate() {
+        UserProfileCache cache = new UserProfileCache(10, UserProfileCache.EvictionPolicy.LRU, 60000);
+        UserProfile userProfile = userProfile("testaccount1");
+
+        cache.put(userProfile);
+        cache.invalidate("testaccount1");
+        assertNull(cache.get("testaccount1"));
+        assertNull(cache.getByUuid(userProfile.getUuid()));
+        assertEquals(0, cache.size());
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void userProfileCacheInvalid() {
+        new UserProfileCache(10, UserProfileCache.EvictionPolicy.LRU, 0);
+    }
+
+    @Test
+    public void putAfterInvalidation() {
+        UserProfileCache cache = new UserProfileCache(10, UserProfileCache.EvictionPolicy.LRU, 60000);
+
+        long invalidationCount = cache.getInvalidationCount();
+        cache.invalidate("testaccount1");
+        assertFalse(cache.put(userProfile("testaccount1"), invalidationCount));
+        assertNull(cache.get("testaccount1"));
+        assertTrue(cache.put(userProfile("testaccount1"), cache.getInvalidationCount()));
+        assertNotNull(cache.get("testaccount1"));
+    }
+
+    @Test
+    public void putLru() {
+        UserProfileCache cache = new UserProfileCache(2, UserProfileCache.EvictionPolicy.LRU, 60000);
+
+        cache.put(userProfile("testaccount1"));
+        cache.put(userProfile("testaccount2"));
+        cache.get("testaccount1");
+        assertTrue(cache.put(userProfile("testaccount3")));
+        assertNotNull(cache.get("testaccount1"));
+        assertNull(cache.get("testaccount2"));
+        assertEquals(1, cache.getEvictionCount());
+    }
+
+    @Test
+    public void putFrequency() {
+        UserProfileCache cache = new UserProfileCache(2, UserProfileCache.EvictionPolicy.FREQUENCY, 60000);
+
+        cache.put(userProfile("testaccount1"));
+        cache.put(userProfile("testaccount2"));
+        for (int count = 0; count < 5; count++) {
+            cache.get("testaccount1");
+            cache.get("testaccount2");
+        }
+
+        // A one-time lookup is not admitted over frequently read user profiles.
+        cache.get("testaccount3");
+        assertFalse(cache.put(userProfile("testaccount3")));
+        assertEquals(1, cache.getRejectionCount());
+
+        // A frequently requested user profile is admitted.
+        for (int count = 0; count < 10; count++) {
+            cache.get("testaccount4");
+        }
+        assertTrue(cache.put(userProfile("testaccount4")));
+        assertNotNull(cache.get("testaccount4"));
+        assertEquals(1, cache.getEvictionCount());
+    }
+}
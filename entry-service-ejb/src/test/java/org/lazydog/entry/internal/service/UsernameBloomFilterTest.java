@@ -0,0 +1,67 @@
+package org.lazydog.entry.internal.service;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+
+/**
+ * Unit tests for UsernameBloomFilter class.
+ *
+ * @author  Ron Rickard
+ */
+public class UsernameBloomFilterTest {
+
+    @Test
+    public void mightContain() {
+        UsernameBloomFilter filter = new UsernameBloomFilter(1000, 0.01);
+
+        for (int count = 0; count < 1000; count++) {
+            filter.put("testaccount" + count);
+        }
+        for (int count = 0; count < 1000; count++) {
+            assertTrue(filter.mightContain("testaccount" + count));
+        }
+        assertEquals(1000, filter.getUsernameCount());
+    }
+
+    @Test
+    public void mightContainCase() {
+        UsernameBloomFilter filter = new UsernameBloomFilter(1000, 0.01);
+
+        filter.put("TestAccount1");
+        assertTrue(filter.mightContain("testaccount1"));
+        assertTrue(filter.mightContain("TESTACCOUNT1"));
+        filter.put("testaccount2");
+        assertTrue(filter.mightContain("TestAccount2"));
+    }
+
+    @Test
+    public void mightContainFalsePositiveRate() {
+        UsernameBloomFilter filter = new UsernameBloomFilter(1000, 0.01);
+        int falsePositives = 0;
+
+        for (int count = 0; count < 1000; count++) {
+            filter.put("testaccount" + count);
+        }
+        for (int count = 0; count < 10000; count++) {
+            if (filter.mightContain("otheraccount" + count)) {
+                filter.recordFalsePositive();
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 300);
+        assertEquals(falsePositives, filter.getFalsePositiveCount());
+        assertEquals(falsePositives / 10000.0, filter.getFalsePositiveRate(), 0.0001);
+        assertEquals(0.01, filter.getExpectedFalsePositiveRate(), 0.005);
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void newInstanceInvalidFalsePositiveRate() {
+        new UsernameBloomFilter(1000, 1);
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void newInstanceInvalidExpectedUsernames() {
+        new UsernameBloomFilter(0, 0.01);
+    }
+}
@@ -0,0 +1,74 @@
+package org.lazydog.entry.web.servlet;
+
+import java.io.IOException;
+import javax.ejb.EJB;
+import javax.servlet.ServletException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.lazydog.entry.AdmissionRejectedException;
+import org.lazydog.entry.EntryService;
+
+
+/**
+ * Activation servlet.
+ *
+ * <p>The servlet activates the user profile with the activation code in
+ * the link of an activation email, so the user activates with one
+ * click.</p>
+ *
+ * @author  Ron Rickard
+ */
+@WebServlet(name="ActivationServlet", urlPatterns="/activate")
+public class ActivationServlet extends HttpServlet {
+
+    private static final long serialVersionUID = 1L;
+
+    @EJB
+    private EntryService entryService;
+
+    /**
+     * Activate the user profile with the activation code.
+     *
+     * @param  request   the HTTP request.
+     * @param  response  the HTTP response.
+     *
+     * @throws  IOException       if the response cannot be written.
+     * @throws  ServletException  if the request cannot be processed.
+     */
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+
+        // Declare.
+        String username;
+
+        try {
+
+            // Activate the user profile.
+            username = entryService.activateByCode(request.getParameter("code"));
+        }
+        catch(AdmissionRejectedException e) {
+            response.setHeader("Retry-After", String.valueOf((e.getRetryAfter() + 999) / 1000));
+            response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, e.getMessage());
+            return;
+        }
+
+        // Check if the user profile is activated.
+        if (username != null) {
+            response.sendRedirect(response.encodeRedirectURL(request.getContextPath() + "/pages/protected.jsf"));
+        }
+        else {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND, "The activation code is invalid or was already used.");
+        }
+    }
+
+    /**
+     * Set the Entry service.
+     *
+     * @param  entryService  the Entry service.
+     */
+    protected void setEntryService(EntryService entryService) {
+        this.entryService = entryService;
+    }
+}
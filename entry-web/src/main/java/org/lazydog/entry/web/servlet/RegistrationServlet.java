@@ -0,0 +1,275 @@
+package org.lazydog.entry.web.servlet;
+
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.ejb.EJB;
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.lazydog.entry.AdmissionRejectedException;
+import org.lazydog.entry.EntryService;
+import org.lazydog.entry.model.UserProfile;
+
+
+/**
+ * Registration servlet.
+ *
+ * <p>The servlet registers the user profile posted by the registration page
+ * asynchronously.  The request is put in asynchronous mode and the web
+ * thread is released as soon as the Entry service has queued the
+ * registration.  The request is completed on a thread of the container,
+ * started through the asynchronous context, when its registration is done;
+ * the timeout of the asynchronous context answers the request if the
+ * registration is not done in time.  The servlet starts no threads of its
+ * own.</p>
+ *
+ * <p>A client that retries a registration passes the same request key,
+ * in the requestKey parameter or the Idempotency-Key header, so the retry
+ * returns the outcome of the original registration.</p>
+ *
+ * @author  Ron Rickard
+ */
+@WebServlet(name="RegistrationServlet", urlPatterns="/register", asyncSupported=true)
+public class RegistrationServlet extends HttpServlet {
+
+    private static final Logger LOGGER = Logger.getLogger(RegistrationServlet.class.getName());
+    private static final long TIMEOUT = 30000;
+    private static final long serialVersionUID = 1L;
+
+    @EJB
+    private EntryService entryService;
+
+    /**
+     * Complete the request when the registration is done.  The request is
+     * completed once, either here or by the timeout of the asynchronous
+     * context, whichever comes first.
+     *
+     * @param  asyncContext   the asynchronous context.
+     * @param  completed      true once the request is completed.
+     * @param  registered     the future registration result.
+     * @param  applicationId  the application identifier.
+     */
+    private static void complete(AsyncContext asyncContext, AtomicBoolean completed,
+            Future<Boolean> registered, String applicationId) {
+
+        try {
+
+            // Wait for the registration.
+            registered.get(TIMEOUT, TimeUnit.MILLISECONDS);
+        }
+        catch(ExecutionException e) {
+            // The failure is reported below.
+        }
+        catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        catch(TimeoutException e) {
+            // The request is completed by the timeout of the asynchronous context.
+        }
+
+        // Check if the request is already completed.
+        if (!completed.compareAndSet(false, true)) {
+            return;
+        }
+
+        try {
+
+            // Declare.
+            AdmissionRejectedException rejection;
+            HttpServletRequest request;
+            HttpServletResponse response;
+
+            // Get the request, response and admission rejection.
+            request = (HttpServletRequest)asyncContext.getRequest();
+            response = (HttpServletResponse)asyncContext.getResponse();
+            rejection = getRejection(registered);
+
+            // Check if the registration timed out.
+            if (!registered.isDone()) {
+                response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "The registration timed out.");
+            }
+            // Check if the registration was rejected by the admission control.
+            else if (rejection != null) {
+                response.setHeader("Retry-After", String.valueOf((rejection.getRetryAfter() + 999) / 1000));
+                response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, rejection.getMessage());
+            }
+            // Check if the registration succeeded.
+            else if (isRegistered(registered)) {
+                response.sendRedirect(response.encodeRedirectURL(request.getContextPath() + "/pages/protected.jsf"));
+            }
+            else {
+                response.sendRedirect(response.encodeRedirectURL(request.getContextPath()
+                        + "/pages/registration.jsf?failure=true&applicationId="
+                        + URLEncoder.encode((applicationId != null) ? applicationId : "", "UTF-8")));
+            }
+        }
+        catch(IOException e) {
+            LOGGER.log(Level.WARNING, "Unable to complete the registration request.", e);
+        }
+        finally {
+            asyncContext.complete();
+        }
+    }
+
+    /**
+     * Register the posted user profile.
+     *
+     * @param  request   the HTTP request.
+     * @param  response  the HTTP response.
+     *
+     * @throws  IOException       if the response cannot be written.
+     * @throws  ServletException  if the request cannot be processed.
+     */
+    @Override
+    protected void doPost(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+
+        // Declare.
+        final String applicationId;
+        final AsyncContext asyncContext;
+        final AtomicBoolean completed;
+        final Future<Boolean> registered;
+        String requestKey;
+        UserProfile userProfile;
+
+        // Get the posted user profile.
+        request.setCharacterEncoding("UTF-8");
+        applicationId = request.getParameter("applicationId");
+        userProfile = UserProfile.newInstance();
+        userProfile.setEmailAddress(request.getParameter("emailAddress"));
+        userProfile.setFirstName(request.getParameter("firstName"));
+        userProfile.setLastName(request.getParameter("lastName"));
+        userProfile.setPassword(request.getParameter("password"));
+        userProfile.setUsername(request.getParameter("username"));
+
+        // Get the request key.
+        requestKey = request.getParameter("requestKey");
+        if (requestKey == null) {
+            requestKey = request.getHeader("Idempotency-Key");
+        }
+
+        // Put the request in asynchronous mode until the timeout.
+        asyncContext = request.startAsync();
+        asyncContext.setTimeout(TIMEOUT);
+        completed = new AtomicBoolean();
+        asyncContext.addListener(new AsyncListener() {
+
+            @Override
+            public void onComplete(AsyncEvent event) {
+            }
+
+            @Override
+            public void onError(AsyncEvent event) {
+            }
+
+            @Override
+            public void onStartAsync(AsyncEvent event) {
+            }
+
+            @Override
+            public void onTimeout(AsyncEvent event) throws IOException {
+
+                // Check if the request is not completed yet.
+                if (completed.compareAndSet(false, true)) {
+                    ((HttpServletResponse)event.getAsyncContext().getResponse()).sendError(
+                            HttpServletResponse.SC_SERVICE_UNAVAILABLE, "The registration timed out.");
+                    event.getAsyncContext().complete();
+                }
+            }
+        });
+
+        try {
+
+            // Queue the registration.
+            registered = entryService.registerAsync(userProfile, applicationId, requestKey);
+        }
+        catch(RuntimeException e) {
+            asyncContext.complete();
+            throw new ServletException("Unable to queue the registration.", e);
+        }
+
+        // Complete the request on a thread of the container.
+        asyncContext.start(new Runnable() {
+
+            @Override
+            public void run() {
+                complete(asyncContext, completed, registered, applicationId);
+            }
+        });
+    }
+
+    /**
+     * Get the admission rejection of the registration.
+     *
+     * @param  registered  the registration result.
+     *
+     * @return  the admission rejection, or null if the registration is not
+     *          done or was not rejected by the admission control.
+     */
+    private static AdmissionRejectedException getRejection(Future<Boolean> registered) {
+
+        // Declare.
+        AdmissionRejectedException rejection;
+
+        // Initialize.
+        rejection = null;
+
+        try {
+
+            // Check if the registration is done.
+            if (registered.isDone()) {
+                registered.get();
+            }
+        }
+        catch(ExecutionException e) {
+
+            // Check if the registration was rejected by the admission control.
+            if (e.getCause() instanceof AdmissionRejectedException) {
+                rejection = (AdmissionRejectedException)e.getCause();
+            }
+        }
+        catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        return rejection;
+    }
+
+    /**
+     * Check if the registration succeeded.
+     *
+     * @param  registered  the completed registration result.
+     *
+     * @return  true if the user profile is registered, otherwise false.
+     */
+    private static boolean isRegistered(Future<Boolean> registered) {
+
+        // Declare.
+        boolean isRegistered;
+
+        try {
+            isRegistered = Boolean.TRUE.equals(registered.get());
+        }
+        catch(ExecutionException e) {
+            LOGGER.log(Level.WARNING, "Unable to register the user profile.", e.getCause());
+            isRegistered = false;
+        }
+        catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            isRegistered = false;
+        }
+
+        return isRegistered;
+    }
+}
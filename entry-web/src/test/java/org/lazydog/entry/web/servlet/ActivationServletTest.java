@@ -0,0 +1,103 @@
+package org.lazydog.entry.web.servlet;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.lazydog.entry.AdmissionRejectedException;
+import org.lazydog.entry.EntryService;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+
+
+/**
+ * Unit tests for ActivationServlet class.
+ *
+ * @author  Ron Rickard
+ */
+public class ActivationServletTest {
+
+    private Map<String, Object> calls;
+    private RuntimeException failure;
+    private ActivationServlet servlet;
+
+    @Before
+    public void beforeTest() {
+        calls = new HashMap<String, Object>();
+        failure = null;
+        servlet = new ActivationServlet();
+        servlet.setEntryService(proxy(EntryService.class, new InvocationHandler() {
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                if (failure != null) {
+                    throw failure;
+                }
+                return ("activateByCode".equals(method.getName()) && "testcode1".equals(args[0])) ? "testaccount1" : null;
+            }
+        }));
+    }
+
+    @Test
+    public void doGet() throws Exception {
+        servlet.doGet(request("testcode1"), response());
+        assertEquals("/entry/pages/protected.jsf", calls.get("sendRedirect"));
+        assertNull(calls.get("sendError"));
+    }
+
+    @Test
+    public void doGetInvalidCode() throws Exception {
+        servlet.doGet(request("testcode2"), response());
+        assertEquals(HttpServletResponse.SC_NOT_FOUND, calls.get("sendError"));
+        assertNull(calls.get("sendRedirect"));
+    }
+
+    @Test
+    public void doGetMissingCode() throws Exception {
+        servlet.doGet(request(null), response());
+        assertEquals(HttpServletResponse.SC_NOT_FOUND, calls.get("sendError"));
+    }
+
+    @Test
+    public void doGetRejected() throws Exception {
+        failure = new AdmissionRejectedException(null, AdmissionRejectedException.Reason.RATE_LIMITED, 1500, "The write rate limit is exceeded.");
+        servlet.doGet(request("testcode1"), response());
+        assertEquals(HttpServletResponse.SC_SERVICE_UNAVAILABLE, calls.get("sendError"));
+        assertEquals("2", calls.get("setHeader"));
+    }
+
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(ActivationServletTest.class.getClassLoader(), new Class<?>[] {type}, handler));
+    }
+
+    private HttpServletRequest request(final String code) {
+        return proxy(HttpServletRequest.class, new InvocationHandler() {
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                if ("getParameter".equals(method.getName())) {
+                    return "code".equals(args[0]) ? code : null;
+                }
+                return "getContextPath".equals(method.getName()) ? "/entry" : null;
+            }
+        });
+    }
+
+    private HttpServletResponse response() {
+        return proxy(HttpServletResponse.class, new InvocationHandler() {
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                if ("encodeRedirectURL".equals(method.getName())) {
+                    return args[0];
+                }
+                calls.put(method.getName(), "setHeader".equals(method.getName()) ? args[1] : args[0]);
+                return null;
+            }
+        });
+    }
+}